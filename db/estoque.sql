@@ -1,4 +1,7 @@
 -- Estrutura do banco de dados
+-- Versão 0 do esquema: alterações posteriores (faixas de estoque, documentos, índices etc.) ficam
+-- em src/main/resources/db/migracao e são aplicadas pela aplicação na inicialização
+-- (MigradorEsquema). Este script não deve ser alterado: mudanças no esquema vão em uma nova migração.
 CREATE DATABASE IF NOT EXISTS controle_estoque;
 USE controle_estoque;
 
@@ -0,0 +1,443 @@
+package dao;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import model.Categoria;
+import model.Movimentacao;
+import model.Produto;
+
+/**
+ * Acesso assíncrono às DAOs de produtos, categorias e movimentações: cada chamada devolve um
+ * {@link CompletableFuture} e roda em um executor limitado, com tempo limite por operação.
+ *
+ * O tempo limite vale desde a chamada (inclui a espera por uma vaga no executor). Ao se esgotar,
+ * ou se o futuro for cancelado com {@code cancel}, a consulta em execução é interrompida no
+ * servidor por {@link java.sql.Statement#cancel()}; o futuro termina com
+ * {@link TimeoutException} ou {@link java.util.concurrent.CancellationException}, e não com o
+ * resultado vazio que a DAO devolve em caso de erro. Se a operação terminar antes de ser de
+ * fato interrompida (ex: a escrita já foi confirmada quando o prazo se esgotou), o futuro
+ * termina com o resultado dela: um {@link TimeoutException} garante que nada foi aplicado
+ * depois do cancelamento, e quem repete a operação não a duplica.
+ *
+ * Em runtimes com threads virtuais (Java 21+), cada operação roda em uma thread virtual;
+ * caso contrário, em um pool fixo de threads. Nos dois casos, no máximo
+ * {@value #OPERACOES_SIMULTANEAS} operações usam o banco ao mesmo tempo, abaixo do tamanho
+ * do pool de conexões. As operações rodam em outra thread e, portanto, não participam da
+ * {@link Transacao} de quem as chama.
+ */
+public class AcessoAssincrono {
+
+    // Tempos limite padrão por tipo de operação
+    public static final Duration TEMPO_LIMITE_CONSULTA = Duration.ofSeconds(10);
+    public static final Duration TEMPO_LIMITE_ESCRITA = Duration.ofSeconds(15);
+    public static final Duration TEMPO_LIMITE_RELATORIO = Duration.ofSeconds(60);
+
+    // Operações executadas ao mesmo tempo e operações aguardando vaga no pool fixo
+    public static final int OPERACOES_SIMULTANEAS = 8;
+    private static final int FILA_MAXIMA = 1000;
+
+    private static final ExecutorService EXECUTOR = criarExecutor();
+    private static final Semaphore VAGAS = new Semaphore(OPERACOES_SIMULTANEAS);
+    private static final ScheduledExecutorService RELOGIO = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "acesso-assincrono-tempo-limite");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final ProdutoDAO produtoDAO;
+    private final CategoriaDAO categoriaDAO;
+    private final MovimentacaoDAO movimentacaoDAO;
+
+    /**
+     * Construtor padrão que cria as DAOs usadas pelas operações.
+     */
+    public AcessoAssincrono() {
+        this.produtoDAO = new ProdutoDAO();
+        this.categoriaDAO = new CategoriaDAO();
+        this.movimentacaoDAO = new MovimentacaoDAO();
+    }
+
+    /**
+     * Executa uma operação de banco no executor assíncrono.
+     * As chamadas às DAOs feitas pela operação podem ser interrompidas pelo futuro devolvido.
+     *
+     * @param <T> O tipo do resultado
+     * @param tempoLimite O tempo limite da operação, contado a partir desta chamada
+     * @param operacao A operação a ser executada
+     * @return O futuro com o resultado da operação
+     */
+    public <T> CompletableFuture<T> executar(Duration tempoLimite, Supplier<T> operacao) {
+        long tempoLimiteMs = tempoLimite.toMillis();
+        OperacaoCancelavel controle = new OperacaoCancelavel(tempoLimiteMs);
+        FuturoCancelavel<T> futuro = new FuturoCancelavel<>(controle);
+
+        ScheduledFuture<?> limite = RELOGIO.schedule(() -> {
+            // Em execução, quem decide o desfecho é rodar, conforme a operação seja interrompida ou não
+            if (!futuro.isDone() && !controle.cancelar()) {
+                futuro.completeExceptionally(new TimeoutException("Tempo limite de " + tempoLimiteMs + " ms esgotado"));
+            }
+        }, tempoLimiteMs, TimeUnit.MILLISECONDS);
+        futuro.whenComplete((resultado, erro) -> limite.cancel(false));
+
+        try {
+            EXECUTOR.execute(() -> rodar(operacao, controle, futuro));
+        } catch (RejectedExecutionException ex) {
+            futuro.completeExceptionally(ex);
+        }
+        return futuro;
+    }
+
+    /**
+     * Consulta um produto pelo ID. Ver {@link ProdutoDAO#consultar(int)}.
+     *
+     * @param id O ID do produto
+     * @return O futuro com o produto encontrado ou null se não existir
+     */
+    public CompletableFuture<Produto> consultarProduto(int id) {
+        return executar(TEMPO_LIMITE_CONSULTA, () -> produtoDAO.consultar(id));
+    }
+
+    /**
+     * Lista todos os produtos. Ver {@link ProdutoDAO#listarTodos()}.
+     *
+     * @return O futuro com a lista de produtos
+     */
+    public CompletableFuture<List<Produto>> listarProdutos() {
+        return executar(TEMPO_LIMITE_CONSULTA, produtoDAO::listarTodos);
+    }
+
+    /**
+     * Insere um produto. Ver {@link ProdutoDAO#inserir(Produto)}.
+     *
+     * @param produto O produto a ser inserido
+     * @return O futuro com o ID gerado ou -1 em caso de erro
+     */
+    public CompletableFuture<Integer> inserirProduto(Produto produto) {
+        return executar(TEMPO_LIMITE_ESCRITA, () -> produtoDAO.inserir(produto));
+    }
+
+    /**
+     * Atualiza um produto. Ver {@link ProdutoDAO#atualizar(Produto)}.
+     *
+     * @param produto O produto com os dados atualizados
+     * @return O futuro com true se o produto foi atualizado
+     */
+    public CompletableFuture<Boolean> atualizarProduto(Produto produto) {
+        return executar(TEMPO_LIMITE_ESCRITA, () -> produtoDAO.atualizar(produto));
+    }
+
+    /**
+     * Exclui um produto. Ver {@link ProdutoDAO#excluir(int)}.
+     *
+     * @param id O ID do produto
+     * @return O futuro com true se o produto foi excluído
+     */
+    public CompletableFuture<Boolean> excluirProduto(int id) {
+        return executar(TEMPO_LIMITE_ESCRITA, () -> produtoDAO.excluir(id));
+    }
+
+    /**
+     * Reajusta os preços de todos os produtos. Ver {@link ProdutoDAO#reajustarPrecos(double)}.
+     *
+     * @param percentual O percentual de reajuste
+     * @return O futuro com o número de produtos reajustados
+     */
+    public CompletableFuture<Integer> reajustarPrecos(double percentual) {
+        return executar(TEMPO_LIMITE_ESCRITA, () -> produtoDAO.reajustarPrecos(percentual));
+    }
+
+    /**
+     * Lista os produtos abaixo do estoque mínimo. Ver {@link ProdutoDAO#listarAbaixoMinimo()}.
+     *
+     * @return O futuro com a lista de produtos
+     */
+    public CompletableFuture<List<Produto>> listarAbaixoMinimo() {
+        return executar(TEMPO_LIMITE_RELATORIO, produtoDAO::listarAbaixoMinimo);
+    }
+
+    /**
+     * Lista os produtos acima do estoque máximo. Ver {@link ProdutoDAO#listarAcimaMaximo()}.
+     *
+     * @return O futuro com a lista de produtos
+     */
+    public CompletableFuture<List<Produto>> listarAcimaMaximo() {
+        return executar(TEMPO_LIMITE_RELATORIO, produtoDAO::listarAcimaMaximo);
+    }
+
+    /**
+     * Lista os produtos com preços. Ver {@link ProdutoDAO#listarComPrecos()}.
+     *
+     * @return O futuro com a lista de produtos
+     */
+    public CompletableFuture<List<Produto>> listarComPrecos() {
+        return executar(TEMPO_LIMITE_RELATORIO, produtoDAO::listarComPrecos);
+    }
+
+    /**
+     * Calcula o valor total do estoque. Ver {@link ProdutoDAO#calcularValorTotalEstoque()}.
+     *
+     * @return O futuro com o valor total
+     */
+    public CompletableFuture<Double> calcularValorTotalEstoque() {
+        return executar(TEMPO_LIMITE_RELATORIO, produtoDAO::calcularValorTotalEstoque);
+    }
+
+    /**
+     * Lista os produtos agrupados por categoria. Ver {@link ProdutoDAO#listarProdutosPorCategoria()}.
+     *
+     * @return O futuro com os produtos de cada categoria
+     */
+    public CompletableFuture<Map<Categoria, List<Produto>>> listarProdutosPorCategoria() {
+        return executar(TEMPO_LIMITE_RELATORIO, produtoDAO::listarProdutosPorCategoria);
+    }
+
+    /**
+     * Consulta uma categoria pelo ID. Ver {@link CategoriaDAO#consultar(int)}.
+     *
+     * @param id O ID da categoria
+     * @return O futuro com a categoria encontrada ou null se não existir
+     */
+    public CompletableFuture<Categoria> consultarCategoria(int id) {
+        return executar(TEMPO_LIMITE_CONSULTA, () -> categoriaDAO.consultar(id));
+    }
+
+    /**
+     * Lista todas as categorias. Ver {@link CategoriaDAO#listarTodos()}.
+     *
+     * @return O futuro com a lista de categorias
+     */
+    public CompletableFuture<List<Categoria>> listarCategorias() {
+        return executar(TEMPO_LIMITE_CONSULTA, categoriaDAO::listarTodos);
+    }
+
+    /**
+     * Insere uma categoria. Ver {@link CategoriaDAO#inserir(Categoria)}.
+     *
+     * @param categoria A categoria a ser inserida
+     * @return O futuro com o ID gerado ou -1 em caso de erro
+     */
+    public CompletableFuture<Integer> inserirCategoria(Categoria categoria) {
+        return executar(TEMPO_LIMITE_ESCRITA, () -> categoriaDAO.inserir(categoria));
+    }
+
+    /**
+     * Atualiza uma categoria. Ver {@link CategoriaDAO#atualizar(Categoria)}.
+     *
+     * @param categoria A categoria com os dados atualizados
+     * @return O futuro com true se a categoria foi atualizada
+     */
+    public CompletableFuture<Boolean> atualizarCategoria(Categoria categoria) {
+        return executar(TEMPO_LIMITE_ESCRITA, () -> categoriaDAO.atualizar(categoria));
+    }
+
+    /**
+     * Exclui uma categoria. Ver {@link CategoriaDAO#excluir(int)}.
+     *
+     * @param id O ID da categoria
+     * @return O futuro com true se a categoria foi excluída
+     */
+    public CompletableFuture<Boolean> excluirCategoria(int id) {
+        return executar(TEMPO_LIMITE_ESCRITA, () -> categoriaDAO.excluir(id));
+    }
+
+    /**
+     * Conta os produtos de cada categoria. Ver {@link CategoriaDAO#contarProdutosPorCategoria()}.
+     *
+     * @return O futuro com as linhas do relatório
+     */
+    public CompletableFuture<List<Object[]>> contarProdutosPorCategoria() {
+        return executar(TEMPO_LIMITE_RELATORIO, categoriaDAO::contarProdutosPorCategoria);
+    }
+
+    /**
+     * Insere uma movimentação. Ver {@link MovimentacaoDAO#inserir(Movimentacao)}.
+     * Uma saída recusada termina o futuro com {@link EstoqueInsuficienteException}.
+     *
+     * @param movimentacao A movimentação a ser inserida
+     * @return O futuro com o ID da movimentação ou -1 em caso de erro
+     */
+    public CompletableFuture<Long> inserirMovimentacao(Movimentacao movimentacao) {
+        return executar(TEMPO_LIMITE_ESCRITA, () -> movimentacaoDAO.inserir(movimentacao));
+    }
+
+    /**
+     * Insere uma movimentação como {@link #inserirMovimentacao}, mas um erro do banco termina o
+     * futuro com a {@link SQLException} (dentro de uma {@link CompletionException}) em vez do
+     * ID -1, para quem precisa distinguir o banco inacessível de uma recusa.
+     * Ver {@link MovimentacaoDAO#inserirOuLancar(Movimentacao)}.
+     *
+     * @param movimentacao A movimentação a ser inserida
+     * @return O futuro com o ID da movimentação
+     */
+    CompletableFuture<Long> inserirMovimentacaoOuLancar(Movimentacao movimentacao) {
+        return executar(TEMPO_LIMITE_ESCRITA, () -> {
+            try {
+                return movimentacaoDAO.inserirOuLancar(movimentacao);
+            } catch (SQLException ex) {
+                throw new CompletionException(ex);
+            }
+        });
+    }
+
+    /**
+     * Insere um lote de movimentações. Ver {@link MovimentacaoDAO#inserirLote(List)}.
+     *
+     * @param movimentacoes As movimentações a serem inseridas
+     * @return O futuro com os IDs gerados ou uma lista vazia em caso de erro
+     */
+    public CompletableFuture<List<Long>> inserirLoteMovimentacoes(List<Movimentacao> movimentacoes) {
+        return executar(TEMPO_LIMITE_ESCRITA, () -> movimentacaoDAO.inserirLote(movimentacoes));
+    }
+
+    /**
+     * Consulta uma movimentação pelo ID. Ver {@link MovimentacaoDAO#consultar(long)}.
+     *
+     * @param id O ID da movimentação
+     * @return O futuro com a movimentação encontrada ou null se não existir
+     */
+    public CompletableFuture<Movimentacao> consultarMovimentacao(long id) {
+        return executar(TEMPO_LIMITE_CONSULTA, () -> movimentacaoDAO.consultar(id));
+    }
+
+    /**
+     * Consulta o estoque de um produto em um instante passado.
+     * Ver {@link MovimentacaoDAO#consultarEstoqueEm(int, LocalDateTime)}.
+     *
+     * @param produtoId O ID do produto
+     * @param dataHora O instante da consulta
+     * @return O futuro com o estoque no instante ou -1 em caso de erro
+     */
+    public CompletableFuture<Integer> consultarEstoqueEm(int produtoId, LocalDateTime dataHora) {
+        return executar(TEMPO_LIMITE_CONSULTA, () -> movimentacaoDAO.consultarEstoqueEm(produtoId, dataHora));
+    }
+
+    /**
+     * Lista as movimentações de um período.
+     * Ver {@link MovimentacaoDAO#listarPeriodo(LocalDateTime, LocalDateTime)}.
+     *
+     * @param inicio O início do período (inclusive)
+     * @param fim O fim do período (exclusive)
+     * @return O futuro com a lista de movimentações
+     */
+    public CompletableFuture<List<Movimentacao>> listarMovimentacoes(LocalDateTime inicio, LocalDateTime fim) {
+        return executar(TEMPO_LIMITE_RELATORIO, () -> movimentacaoDAO.listarPeriodo(inicio, fim));
+    }
+
+    /**
+     * Lista as movimentações de um produto em um período.
+     * Ver {@link MovimentacaoDAO#listarPorProduto(int, LocalDateTime, LocalDateTime)}.
+     *
+     * @param produtoId O ID do produto
+     * @param inicio O início do período (inclusive)
+     * @param fim O fim do período (exclusive)
+     * @return O futuro com a lista de movimentações
+     */
+    public CompletableFuture<List<Movimentacao>> listarMovimentacoesPorProduto(int produtoId, LocalDateTime inicio,
+                                                                               LocalDateTime fim) {
+        return executar(TEMPO_LIMITE_CONSULTA, () -> movimentacaoDAO.listarPorProduto(produtoId, inicio, fim));
+    }
+
+    /**
+     * Lista as movimentações de um tipo em um período.
+     * Ver {@link MovimentacaoDAO#listarPorTipo(String, LocalDateTime, LocalDateTime)}.
+     *
+     * @param tipo O tipo das movimentações ("Entrada" ou "Saída")
+     * @param inicio O início do período (inclusive)
+     * @param fim O fim do período (exclusive)
+     * @return O futuro com a lista de movimentações
+     */
+    public CompletableFuture<List<Movimentacao>> listarMovimentacoesPorTipo(String tipo, LocalDateTime inicio,
+                                                                            LocalDateTime fim) {
+        return executar(TEMPO_LIMITE_RELATORIO, () -> movimentacaoDAO.listarPorTipo(tipo, inicio, fim));
+    }
+
+    /**
+     * Executa a operação na thread do executor, vinculando o controle de cancelamento a ela.
+     */
+    private static <T> void rodar(Supplier<T> operacao, OperacaoCancelavel controle, FuturoCancelavel<T> futuro) {
+        if (futuro.isDone()) {
+            return;
+        }
+        try {
+            VAGAS.acquire();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            futuro.completeExceptionally(ex);
+            return;
+        }
+        // Cancelada ou expirada antes de começar: o futuro já foi (ou está sendo) terminado
+        if (futuro.isDone() || !controle.iniciar()) {
+            VAGAS.release();
+            return;
+        }
+        controle.vincular();
+        try {
+            T resultado = operacao.get();
+            // A DAO devolve um resultado vazio quando a consulta é interrompida
+            if (controle.isInterrompida()) {
+                futuro.completeExceptionally(new TimeoutException("Tempo limite esgotado"));
+            } else {
+                futuro.complete(resultado);
+            }
+        } catch (RuntimeException ex) {
+            // Interrompida, a operação pode também terminar com o erro do statement cancelado
+            futuro.completeExceptionally(controle.isInterrompida() ? new TimeoutException("Tempo limite esgotado") : ex);
+        } finally {
+            controle.desvincular();
+            VAGAS.release();
+        }
+    }
+
+    /**
+     * Usa uma thread virtual por operação quando o runtime oferece
+     * ({@code Executors.newVirtualThreadPerTaskExecutor}); senão, um pool fixo com fila limitada.
+     */
+    private static ExecutorService criarExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException ex) {
+            return new ThreadPoolExecutor(OPERACOES_SIMULTANEAS, OPERACOES_SIMULTANEAS,
+                    0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(FILA_MAXIMA), r -> {
+                        Thread t = new Thread(r, "acesso-assincrono");
+                        t.setDaemon(true);
+                        return t;
+                    });
+        }
+    }
+
+    /**
+     * Futuro que, ao ser cancelado, interrompe a consulta em execução.
+     */
+    private static final class FuturoCancelavel<T> extends CompletableFuture<T> {
+        private final OperacaoCancelavel controle;
+
+        FuturoCancelavel(OperacaoCancelavel controle) {
+            this.controle = controle;
+        }
+
+        @Override
+        public boolean cancel(boolean interromper) {
+            boolean cancelado = super.cancel(interromper);
+            if (cancelado) {
+                controle.cancelar();
+            }
+            return cancelado;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Alocador de IDs em blocos (hi-lo) a partir da tabela {@code sequencia}.
+ *
+ * Cada alocador reserva no banco um bloco de IDs consecutivos, em uma única instrução
+ * confirmada de imediato, e os entrega em memória sem travas até o bloco acabar.
+ * Assim as DAOs conhecem o ID antes do INSERT, sem {@code RETURN_GENERATED_KEYS},
+ * e lotes podem ser montados com os IDs já definidos.
+ *
+ * A reserva usa uma conexão própria do pool, fora da {@link Transacao} da thread: o bloco
+ * continua reservado mesmo que a transação seja desfeita, e a linha da sequência fica
+ * travada só durante a reserva. IDs não usados (bloco abandonado ao encerrar o processo,
+ * inserções desfeitas) deixam lacunas na numeração.
+ *
+ * Todas as inserções nas tabelas atendidas devem usar o alocador: o AUTO_INCREMENT não
+ * conhece os blocos reservados. A tabela {@code movimentacao} tem ID BIGINT e usa
+ * {@link #proximoLongo()}; as demais têm ID INT e usam {@link #proximo()}.
+ */
+final class AlocadorIds {
+
+    static final AlocadorIds CATEGORIA = new AlocadorIds("categoria", 10, Integer.MAX_VALUE);
+    static final AlocadorIds PRODUTO = new AlocadorIds("produto", 50, Integer.MAX_VALUE);
+    static final AlocadorIds MOVIMENTACAO = new AlocadorIds("movimentacao", 500, Long.MAX_VALUE);
+    static final AlocadorIds DOCUMENTO = new AlocadorIds("documento_estoque", 50, Integer.MAX_VALUE);
+
+    private final String sequencia;
+    private final int tamanhoBloco;
+
+    // Maior ID aceito pela coluna da tabela
+    private final long maiorId;
+
+    // Bloco em uso; substituído por um novo quando se esgota
+    private volatile Bloco atual = new Bloco(0, 0);
+
+    private AlocadorIds(String sequencia, int tamanhoBloco, long maiorId) {
+        this.sequencia = sequencia;
+        this.tamanhoBloco = tamanhoBloco;
+        this.maiorId = maiorId;
+    }
+
+    /**
+     * Obtém o próximo ID de uma sequência de tabela com ID INT.
+     *
+     * @return O ID alocado
+     * @throws SQLException Se não for possível reservar um novo bloco
+     */
+    int proximo() throws SQLException {
+        return Math.toIntExact(proximoLongo());
+    }
+
+    /**
+     * Obtém o próximo ID da sequência, reservando um novo bloco no banco se necessário.
+     *
+     * @return O ID alocado
+     * @throws SQLException Se não for possível reservar um novo bloco
+     */
+    long proximoLongo() throws SQLException {
+        while (true) {
+            Bloco bloco = atual;
+            long id = bloco.proximo.getAndIncrement();
+            if (id < bloco.fim) {
+                return id;
+            }
+            synchronized (this) {
+                if (atual == bloco) {
+                    atual = reservar();
+                }
+            }
+        }
+    }
+
+    /**
+     * Reserva o próximo bloco de IDs. {@code LAST_INSERT_ID(expr)} devolve o novo valor
+     * da sequência na mesma conexão, sem uma leitura com trava.
+     */
+    private Bloco reservar() throws SQLException {
+        ConnectionFactory connectionFactory = ConnectionFactory.getInstance();
+        try (Connection conn = connectionFactory.getConnectionDoPool()) {
+            try (PreparedStatement stmt = connectionFactory.preparar(conn, ConsultaSql.SEQUENCIA_RESERVAR)) {
+                stmt.setInt(1, tamanhoBloco);
+                stmt.setString(2, sequencia);
+                if (stmt.executeUpdate() == 0) {
+                    throw new SQLException("Sequência " + sequencia + " não encontrada");
+                }
+            }
+            try (PreparedStatement stmt = connectionFactory.preparar(conn, ConsultaSql.SEQUENCIA_ULTIMO_VALOR);
+                 ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                long fim = rs.getLong(1);
+                if (fim - 1 > maiorId) {
+                    throw new SQLException("Sequência " + sequencia + " excedeu o maior ID permitido");
+                }
+                return new Bloco(fim - tamanhoBloco, fim);
+            }
+        }
+    }
+
+    /**
+     * Intervalo de IDs reservado: de {@code proximo} (inclusive) até {@code fim} (exclusive).
+     */
+    private static final class Bloco {
+        final AtomicLong proximo;
+        final long fim;
+
+        Bloco(long inicio, long fim) {
+            this.proximo = new AtomicLong(inicio);
+            this.fim = fim;
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package dao;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import model.Produto;
+
+/**
+ * Cache de produtos compartilhado pelo processo, consultado pela {@link ProdutoDAO} antes do banco.
+ *
+ * Guarda os produtos por ID (até {@link #CAPACIDADE} entradas) e a última listagem completa.
+ * A política de descarte é no estilo TinyLFU: um esboço de contagem (count-min sketch) estima
+ * a frequência recente de acesso de cada ID e, com o cache cheio, um produto novo só entra
+ * se for acessado com mais frequência que o candidato a sair (o menos usado recentemente).
+ * Assim, uma varredura pontual por produtos raros não expulsa os produtos mais consultados.
+ *
+ * As escritas em produtos e as movimentações de estoque invalidam as entradas afetadas; dentro de
+ * uma {@link Transacao}, a invalidação é repetida quando ela for confirmada, pois outras threads
+ * podem ter guardado o valor anterior enquanto a transação estava aberta. Consultas feitas dentro
+ * de uma transação não usam o cache (ver {@link #disponivel()}), para enxergarem as próprias escritas
+ * e não publicarem dados ainda não confirmados.
+ *
+ * Os produtos guardados e devolvidos são cópias, para que as telas possam alterá-los livremente.
+ */
+final class CacheProdutos {
+
+    // Número máximo de produtos mantidos por ID
+    static final int CAPACIDADE = 1024;
+
+    // Acessos registrados até as frequências serem reduzidas à metade (envelhecimento)
+    private static final int AMOSTRA_POR_ENTRADA = 10;
+
+    private static final CacheProdutos INSTANCIA = new CacheProdutos(CAPACIDADE);
+
+    private final int capacidade;
+    private final LinkedHashMap<Integer, Produto> entradas;
+    private final EsbocoFrequencia frequencias;
+
+    // Última listagem completa (null quando precisa ser consultada novamente)
+    private List<Produto> todos;
+
+    // Incrementada a cada invalidação: leituras iniciadas antes dela não são guardadas
+    private long versao;
+
+    // Estatísticas
+    private long acertos;
+    private long falhas;
+    private long descartes;
+    private long rejeicoes;
+    private long invalidacoes;
+
+    private CacheProdutos(int capacidade) {
+        this.capacidade = capacidade;
+        this.entradas = new LinkedHashMap<>(16, 0.75f, true);
+        this.frequencias = new EsbocoFrequencia(capacidade, capacidade * AMOSTRA_POR_ENTRADA);
+    }
+
+    /**
+     * Obtém o cache de produtos compartilhado pelo processo.
+     *
+     * @return A instância única do cache
+     */
+    static CacheProdutos getInstance() {
+        return INSTANCIA;
+    }
+
+    /**
+     * Indica se o cache pode ser usado pela thread atual (fora de uma transação).
+     *
+     * @return true se as consultas podem passar pelo cache
+     */
+    boolean disponivel() {
+        return !Transacao.emAndamento();
+    }
+
+    /**
+     * Obtém uma cópia do produto guardado, registrando o acesso para a política de descarte.
+     *
+     * @param id O ID do produto
+     * @return Uma cópia do produto ou null se ele não estiver no cache
+     */
+    synchronized Produto obter(int id) {
+        frequencias.registrar(id);
+        Produto produto = entradas.get(id);
+        if (produto == null) {
+            falhas++;
+            return null;
+        }
+        acertos++;
+        return copiar(produto);
+    }
+
+    /**
+     * Obtém cópias dos produtos da última listagem completa guardada.
+     *
+     * @return Os produtos ou null se a listagem não estiver no cache
+     */
+    synchronized List<Produto> obterTodos() {
+        if (todos == null) {
+            falhas++;
+            return null;
+        }
+        acertos++;
+        List<Produto> copias = new ArrayList<>(todos.size());
+        for (Produto produto : todos) {
+            copias.add(copiar(produto));
+        }
+        return copias;
+    }
+
+    /**
+     * Obtém a versão atual do cache. Deve ser lida antes de consultar o banco e
+     * repassada a {@link #guardar} ou {@link #guardarTodos}, que descartam o resultado
+     * se alguma invalidação ocorreu durante a consulta.
+     *
+     * @return A versão atual
+     */
+    synchronized long getVersao() {
+        return versao;
+    }
+
+    /**
+     * Guarda o produto lido do banco, se a política de admissão permitir.
+     *
+     * @param produto O produto lido
+     * @param versaoLeitura A versão obtida antes da leitura
+     */
+    synchronized void guardar(Produto produto, long versaoLeitura) {
+        if (versaoLeitura != versao) {
+            return;
+        }
+        int id = produto.getId();
+        if (entradas.containsKey(id) || entradas.size() < capacidade) {
+            entradas.put(id, copiar(produto));
+            return;
+        }
+
+        // Cache cheio: o produto novo só entra se for mais frequente que o menos usado recentemente
+        Iterator<Map.Entry<Integer, Produto>> it = entradas.entrySet().iterator();
+        Map.Entry<Integer, Produto> vitima = it.next();
+        if (frequencias.estimar(id) > frequencias.estimar(vitima.getKey())) {
+            it.remove();
+            descartes++;
+            entradas.put(id, copiar(produto));
+        } else {
+            rejeicoes++;
+        }
+    }
+
+    /**
+     * Guarda a listagem completa lida do banco. Listagens maiores que a capacidade não são guardadas.
+     *
+     * @param produtos Os produtos lidos
+     * @param versaoLeitura A versão obtida antes da leitura
+     */
+    synchronized void guardarTodos(List<Produto> produtos, long versaoLeitura) {
+        if (versaoLeitura != versao || produtos.size() > capacidade) {
+            return;
+        }
+        List<Produto> copias = new ArrayList<>(produtos.size());
+        for (Produto produto : produtos) {
+            copias.add(copiar(produto));
+        }
+        todos = copias;
+    }
+
+    /**
+     * Remove o produto do cache, junto com a listagem completa.
+     *
+     * @param id O ID do produto alterado
+     */
+    void invalidar(int id) {
+        descartar(id);
+        if (Transacao.emAndamento()) {
+            Transacao.aposConfirmar(() -> descartar(id));
+        }
+    }
+
+    /**
+     * Remove todos os produtos do cache (ex: reajuste geral de preços ou alteração de categoria).
+     */
+    void invalidarTodos() {
+        descartarTodos();
+        if (Transacao.emAndamento()) {
+            Transacao.aposConfirmar(this::descartarTodos);
+        }
+    }
+
+    private synchronized void descartar(int id) {
+        versao++;
+        invalidacoes++;
+        entradas.remove(id);
+        todos = null;
+    }
+
+    private synchronized void descartarTodos() {
+        versao++;
+        invalidacoes++;
+        entradas.clear();
+        todos = null;
+    }
+
+    /**
+     * Obtém as estatísticas atuais do cache.
+     *
+     * @return As estatísticas do cache
+     */
+    synchronized EstatisticasCacheProdutos getEstatisticas() {
+        return new EstatisticasCacheProdutos(entradas.size(), capacidade, acertos, falhas, descartes,
+                rejeicoes, invalidacoes);
+    }
+
+    private Produto copiar(Produto produto) {
+        // A categoria é a instância compartilhada do MapaCategorias e não precisa ser copiada
+        return new Produto(produto.getId(), produto.getNome(), produto.getPrecoUnitario(), produto.getUnidade(),
+                produto.getQuantidadeEstoque(), produto.getQuantidadeMinima(), produto.getQuantidadeMaxima(),
+                produto.getCategoria());
+    }
+
+    /**
+     * Esboço de contagem (count-min sketch) com contadores de 4 bits: estima quantas vezes
+     * cada ID foi acessado recentemente usando memória fixa. Os contadores são reduzidos
+     * à metade a cada amostra completa, para que acessos antigos percam peso.
+     */
+    private static final class EsbocoFrequencia {
+        private static final int LINHAS = 4;
+        private static final int MAXIMO = 15;
+        private static final int[] SEMENTES = {0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F};
+
+        private final byte[][] contadores;
+        private final int mascara;
+        private final int amostra;
+        private int registrados;
+
+        EsbocoFrequencia(int capacidade, int amostra) {
+            int largura = Integer.highestOneBit(Math.max(16, capacidade * 2 - 1)) * 2;
+            this.contadores = new byte[LINHAS][largura];
+            this.mascara = largura - 1;
+            this.amostra = amostra;
+        }
+
+        void registrar(int id) {
+            for (int i = 0; i < LINHAS; i++) {
+                int indice = indice(id, i);
+                if (contadores[i][indice] < MAXIMO) {
+                    contadores[i][indice]++;
+                }
+            }
+            if (++registrados >= amostra) {
+                envelhecer();
+            }
+        }
+
+        int estimar(int id) {
+            int minimo = MAXIMO;
+            for (int i = 0; i < LINHAS; i++) {
+                minimo = Math.min(minimo, contadores[i][indice(id, i)]);
+            }
+            return minimo;
+        }
+
+        private void envelhecer() {
+            for (byte[] linha : contadores) {
+                for (int i = 0; i < linha.length; i++) {
+                    linha[i] = (byte) (linha[i] >> 1);
+                }
+            }
+            registrados /= 2;
+        }
+
+        private int indice(int id, int linha) {
+            int h = id * SEMENTES[linha];
+            h ^= h >>> 16;
+            return h & mascara;
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package dao;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache de statements preparados de uma única conexão física do pool.
+ * As entradas são identificadas pelas instruções do registro {@link ConsultaSql}.
+ *
+ * Fechar o statement entregue às DAOs apenas limpa os parâmetros, o lote pendente, o tamanho
+ * de busca, o limite de linhas e o tempo limite da consulta, e o devolve ao cache;
+ * o statement físico só é fechado quando descartado pelo limite de tamanho (LRU)
+ * ou quando a conexão física é encerrada.
+ */
+final class CacheStatements {
+
+    private final Connection fisica;
+    private final int capacidade;
+    private final AtomicLong acertos;
+    private final AtomicLong falhas;
+    private final AtomicLong descartes;
+    private final LinkedHashMap<ConsultaSql, Entrada> entradas;
+
+    /**
+     * Cria o cache para a conexão física informada.
+     *
+     * @param fisica Conexão física dona dos statements
+     * @param capacidade Número máximo de statements mantidos abertos
+     * @param acertos Contador compartilhado de acertos
+     * @param falhas Contador compartilhado de falhas
+     * @param descartes Contador compartilhado de statements descartados pelo limite
+     */
+    CacheStatements(Connection fisica, int capacidade, AtomicLong acertos, AtomicLong falhas, AtomicLong descartes) {
+        this.fisica = fisica;
+        this.capacidade = capacidade;
+        this.acertos = acertos;
+        this.falhas = falhas;
+        this.descartes = descartes;
+        this.entradas = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Obtém o statement preparado para a instrução, reutilizando o já existente quando possível.
+     * Se o statement em cache estiver em uso (consultas aninhadas), um statement avulso é preparado.
+     *
+     * @param consulta A instrução do registro
+     * @return O statement pronto para receber parâmetros
+     * @throws SQLException Se ocorrer um erro ao preparar a instrução
+     */
+    synchronized PreparedStatement obter(ConsultaSql consulta) throws SQLException {
+        Entrada entrada = entradas.get(consulta);
+        if (entrada != null && !entrada.emUso) {
+            acertos.incrementAndGet();
+            return entrada.emprestar();
+        }
+
+        falhas.incrementAndGet();
+        PreparedStatement statement = preparar(consulta);
+        if (entrada != null) {
+            return statement;
+        }
+
+        entrada = new Entrada(statement);
+        entradas.put(consulta, entrada);
+        descartarExcedentes();
+        return entrada.emprestar();
+    }
+
+    /**
+     * Libera todos os statements ainda marcados como em uso.
+     * Chamado quando a conexão volta ao pool; handles esquecidos deixam de ser válidos.
+     */
+    synchronized void liberarTodos() {
+        for (Entrada entrada : entradas.values()) {
+            if (entrada.emUso) {
+                entrada.devolver(entrada.geracao);
+            }
+        }
+    }
+
+    /**
+     * Fecha todos os statements físicos do cache.
+     */
+    synchronized void fechar() {
+        for (Entrada entrada : entradas.values()) {
+            entrada.fecharFisico();
+        }
+        entradas.clear();
+    }
+
+    private PreparedStatement preparar(ConsultaSql consulta) throws SQLException {
+        if (consulta.isRetornaChavesGeradas()) {
+            return fisica.prepareStatement(consulta.getSql(), Statement.RETURN_GENERATED_KEYS);
+        }
+        return fisica.prepareStatement(consulta.getSql());
+    }
+
+    private void descartarExcedentes() {
+        Iterator<Map.Entry<ConsultaSql, Entrada>> it = entradas.entrySet().iterator();
+        while (entradas.size() > capacidade && it.hasNext()) {
+            Entrada maisAntiga = it.next().getValue();
+            it.remove();
+            descartes.incrementAndGet();
+            if (maisAntiga.emUso) {
+                maisAntiga.descartada = true;
+            } else {
+                maisAntiga.fecharFisico();
+            }
+        }
+    }
+
+    /**
+     * Statement físico em cache e o estado do seu empréstimo atual.
+     */
+    private final class Entrada {
+        final PreparedStatement fisico;
+        boolean emUso;
+        boolean descartada;
+        boolean comTempoLimite;
+        long geracao;
+
+        Entrada(PreparedStatement fisico) {
+            this.fisico = fisico;
+        }
+
+        PreparedStatement emprestar() {
+            emUso = true;
+            geracao++;
+            return criarHandle(this, geracao);
+        }
+
+        void devolver(long geracaoHandle) {
+            synchronized (CacheStatements.this) {
+                if (!emUso || geracaoHandle != geracao) {
+                    return;
+                }
+                emUso = false;
+                geracao++;
+                if (descartada) {
+                    fecharFisico();
+                    return;
+                }
+                try {
+                    // Linhas de lote de um empréstimo interrompido não podem ir no executeBatch do próximo
+                    fisico.clearParameters();
+                    fisico.clearBatch();
+                    fisico.setFetchSize(0);
+                    fisico.setMaxRows(0);
+                    if (comTempoLimite) {
+                        fisico.setQueryTimeout(0);
+                        comTempoLimite = false;
+                    }
+                } catch (SQLException ex) {
+                    entradas.values().remove(this);
+                    fecharFisico();
+                }
+            }
+        }
+
+        void fecharFisico() {
+            try {
+                fisico.close();
+            } catch (SQLException ex) {
+                System.err.println("Erro ao fechar statement em cache: " + ex.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Cria o handle entregue às DAOs: {@code close()} devolve o statement ao cache.
+     */
+    private PreparedStatement criarHandle(Entrada entrada, long geracao) {
+        InvocationHandler handler = (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "close":
+                    entrada.devolver(geracao);
+                    return null;
+                case "isClosed":
+                    return entrada.geracao != geracao || entrada.fisico.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    if (entrada.geracao != geracao) {
+                        throw new SQLException("Statement já devolvido ao cache");
+                    }
+                    // Lembra de zerar o tempo limite ao devolver, para não afetar o próximo empréstimo
+                    if ("setQueryTimeout".equals(method.getName()) && (Integer) args[0] != 0) {
+                        entrada.comTempoLimite = true;
+                    }
+                    try {
+                        return method.invoke(entrada.fisico, args);
+                    } catch (InvocationTargetException ex) {
+                        // Informa a operação do AcessoAssincrono se o erro foi a sua interrupção
+                        OperacaoCancelavel operacao = OperacaoCancelavel.atual();
+                        if (operacao != null && ex.getCause() instanceof SQLException) {
+                            operacao.observarErro((SQLException) ex.getCause());
+                        }
+                        throw ex.getCause();
+                    }
+            }
+        };
+        return (PreparedStatement) Proxy.newProxyInstance(
+                CacheStatements.class.getClassLoader(), new Class<?>[]{PreparedStatement.class}, handler);
+    }
+}
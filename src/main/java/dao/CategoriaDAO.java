@@ -4,7 +4,6 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.List;
 import model.Categoria;
@@ -12,21 +11,29 @@ import model.Categoria;
 /**
  * Classe de acesso a dados para a entidade Categoria.
  * Implementa operações de CRUD (Create, Read, Update, Delete) e consultas específicas.
+ *
+ * As consultas são atendidas pelo {@link MapaCategorias}, mantido em memória e invalidado
+ * a cada escrita; as categorias retornadas são cópias que podem ser alteradas livremente.
  */
 public class CategoriaDAO {
 
-    // Instância da fábrica de conexões
+    // Fábrica de conexões compartilhada pelo processo
     private final ConnectionFactory connectionFactory;
 
+    // Categorias em memória, compartilhadas com as demais DAOs
+    private final MapaCategorias categorias;
+
     /**
-     * Construtor padrão que inicializa a fábrica de conexões
+     * Construtor padrão que obtém a fábrica de conexões e o mapa de categorias compartilhados
      */
     public CategoriaDAO() {
-        this.connectionFactory = new ConnectionFactory();
+        this.connectionFactory = ConnectionFactory.getInstance();
+        this.categorias = MapaCategorias.getInstance();
     }
 
     /**
      * Insere uma nova categoria no banco de dados.
+     * O ID é alocado pelo {@link AlocadorIds} antes da inserção.
      *
      * @param categoria A categoria a ser inserida
      * @return O ID gerado para a categoria inserida ou -1 em caso de erro
@@ -34,42 +41,35 @@ public class CategoriaDAO {
     public int inserir(Categoria categoria) {
         Connection conn = null;
         PreparedStatement stmt = null;
-        ResultSet rs = null;
-        int idGerado = -1;
 
         try {
-            // Obtém conexão com o banco de dados
+            // Aloca o ID e obtém conexão com o banco de dados
+            int idGerado = AlocadorIds.CATEGORIA.proximo();
             conn = connectionFactory.getConnection();
 
-            String sql = "INSERT INTO categoria (nome, tamanho, embalagem) VALUES (?, ?, ?)";
-
-
             // Prepara statement para inserção
-            stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
-            stmt.setString(1, categoria.getNome());
-            stmt.setString(2, categoria.getTamanho());
-            stmt.setString(3, categoria.getEmbalagem());
+            stmt = connectionFactory.preparar(conn, ConsultaSql.CATEGORIA_INSERIR);
+            stmt.setInt(1, idGerado);
+            stmt.setString(2, categoria.getNome());
+            stmt.setString(3, categoria.getTamanho());
+            stmt.setString(4, categoria.getEmbalagem());
 
             // Executa a inserção
             int linhasAfetadas = stmt.executeUpdate();
 
             // Verifica se a inserção foi bem-sucedida
             if (linhasAfetadas > 0) {
-                // Obtém o ID gerado
-                rs = stmt.getGeneratedKeys();
-                if (rs.next()) {
-                    idGerado = rs.getInt(1);
-                    categoria.setId(idGerado);
-                }
+                categoria.setId(idGerado);
+                categorias.invalidar();
+                return idGerado;
             }
-
-            return idGerado;
+            return -1;
         } catch (SQLException ex) {
             System.err.println("Erro ao inserir categoria: " + ex.getMessage());
             return -1;
         } finally {
             // Fecha recursos
-            fecharRecursos(rs, stmt, conn);
+            fecharRecursos(null, stmt, conn);
         }
     }
 
@@ -87,11 +87,8 @@ public class CategoriaDAO {
             // Obtém conexão com o banco de dados
             conn = connectionFactory.getConnection();
 
-            // SQL para atualização
-            String sql = "UPDATE categoria SET nome = ?, tamanho = ?, embalagem = ? WHERE id = ?";
-
             // Prepara statement para atualização
-            stmt = conn.prepareStatement(sql);
+            stmt = connectionFactory.preparar(conn, ConsultaSql.CATEGORIA_ATUALIZAR);
             stmt.setString(1, categoria.getNome());
             stmt.setString(2, categoria.getTamanho());
             stmt.setString(3, categoria.getEmbalagem());
@@ -101,7 +98,12 @@ public class CategoriaDAO {
             int linhasAfetadas = stmt.executeUpdate();
 
             // Verifica se a atualização foi bem-sucedida
-            return linhasAfetadas > 0;
+            if (linhasAfetadas > 0) {
+                categorias.invalidar();
+                CacheProdutos.getInstance().invalidarTodos();
+                return true;
+            }
+            return false;
         } catch (SQLException ex) {
             System.err.println("Erro ao atualizar categoria: " + ex.getMessage());
             return false;
@@ -125,18 +127,20 @@ public class CategoriaDAO {
             // Obtém conexão com o banco de dados
             conn = connectionFactory.getConnection();
 
-            // SQL para exclusão
-            String sql = "DELETE FROM categoria WHERE id = ?";
-
             // Prepara statement para exclusão
-            stmt = conn.prepareStatement(sql);
+            stmt = connectionFactory.preparar(conn, ConsultaSql.CATEGORIA_EXCLUIR);
             stmt.setInt(1, id);
 
             // Executa a exclusão
             int linhasAfetadas = stmt.executeUpdate();
 
             // Verifica se a exclusão foi bem-sucedida
-            return linhasAfetadas > 0;
+            if (linhasAfetadas > 0) {
+                categorias.invalidar();
+                CacheProdutos.getInstance().invalidarTodos();
+                return true;
+            }
+            return false;
         } catch (SQLException ex) {
             System.err.println("Erro ao excluir categoria: " + ex.getMessage());
             return false;
@@ -153,42 +157,8 @@ public class CategoriaDAO {
      * @return A categoria encontrada ou null se não existir
      */
     public Categoria consultar(int id) {
-        Connection conn = null;
-        PreparedStatement stmt = null;
-        ResultSet rs = null;
-        Categoria categoria = null;
-
-        try {
-            // Obtém conexão com o banco de dados
-            conn = connectionFactory.getConnection();
-
-            // SQL para consulta
-            String sql = "SELECT id, nome, tamanho, embalagem FROM categoria WHERE id = ?";
-
-            // Prepara statement para consulta
-            stmt = conn.prepareStatement(sql);
-            stmt.setInt(1, id);
-
-            // Executa a consulta
-            rs = stmt.executeQuery();
-
-            // Verifica se encontrou a categoria
-            if (rs.next()) {
-                categoria = new Categoria();
-                categoria.setId(rs.getInt("id"));
-                categoria.setNome(rs.getString("nome"));
-                categoria.setTamanho(rs.getString("tamanho"));
-                categoria.setEmbalagem(rs.getString("embalagem"));
-            }
-
-            return categoria;
-        } catch (SQLException ex) {
-            System.err.println("Erro ao consultar categoria: " + ex.getMessage());
-            return null;
-        } finally {
-            // Fecha recursos
-            fecharRecursos(rs, stmt, conn);
-        }
+        Categoria categoria = categorias.consultar(id);
+        return categoria != null ? copiar(categoria) : null;
     }
 
     /**
@@ -197,43 +167,33 @@ public class CategoriaDAO {
      * @return Uma lista com todas as categorias
      */
     public List<Categoria> listarTodos() {
-        Connection conn = null;
-        PreparedStatement stmt = null;
-        ResultSet rs = null;
-        List<Categoria> categorias = new ArrayList<>();
-
-        try {
-            // Obtém conexão com o banco de dados
-            conn = connectionFactory.getConnection();
-
-            // SQL para listar todas as categorias
-            String sql = "SELECT id, nome, tamanho, embalagem FROM categoria ORDER BY id";
-
-            // Prepara statement para consulta
-            stmt = conn.prepareStatement(sql);
-
-            // Executa a consulta
-            rs = stmt.executeQuery();
-
-            // Percorre os resultados
-            while (rs.next()) {
-                Categoria categoria = new Categoria();
-                categoria.setId(rs.getInt("id"));
-                categoria.setNome(rs.getString("nome"));
-                categoria.setTamanho(rs.getString("tamanho"));
-                categoria.setEmbalagem(rs.getString("embalagem"));
+        List<Categoria> lista = new ArrayList<>();
+        for (Categoria categoria : categorias.listar()) {
+            lista.add(copiar(categoria));
+        }
+        return lista;
+    }
 
-                categorias.add(categoria);
+    /**
+     * Lista uma página de categorias, em ordem de ID, usando paginação por chave:
+     * a página seguinte começa logo após a última categoria da página anterior.
+     *
+     * @param ultima A última categoria da página anterior, ou null para a primeira página
+     * @param tamanhoPagina Quantidade máxima de categorias na página
+     * @return As categorias da página (menos que {@code tamanhoPagina} indica a última página)
+     */
+    public List<Categoria> listarTodosPagina(Categoria ultima, int tamanhoPagina) {
+        int ultimoId = ultima != null ? ultima.getId() : 0;
+        List<Categoria> lista = new ArrayList<>();
+        for (Categoria categoria : categorias.listar()) {
+            if (lista.size() >= tamanhoPagina) {
+                break;
+            }
+            if (categoria.getId() > ultimoId) {
+                lista.add(copiar(categoria));
             }
-
-            return categorias;
-        } catch (SQLException ex) {
-            System.err.println("Erro ao listar categorias: " + ex.getMessage());
-            return categorias;
-        } finally {
-            // Fecha recursos
-            fecharRecursos(rs, stmt, conn);
         }
+        return lista;
     }
 
     /**
@@ -251,15 +211,8 @@ public class CategoriaDAO {
             // Obtém conexão com o banco de dados
             conn = connectionFactory.getConnection();
 
-            // SQL para contar produtos por categoria
-            String sql = "SELECT c.id, c.nome, COUNT(p.id) as quantidade " +
-                    "FROM categoria c " +
-                    "LEFT JOIN produto p ON c.id = p.categoria_id " +
-                    "GROUP BY c.id, c.nome " +
-                    "ORDER BY c.nome";
-
             // Prepara statement para consulta
-            stmt = conn.prepareStatement(sql);
+            stmt = connectionFactory.preparar(conn, ConsultaSql.CATEGORIA_CONTAR_PRODUTOS);
 
             // Executa a consulta
             rs = stmt.executeQuery();
@@ -284,6 +237,17 @@ public class CategoriaDAO {
         }
     }
 
+    /**
+     * Cria uma cópia da categoria compartilhada, para que as telas possam alterá-la
+     * sem afetar os produtos que a referenciam.
+     *
+     * @param categoria A categoria compartilhada
+     * @return Uma cópia da categoria
+     */
+    private Categoria copiar(Categoria categoria) {
+        return new Categoria(categoria.getId(), categoria.getNome(), categoria.getTamanho(), categoria.getEmbalagem());
+    }
+
     /**
      * Fecha os recursos utilizados pela DAO
      *
@@ -0,0 +1,21 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Conexão emprestada pelo {@link PoolConexoes} que mantém um cache de statements preparados.
+ * Utilizada internamente por {@link ConnectionFactory#preparar(Connection, ConsultaSql)}.
+ */
+interface ConexaoComCache extends Connection {
+
+    /**
+     * Obtém o statement preparado da instrução, reaproveitando-o do cache da conexão.
+     *
+     * @param consulta A instrução do registro
+     * @return O statement pronto para receber parâmetros
+     * @throws SQLException Se ocorrer um erro ao preparar a instrução
+     */
+    PreparedStatement preparar(ConsultaSql consulta) throws SQLException;
+}
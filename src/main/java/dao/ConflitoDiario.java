@@ -0,0 +1,79 @@
+package dao;
+
+import java.time.LocalDateTime;
+import model.Movimentacao;
+
+/**
+ * Movimentação do diário local recusada pelo banco ao ser reenviada
+ * (ex: saída registrada sem conexão que não tinha mais estoque disponível).
+ */
+public class ConflitoDiario {
+
+    // Atributos da classe
+    private final Movimentacao movimentacao;
+    private final String motivo;
+    private final int estoqueAtual; // -1 quando o motivo não envolve o estoque
+    private final LocalDateTime detectadoEm;
+
+    /**
+     * Construtor da classe ConflitoDiario.
+     *
+     * @param movimentacao A movimentação recusada
+     * @param motivo O motivo da recusa
+     * @param estoqueAtual O estoque do produto no banco, ou -1 se não se aplica
+     */
+    public ConflitoDiario(Movimentacao movimentacao, String motivo, int estoqueAtual) {
+        this.movimentacao = movimentacao;
+        this.motivo = motivo;
+        this.estoqueAtual = estoqueAtual;
+        this.detectadoEm = LocalDateTime.now();
+    }
+
+    /**
+     * Obtém a movimentação recusada.
+     *
+     * @return A movimentação, como foi registrada no diário
+     */
+    public Movimentacao getMovimentacao() {
+        return movimentacao;
+    }
+
+    /**
+     * Obtém o motivo da recusa.
+     *
+     * @return O motivo da recusa
+     */
+    public String getMotivo() {
+        return motivo;
+    }
+
+    /**
+     * Obtém o estoque do produto no banco no momento da recusa.
+     *
+     * @return O estoque atual, ou -1 se o motivo não envolve o estoque
+     */
+    public int getEstoqueAtual() {
+        return estoqueAtual;
+    }
+
+    /**
+     * Obtém a data e hora em que o conflito foi detectado.
+     *
+     * @return A data e hora da detecção
+     */
+    public LocalDateTime getDetectadoEm() {
+        return detectadoEm;
+    }
+
+    /**
+     * Retorna uma representação em String do conflito.
+     *
+     * @return Uma String representando o conflito
+     */
+    @Override
+    public String toString() {
+        String texto = movimentacao.getTipo() + " de " + movimentacao.getQuantidade() + " de \""
+                + movimentacao.getProduto().getNome() + "\" em " + movimentacao.getDataHora() + ": " + motivo;
+        return estoqueAtual < 0 ? texto : texto + " (estoque atual: " + estoqueAtual + ")";
+    }
+}
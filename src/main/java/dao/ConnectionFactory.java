@@ -1,44 +1,159 @@
 package dao;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.sql.Statement;
 
 /**
  * Classe responsável por criar e gerenciar conexões com o banco de dados.
  * Implementa o padrão Factory para centralizar a criação de conexões.
+ *
+ * Existe uma única instância por processo, compartilhada por todas as DAOs.
+ * As conexões vêm de um {@link PoolConexoes}: fechar a conexão a devolve ao pool.
+ * Dentro de uma {@link Transacao}, todas as DAOs da thread recebem a conexão da transação.
  */
 public class ConnectionFactory {
 
-    // Atributos de instância (não estáticos)
-    private final String DRIVER = "com.mysql.cj.jdbc.Driver";
-    private final String URL = "jdbc:mysql://localhost:3306/controle_estoque";
-    private final String USER = "root";
-    private final String PASS = "teste123";
-    
+    // Configuração da conexão
+    private static final String DRIVER = "com.mysql.cj.jdbc.Driver";
+    // useServerPrepStmts: as instruções do registro ConsultaSql são preparadas no servidor uma vez
+    // por conexão e reaproveitadas pelo CacheStatements (por isso o cache do driver fica desligado).
+    // useLocalSessionState: evita consultas ao servidor ao restaurar auto-commit/read-only no pool.
+    // rewriteBatchedStatements: lotes de INSERT viram um único INSERT com várias linhas.
+    // useCursorFetch: statements com fetch size definido leem o resultado por cursor no servidor.
+    private static final String URL = "jdbc:mysql://localhost:3306/controle_estoque"
+            + "?useServerPrepStmts=true&cachePrepStmts=false&useLocalSessionState=true"
+            + "&rewriteBatchedStatements=true&useCursorFetch=true";
+    private static final String USER = "root";
+    private static final String PASS = "teste123";
+
+    // Configuração do pool
+    private static final int POOL_TAMANHO_MAXIMO = 10;
+    private static final int POOL_MINIMO_OCIOSO = 2;
+    private static final long POOL_TEMPO_MAXIMO_OCIOSO_MS = 10 * 60 * 1000;
+    private static final long POOL_TEMPO_ESPERA_MS = 30 * 1000;
+    private static final long POOL_VALIDAR_APOS_OCIOSO_MS = 500;
+    private static final long POOL_LIMITE_VAZAMENTO_MS = 60 * 1000;
+    private static final int POOL_CACHE_STATEMENTS = 64;
+
+    // Instância única, criada na primeira utilização
+    private static volatile ConnectionFactory instancia;
+
+    private final PoolConexoes pool;
+
     /**
-     * Obtém uma conexão com o banco de dados.
-     * 
+     * Construtor privado: utilize {@link #getInstance()}.
+     */
+    private ConnectionFactory() {
+        try {
+            // Carrega o driver JDBC uma única vez
+            Class.forName(DRIVER);
+        } catch (ClassNotFoundException ex) {
+            System.err.println("Driver do banco de dados não encontrado: " + ex.getMessage());
+        }
+        this.pool = new PoolConexoes(URL, USER, PASS, POOL_TAMANHO_MAXIMO, POOL_MINIMO_OCIOSO,
+                POOL_TEMPO_MAXIMO_OCIOSO_MS, POOL_TEMPO_ESPERA_MS, POOL_VALIDAR_APOS_OCIOSO_MS,
+                POOL_LIMITE_VAZAMENTO_MS, POOL_CACHE_STATEMENTS);
+        Runtime.getRuntime().addShutdownHook(new Thread(pool::encerrar, "pool-conexoes-encerramento"));
+    }
+
+    /**
+     * Obtém a fábrica de conexões compartilhada pelo processo.
+     *
+     * @return A instância única da fábrica de conexões
+     */
+    public static ConnectionFactory getInstance() {
+        ConnectionFactory atual = instancia;
+        if (atual == null) {
+            synchronized (ConnectionFactory.class) {
+                atual = instancia;
+                if (atual == null) {
+                    atual = new ConnectionFactory();
+                    instancia = atual;
+                }
+            }
+        }
+        return atual;
+    }
+
+    /**
+     * Obtém uma conexão com o banco de dados a partir do pool.
+     * Se a thread estiver dentro de uma {@link Transacao}, retorna a conexão da transação.
+     *
      * @return Uma conexão com o banco de dados
      * @throws SQLException Se ocorrer um erro ao conectar ao banco de dados
      */
     public Connection getConnection() throws SQLException {
+        Connection daTransacao = Transacao.conexaoAtual();
+        if (daTransacao != null) {
+            return daTransacao;
+        }
+        return getConnectionDoPool();
+    }
+
+    /**
+     * Obtém uma conexão do pool, ignorando a transação da thread atual.
+     * Usada para abrir transações e para cargas de caches compartilhados,
+     * que não devem enxergar dados ainda não confirmados.
+     *
+     * @return Uma conexão com o banco de dados
+     * @throws SQLException Se ocorrer um erro ao conectar ao banco de dados
+     */
+    Connection getConnectionDoPool() throws SQLException {
         try {
-            // Carrega o driver JDBC
-            Class.forName(DRIVER);
-            
-            // Retorna uma conexão com o banco de dados
-            return DriverManager.getConnection(URL, USER, PASS);
-        } catch (ClassNotFoundException ex) {
-            throw new SQLException("Driver do banco de dados não encontrado", ex);
+            return pool.getConnection();
         } catch (SQLException ex) {
             throw new SQLException("Erro ao conectar ao banco de dados", ex);
         }
     }
-    
+
+    /**
+     * Obtém o statement preparado de uma instrução do registro {@link ConsultaSql}.
+     * Em conexões do pool o statement vem do cache da conexão; fechá-lo o devolve ao cache.
+     * Se a thread estiver executando uma operação do {@link AcessoAssincrono}, o statement
+     * recebe o tempo limite restante da operação e pode ser cancelado por ela.
+     *
+     * @param conn A conexão obtida por {@link #getConnection()}
+     * @param consulta A instrução a ser preparada
+     * @return O statement pronto para receber parâmetros
+     * @throws SQLException Se ocorrer um erro ao preparar a instrução, ou a operação da thread
+     *         tiver sido cancelada ou esgotado o tempo limite
+     */
+    public PreparedStatement preparar(Connection conn, ConsultaSql consulta) throws SQLException {
+        PreparedStatement stmt;
+        if (conn instanceof ConexaoComCache) {
+            stmt = ((ConexaoComCache) conn).preparar(consulta);
+        } else if (consulta.isRetornaChavesGeradas()) {
+            stmt = conn.prepareStatement(consulta.getSql(), Statement.RETURN_GENERATED_KEYS);
+        } else {
+            stmt = conn.prepareStatement(consulta.getSql());
+        }
+
+        OperacaoCancelavel operacao = OperacaoCancelavel.atual();
+        if (operacao != null) {
+            try {
+                operacao.registrar(stmt);
+            } catch (SQLException ex) {
+                stmt.close();
+                throw ex;
+            }
+        }
+        return stmt;
+    }
+
+    /**
+     * Obtém as estatísticas atuais do pool de conexões e do cache de statements.
+     *
+     * @return As estatísticas do pool
+     */
+    public EstatisticasPool getEstatisticas() {
+        return pool.getEstatisticas();
+    }
+
     /**
-     * Fecha uma conexão com o banco de dados.
-     * 
+     * Fecha uma conexão com o banco de dados, devolvendo-a ao pool.
+     *
      * @param conn A conexão a ser fechada
      */
     public void closeConnection(Connection conn) {
@@ -50,10 +165,10 @@ public class ConnectionFactory {
             System.err.println("Erro ao fechar conexão: " + ex.getMessage());
         }
     }
-    
+
     /**
      * Fecha uma conexão com o banco de dados e exibe uma mensagem de erro.
-     * 
+     *
      * @param conn A conexão a ser fechada
      * @param mensagem A mensagem de erro a ser exibida
      */
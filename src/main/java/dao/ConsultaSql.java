@@ -0,0 +1,329 @@
+package dao;
+
+/**
+ * Registro central das instruções SQL utilizadas pelas DAOs.
+ * Cada instrução tem um nome estável (por exemplo {@code produto.listarTodos}) que
+ * identifica o statement preparado no cache de cada conexão do pool,
+ * permitindo que o MySQL prepare a instrução uma única vez por conexão.
+ */
+public enum ConsultaSql {
+
+    // Categoria
+    CATEGORIA_INSERIR("categoria.inserir",
+            "INSERT INTO categoria (id, nome, tamanho, embalagem) VALUES (?, ?, ?, ?)"),
+    CATEGORIA_ATUALIZAR("categoria.atualizar",
+            "UPDATE categoria SET nome = ?, tamanho = ?, embalagem = ? WHERE id = ?"),
+    CATEGORIA_EXCLUIR("categoria.excluir",
+            "DELETE FROM categoria WHERE id = ?"),
+    CATEGORIA_LISTAR_TODOS("categoria.listarTodos",
+            Fragmentos.SELECT_CATEGORIA
+                    + "ORDER BY c.id"),
+    CATEGORIA_CONTAR_PRODUTOS("categoria.contarProdutos",
+            "SELECT c.id, c.nome, COUNT(p.id) as quantidade "
+                    + "FROM categoria c "
+                    + "LEFT JOIN produto p ON c.id = p.categoria_id "
+                    + "GROUP BY c.id, c.nome "
+                    + "ORDER BY c.nome"),
+
+    // Produto
+    PRODUTO_INSERIR("produto.inserir",
+            "INSERT INTO produto (id, nome, preco_unitario, unidade, quantidade_estoque, "
+                    + "quantidade_minima, quantidade_maxima, categoria_id) "
+                    + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)"),
+    // O estoque informado é o total: o que estiver nas faixas é descontado de quantidade_estoque
+    PRODUTO_ATUALIZAR("produto.atualizar",
+            "UPDATE produto SET nome = ?, preco_unitario = ?, unidade = ?, "
+                    + "quantidade_estoque = ? - (SELECT COALESCE(SUM(f.quantidade), 0) "
+                    + "FROM produto_estoque_faixa f WHERE f.produto_id = produto.id), "
+                    + "quantidade_minima = ?, quantidade_maxima = ?, "
+                    + "categoria_id = ? WHERE id = ?"),
+    // movimentacao não tem chave estrangeira (é particionada): a instrução recusa produtos com histórico
+    PRODUTO_EXCLUIR("produto.excluir",
+            "DELETE FROM produto WHERE id = ? "
+                    + "AND NOT EXISTS (SELECT 1 FROM movimentacao m WHERE m.produto_id = ?)"),
+    PRODUTO_CONSULTAR("produto.consultar",
+            Fragmentos.SELECT_PRODUTO
+                    + "WHERE p.id = ?"),
+    PRODUTO_LISTAR_TODOS("produto.listarTodos",
+            Fragmentos.SELECT_PRODUTO
+                    + "ORDER BY p.id"),
+    PRODUTO_LISTAR_PAGINA("produto.listarPagina",
+            Fragmentos.SELECT_PRODUTO
+                    + "WHERE p.id > ? "
+                    + "ORDER BY p.id LIMIT ?"),
+    PRODUTO_REAJUSTAR_PRECOS("produto.reajustarPrecos",
+            "UPDATE produto SET preco_unitario = preco_unitario * (1 + ? / 100)"),
+    PRODUTO_REAJUSTAR_PRECO_PORCENTAGEM("produto.reajustarPrecoPorcentagem",
+            "UPDATE produto SET preco_unitario = preco_unitario * (1 + ? / 100) WHERE id = ?"),
+    PRODUTO_REAJUSTAR_PRECO_DIRETO("produto.reajustarPrecoDireto",
+            "UPDATE produto SET preco_unitario = ? WHERE id = ?"),
+    // Pelo índice de situacao_estoque: só lê os produtos sinalizados e os com faixas (situação NULL),
+    // que são conferidos pelo estoque total (ver db/migracao/V004)
+    PRODUTO_LISTAR_ABAIXO_MINIMO("produto.listarAbaixoMinimo",
+            Fragmentos.SELECT_PRODUTO
+                    + "WHERE (p.situacao_estoque = 'Abaixo' OR p.situacao_estoque IS NULL) "
+                    + "AND " + Projecoes.ESTOQUE_PRODUTO + " < p.quantidade_minima "
+                    + "ORDER BY p.nome"),
+    PRODUTO_LISTAR_ACIMA_MAXIMO("produto.listarAcimaMaximo",
+            Fragmentos.SELECT_PRODUTO
+                    + "WHERE (p.situacao_estoque = 'Acima' OR p.situacao_estoque IS NULL) "
+                    + "AND " + Projecoes.ESTOQUE_PRODUTO + " > p.quantidade_maxima "
+                    + "ORDER BY p.nome"),
+    PRODUTO_LISTAR_COM_PRECOS("produto.listarComPrecos",
+            Fragmentos.SELECT_PRODUTO_PRECO
+                    + "ORDER BY p.nome"),
+    PRODUTO_LISTAR_COM_PRECOS_PAGINA("produto.listarComPrecosPagina",
+            Fragmentos.SELECT_PRODUTO_PRECO
+                    + "WHERE p.nome > ? OR (p.nome = ? AND p.id > ?) "
+                    + "ORDER BY p.nome, p.id LIMIT ?"),
+    PRODUTO_VALOR_TOTAL_ESTOQUE("produto.valorTotalEstoque",
+            "SELECT SUM(p.preco_unitario * " + Projecoes.ESTOQUE_PRODUTO + ") AS total FROM produto p"),
+    PRODUTO_LISTAR_POR_CATEGORIA("produto.listarPorCategoria",
+            Fragmentos.SELECT_PRODUTO
+                    + "ORDER BY p.nome"),
+    // Carga e conciliação do LivroEstoque
+    PRODUTO_LISTAR_ESTOQUES("produto.listarEstoques",
+            "SELECT p.id, " + Projecoes.ESTOQUE_PRODUTO + " FROM produto p"),
+    // Divide o estoque em faixas, rebalanceia (NULL) ou consolida (0) (ver db/estoque.sql)
+    PRODUTO_DEFINIR_FAIXAS_ESTOQUE("produto.definirFaixasEstoque",
+            "CALL definir_faixas_estoque(?, ?)"),
+
+    // Movimentação
+    // tipo é o código da MovimentacaoDAO (1 = Entrada, 2 = Saída); a observação vai em movimentacao_observacao.
+    // As duas tabelas são particionadas por mês de data_hora (ver db/migracao/V006): as listagens
+    // recebem o período [início, fim) para ler só as partições dele
+    MOVIMENTACAO_INSERIR("movimentacao.inserir",
+            "INSERT INTO movimentacao (id, produto_id, tipo, quantidade, data_hora, documento_id, "
+                    + "chave_idempotencia) VALUES (?, ?, ?, ?, ?, ?, ?)"),
+    MOVIMENTACAO_INSERIR_OBSERVACAO("movimentacao.inserirObservacao",
+            "INSERT INTO movimentacao_observacao (movimentacao_id, data_hora, observacao) VALUES (?, ?, ?)"),
+    // Ajusta o estoque e insere com o ID já alocado em uma única ida ao servidor; o último
+    // parâmetro é a reserva confirmada pela saída, ou NULL (ver db/migracao/V011)
+    MOVIMENTACAO_REGISTRAR("movimentacao.registrar",
+            "CALL registrar_movimentacao(?, ?, ?, ?, ?, ?, ?, ?)"),
+    // A variação negativa só é aplicada se quantidade_estoque for suficiente (parâmetros: variação, id, variação);
+    // não considera as faixas, então uma recusa deve ser confirmada por MOVIMENTACAO_AJUSTAR_ESTOQUE_TOTAL
+    MOVIMENTACAO_AJUSTAR_ESTOQUE("movimentacao.ajustarEstoque",
+            "UPDATE produto SET quantidade_estoque = quantidade_estoque + ? "
+                    + "WHERE id = ? AND quantidade_estoque + ? >= 0"),
+    // Ajuste pelo estoque total, considerando as faixas; @aplicado indica se foi feito (ver db/estoque.sql)
+    MOVIMENTACAO_AJUSTAR_ESTOQUE_TOTAL("movimentacao.ajustarEstoqueTotal",
+            "CALL ajustar_estoque(?, ?, @aplicado, @estoque)"),
+    MOVIMENTACAO_RESULTADO_AJUSTE("movimentacao.resultadoAjuste",
+            "SELECT @aplicado"),
+    MOVIMENTACAO_CONSULTAR_ESTOQUE("movimentacao.consultarEstoque",
+            "SELECT " + Projecoes.ESTOQUE_PRODUTO + " FROM produto p WHERE p.id = ?"),
+    MOVIMENTACAO_CONSULTAR_POR_CHAVE("movimentacao.consultarPorChave",
+            "SELECT id FROM movimentacao WHERE chave_idempotencia = ? AND data_hora = ?"),
+    // Sem a data, procura o ID em todas as partições
+    MOVIMENTACAO_CONSULTAR("movimentacao.consultar",
+            Fragmentos.SELECT_MOVIMENTACAO
+                    + "WHERE m.id = ?"),
+    MOVIMENTACAO_LISTAR_PERIODO("movimentacao.listarPeriodo",
+            Fragmentos.SELECT_MOVIMENTACAO
+                    + "WHERE m.data_hora >= ? AND m.data_hora < ? "
+                    + "ORDER BY m.data_hora ASC, m.id ASC"),
+    MOVIMENTACAO_LISTAR_PERIODO_PAGINA("movimentacao.listarPeriodoPagina",
+            Fragmentos.SELECT_MOVIMENTACAO
+                    + "WHERE m.data_hora >= ? AND m.data_hora < ? "
+                    + "AND (m.data_hora > ? OR (m.data_hora = ? AND m.id > ?)) "
+                    + "ORDER BY m.data_hora ASC, m.id ASC LIMIT ?"),
+    MOVIMENTACAO_PERCORRER_PERIODO("movimentacao.percorrerPeriodo",
+            Fragmentos.SELECT_MOVIMENTACAO
+                    + "WHERE m.data_hora >= ? AND m.data_hora < ? "
+                    + "ORDER BY m.data_hora ASC, m.id ASC"),
+    MOVIMENTACAO_LISTAR_POR_PRODUTO("movimentacao.listarPorProduto",
+            Fragmentos.SELECT_MOVIMENTACAO
+                    + "WHERE m.produto_id = ? AND m.data_hora >= ? AND m.data_hora < ? "
+                    + "ORDER BY m.data_hora DESC, m.id DESC"),
+    MOVIMENTACAO_LISTAR_POR_PRODUTO_PAGINA("movimentacao.listarPorProdutoPagina",
+            Fragmentos.SELECT_MOVIMENTACAO
+                    + "WHERE m.produto_id = ? AND m.data_hora >= ? AND m.data_hora < ? "
+                    + "AND (m.data_hora < ? OR (m.data_hora = ? AND m.id < ?)) "
+                    + "ORDER BY m.data_hora DESC, m.id DESC LIMIT ?"),
+    // Os itens têm a data e hora do documento: a consulta lê uma única partição
+    MOVIMENTACAO_LISTAR_POR_DOCUMENTO("movimentacao.listarPorDocumento",
+            Fragmentos.SELECT_MOVIMENTACAO
+                    + "WHERE m.documento_id = ? AND m.data_hora = ? "
+                    + "ORDER BY m.id"),
+    MOVIMENTACAO_LISTAR_POR_TIPO("movimentacao.listarPorTipo",
+            Fragmentos.SELECT_MOVIMENTACAO
+                    + "WHERE m.tipo = ? AND m.data_hora >= ? AND m.data_hora < ? "
+                    + "ORDER BY m.data_hora DESC, m.id DESC"),
+    MOVIMENTACAO_LISTAR_POR_TIPO_PAGINA("movimentacao.listarPorTipoPagina",
+            Fragmentos.SELECT_MOVIMENTACAO
+                    + "WHERE m.tipo = ? AND m.data_hora >= ? AND m.data_hora < ? "
+                    + "AND (m.data_hora < ? OR (m.data_hora = ? AND m.id < ?)) "
+                    + "ORDER BY m.data_hora DESC, m.id DESC LIMIT ?"),
+
+    // Pontos de controle do estoque (ver db/migracao/V007 e PontosControleEstoque)
+    // Estoque no instante informado: o atual menos a variação das movimentações a partir dele
+    // (parâmetros: instante, instante). A leitura trava as linhas lidas até o fim da instrução,
+    // então uma movimentação concorrente entra no ponto ou o corrige depois, nunca fica de fora
+    PONTO_CONTROLE_CRIAR("pontoControle.criar",
+            "INSERT IGNORE INTO estoque_ponto_controle (produto_id, data_hora, quantidade) "
+                    + "SELECT p.id, ?, " + Projecoes.ESTOQUE_PRODUTO + " - COALESCE((SELECT "
+                    + Fragmentos.VARIACAO_ESTOQUE + " FROM movimentacao m "
+                    + "WHERE m.produto_id = p.id AND m.data_hora >= ?), 0) "
+                    + "FROM produto p"),
+    // Movimentação retroativa: corrige os pontos posteriores a ela (parâmetros: variação, produto, data e hora)
+    PONTO_CONTROLE_AJUSTAR("pontoControle.ajustar",
+            "UPDATE estoque_ponto_controle SET quantidade = quantidade + ? "
+                    + "WHERE produto_id = ? AND data_hora > ?"),
+    // Dia atual pelo relógio do servidor, o mesmo usado por registrar_movimentacao
+    PONTO_CONTROLE_DIA_ATUAL("pontoControle.diaAtual",
+            "SELECT CURRENT_DATE"),
+    PONTO_CONTROLE_ANTERIOR("pontoControle.anterior",
+            "SELECT data_hora, quantidade FROM estoque_ponto_controle "
+                    + "WHERE produto_id = ? AND data_hora <= ? "
+                    + "ORDER BY data_hora DESC LIMIT 1"),
+    MOVIMENTACAO_VARIACAO_PERIODO("movimentacao.variacaoPeriodo",
+            "SELECT COALESCE(" + Fragmentos.VARIACAO_ESTOQUE + ", 0) FROM movimentacao m "
+                    + "WHERE m.produto_id = ? AND m.data_hora >= ? AND m.data_hora < ?"),
+    // Sem ponto de controle anterior: o estoque atual menos a variação a partir do instante
+    MOVIMENTACAO_ESTOQUE_ANTES_DE("movimentacao.estoqueAntesDe",
+            "SELECT " + Projecoes.ESTOQUE_PRODUTO + " - COALESCE((SELECT "
+                    + Fragmentos.VARIACAO_ESTOQUE + " FROM movimentacao m "
+                    + "WHERE m.produto_id = p.id AND m.data_hora >= ?), 0) "
+                    + "FROM produto p WHERE p.id = ?"),
+
+    // Partições de movimentacao e movimentacao_observacao (ver ParticoesMovimentacao)
+    PARTICAO_LISTAR("particao.listar",
+            "SELECT PARTITION_NAME FROM information_schema.PARTITIONS "
+                    + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND PARTITION_NAME IS NOT NULL "
+                    + "ORDER BY PARTITION_ORDINAL_POSITION"),
+    TABELA_EXISTE("tabela.existe",
+            "SELECT 1 FROM information_schema.TABLES WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?"),
+
+    // Reservas de estoque (ver db/migracao/V011 e ReservasEstoque)
+    // Parâmetros: produto, quantidade, validade em segundos
+    RESERVA_CRIAR("reserva.criar",
+            "CALL reservar_estoque(?, ?, ?)"),
+    RESERVA_EXCLUIR("reserva.excluir",
+            "DELETE FROM reserva_estoque WHERE id = ?"),
+    RESERVA_TOTAIS("reserva.totais",
+            "SELECT produto_id, SUM(quantidade) FROM reserva_estoque "
+                    + "WHERE expira_em > NOW() GROUP BY produto_id"),
+    // Saída em lote: trava as reservas ativas do produto, como registrar_movimentacao
+    RESERVA_TOTAL_TRAVAR("reserva.totalTravar",
+            "SELECT COALESCE(SUM(quantidade), 0) FROM reserva_estoque "
+                    + "WHERE produto_id = ? AND expira_em > NOW() LOCK IN SHARE MODE"),
+    // Estoque total lido com trava, incluindo os ajustes já feitos por outras transações nas faixas
+    RESERVA_ESTOQUE_TRAVAR("reserva.estoqueTravar",
+            "SELECT p.quantidade_estoque + COALESCE(SUM(f.quantidade), 0) FROM produto p "
+                    + "LEFT JOIN produto_estoque_faixa f ON f.produto_id = p.id "
+                    + "WHERE p.id = ? GROUP BY p.id, p.quantidade_estoque LOCK IN SHARE MODE"),
+
+    // Documento de estoque
+    DOCUMENTO_INSERIR("documento.inserir",
+            "INSERT INTO documento_estoque (id, tipo, data_hora, observacao, chave_idempotencia) "
+                    + "VALUES (?, ?, ?, ?, ?)"),
+    DOCUMENTO_CONSULTAR_POR_CHAVE("documento.consultarPorChave",
+            "SELECT id FROM documento_estoque WHERE chave_idempotencia = ?"),
+    DOCUMENTO_CONSULTAR("documento.consultar",
+            Fragmentos.SELECT_DOCUMENTO
+                    + "WHERE d.id = ?"),
+
+    // Sequência (blocos de IDs do AlocadorIds)
+    SEQUENCIA_RESERVAR("sequencia.reservar",
+            "UPDATE sequencia SET proximo = LAST_INSERT_ID(proximo + ?) WHERE nome = ?"),
+    SEQUENCIA_ULTIMO_VALOR("sequencia.ultimoValor",
+            "SELECT LAST_INSERT_ID()"),
+
+    // Esquema (versões aplicadas pelo MigradorEsquema)
+    ESQUEMA_CRIAR_TABELA_VERSAO("esquema.criarTabelaVersao",
+            "CREATE TABLE IF NOT EXISTS versao_esquema ("
+                    + "versao INT PRIMARY KEY, "
+                    + "descricao VARCHAR(200) NOT NULL, "
+                    + "checksum BIGINT NOT NULL, "
+                    + "aplicada_em DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP, "
+                    + "duracao_ms INT NOT NULL)"),
+    ESQUEMA_LISTAR_VERSOES("esquema.listarVersoes",
+            "SELECT versao, checksum FROM versao_esquema ORDER BY versao"),
+    ESQUEMA_REGISTRAR_VERSAO("esquema.registrarVersao",
+            "INSERT INTO versao_esquema (versao, descricao, checksum, duracao_ms) VALUES (?, ?, ?, ?)"),
+    // Trava nomeada do servidor: serializa terminais iniciados ao mesmo tempo (parâmetro: espera em segundos)
+    ESQUEMA_TRAVAR("esquema.travar",
+            "SELECT GET_LOCK('controle_estoque.migracao', ?)"),
+    ESQUEMA_LIBERAR("esquema.liberar",
+            "SELECT RELEASE_LOCK('controle_estoque.migracao')");
+
+    // Atributos da instrução
+    private final String nome;
+    private final String sql;
+    private final boolean retornaChavesGeradas;
+
+    ConsultaSql(String nome, String sql) {
+        this(nome, sql, false);
+    }
+
+    ConsultaSql(String nome, String sql, boolean retornaChavesGeradas) {
+        this.nome = nome;
+        this.sql = sql;
+        this.retornaChavesGeradas = retornaChavesGeradas;
+    }
+
+    /**
+     * Obtém o nome estável da instrução (ex: {@code produto.listarTodos}).
+     *
+     * @return O nome da instrução
+     */
+    public String getNome() {
+        return nome;
+    }
+
+    /**
+     * Obtém o texto SQL da instrução.
+     *
+     * @return O SQL da instrução
+     */
+    public String getSql() {
+        return sql;
+    }
+
+    /**
+     * Indica se a instrução deve ser preparada com {@code RETURN_GENERATED_KEYS}.
+     *
+     * @return true se a instrução retorna as chaves geradas
+     */
+    public boolean isRetornaChavesGeradas() {
+        return retornaChavesGeradas;
+    }
+
+    /**
+     * Trechos de SQL compartilhados por várias instruções.
+     * Ficam em uma classe separada para poderem ser usados nas constantes do enum.
+     * As colunas vêm dos mapeadores gerados a partir de {@link Projecoes}, que as leem pelo índice.
+     * Produtos e movimentações não fazem JOIN com categoria: a categoria vem do {@link MapaCategorias}.
+     */
+    private static final class Fragmentos {
+        static final String SELECT_CATEGORIA =
+                "SELECT " + CategoriaMapeador.COLUNAS + " "
+                        + "FROM categoria c ";
+
+        static final String SELECT_PRODUTO =
+                "SELECT " + ProdutoMapeador.COLUNAS + " "
+                        + "FROM produto p ";
+
+        static final String SELECT_PRODUTO_PRECO =
+                "SELECT " + ProdutoPrecoMapeador.COLUNAS + " "
+                        + "FROM produto p ";
+
+        static final String SELECT_DOCUMENTO =
+                "SELECT " + DocumentoEstoqueMapeador.COLUNAS + " "
+                        + "FROM documento_estoque d ";
+
+        // Soma das entradas menos as saídas das movimentações m
+        static final String VARIACAO_ESTOQUE =
+                "SUM(IF(m.tipo = " + MovimentacaoDAO.TIPO_ENTRADA + ", m.quantidade, -m.quantidade))";
+
+        // A observação fica fora da linha da movimentação e só é lida pelas listagens;
+        // a junção pela chave completa (ID e data) busca cada observação em uma única partição
+        static final String SELECT_MOVIMENTACAO =
+                "SELECT " + MovimentacaoMapeador.COLUNAS + " "
+                        + "FROM movimentacao m "
+                        + "JOIN produto p ON m.produto_id = p.id "
+                        + "LEFT JOIN movimentacao_observacao o "
+                        + "ON o.movimentacao_id = m.id AND o.data_hora = m.data_hora ";
+    }
+}
@@ -0,0 +1,606 @@
+package dao;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+import model.Movimentacao;
+import model.Produto;
+
+/**
+ * Diário local de movimentações: quando o banco está inacessível, as telas de entrada e saída
+ * registram a movimentação ({@link #gravar}) em um arquivo mapeado em memória, e uma thread em
+ * segundo plano a reenvia ao MySQL, em ordem e em lotes, assim que ele estiver acessível.
+ *
+ * Formato do arquivo: um cabeçalho com a posição do primeiro registro ainda não reenviado,
+ * seguido dos registros ({@code tamanho}, {@code CRC32}, dados). O tamanho é gravado por último
+ * e o arquivo é forçado ao disco antes de {@link #registrar} retornar; na abertura, o primeiro
+ * registro com tamanho zero ou CRC divergente (gravação interrompida) marca o fim do diário.
+ *
+ * O reenvio usa a chave de idempotência da movimentação: se o processo cair entre a confirmação
+ * no banco e o avanço da posição no cabeçalho, o registro é reenviado e devolve o ID original.
+ * Movimentações recusadas pelo banco (ex: saída sem estoque suficiente) não bloqueiam as
+ * seguintes: são informadas aos ouvintes de conflito e anotadas em {@code <diário>.conflitos}.
+ * Falhas transitórias (ex: deadlock, tempo esgotado, banco indisponível) não descartam nada:
+ * o reenvio para e recomeça do mesmo registro no próximo ciclo.
+ *
+ * O arquivo fica travado ({@link FileChannel#tryLock()}) enquanto o processo estiver aberto:
+ * um segundo processo do mesmo usuário não abre o diário e grava direto no banco.
+ */
+public final class DiarioMovimentacoes {
+
+    /**
+     * Onde {@link #gravar} gravou a movimentação.
+     */
+    public enum Destino {
+        // Confirmada no banco
+        BANCO,
+        // No diário, para reenvio quando o banco estiver acessível
+        DIARIO
+    }
+
+    // Local padrão do diário, na pasta do usuário
+    private static final Path ARQUIVO_PADRAO = Paths.get(System.getProperty("user.home"), ".estoque",
+            "movimentacoes.diario");
+
+    // Tamanho fixo do arquivo mapeado (dezenas de milhares de movimentações)
+    private static final int CAPACIDADE = 8 * 1024 * 1024;
+
+    // Cabeçalho: marca, versão e posição do primeiro registro não reenviado
+    private static final int MARCA = 0x444D4F56; // "DMOV"
+    private static final int VERSAO = 1;
+    private static final int POSICAO_CONFIRMADO = 8;
+    private static final int TAMANHO_CABECALHO = 64;
+
+    // Tamanho e CRC32 que antecedem os dados de cada registro
+    private static final int TAMANHO_PREFIXO = 8;
+
+    // Movimentações reenviadas por transação
+    private static final int TAMANHO_LOTE = 100;
+
+    // Intervalo entre tentativas de reenvio quando não há novos registros
+    private static final long INTERVALO_REENVIO_MS = 5 * 1000;
+
+    private static final DiarioMovimentacoes INSTANCIA = new DiarioMovimentacoes();
+
+    private final MovimentacaoDAO movimentacaoDAO = new MovimentacaoDAO();
+    private final List<Consumer<ConflitoDiario>> ouvintes = new CopyOnWriteArrayList<>();
+    private final List<ConflitoDiario> conflitos = new CopyOnWriteArrayList<>();
+
+    // Variação de estoque ainda não reenviada, por ID do produto
+    private final ConcurrentHashMap<Integer, Integer> variacoesPendentes = new ConcurrentHashMap<>();
+
+    // Reenvio já pedido por registrar e ainda não iniciado
+    private final AtomicBoolean reenvioAgendado = new AtomicBoolean();
+
+    // Estado do arquivo; acessado só com a trava do diário
+    private Path arquivo;
+    private FileChannel canal;
+    private FileLock travaArquivo;
+    private MappedByteBuffer mapa;
+    private int confirmado;
+    private int fim;
+    private int pendentes;
+
+    private ScheduledExecutorService reenvio;
+
+    // Esquema do banco ainda não atualizado (ver setSomenteDiario): nada é enviado ao banco
+    private volatile boolean somenteDiario;
+
+    private DiarioMovimentacoes() {
+    }
+
+    /**
+     * Obtém o diário de movimentações compartilhado pelo processo.
+     *
+     * @return A instância única do diário
+     */
+    public static DiarioMovimentacoes getInstance() {
+        return INSTANCIA;
+    }
+
+    /**
+     * Abre o diário no local padrão e inicia o reenvio em segundo plano.
+     * Chamadas seguintes não têm efeito.
+     */
+    public void iniciar() {
+        iniciar(ARQUIVO_PADRAO);
+    }
+
+    /**
+     * Abre o diário no arquivo informado, criando-o se necessário, e inicia o reenvio
+     * em segundo plano. Chamadas seguintes não têm efeito.
+     *
+     * @param arquivo O arquivo do diário
+     */
+    public synchronized void iniciar(Path arquivo) {
+        if (reenvio != null) {
+            return;
+        }
+        try {
+            abrir(arquivo);
+        } catch (IOException ex) {
+            System.err.println("Erro ao abrir diário de movimentações: " + ex.getMessage());
+            return;
+        }
+        reenvio = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "diario-movimentacoes-reenvio");
+            t.setDaemon(true);
+            return t;
+        });
+        reenvio.scheduleWithFixedDelay(this::reenviar, 0, INTERVALO_REENVIO_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Grava a movimentação direto no banco, com o tempo limite de escrita do
+     * {@link AcessoAssincrono}. Só vai para o diário se o banco estiver inacessível ou não
+     * responder a tempo, no modo só diário ({@link #setSomenteDiario}), ou se o diário ainda
+     * tiver movimentações por reenviar: o banco as recebe antes desta, na ordem em que foram feitas. Gravada no banco, o produto da
+     * movimentação traz o estoque resultante; no diário, o estoque é estimado
+     * ({@link #getEstoqueEstimado}) e quem decide a saída é o banco, no reenvio.
+     *
+     * @param movimentacao A movimentação a ser registrada
+     * @return Onde a movimentação foi gravada, ou null se o banco a recusou (ex: produto
+     *         inexistente) ou se nem o banco nem o diário puderam gravá-la
+     * @throws EstoqueInsuficienteException Se o banco recusar a saída por falta de estoque
+     */
+    public Destino gravar(Movimentacao movimentacao) {
+        if (somenteDiario || getPendentes() > 0) {
+            if (registrar(movimentacao)) {
+                return Destino.DIARIO;
+            }
+            if (somenteDiario) {
+                return null;
+            }
+        }
+
+        CompletableFuture<Long> futuro = new AcessoAssincrono().inserirMovimentacaoOuLancar(movimentacao);
+        try {
+            futuro.get();
+            return Destino.BANCO;
+        } catch (ExecutionException ex) {
+            Throwable causa = ex.getCause();
+            if (causa instanceof EstoqueInsuficienteException) {
+                throw (EstoqueInsuficienteException) causa;
+            }
+            // A movimentação interrompida não foi aplicada; se foi, a chave de idempotência evita repeti-la
+            boolean indisponivel = causa instanceof TimeoutException
+                    || causa instanceof SQLException && ErrosMySql.semConexao((SQLException) causa);
+            if (indisponivel && registrar(movimentacao)) {
+                return Destino.DIARIO;
+            }
+            System.err.println("Erro ao gravar movimentação: " + causa.getMessage());
+            return null;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            futuro.cancel(true);
+            return null;
+        }
+    }
+
+    /**
+     * Registra a movimentação no diário; ela será gravada no banco em segundo plano.
+     * A chave de idempotência é gerada aqui, se ainda não existir.
+     *
+     * @param movimentacao A movimentação a ser registrada
+     * @return true se a movimentação foi gravada no diário, false se o diário não estiver
+     *         aberto, estiver cheio ou ocorrer um erro de gravação
+     */
+    public synchronized boolean registrar(Movimentacao movimentacao) {
+        if (mapa == null) {
+            return false;
+        }
+        if (movimentacao.getChaveIdempotencia() == null) {
+            movimentacao.setChaveIdempotencia(UUID.randomUUID().toString());
+        }
+
+        byte[] dados;
+        try {
+            dados = serializar(movimentacao);
+        } catch (IOException ex) {
+            System.err.println("Erro ao registrar movimentação no diário: " + ex.getMessage());
+            return false;
+        }
+        // Mantém sempre um tamanho zero após o último registro
+        if (fim + TAMANHO_PREFIXO + dados.length + 4 > CAPACIDADE) {
+            System.err.println("Erro ao registrar movimentação no diário: diário cheio");
+            return false;
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(dados);
+        mapa.position(fim + TAMANHO_PREFIXO);
+        mapa.put(dados);
+        mapa.putInt(fim + 4, (int) crc.getValue());
+        mapa.putInt(fim, dados.length);
+        mapa.force();
+
+        fim += TAMANHO_PREFIXO + dados.length;
+        pendentes++;
+        variacoesPendentes.merge(movimentacao.getProduto().getId(), variacao(movimentacao), Integer::sum);
+
+        if (reenvioAgendado.compareAndSet(false, true)) {
+            reenvio.execute(this::reenviar);
+        }
+        return true;
+    }
+
+    /**
+     * Liga ou desliga o modo só diário, usado enquanto o esquema do banco não está atualizado
+     * (ex: banco inacessível na abertura da aplicação): {@link #gravar} grava no diário sem
+     * tentar o banco, e o reenvio espera. Ao desligar, o reenvio do que ficou pendente começa.
+     *
+     * @param somenteDiario true para não enviar nada ao banco
+     */
+    public synchronized void setSomenteDiario(boolean somenteDiario) {
+        this.somenteDiario = somenteDiario;
+        if (!somenteDiario && reenvio != null && reenvioAgendado.compareAndSet(false, true)) {
+            reenvio.execute(this::reenviar);
+        }
+    }
+
+    /**
+     * Obtém quantas movimentações do diário ainda não foram gravadas no banco.
+     *
+     * @return O número de movimentações pendentes
+     */
+    public synchronized int getPendentes() {
+        return pendentes;
+    }
+
+    /**
+     * Obtém a variação de estoque do produto registrada no diário e ainda não gravada no banco.
+     *
+     * @param produtoId O ID do produto
+     * @return A soma das entradas menos as saídas pendentes do produto
+     */
+    public int getVariacaoPendente(int produtoId) {
+        return variacoesPendentes.getOrDefault(produtoId, 0);
+    }
+
+    /**
+     * Estima o estoque do produto somando ao {@link LivroEstoque} as movimentações pendentes
+     * do diário. É uma estimativa: quem decide se uma saída é aceita é o banco, no reenvio.
+     *
+     * @param produtoId O ID do produto
+     * @return O estoque estimado ou -1 se o produto não for conhecido
+     */
+    public int getEstoqueEstimado(int produtoId) {
+        int estoque = LivroEstoque.getInstance().getEstoque(produtoId);
+        return estoque < 0 ? -1 : estoque + getVariacaoPendente(produtoId);
+    }
+
+    /**
+     * Obtém os conflitos encontrados no reenvio desde o início do processo.
+     *
+     * @return Uma lista com os conflitos, do mais antigo ao mais recente
+     */
+    public List<ConflitoDiario> getConflitos() {
+        return Collections.unmodifiableList(conflitos);
+    }
+
+    /**
+     * Adiciona um ouvinte avisado a cada movimentação recusada pelo banco no reenvio.
+     * O ouvinte é chamado na thread de reenvio.
+     *
+     * @param ouvinte O ouvinte a ser adicionado
+     */
+    public void adicionarOuvinteConflito(Consumer<ConflitoDiario> ouvinte) {
+        ouvintes.add(ouvinte);
+    }
+
+    /**
+     * Trava e mapeia o arquivo e localiza o fim do diário a partir da última posição confirmada.
+     * O canal fica aberto, e o arquivo travado, até o fim do processo.
+     */
+    private void abrir(Path arquivo) throws IOException {
+        if (arquivo.getParent() != null) {
+            Files.createDirectories(arquivo.getParent());
+        }
+        FileChannel aberto = FileChannel.open(arquivo, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        FileLock trava;
+        MappedByteBuffer mapeado;
+        try {
+            try {
+                trava = aberto.tryLock();
+            } catch (OverlappingFileLockException ex) {
+                trava = null;
+            }
+            if (trava == null) {
+                throw new IOException(arquivo + " está em uso por outro processo");
+            }
+            mapeado = aberto.map(FileChannel.MapMode.READ_WRITE, 0, CAPACIDADE);
+
+            int marca = mapeado.getInt(0);
+            if (marca == 0) {
+                mapeado.putInt(4, VERSAO);
+                mapeado.putInt(POSICAO_CONFIRMADO, TAMANHO_CABECALHO);
+                mapeado.putInt(0, MARCA);
+                mapeado.force();
+            } else if (marca != MARCA || mapeado.getInt(4) != VERSAO) {
+                throw new IOException(arquivo + " não é um diário de movimentações");
+            }
+        } catch (IOException ex) {
+            // Fechar o canal também libera a trava
+            aberto.close();
+            throw ex;
+        }
+
+        this.canal = aberto;
+        this.travaArquivo = trava;
+        this.arquivo = arquivo;
+        this.mapa = mapeado;
+        confirmado = mapeado.getInt(POSICAO_CONFIRMADO);
+        fim = confirmado;
+        for (Registro registro = ler(fim); registro != null; registro = ler(fim)) {
+            Movimentacao movimentacao = registro.movimentacao;
+            variacoesPendentes.merge(movimentacao.getProduto().getId(), variacao(movimentacao), Integer::sum);
+            pendentes++;
+            fim = registro.fim;
+        }
+
+        // Descarta os restos de um registro interrompido, que confundiriam a próxima abertura
+        if (fim + 4 <= CAPACIDADE && mapa.getInt(fim) != 0) {
+            apagar(fim, CAPACIDADE);
+            mapa.force();
+        }
+    }
+
+    /**
+     * Reenvia ao banco as movimentações pendentes, em lotes, até esvaziar o diário ou
+     * o banco ficar indisponível.
+     */
+    private void reenviar() {
+        // Registros gravados a partir daqui pedem um novo reenvio
+        reenvioAgendado.set(false);
+        try {
+            while (!somenteDiario && bancoDisponivel()) {
+                List<Registro> lote = lerPendentes();
+                if (lote.isEmpty()) {
+                    reiniciarSeVazio();
+                    return;
+                }
+                if (!enviar(lote)) {
+                    return;
+                }
+            }
+        } catch (RuntimeException ex) {
+            // Não deixa a thread agendada morrer; o próximo ciclo tenta de novo
+            System.err.println("Erro ao reenviar diário de movimentações: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Grava o lote em uma transação, aplicando as movimentações na ordem do diário (ver
+     * {@link MovimentacaoDAO#registrarEmOrdem}). Se o lote for recusado, as movimentações são gravadas
+     * uma a uma para isolar as que conflitam; as demais seguem normalmente. Só uma recusa
+     * definitiva (estoque insuficiente, produto inexistente ou outra violação de restrição)
+     * descarta o registro; em qualquer outro erro o registro fica no diário.
+     *
+     * @return false se ocorreu uma falha transitória e o reenvio deve parar até o próximo ciclo
+     */
+    private boolean enviar(List<Registro> lote) {
+        List<Movimentacao> movimentacoes = new ArrayList<>(lote.size());
+        for (Registro registro : lote) {
+            movimentacoes.add(registro.movimentacao);
+        }
+        try {
+            // Em ordem, como foram registradas: o saldo do lote não compensa uma saída sem estoque
+            movimentacaoDAO.registrarEmOrdem(movimentacoes);
+            confirmar(lote.get(lote.size() - 1).fim, lote);
+            return true;
+        } catch (EstoqueInsuficienteException ex) {
+            // Segue item a item para descobrir quais saídas não cabem no estoque
+        } catch (SQLException ex) {
+            if (!ErrosMySql.violaRestricao(ex)) {
+                System.err.println("Erro ao reenviar lote do diário: " + ex.getMessage());
+                return false;
+            }
+            // Segue item a item para descobrir qual movimentação o banco recusa
+        }
+
+        for (Registro registro : lote) {
+            try {
+                movimentacaoDAO.inserirOuLancar(registro.movimentacao);
+            } catch (EstoqueInsuficienteException ex) {
+                informarConflito(new ConflitoDiario(registro.movimentacao, "Estoque insuficiente",
+                        ex.getEstoqueAtual()));
+            } catch (SQLException ex) {
+                if (!ErrosMySql.violaRestricao(ex)) {
+                    // Deadlock, tempo esgotado, conexão perdida: a posição confirmada não avança
+                    System.err.println("Erro ao reenviar movimentação do diário: " + ex.getMessage());
+                    return false;
+                }
+                System.err.println("Movimentação do diário recusada pelo banco: " + ex.getMessage());
+                informarConflito(new ConflitoDiario(registro.movimentacao, "Recusada pelo banco", -1));
+            }
+            confirmar(registro.fim, Collections.singletonList(registro));
+        }
+        return true;
+    }
+
+    /**
+     * Lê do diário o próximo lote de movimentações não reenviadas.
+     */
+    private synchronized List<Registro> lerPendentes() {
+        List<Registro> lote = new ArrayList<>();
+        int posicao = confirmado;
+        while (lote.size() < TAMANHO_LOTE && posicao < fim) {
+            Registro registro = ler(posicao);
+            if (registro == null) {
+                break;
+            }
+            lote.add(registro);
+            posicao = registro.fim;
+        }
+        return lote;
+    }
+
+    /**
+     * Avança a posição confirmada no cabeçalho para depois dos registros gravados no banco.
+     */
+    private synchronized void confirmar(int posicao, List<Registro> gravados) {
+        confirmado = posicao;
+        mapa.putInt(POSICAO_CONFIRMADO, confirmado);
+        mapa.force();
+        for (Registro registro : gravados) {
+            Movimentacao movimentacao = registro.movimentacao;
+            variacoesPendentes.computeIfPresent(movimentacao.getProduto().getId(), (id, v) -> {
+                int restante = v - variacao(movimentacao);
+                return restante == 0 ? null : restante;
+            });
+            pendentes--;
+        }
+    }
+
+    /**
+     * Volta a gravar do início do arquivo quando tudo já foi reenviado e o diário passou de
+     * um quarto da capacidade. Os registros são apagados antes de o cabeçalho apontar para o
+     * início; se o processo cair no meio, a abertura encontra um diário vazio.
+     */
+    private synchronized void reiniciarSeVazio() {
+        if (confirmado != fim || fim < CAPACIDADE / 4) {
+            return;
+        }
+        apagar(TAMANHO_CABECALHO, fim);
+        mapa.force();
+        confirmado = TAMANHO_CABECALHO;
+        fim = TAMANHO_CABECALHO;
+        mapa.putInt(POSICAO_CONFIRMADO, confirmado);
+        mapa.force();
+    }
+
+    /**
+     * Lê o registro na posição informada.
+     *
+     * @return O registro ou null se a posição não tiver um registro completo e íntegro
+     */
+    private Registro ler(int posicao) {
+        if (posicao + TAMANHO_PREFIXO > CAPACIDADE) {
+            return null;
+        }
+        int tamanho = mapa.getInt(posicao);
+        if (tamanho <= 0 || tamanho > CAPACIDADE - posicao - TAMANHO_PREFIXO) {
+            return null;
+        }
+        byte[] dados = new byte[tamanho];
+        mapa.position(posicao + TAMANHO_PREFIXO);
+        mapa.get(dados);
+        CRC32 crc = new CRC32();
+        crc.update(dados);
+        if ((int) crc.getValue() != mapa.getInt(posicao + 4)) {
+            return null;
+        }
+        try {
+            return new Registro(desserializar(dados), posicao + TAMANHO_PREFIXO + tamanho);
+        } catch (IOException ex) {
+            System.err.println("Erro ao ler registro do diário de movimentações: " + ex.getMessage());
+            return null;
+        }
+    }
+
+    private void apagar(int inicio, int fimExclusivo) {
+        for (int i = inicio; i < fimExclusivo; i++) {
+            mapa.put(i, (byte) 0);
+        }
+    }
+
+    private void informarConflito(ConflitoDiario conflito) {
+        conflitos.add(conflito);
+        Movimentacao movimentacao = conflito.getMovimentacao();
+        String linha = conflito.getDetectadoEm() + ";" + movimentacao.getChaveIdempotencia() + ";"
+                + movimentacao.getProduto().getId() + ";" + movimentacao.getTipo() + ";"
+                + movimentacao.getQuantidade() + ";" + movimentacao.getDataHora() + ";"
+                + conflito.getMotivo() + ";" + conflito.getEstoqueAtual() + System.lineSeparator();
+        try {
+            Files.write(Paths.get(arquivo + ".conflitos"), linha.getBytes(StandardCharsets.UTF_8),
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException ex) {
+            System.err.println("Erro ao anotar conflito do diário de movimentações: " + ex.getMessage());
+        }
+        for (Consumer<ConflitoDiario> ouvinte : ouvintes) {
+            ouvinte.accept(conflito);
+        }
+    }
+
+    private boolean bancoDisponivel() {
+        try (Connection conn = ConnectionFactory.getInstance().getConnectionDoPool()) {
+            return conn.isValid(2);
+        } catch (SQLException ex) {
+            return false;
+        }
+    }
+
+    private static int variacao(Movimentacao movimentacao) {
+        return movimentacao.isEntrada() ? movimentacao.getQuantidade() : -movimentacao.getQuantidade();
+    }
+
+    private static byte[] serializar(Movimentacao movimentacao) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream saida = new DataOutputStream(bytes)) {
+            saida.writeUTF(movimentacao.getChaveIdempotencia());
+            saida.writeInt(movimentacao.getProduto().getId());
+            saida.writeUTF(movimentacao.getProduto().getNome() == null ? "" : movimentacao.getProduto().getNome());
+            saida.writeUTF(movimentacao.getTipo());
+            saida.writeInt(movimentacao.getQuantidade());
+            saida.writeUTF(movimentacao.getDataHora().toString());
+            saida.writeUTF(movimentacao.getObservacao() == null ? "" : movimentacao.getObservacao());
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Movimentacao desserializar(byte[] dados) throws IOException {
+        try (DataInputStream entrada = new DataInputStream(new ByteArrayInputStream(dados))) {
+            String chave = entrada.readUTF();
+            Produto produto = new Produto();
+            produto.setId(entrada.readInt());
+            produto.setNome(entrada.readUTF());
+            Movimentacao movimentacao = new Movimentacao(0, produto, entrada.readUTF(), entrada.readInt(),
+                    LocalDateTime.parse(entrada.readUTF()), entrada.readUTF());
+            movimentacao.setChaveIdempotencia(chave);
+            return movimentacao;
+        }
+    }
+
+    /**
+     * Movimentação lida do diário e a posição logo após o seu registro.
+     */
+    private static final class Registro {
+        final Movimentacao movimentacao;
+        final int fim;
+
+        Registro(Movimentacao movimentacao, int fim) {
+            this.movimentacao = movimentacao;
+            this.fim = fim;
+        }
+    }
+}
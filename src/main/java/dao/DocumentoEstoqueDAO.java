@@ -0,0 +1,216 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.UUID;
+import model.DocumentoEstoque;
+
+/**
+ * Classe de acesso a dados para documentos de estoque (notas de entrada e de saída com vários itens).
+ *
+ * O cabeçalho e todos os itens são gravados em uma única transação: um documento de 50 itens
+ * custa uma confirmação, e não 50. As linhas de produto são travadas em ordem crescente de ID
+ * (ver {@link MovimentacaoDAO#gravarLote}), então documentos concorrentes não entram em deadlock
+ * entre si; se o banco ainda assim desfizer a transação por deadlock ou por tempo de espera de
+ * trava (ex: concorrência com outras operações), o documento é gravado novamente algumas vezes.
+ *
+ * O documento recebe uma chave de idempotência na primeira submissão: reenviar o mesmo documento
+ * (ex: após um tempo esgotado sem resposta) devolve o ID original sem gravá-lo outra vez.
+ */
+public class DocumentoEstoqueDAO {
+
+    // Tentativas de gravar o documento quando a transação é desfeita por deadlock ou espera de trava
+    public static final int TENTATIVAS_MAXIMAS = 3;
+
+    // Espera antes de uma nova tentativa, multiplicada pelo número da tentativa
+    private static final long ESPERA_ENTRE_TENTATIVAS_MS = 50;
+
+    // Fábrica de conexões compartilhada pelo processo
+    private final ConnectionFactory connectionFactory;
+
+    // Grava e lê os itens do documento
+    private final MovimentacaoDAO movimentacaoDAO;
+
+    /**
+     * Construtor padrão que obtém a fábrica de conexões compartilhada.
+     */
+    public DocumentoEstoqueDAO() {
+        this.connectionFactory = ConnectionFactory.getInstance();
+        this.movimentacaoDAO = new MovimentacaoDAO();
+    }
+
+    /**
+     * Insere o documento e todos os seus itens em uma única transação, ajustando o estoque
+     * dos produtos. Se o saldo de algum produto ficar negativo, nada é gravado.
+     *
+     * Dentro de uma {@link Transacao}, o documento participa dela e não é repetido em caso de
+     * deadlock: a transação externa é marcada para rollback e cabe a quem a iniciou repeti-la.
+     *
+     * @param documento O documento a ser inserido, com ao menos um item
+     * @return O ID gerado para o documento (ou o original, se repetido) ou -1 em caso de erro
+     * @throws EstoqueInsuficienteException Se o estoque de um produto não cobrir as saídas do documento
+     */
+    public int inserir(DocumentoEstoque documento) {
+        if (documento == null || documento.getItens() == null || documento.getItens().isEmpty()) {
+            return -1;
+        }
+
+        int tentativas = Transacao.emAndamento() ? 1 : TENTATIVAS_MAXIMAS;
+        for (int tentativa = 1; ; tentativa++) {
+            try {
+                return gravar(documento);
+            } catch (SQLException ex) {
+                // Outra submissão do mesmo documento foi confirmada enquanto esta era gravada
+                boolean repetido = ErrosMySql.possui(ex, ErrosMySql.CHAVE_DUPLICADA);
+                boolean transitorio = repetido || ErrosMySql.possui(ex, ErrosMySql.DEADLOCK,
+                        ErrosMySql.TEMPO_ESPERA_TRAVA);
+                if (tentativa >= tentativas || !transitorio) {
+                    System.err.println("Erro ao inserir documento de estoque: " + ex.getMessage());
+                    return -1;
+                }
+                if (repetido) {
+                    continue;
+                }
+                try {
+                    Thread.sleep(ESPERA_ENTRE_TENTATIVAS_MS * tentativa);
+                } catch (InterruptedException interrompido) {
+                    Thread.currentThread().interrupt();
+                    System.err.println("Erro ao inserir documento de estoque: " + ex.getMessage());
+                    return -1;
+                }
+            }
+        }
+    }
+
+    /**
+     * Consulta um documento de estoque pelo ID, com os seus itens.
+     *
+     * @param id O ID do documento
+     * @return O documento encontrado ou null se não existir
+     */
+    public DocumentoEstoque consultar(int id) {
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        DocumentoEstoque documento = null;
+
+        try {
+            conn = connectionFactory.getConnection();
+            stmt = connectionFactory.preparar(conn, ConsultaSql.DOCUMENTO_CONSULTAR);
+            stmt.setInt(1, id);
+            rs = stmt.executeQuery();
+
+            if (rs.next()) {
+                documento = DocumentoEstoqueMapeador.INSTANCIA.mapear(rs);
+            }
+        } catch (SQLException ex) {
+            System.err.println("Erro ao consultar documento de estoque: " + ex.getMessage());
+            return null;
+        } finally {
+            fecharRecursos(rs, stmt, conn);
+        }
+
+        if (documento != null) {
+            documento.setItens(movimentacaoDAO.listarPorDocumento(id, documento.getDataHora()));
+        }
+        return documento;
+    }
+
+    /**
+     * Grava o cabeçalho e os itens em uma transação; qualquer erro desfaz tudo.
+     */
+    private int gravar(DocumentoEstoque documento) throws SQLException {
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+
+        try {
+            // Obtém conexão com o banco de dados e inicia transação
+            conn = connectionFactory.getConnection();
+            conn.setAutoCommit(false);
+
+            // Documento reenviado após já ter sido confirmado: devolve o ID original sem gravá-lo
+            if (documento.getChaveIdempotencia() == null) {
+                documento.setChaveIdempotencia(UUID.randomUUID().toString());
+            } else {
+                stmt = connectionFactory.preparar(conn, ConsultaSql.DOCUMENTO_CONSULTAR_POR_CHAVE);
+                stmt.setString(1, documento.getChaveIdempotencia());
+                rs = stmt.executeQuery();
+                if (rs.next()) {
+                    int original = rs.getInt(1);
+                    conn.commit();
+                    documento.setId(original);
+                    return original;
+                }
+                fecharRecursos(rs, stmt, null);
+                rs = null;
+            }
+
+            int idGerado = AlocadorIds.DOCUMENTO.proximo();
+            stmt = connectionFactory.preparar(conn, ConsultaSql.DOCUMENTO_INSERIR);
+            stmt.setInt(1, idGerado);
+            stmt.setString(2, documento.getTipo());
+            // Mesma data e hora gravada nos itens, que a consulta usa para encontrá-los
+            stmt.setTimestamp(3, MovimentacaoDAO.dataHoraBanco(documento.getDataHora()));
+            stmt.setString(4, documento.getObservacao());
+            stmt.setString(5, documento.getChaveIdempotencia());
+            stmt.executeUpdate();
+
+            List<Long> idsItens = movimentacaoDAO.gravarLote(conn, documento.getItens(), idGerado);
+
+            // Confirma a transação
+            conn.commit();
+            documento.setId(idGerado);
+            movimentacaoDAO.concluirLote(documento.getItens(), idsItens);
+            return idGerado;
+        } catch (SQLException | EstoqueInsuficienteException ex) {
+            // Desfaz a transação em caso de erro
+            try {
+                if (conn != null) {
+                    conn.rollback();
+                }
+            } catch (SQLException rollbackEx) {
+                System.err.println("Erro ao desfazer transação: " + rollbackEx.getMessage());
+            }
+            throw ex;
+        } finally {
+            // Restaura o modo de auto-commit e fecha recursos
+            try {
+                if (conn != null) {
+                    conn.setAutoCommit(true);
+                }
+            } catch (SQLException ex) {
+                System.err.println("Erro ao restaurar auto-commit: " + ex.getMessage());
+            }
+            fecharRecursos(rs, stmt, conn);
+        }
+    }
+
+    /**
+     * Fecha os recursos utilizados pela DAO
+     *
+     * @param rs ResultSet a ser fechado (pode ser null)
+     * @param stmt Statement a ser fechado (pode ser null)
+     * @param conn Conexão a ser fechada (pode ser null)
+     */
+    private void fecharRecursos(ResultSet rs, PreparedStatement stmt, Connection conn) {
+        try {
+            if (rs != null) rs.close();
+        } catch (SQLException ex) {
+            System.err.println("Erro ao fechar ResultSet: " + ex.getMessage());
+        }
+        try {
+            if (stmt != null) stmt.close();
+        } catch (SQLException ex) {
+            System.err.println("Erro ao fechar Statement: " + ex.getMessage());
+        }
+        try {
+            if (conn != null) conn.close();
+        } catch (SQLException ex) {
+            System.err.println("Erro ao fechar conexão: " + ex.getMessage());
+        }
+    }
+}
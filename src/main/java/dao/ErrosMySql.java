@@ -0,0 +1,97 @@
+package dao;
+
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLTransientConnectionException;
+
+/**
+ * Códigos de erro do MySQL tratados pelas DAOs.
+ */
+final class ErrosMySql {
+
+    // Coluna já existente na tabela (ex: migração interrompida depois de criar a coluna)
+    static final int COLUNA_DUPLICADA = 1060;
+
+    // Nome de índice já existente na tabela (ex: índice criado à mão antes da migração)
+    static final int INDICE_DUPLICADO = 1061;
+
+    // Chave duplicada em índice único (ex: chave de idempotência já registrada)
+    static final int CHAVE_DUPLICADA = 1062;
+
+    // Transação desfeita por deadlock
+    static final int DEADLOCK = 1213;
+
+    // Tempo de espera por uma trava esgotado
+    static final int TEMPO_ESPERA_TRAVA = 1205;
+
+    private ErrosMySql() {
+    }
+
+    /**
+     * Verifica se o erro, ou alguma de suas causas, tem um dos códigos informados.
+     *
+     * @param ex O erro recebido do banco
+     * @param codigos Os códigos de erro procurados
+     * @return true se algum dos códigos for encontrado
+     */
+    static boolean possui(SQLException ex, int... codigos) {
+        for (Throwable causa = ex; causa != null; causa = causa.getCause()) {
+            if (causa instanceof SQLException) {
+                int codigo = ((SQLException) causa).getErrorCode();
+                for (int procurado : codigos) {
+                    if (codigo == procurado) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Verifica se o erro, ou alguma de suas causas, é uma violação de restrição de integridade
+     * (SQLSTATE da classe 23: chave duplicada, referência inexistente, CHECK): uma recusa
+     * definitiva, que não muda se a instrução for repetida.
+     *
+     * @param ex O erro recebido do banco
+     * @return true se o erro for uma violação de restrição
+     */
+    static boolean violaRestricao(SQLException ex) {
+        for (Throwable causa = ex; causa != null; causa = causa.getCause()) {
+            if (causa instanceof SQLIntegrityConstraintViolationException) {
+                return true;
+            }
+            if (causa instanceof SQLException) {
+                String estado = ((SQLException) causa).getSQLState();
+                if (estado != null && estado.startsWith("23")) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Verifica se o erro, ou alguma de suas causas, é uma falha de conexão com o banco
+     * (SQLSTATE da classe 08: servidor inacessível, conexão recusada ou perdida), incluindo o
+     * tempo esgotado aguardando uma conexão do pool.
+     *
+     * @param ex O erro recebido do banco
+     * @return true se o erro for uma falha de conexão
+     */
+    static boolean semConexao(SQLException ex) {
+        for (Throwable causa = ex; causa != null; causa = causa.getCause()) {
+            if (causa instanceof SQLTransientConnectionException || causa instanceof SQLNonTransientConnectionException) {
+                return true;
+            }
+            if (causa instanceof SQLException) {
+                String estado = ((SQLException) causa).getSQLState();
+                if (estado != null && estado.startsWith("08")) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
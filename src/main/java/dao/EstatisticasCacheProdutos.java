@@ -0,0 +1,127 @@
+package dao;
+
+/**
+ * Retrato imutável das estatísticas do cache de produtos em um determinado momento.
+ * Obtido através de {@link ProdutoDAO#getEstatisticasCache()}.
+ */
+public class EstatisticasCacheProdutos {
+
+    // Atributos da classe
+    private final int tamanho;
+    private final int capacidade;
+    private final long acertos;
+    private final long falhas;
+    private final long descartes;
+    private final long rejeicoes;
+    private final long invalidacoes;
+
+    /**
+     * Construtor com todos os valores das estatísticas.
+     *
+     * @param tamanho Produtos guardados no momento
+     * @param capacidade Número máximo de produtos guardados
+     * @param acertos Consultas atendidas pelo cache
+     * @param falhas Consultas que precisaram ir ao banco
+     * @param descartes Produtos removidos para dar lugar a produtos mais frequentes
+     * @param rejeicoes Produtos lidos do banco que não entraram no cache por serem pouco frequentes
+     * @param invalidacoes Invalidações causadas por escritas em produtos ou movimentações
+     */
+    public EstatisticasCacheProdutos(int tamanho, int capacidade, long acertos, long falhas, long descartes,
+                                     long rejeicoes, long invalidacoes) {
+        this.tamanho = tamanho;
+        this.capacidade = capacidade;
+        this.acertos = acertos;
+        this.falhas = falhas;
+        this.descartes = descartes;
+        this.rejeicoes = rejeicoes;
+        this.invalidacoes = invalidacoes;
+    }
+
+    /**
+     * Obtém o número de produtos guardados no momento.
+     *
+     * @return O número de produtos guardados no momento
+     */
+    public int getTamanho() {
+        return tamanho;
+    }
+
+    /**
+     * Obtém o número máximo de produtos guardados.
+     *
+     * @return O número máximo de produtos guardados
+     */
+    public int getCapacidade() {
+        return capacidade;
+    }
+
+    /**
+     * Obtém quantas consultas foram atendidas pelo cache.
+     *
+     * @return Quantas consultas foram atendidas pelo cache
+     */
+    public long getAcertos() {
+        return acertos;
+    }
+
+    /**
+     * Obtém quantas consultas precisaram ir ao banco.
+     *
+     * @return Quantas consultas precisaram ir ao banco
+     */
+    public long getFalhas() {
+        return falhas;
+    }
+
+    /**
+     * Obtém quantos produtos foram removidos para dar lugar a produtos mais frequentes.
+     *
+     * @return Quantos produtos foram removidos do cache cheio
+     */
+    public long getDescartes() {
+        return descartes;
+    }
+
+    /**
+     * Obtém quantos produtos lidos do banco não entraram no cache por serem pouco frequentes.
+     *
+     * @return Quantos produtos foram recusados pela política de admissão
+     */
+    public long getRejeicoes() {
+        return rejeicoes;
+    }
+
+    /**
+     * Obtém quantas invalidações foram causadas por escritas em produtos ou movimentações.
+     *
+     * @return Quantas invalidações ocorreram
+     */
+    public long getInvalidacoes() {
+        return invalidacoes;
+    }
+
+    /**
+     * Obtém a taxa de acerto do cache (entre 0 e 1).
+     *
+     * @return A taxa de acerto do cache
+     */
+    public double getTaxaAcerto() {
+        long total = acertos + falhas;
+        return total == 0 ? 0 : (double) acertos / total;
+    }
+
+    /**
+     * Retorna uma representação em String das estatísticas.
+     *
+     * @return Uma String com os principais valores do cache
+     */
+    @Override
+    public String toString() {
+        return "CacheProdutos[tamanho=" + tamanho + "/" + capacidade
+                + ", acertos=" + acertos
+                + ", falhas=" + falhas
+                + ", descartes=" + descartes
+                + ", rejeicoes=" + rejeicoes
+                + ", invalidacoes=" + invalidacoes + "]";
+    }
+}
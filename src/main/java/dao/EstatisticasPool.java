@@ -0,0 +1,219 @@
+package dao;
+
+/**
+ * Retrato imutável das estatísticas do pool de conexões em um determinado momento.
+ * Obtido através de {@link ConnectionFactory#getEstatisticas()}.
+ */
+public class EstatisticasPool {
+
+    // Atributos da classe
+    private final int conexoesTotais;
+    private final int conexoesAtivas;
+    private final int conexoesOciosas;
+    private final int threadsAguardando;
+    private final int tamanhoMaximo;
+    private final long conexoesCriadas;
+    private final long conexoesDestruidas;
+    private final long emprestimos;
+    private final long tempoMedioEsperaMicros;
+    private final long esgotamentos;
+    private final long vazamentosDetectados;
+    private final long statementsAcertos;
+    private final long statementsFalhas;
+    private final long statementsDescartes;
+
+    /**
+     * Construtor com todos os valores das estatísticas.
+     *
+     * @param conexoesTotais Conexões físicas abertas
+     * @param conexoesAtivas Conexões emprestadas no momento
+     * @param conexoesOciosas Conexões disponíveis no pool
+     * @param threadsAguardando Threads aguardando uma conexão
+     * @param tamanhoMaximo Tamanho máximo configurado do pool
+     * @param conexoesCriadas Total de conexões físicas abertas desde o início
+     * @param conexoesDestruidas Total de conexões físicas fechadas desde o início
+     * @param emprestimos Total de empréstimos realizados
+     * @param tempoMedioEsperaMicros Tempo médio para obter uma conexão, em microssegundos
+     * @param esgotamentos Vezes em que o tempo de espera se esgotou sem conexão disponível
+     * @param vazamentosDetectados Conexões reportadas como possível vazamento
+     * @param statementsAcertos Statements reaproveitados do cache das conexões
+     * @param statementsFalhas Statements que precisaram ser preparados
+     * @param statementsDescartes Statements fechados pelo limite de tamanho do cache
+     */
+    public EstatisticasPool(int conexoesTotais, int conexoesAtivas, int conexoesOciosas, int threadsAguardando,
+                            int tamanhoMaximo, long conexoesCriadas, long conexoesDestruidas, long emprestimos,
+                            long tempoMedioEsperaMicros, long esgotamentos, long vazamentosDetectados,
+                            long statementsAcertos, long statementsFalhas, long statementsDescartes) {
+        this.conexoesTotais = conexoesTotais;
+        this.conexoesAtivas = conexoesAtivas;
+        this.conexoesOciosas = conexoesOciosas;
+        this.threadsAguardando = threadsAguardando;
+        this.tamanhoMaximo = tamanhoMaximo;
+        this.conexoesCriadas = conexoesCriadas;
+        this.conexoesDestruidas = conexoesDestruidas;
+        this.emprestimos = emprestimos;
+        this.tempoMedioEsperaMicros = tempoMedioEsperaMicros;
+        this.esgotamentos = esgotamentos;
+        this.vazamentosDetectados = vazamentosDetectados;
+        this.statementsAcertos = statementsAcertos;
+        this.statementsFalhas = statementsFalhas;
+        this.statementsDescartes = statementsDescartes;
+    }
+
+    /**
+     * Obtém o número de conexões físicas abertas.
+     *
+     * @return O número de conexões físicas abertas
+     */
+    public int getConexoesTotais() {
+        return conexoesTotais;
+    }
+
+    /**
+     * Obtém o número de conexões emprestadas no momento.
+     *
+     * @return O número de conexões emprestadas no momento
+     */
+    public int getConexoesAtivas() {
+        return conexoesAtivas;
+    }
+
+    /**
+     * Obtém o número de conexões disponíveis no pool.
+     *
+     * @return O número de conexões disponíveis no pool
+     */
+    public int getConexoesOciosas() {
+        return conexoesOciosas;
+    }
+
+    /**
+     * Obtém o número de threads aguardando uma conexão.
+     *
+     * @return O número de threads aguardando uma conexão
+     */
+    public int getThreadsAguardando() {
+        return threadsAguardando;
+    }
+
+    /**
+     * Obtém o tamanho máximo configurado do pool.
+     *
+     * @return O tamanho máximo configurado do pool
+     */
+    public int getTamanhoMaximo() {
+        return tamanhoMaximo;
+    }
+
+    /**
+     * Obtém o total de conexões físicas abertas desde o início.
+     *
+     * @return O total de conexões físicas abertas desde o início
+     */
+    public long getConexoesCriadas() {
+        return conexoesCriadas;
+    }
+
+    /**
+     * Obtém o total de conexões físicas fechadas desde o início.
+     *
+     * @return O total de conexões físicas fechadas desde o início
+     */
+    public long getConexoesDestruidas() {
+        return conexoesDestruidas;
+    }
+
+    /**
+     * Obtém o total de empréstimos realizados.
+     *
+     * @return O total de empréstimos realizados
+     */
+    public long getEmprestimos() {
+        return emprestimos;
+    }
+
+    /**
+     * Obtém o tempo médio para obter uma conexão, em microssegundos.
+     *
+     * @return O tempo médio para obter uma conexão, em microssegundos
+     */
+    public long getTempoMedioEsperaMicros() {
+        return tempoMedioEsperaMicros;
+    }
+
+    /**
+     * Obtém quantas vezes o tempo de espera se esgotou sem conexão disponível.
+     *
+     * @return Quantas vezes o tempo de espera se esgotou sem conexão disponível
+     */
+    public long getEsgotamentos() {
+        return esgotamentos;
+    }
+
+    /**
+     * Obtém quantas conexões foram reportadas como possível vazamento.
+     *
+     * @return Quantas conexões foram reportadas como possível vazamento
+     */
+    public long getVazamentosDetectados() {
+        return vazamentosDetectados;
+    }
+
+    /**
+     * Obtém quantos statements foram reaproveitados do cache das conexões.
+     *
+     * @return Quantos statements foram reaproveitados do cache das conexões
+     */
+    public long getStatementsAcertos() {
+        return statementsAcertos;
+    }
+
+    /**
+     * Obtém quantos statements precisaram ser preparados por não estarem no cache.
+     *
+     * @return Quantos statements precisaram ser preparados por não estarem no cache
+     */
+    public long getStatementsFalhas() {
+        return statementsFalhas;
+    }
+
+    /**
+     * Obtém quantos statements foram fechados pelo limite de tamanho do cache.
+     *
+     * @return Quantos statements foram fechados pelo limite de tamanho do cache
+     */
+    public long getStatementsDescartes() {
+        return statementsDescartes;
+    }
+
+    /**
+     * Obtém a taxa de acerto do cache de statements (entre 0 e 1).
+     *
+     * @return A taxa de acerto do cache de statements
+     */
+    public double getTaxaAcertoStatements() {
+        long totalStatements = statementsAcertos + statementsFalhas;
+        return totalStatements == 0 ? 0 : (double) statementsAcertos / totalStatements;
+    }
+
+    /**
+     * Retorna uma representação em String das estatísticas.
+     *
+     * @return Uma String com os principais valores do pool
+     */
+    @Override
+    public String toString() {
+        return "Pool[total=" + conexoesTotais + "/" + tamanhoMaximo
+                + ", ativas=" + conexoesAtivas
+                + ", ociosas=" + conexoesOciosas
+                + ", aguardando=" + threadsAguardando
+                + ", criadas=" + conexoesCriadas
+                + ", destruidas=" + conexoesDestruidas
+                + ", emprestimos=" + emprestimos
+                + ", esperaMedia=" + tempoMedioEsperaMicros + "us"
+                + ", esgotamentos=" + esgotamentos
+                + ", vazamentos=" + vazamentosDetectados
+                + ", statements=" + statementsAcertos + " acertos/" + statementsFalhas + " falhas/"
+                + statementsDescartes + " descartes]";
+    }
+}
@@ -0,0 +1,59 @@
+package dao;
+
+/**
+ * Lançada quando uma saída de estoque é recusada por não haver quantidade suficiente.
+ *
+ * A verificação é feita pelo próprio banco, na mesma instrução que baixa o estoque,
+ * então a recusa reflete o estoque real no momento da saída; {@link #getEstoqueAtual()}
+ * traz esse valor para que a tela possa informá-lo sem uma nova consulta.
+ */
+public class EstoqueInsuficienteException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int produtoId;
+    private final int quantidadeSolicitada;
+    private final int estoqueAtual;
+
+    /**
+     * Cria a exceção com os dados da saída recusada.
+     *
+     * @param produtoId O ID do produto
+     * @param quantidadeSolicitada A quantidade que se tentou retirar
+     * @param estoqueAtual O estoque do produto no momento da recusa
+     */
+    public EstoqueInsuficienteException(int produtoId, int quantidadeSolicitada, int estoqueAtual) {
+        super("Estoque insuficiente para o produto " + produtoId + ": solicitado " + quantidadeSolicitada
+                + ", disponível " + estoqueAtual);
+        this.produtoId = produtoId;
+        this.quantidadeSolicitada = quantidadeSolicitada;
+        this.estoqueAtual = estoqueAtual;
+    }
+
+    /**
+     * Obtém o ID do produto cuja saída foi recusada.
+     *
+     * @return O ID do produto
+     */
+    public int getProdutoId() {
+        return produtoId;
+    }
+
+    /**
+     * Obtém a quantidade que se tentou retirar.
+     *
+     * @return A quantidade solicitada
+     */
+    public int getQuantidadeSolicitada() {
+        return quantidadeSolicitada;
+    }
+
+    /**
+     * Obtém o estoque do produto no momento da recusa.
+     *
+     * @return O estoque atual do produto
+     */
+    public int getEstoqueAtual() {
+        return estoqueAtual;
+    }
+}
@@ -0,0 +1,315 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import model.Movimentacao;
+
+/**
+ * Gravador assíncrono de movimentações com confirmação em grupo (group commit).
+ *
+ * Quem registra a movimentação apenas a coloca na fila e recebe um {@link CompletableFuture}
+ * com o ID gerado. Uma thread em segundo plano retira da fila grupos de até {@code tamanhoGrupo}
+ * movimentações (ou as que chegarem dentro da janela de tempo após a primeira) e grava cada
+ * grupo em uma única transação, pagando uma única confirmação em disco por grupo.
+ *
+ * Cada movimentação continua tendo o seu próprio resultado:
+ * <ul>
+ *   <li>saídas sem estoque suficiente completam o futuro com {@link EstoqueInsuficienteException},
+ *       sem afetar as demais movimentações do grupo;</li>
+ *   <li>se uma movimentação falhar, o grupo é desfeito, o futuro dela falha com o erro
+ *       e as restantes são gravadas novamente em um novo grupo;</li>
+ *   <li>se o grupo for desfeito por deadlock ou espera de trava, ele é gravado de novo
+ *       antes de a movimentação falhar;</li>
+ *   <li>se a confirmação falhar, os futuros de todo o grupo falham;</li>
+ *   <li>movimentações com chave de idempotência já registrada completam o futuro com o ID original,
+ *       sem serem aplicadas novamente.</li>
+ * </ul>
+ *
+ * O gravador é opcional e deve ser encerrado com {@link #encerrar()}, que grava o que ainda estiver na fila.
+ */
+public class GravadorMovimentacoes {
+
+    // Configuração padrão dos grupos
+    public static final int TAMANHO_GRUPO_PADRAO = 200;
+    public static final long JANELA_GRUPO_PADRAO_MS = 5;
+
+    // Pedidos aguardando gravação; quem enfileira espera se a fila estiver cheia
+    private static final int CAPACIDADE_FILA = 10_000;
+
+    // Tentativas de gravar o grupo quando a transação é desfeita por deadlock ou espera de trava
+    private static final int TENTATIVAS_MAXIMAS = 3;
+
+    // Espera antes de uma nova tentativa, multiplicada pelo número da tentativa
+    private static final long ESPERA_ENTRE_TENTATIVAS_MS = 50;
+
+    private final ConnectionFactory connectionFactory;
+    private final MovimentacaoDAO movimentacaoDAO;
+    private final int tamanhoGrupo;
+    private final long janelaGrupoNs;
+    private final BlockingQueue<Pedido> fila;
+    private final Thread confirmador;
+    private volatile boolean encerrado;
+
+    // Estatísticas
+    private final AtomicLong gruposConfirmados = new AtomicLong();
+    private final AtomicLong movimentacoesConfirmadas = new AtomicLong();
+
+    /**
+     * Cria o gravador com o tamanho de grupo e a janela de tempo padrão.
+     */
+    public GravadorMovimentacoes() {
+        this(TAMANHO_GRUPO_PADRAO, JANELA_GRUPO_PADRAO_MS);
+    }
+
+    /**
+     * Cria o gravador e inicia a thread que confirma os grupos.
+     *
+     * @param tamanhoGrupo Número máximo de movimentações gravadas por transação
+     * @param janelaGrupoMs Tempo máximo de espera por mais movimentações após a primeira do grupo
+     */
+    public GravadorMovimentacoes(int tamanhoGrupo, long janelaGrupoMs) {
+        this.connectionFactory = ConnectionFactory.getInstance();
+        this.movimentacaoDAO = new MovimentacaoDAO();
+        this.tamanhoGrupo = tamanhoGrupo;
+        this.janelaGrupoNs = TimeUnit.MILLISECONDS.toNanos(janelaGrupoMs);
+        this.fila = new LinkedBlockingQueue<>(CAPACIDADE_FILA);
+        this.confirmador = new Thread(this::executar, "gravador-movimentacoes");
+        this.confirmador.setDaemon(true);
+        this.confirmador.start();
+    }
+
+    /**
+     * Coloca a movimentação na fila de gravação.
+     *
+     * @param movimentacao A movimentação a ser registrada
+     * @return Futuro completado com o ID gerado após a confirmação do grupo, ou com o erro da movimentação
+     */
+    public CompletableFuture<Long> enfileirar(Movimentacao movimentacao) {
+        CompletableFuture<Long> futuro = new CompletableFuture<>();
+        if (encerrado) {
+            futuro.completeExceptionally(new IllegalStateException("Gravador de movimentações encerrado"));
+            return futuro;
+        }
+
+        Pedido pedido = new Pedido(movimentacao, futuro);
+        try {
+            fila.put(pedido);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            futuro.completeExceptionally(ex);
+            return futuro;
+        }
+
+        // Encerrado enquanto enfileirava, depois da última retirada da fila
+        if (encerrado && !confirmador.isAlive() && fila.remove(pedido)) {
+            futuro.completeExceptionally(new IllegalStateException("Gravador de movimentações encerrado"));
+        }
+        return futuro;
+    }
+
+    /**
+     * Deixa de aceitar movimentações, grava as que ainda estão na fila e aguarda a thread terminar.
+     */
+    public void encerrar() {
+        encerrado = true;
+        try {
+            confirmador.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Obtém quantos grupos foram confirmados desde a criação do gravador.
+     *
+     * @return O número de transações confirmadas
+     */
+    public long getGruposConfirmados() {
+        return gruposConfirmados.get();
+    }
+
+    /**
+     * Obtém quantas movimentações foram gravadas desde a criação do gravador.
+     *
+     * @return O número de movimentações confirmadas
+     */
+    public long getMovimentacoesConfirmadas() {
+        return movimentacoesConfirmadas.get();
+    }
+
+    private void executar() {
+        List<Pedido> grupo = new ArrayList<>(tamanhoGrupo);
+        while (!encerrado || !fila.isEmpty()) {
+            try {
+                Pedido primeiro = fila.poll(100, TimeUnit.MILLISECONDS);
+                if (primeiro == null) {
+                    continue;
+                }
+                grupo.add(primeiro);
+
+                // Aguarda mais movimentações até completar o grupo ou esgotar a janela
+                long limite = System.nanoTime() + janelaGrupoNs;
+                while (grupo.size() < tamanhoGrupo) {
+                    long restante = limite - System.nanoTime();
+                    Pedido proximo = restante > 0 ? fila.poll(restante, TimeUnit.NANOSECONDS) : fila.poll();
+                    if (proximo == null) {
+                        break;
+                    }
+                    grupo.add(proximo);
+                }
+
+                confirmarGrupo(grupo);
+            } catch (InterruptedException ex) {
+                encerrado = true;
+            } catch (RuntimeException ex) {
+                for (Pedido pedido : grupo) {
+                    pedido.futuro.completeExceptionally(ex);
+                }
+            } finally {
+                grupo.clear();
+            }
+        }
+
+        for (Pedido pedido : fila) {
+            pedido.futuro.completeExceptionally(new IllegalStateException("Gravador de movimentações encerrado"));
+        }
+        fila.clear();
+    }
+
+    /**
+     * Grava o grupo em uma transação. Se uma movimentação falhar, o grupo é desfeito,
+     * ela é descartada e as demais são gravadas novamente. Se a transação for desfeita por
+     * deadlock ou espera de trava, o grupo inteiro é gravado de novo, até
+     * {@link #TENTATIVAS_MAXIMAS} vezes, antes de a movimentação ser descartada.
+     */
+    private void confirmarGrupo(List<Pedido> grupo) {
+        // Os produtos são travados na ordem do ID, como nos lotes; a ordenação é estável e
+        // mantém a ordem de chegada das movimentações de um mesmo produto
+        List<Pedido> pendentes = new ArrayList<>(grupo);
+        pendentes.sort(Comparator.comparingInt(pedido -> pedido.movimentacao.getProduto().getId()));
+
+        int tentativa = 1;
+        while (!pendentes.isEmpty()) {
+            List<Pedido> gravados = new ArrayList<>(pendentes.size());
+            List<Pedido> recusados = new ArrayList<>();
+            Pedido falhou = null;
+            SQLException erro = null;
+
+            try (Connection conn = connectionFactory.getConnection()) {
+                conn.setAutoCommit(false);
+                for (Pedido pedido : pendentes) {
+                    try {
+                        pedido.repetida = !movimentacaoDAO.registrar(conn, pedido.movimentacao);
+                        gravados.add(pedido);
+                    } catch (EstoqueInsuficienteException ex) {
+                        pedido.recusa = ex;
+                        recusados.add(pedido);
+                    } catch (SQLException ex) {
+                        falhou = pedido;
+                        erro = ex;
+                        break;
+                    }
+                }
+
+                if (falhou == null) {
+                    conn.commit();
+                    concluir(gravados, recusados);
+                    return;
+                }
+                conn.rollback();
+            } catch (SQLException ex) {
+                desfazer(gravados);
+                if (repetir(ex, tentativa)) {
+                    tentativa++;
+                    continue;
+                }
+                // Falha da conexão ou da confirmação: nenhuma movimentação do grupo foi gravada
+                System.err.println("Erro ao confirmar grupo de movimentações: " + ex.getMessage());
+                for (Pedido pedido : pendentes) {
+                    pedido.movimentacao.setId(0);
+                    pedido.futuro.completeExceptionally(ex);
+                }
+                return;
+            }
+
+            desfazer(gravados);
+            if (repetir(erro, tentativa)) {
+                tentativa++;
+                continue;
+            }
+            System.err.println("Erro ao gravar movimentação do grupo: " + erro.getMessage());
+            falhou.futuro.completeExceptionally(erro);
+            pendentes.remove(falhou);
+        }
+    }
+
+    /**
+     * Verifica se o grupo desfeito pelo erro deve ser gravado de novo: deadlock ou espera de
+     * trava esgotada, com tentativas restantes. Aguarda antes de devolver true.
+     */
+    private boolean repetir(SQLException erro, int tentativa) {
+        if (tentativa >= TENTATIVAS_MAXIMAS
+                || !ErrosMySql.possui(erro, ErrosMySql.DEADLOCK, ErrosMySql.TEMPO_ESPERA_TRAVA)) {
+            return false;
+        }
+        try {
+            Thread.sleep(ESPERA_ENTRE_TENTATIVAS_MS * tentativa);
+            return true;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Limpa o resultado das movimentações de uma transação desfeita.
+     */
+    private void desfazer(List<Pedido> gravados) {
+        for (Pedido pedido : gravados) {
+            pedido.movimentacao.setId(0);
+            pedido.repetida = false;
+        }
+    }
+
+    private void concluir(List<Pedido> gravados, List<Pedido> recusados) {
+        gruposConfirmados.incrementAndGet();
+        movimentacoesConfirmadas.addAndGet(gravados.size());
+        CacheProdutos cache = CacheProdutos.getInstance();
+        LivroEstoque livro = LivroEstoque.getInstance();
+        for (Pedido pedido : gravados) {
+            Movimentacao movimentacao = pedido.movimentacao;
+            if (!pedido.repetida) {
+                cache.invalidar(movimentacao.getProduto().getId());
+                livro.aplicar(movimentacao.getProduto().getId(),
+                        movimentacao.isEntrada() ? movimentacao.getQuantidade() : -movimentacao.getQuantidade());
+            }
+            pedido.futuro.complete(pedido.movimentacao.getId());
+        }
+        for (Pedido pedido : recusados) {
+            pedido.futuro.completeExceptionally(pedido.recusa);
+        }
+    }
+
+    /**
+     * Movimentação na fila e o futuro de quem a enfileirou.
+     */
+    private static final class Pedido {
+        final Movimentacao movimentacao;
+        final CompletableFuture<Long> futuro;
+        EstoqueInsuficienteException recusa;
+        boolean repetida;
+
+        Pedido(Movimentacao movimentacao, CompletableFuture<Long> futuro) {
+            this.movimentacao = movimentacao;
+            this.futuro = futuro;
+        }
+    }
+}
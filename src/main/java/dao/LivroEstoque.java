@@ -0,0 +1,246 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Livro de estoque em memória: o estoque de cada produto, mantido pelo processo
+ * para que consultas de disponibilidade sejam respondidas sem ir ao banco.
+ *
+ * Cada produto tem um único {@link AtomicLong} que guarda, juntos, o estoque (32 bits
+ * inferiores) e um contador de alterações (32 bits superiores); as atualizações são feitas
+ * por compare-and-set, sem travas. O livro é carregado na inicialização ({@link #iniciar()}),
+ * recebe a variação de toda movimentação confirmada por este processo e é conciliado
+ * periodicamente com {@code produto.quantidade_estoque}, corrigindo divergências causadas
+ * por outros processos ou por alterações diretas no banco.
+ *
+ * O banco continua sendo quem decide se uma saída é aceita (ver {@link MovimentacaoDAO#inserir}):
+ * com vários terminais, o livro de um processo só enxerga as movimentações dos demais
+ * na conciliação seguinte.
+ */
+public final class LivroEstoque {
+
+    // Intervalo entre conciliações com o banco
+    private static final long INTERVALO_CONCILIACAO_MS = 60 * 1000;
+
+    private static final LivroEstoque INSTANCIA = new LivroEstoque();
+
+    // Estoque e contador de alterações por ID do produto
+    private final ConcurrentHashMap<Integer, AtomicLong> estoques = new ConcurrentHashMap<>();
+
+    // Divergências encontradas na conciliação anterior (ID -> valor empacotado observado)
+    private final Map<Integer, Long> suspeitas = new HashMap<>();
+
+    private final AtomicLong correcoes = new AtomicLong();
+    private ScheduledExecutorService conciliador;
+
+    private LivroEstoque() {
+    }
+
+    /**
+     * Obtém o livro de estoque compartilhado pelo processo.
+     *
+     * @return A instância única do livro
+     */
+    public static LivroEstoque getInstance() {
+        return INSTANCIA;
+    }
+
+    /**
+     * Carrega o estoque de todos os produtos e agenda a conciliação periódica.
+     * Chamadas seguintes não têm efeito.
+     */
+    public synchronized void iniciar() {
+        if (conciliador != null) {
+            return;
+        }
+        conciliar();
+        conciliador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "livro-estoque-conciliacao");
+            t.setDaemon(true);
+            return t;
+        });
+        conciliador.scheduleWithFixedDelay(this::conciliar, INTERVALO_CONCILIACAO_MS, INTERVALO_CONCILIACAO_MS,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Obtém o estoque do produto. Produtos ainda não conhecidos pelo livro são lidos do banco uma vez.
+     *
+     * @param produtoId O ID do produto
+     * @return O estoque do produto ou -1 se o produto não existir
+     */
+    public int getEstoque(int produtoId) {
+        AtomicLong estoque = estoques.get(produtoId);
+        if (estoque == null) {
+            estoque = carregar(produtoId);
+            if (estoque == null) {
+                return -1;
+            }
+        }
+        return valor(estoque.get());
+    }
+
+    /**
+     * Verifica se o produto tem a quantidade informada em estoque.
+     *
+     * @param produtoId O ID do produto
+     * @param quantidade A quantidade desejada
+     * @return true se o estoque conhecido cobre a quantidade
+     */
+    public boolean temDisponivel(int produtoId, int quantidade) {
+        return getEstoque(produtoId) >= quantidade;
+    }
+
+    /**
+     * Obtém quantas divergências com o banco foram corrigidas pela conciliação.
+     *
+     * @return O número de correções feitas
+     */
+    public long getCorrecoes() {
+        return correcoes.get();
+    }
+
+    /**
+     * Aplica a variação de uma movimentação confirmada.
+     * Produtos ainda não conhecidos são ignorados: serão lidos do banco já com a variação.
+     *
+     * @param produtoId O ID do produto
+     * @param variacao A variação do estoque (negativa para saídas)
+     */
+    void aplicar(int produtoId, int variacao) {
+        AtomicLong estoque = estoques.get(produtoId);
+        if (estoque == null) {
+            return;
+        }
+        long atual;
+        do {
+            atual = estoque.get();
+        } while (!estoque.compareAndSet(atual, empacotar(versao(atual) + 1, valor(atual) + variacao)));
+    }
+
+    /**
+     * Aplica a variação quando ela estiver confirmada no banco: de imediato fora de uma
+     * {@link Transacao}, ou quando a transação em andamento for confirmada.
+     *
+     * @param produtoId O ID do produto
+     * @param variacao A variação do estoque (negativa para saídas)
+     */
+    void aplicarAoConfirmar(int produtoId, int variacao) {
+        Transacao.aposConfirmar(() -> aplicar(produtoId, variacao));
+    }
+
+    /**
+     * Define o estoque do produto (ex: cadastro ou edição do produto).
+     *
+     * @param produtoId O ID do produto
+     * @param quantidade O novo estoque
+     */
+    void definir(int produtoId, int quantidade) {
+        AtomicLong estoque = estoques.computeIfAbsent(produtoId, id -> new AtomicLong(empacotar(0, quantidade)));
+        long atual;
+        do {
+            atual = estoque.get();
+        } while (!estoque.compareAndSet(atual, empacotar(versao(atual) + 1, quantidade)));
+    }
+
+    /**
+     * Remove o produto do livro (ex: produto excluído).
+     *
+     * @param produtoId O ID do produto
+     */
+    void remover(int produtoId) {
+        estoques.remove(produtoId);
+    }
+
+    /**
+     * Compara o livro com o banco. Uma divergência só é corrigida se continuar igual na
+     * conciliação seguinte sem nenhuma alteração no intervalo: assim, movimentações já
+     * confirmadas no banco mas ainda não aplicadas ao livro não são contadas duas vezes.
+     */
+    private synchronized void conciliar() {
+        Map<Integer, Integer> banco = lerEstoquesDoBanco();
+        if (banco == null) {
+            return;
+        }
+
+        Map<Integer, Long> novasSuspeitas = new HashMap<>();
+        for (Map.Entry<Integer, Integer> linha : banco.entrySet()) {
+            int produtoId = linha.getKey();
+            int estoqueBanco = linha.getValue();
+            AtomicLong estoque = estoques.computeIfAbsent(produtoId, id -> new AtomicLong(empacotar(0, estoqueBanco)));
+            long observado = estoque.get();
+            if (valor(observado) == estoqueBanco) {
+                continue;
+            }
+            Long anterior = suspeitas.get(produtoId);
+            if (anterior != null && anterior == observado
+                    && estoque.compareAndSet(observado, empacotar(versao(observado) + 1, estoqueBanco))) {
+                correcoes.incrementAndGet();
+            } else {
+                novasSuspeitas.put(produtoId, observado);
+            }
+        }
+
+        // Produtos excluídos por outros processos
+        estoques.keySet().retainAll(banco.keySet());
+
+        suspeitas.clear();
+        suspeitas.putAll(novasSuspeitas);
+    }
+
+    private AtomicLong carregar(int produtoId) {
+        ConnectionFactory connectionFactory = ConnectionFactory.getInstance();
+        try (Connection conn = connectionFactory.getConnectionDoPool();
+             PreparedStatement stmt = connectionFactory.preparar(conn, ConsultaSql.MOVIMENTACAO_CONSULTAR_ESTOQUE)) {
+            stmt.setInt(1, produtoId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                int quantidade = rs.getInt(1);
+                return estoques.computeIfAbsent(produtoId, id -> new AtomicLong(empacotar(0, quantidade)));
+            }
+        } catch (SQLException ex) {
+            System.err.println("Erro ao carregar estoque do produto: " + ex.getMessage());
+            return null;
+        }
+    }
+
+    private Map<Integer, Integer> lerEstoquesDoBanco() {
+        ConnectionFactory connectionFactory = ConnectionFactory.getInstance();
+        Map<Integer, Integer> banco = new HashMap<>();
+        try (Connection conn = connectionFactory.getConnectionDoPool();
+             PreparedStatement stmt = connectionFactory.preparar(conn, ConsultaSql.PRODUTO_LISTAR_ESTOQUES);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                banco.put(rs.getInt(1), rs.getInt(2));
+            }
+            return banco;
+        } catch (SQLException ex) {
+            System.err.println("Erro ao conciliar livro de estoque: " + ex.getMessage());
+            return null;
+        }
+    }
+
+    private static long empacotar(long versao, int valor) {
+        return (versao << 32) | (valor & 0xFFFFFFFFL);
+    }
+
+    private static int versao(long empacotado) {
+        return (int) (empacotado >>> 32);
+    }
+
+    private static int valor(long empacotado) {
+        return (int) empacotado;
+    }
+}
@@ -0,0 +1,142 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import model.Categoria;
+
+/**
+ * Categorias mantidas em memória, compartilhadas por todas as DAOs do processo.
+ *
+ * Existem poucas categorias e elas mudam raramente, então a tabela inteira é carregada
+ * de uma vez e reaproveitada: as consultas de produtos e movimentações leem apenas
+ * {@code categoria_id} e recebem daqui a mesma instância de {@link Categoria} para todas
+ * as linhas. Toda escrita em categoria invalida o mapa, que é recarregado no próximo acesso.
+ *
+ * As instâncias entregues por {@link #obter(int)} são compartilhadas e não devem ser alteradas;
+ * a {@link CategoriaDAO} entrega cópias às telas.
+ */
+final class MapaCategorias {
+
+    private static final MapaCategorias INSTANCIA = new MapaCategorias();
+
+    // Categorias por ID, em ordem de ID (null quando precisa ser recarregado)
+    private volatile Map<Integer, Categoria> categorias;
+
+    // Incrementada a cada invalidação: uma carga iniciada antes dela não é publicada
+    private final AtomicLong versao = new AtomicLong();
+
+    private MapaCategorias() {
+    }
+
+    /**
+     * Obtém o mapa de categorias compartilhado pelo processo.
+     *
+     * @return A instância única do mapa
+     */
+    static MapaCategorias getInstance() {
+        return INSTANCIA;
+    }
+
+    /**
+     * Obtém a categoria compartilhada com o ID informado.
+     * Se o ID não estiver no mapa (categoria cadastrada por outro processo), o mapa é recarregado uma vez.
+     *
+     * @param id O ID da categoria
+     * @return A categoria compartilhada, ou uma categoria contendo apenas o ID se ela não existir
+     */
+    Categoria obter(int id) {
+        Categoria categoria = consultar(id);
+        return categoria != null ? categoria : new Categoria(id, "", "", "");
+    }
+
+    /**
+     * Consulta a categoria compartilhada com o ID informado, recarregando o mapa uma vez se não a encontrar.
+     *
+     * @param id O ID da categoria
+     * @return A categoria compartilhada ou null se não existir
+     */
+    Categoria consultar(int id) {
+        Categoria categoria = carregadas().get(id);
+        if (categoria == null) {
+            descartar();
+            categoria = carregadas().get(id);
+        }
+        return categoria;
+    }
+
+    /**
+     * Lista as categorias compartilhadas, em ordem de ID.
+     *
+     * @return As categorias (lista não modificável)
+     */
+    List<Categoria> listar() {
+        return Collections.unmodifiableList(new ArrayList<>(carregadas().values()));
+    }
+
+    /**
+     * Descarta o mapa atual; a próxima consulta recarrega as categorias do banco.
+     * Deve ser chamado após qualquer inserção, atualização ou exclusão de categoria; dentro de
+     * uma {@link Transacao}, o mapa é descartado novamente quando ela for confirmada.
+     */
+    void invalidar() {
+        descartar();
+        if (Transacao.emAndamento()) {
+            Transacao.aposConfirmar(this::descartar);
+        }
+    }
+
+    private void descartar() {
+        versao.incrementAndGet();
+        categorias = null;
+    }
+
+    private Map<Integer, Categoria> carregadas() {
+        Map<Integer, Categoria> atual = categorias;
+        if (atual != null) {
+            return atual;
+        }
+        synchronized (this) {
+            atual = categorias;
+            if (atual != null) {
+                return atual;
+            }
+            long versaoCarga = versao.get();
+            atual = carregar();
+            if (atual == null) {
+                return Collections.emptyMap();
+            }
+            // Uma escrita concorrente invalidou o mapa durante a carga: usa o resultado só nesta chamada
+            if (versao.get() == versaoCarga) {
+                categorias = atual;
+            }
+            return atual;
+        }
+    }
+
+    private Map<Integer, Categoria> carregar() {
+        ConnectionFactory connectionFactory = ConnectionFactory.getInstance();
+        Map<Integer, Categoria> carregadas = new TreeMap<>();
+
+        // Fora da transação da thread: o mapa é compartilhado e só deve conter dados confirmados
+        try (Connection conn = connectionFactory.getConnectionDoPool();
+             PreparedStatement stmt = connectionFactory.preparar(conn, ConsultaSql.CATEGORIA_LISTAR_TODOS);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                Categoria categoria = CategoriaMapeador.INSTANCIA.mapear(rs);
+                carregadas.put(categoria.getId(), categoria);
+            }
+            return Collections.unmodifiableMap(carregadas);
+        } catch (SQLException ex) {
+            System.err.println("Erro ao carregar categorias: " + ex.getMessage());
+            return null;
+        }
+    }
+}
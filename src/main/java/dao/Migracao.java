@@ -0,0 +1,76 @@
+package dao;
+
+/**
+ * Migrações do esquema do banco, aplicadas em ordem pelo {@link MigradorEsquema}.
+ *
+ * O script {@code db/estoque.sql} é a versão 0 do esquema e não é mais alterado; cada migração
+ * altera o esquema a partir dele e tem o seu SQL em {@code src/main/resources/db/migracao}. Uma
+ * migração já aplicada não deve ser editada: mudanças vão em uma nova versão, adicionada ao fim
+ * do enum.
+ */
+enum Migracao {
+
+    FAIXAS_SEQUENCIAS_DOCUMENTOS(1, "Faixas de estoque, sequências de IDs, documentos de estoque e chaves de idempotência",
+            "V001__faixas_sequencias_documentos.sql"),
+    INDICES_MOVIMENTACAO(2, "Índices de movimentação por produto e por tipo, ordenados por data",
+            "V002__indices_movimentacao.sql"),
+    INDICE_PRODUTO_NOME(3, "Índice de produto por nome",
+            "V003__indice_produto_nome.sql"),
+    SITUACAO_ESTOQUE_PRODUTO(4, "Situação do estoque do produto (abaixo, normal, acima) com índice",
+            "V004__situacao_estoque_produto.sql"),
+    MOVIMENTACAO_COMPACTA(5, "Movimentação compacta: ID BIGINT, tipo TINYINT e observação em tabela à parte",
+            "V005__movimentacao_compacta.sql"),
+    PARTICIONAR_MOVIMENTACAO(6, "Particionamento mensal de movimentação e observações por data",
+            "V006__particionar_movimentacao.sql"),
+    PONTO_CONTROLE_ESTOQUE(7, "Pontos de controle diários do estoque por produto",
+            "V007__ponto_controle_estoque.sql"),
+    AJUSTAR_ESTOQUE_ORDEM_TRAVAS(8, "Ajuste de estoque com o produto travado antes das faixas",
+            "V008__ajustar_estoque_ordem_travas.sql"),
+    PONTO_CONTROLE_SO_RETROATIVAS(9, "Pontos de controle corrigidos só por movimentações retroativas",
+            "V009__ponto_controle_so_retroativas.sql"),
+    PONTO_CONTROLE_DATA_SERVIDOR(10, "Movimentações retroativas decididas pela data do servidor",
+            "V010__ponto_controle_data_servidor.sql"),
+    RESERVA_ESTOQUE(11, "Reservas de estoque gravadas no banco e descontadas das saídas",
+            "V011__reserva_estoque.sql");
+
+    // Pasta dos scripts no classpath
+    private static final String PASTA = "db/migracao/";
+
+    // Atributos da migração
+    private final int versao;
+    private final String descricao;
+    private final String arquivo;
+
+    Migracao(int versao, String descricao, String arquivo) {
+        this.versao = versao;
+        this.descricao = descricao;
+        this.arquivo = arquivo;
+    }
+
+    /**
+     * Obtém a versão do esquema criada pela migração.
+     *
+     * @return O número da versão
+     */
+    int getVersao() {
+        return versao;
+    }
+
+    /**
+     * Obtém a descrição da migração, gravada na tabela de versões.
+     *
+     * @return A descrição
+     */
+    String getDescricao() {
+        return descricao;
+    }
+
+    /**
+     * Obtém o caminho do script da migração no classpath.
+     *
+     * @return O caminho do recurso
+     */
+    String getRecurso() {
+        return PASTA + arquivo;
+    }
+}
@@ -0,0 +1,212 @@
+package dao;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Aplica ao banco as {@link Migracao migrações} do esquema que ainda não foram aplicadas.
+ *
+ * As versões aplicadas ficam na tabela {@code versao_esquema}, com o checksum do script e a
+ * duração da aplicação. Cada terminal chama {@link #migrar()} na inicialização; uma trava
+ * nomeada do servidor ({@code GET_LOCK}) garante que só um deles aplique as migrações e que
+ * os demais encontrem as versões já registradas quando conseguirem a trava.
+ *
+ * O DDL do MySQL não é transacional: se um script falhar no meio, as instruções anteriores
+ * ficam aplicadas e a versão não é registrada. Na próxima tentativa o script é executado de
+ * novo, e uma instrução que cria uma coluna ou um índice que já existe (erros
+ * {@link ErrosMySql#COLUNA_DUPLICADA} e {@link ErrosMySql#INDICE_DUPLICADO}) é ignorada, com um
+ * aviso no log. Instruções que não podem ser repetidas assim devem se proteger no próprio script.
+ */
+public class MigradorEsquema {
+
+    /**
+     * Resultado de {@link #migrar()}.
+     */
+    public enum Resultado {
+        // O esquema está na versão mais recente
+        ATUALIZADO,
+        // Banco inacessível ou trava de migração ocupada: nada foi decidido, tentar de novo depois
+        INDISPONIVEL,
+        // Um script falhou ou foi alterado depois de aplicado: o esquema não é o esperado
+        FALHA
+    }
+
+    // Espera máxima pela trava de migração, em segundos
+    private static final int ESPERA_TRAVA_S = 60;
+
+    private final ConnectionFactory connectionFactory;
+
+    /**
+     * Construtor que inicializa a fábrica de conexões.
+     */
+    public MigradorEsquema() {
+        this.connectionFactory = ConnectionFactory.getInstance();
+    }
+
+    /**
+     * Aplica, em ordem de versão, as migrações ainda não registradas em {@code versao_esquema}.
+     * Uma migração já aplicada cujo script foi alterado depois é uma falha: a alteração não
+     * seria aplicada, e o esquema do banco não seria o que o script descreve.
+     *
+     * @return {@link Resultado#ATUALIZADO} se o esquema está na versão mais recente,
+     *         {@link Resultado#INDISPONIVEL} se não foi possível conectar ao banco ou obter a
+     *         trava de migração, {@link Resultado#FALHA} se um script falhou ou foi alterado
+     */
+    public Resultado migrar() {
+        try (Connection conn = connectionFactory.getConnectionDoPool()) {
+            conn.setAutoCommit(true);
+            try (PreparedStatement stmt = connectionFactory.preparar(conn, ConsultaSql.ESQUEMA_CRIAR_TABELA_VERSAO)) {
+                stmt.executeUpdate();
+            }
+
+            if (!TravaEsquema.travar(conn, ESPERA_TRAVA_S)) {
+                System.err.println("Erro ao migrar esquema do banco: trava de migração não obtida em "
+                        + ESPERA_TRAVA_S + " s");
+                return Resultado.INDISPONIVEL;
+            }
+            try {
+                Map<Integer, Long> aplicadas = listarAplicadas(conn);
+                for (Migracao migracao : Migracao.values()) {
+                    String script = lerScript(migracao);
+                    long checksum = calcularChecksum(script);
+
+                    Long registrado = aplicadas.get(migracao.getVersao());
+                    if (registrado != null) {
+                        if (registrado != checksum) {
+                            System.err.println("Erro ao migrar esquema do banco: o script da versão "
+                                    + migracao.getVersao() + " foi alterado depois de aplicado");
+                            return Resultado.FALHA;
+                        }
+                        continue;
+                    }
+                    aplicar(conn, migracao, script, checksum);
+                }
+                return Resultado.ATUALIZADO;
+            } finally {
+                TravaEsquema.liberar(conn);
+            }
+        } catch (SQLException ex) {
+            System.err.println("Erro ao migrar esquema do banco: " + ex.getMessage());
+            return ErrosMySql.semConexao(ex) ? Resultado.INDISPONIVEL : Resultado.FALHA;
+        } catch (IOException ex) {
+            System.err.println("Erro ao migrar esquema do banco: " + ex.getMessage());
+            return Resultado.FALHA;
+        }
+    }
+
+    /**
+     * Executa as instruções do script e registra a versão.
+     */
+    private void aplicar(Connection conn, Migracao migracao, String script, long checksum) throws SQLException {
+        long inicio = System.nanoTime();
+        try (Statement stmt = conn.createStatement()) {
+            for (String instrucao : separarInstrucoes(script)) {
+                try {
+                    stmt.execute(instrucao);
+                } catch (SQLException ex) {
+                    if (!ErrosMySql.possui(ex, ErrosMySql.COLUNA_DUPLICADA, ErrosMySql.INDICE_DUPLICADO)) {
+                        throw new SQLException("versão " + migracao.getVersao() + ": " + ex.getMessage(), ex);
+                    }
+                    // Criado por uma tentativa interrompida ou à mão: registrado no log e ignorado
+                    System.err.println("Aviso: versão " + migracao.getVersao() + " do esquema, instrução ignorada ("
+                            + ex.getMessage() + "): " + resumir(instrucao));
+                }
+            }
+        }
+        int duracaoMs = (int) ((System.nanoTime() - inicio) / 1_000_000);
+
+        try (PreparedStatement stmt = connectionFactory.preparar(conn, ConsultaSql.ESQUEMA_REGISTRAR_VERSAO)) {
+            stmt.setInt(1, migracao.getVersao());
+            stmt.setString(2, migracao.getDescricao());
+            stmt.setLong(3, checksum);
+            stmt.setInt(4, duracaoMs);
+            stmt.executeUpdate();
+        }
+    }
+
+    private Map<Integer, Long> listarAplicadas(Connection conn) throws SQLException {
+        Map<Integer, Long> aplicadas = new HashMap<>();
+        try (PreparedStatement stmt = connectionFactory.preparar(conn, ConsultaSql.ESQUEMA_LISTAR_VERSOES);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                aplicadas.put(rs.getInt(1), rs.getLong(2));
+            }
+        }
+        return aplicadas;
+    }
+
+    private String lerScript(Migracao migracao) throws IOException {
+        InputStream entrada = MigradorEsquema.class.getClassLoader().getResourceAsStream(migracao.getRecurso());
+        if (entrada == null) {
+            throw new IOException("script não encontrado: " + migracao.getRecurso());
+        }
+        StringBuilder script = new StringBuilder();
+        try (BufferedReader leitor = new BufferedReader(new InputStreamReader(entrada, StandardCharsets.UTF_8))) {
+            String linha;
+            while ((linha = leitor.readLine()) != null) {
+                script.append(linha).append('\n');
+            }
+        }
+        return script.toString();
+    }
+
+    /**
+     * Separa o script em instruções terminadas pelo delimitador no fim da linha (';' por padrão),
+     * ignorando linhas de comentário ({@code --}). Como no cliente {@code mysql}, uma linha
+     * {@code DELIMITER //} troca o delimitador, para procedures com ';' no corpo.
+     */
+    private static List<String> separarInstrucoes(String script) {
+        List<String> instrucoes = new ArrayList<>();
+        StringBuilder atual = new StringBuilder();
+        String delimitador = ";";
+        for (String linha : script.split("\n")) {
+            String limpa = linha.trim();
+            if (limpa.isEmpty() || limpa.startsWith("--")) {
+                continue;
+            }
+            if (limpa.toUpperCase().startsWith("DELIMITER ")) {
+                delimitador = limpa.substring("DELIMITER ".length()).trim();
+                continue;
+            }
+            if (limpa.endsWith(delimitador)) {
+                atual.append(limpa, 0, limpa.length() - delimitador.length());
+                instrucoes.add(atual.toString().trim());
+                atual.setLength(0);
+            } else {
+                // Quebra de linha preservada: o corpo de procedures pode ter comentários no fim da linha
+                atual.append(limpa).append('\n');
+            }
+        }
+        if (atual.toString().trim().length() > 0) {
+            instrucoes.add(atual.toString().trim());
+        }
+        return instrucoes;
+    }
+
+    /**
+     * Primeira linha da instrução, para identificá-la no log.
+     */
+    private static String resumir(String instrucao) {
+        int fim = instrucao.indexOf('\n');
+        return fim < 0 ? instrucao : instrucao.substring(0, fim) + " ...";
+    }
+
+    private static long calcularChecksum(String script) {
+        CRC32 crc = new CRC32();
+        crc.update(script.getBytes(StandardCharsets.UTF_8));
+        return crc.getValue();
+    }
+}
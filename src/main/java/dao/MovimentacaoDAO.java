@@ -1,84 +1,247 @@
 package dao;
 
 import model.Movimentacao;
-import model.Produto;
-import model.Categoria;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
+import java.sql.SQLIntegrityConstraintViolationException;
 import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.function.Consumer;
 
 /**
  * Classe de acesso a dados para a entidade Movimentacao.
  * Implementa operações de CRUD (Create, Read, Update, Delete) e consultas específicas,
  * além de atualizar o estoque do produto associado.
+ *
+ * O histórico é particionado por mês da data e hora (ver {@link ParticoesMovimentacao}):
+ * as listagens recebem o período {@code [inicio, fim)} e o banco lê só as partições dele.
+ * A data e hora é gravada sem frações de segundo, para que a chave de idempotência e os itens
+ * de um documento sejam encontrados pela data exata.
+ *
+ * O estoque em uma data passada vem dos pontos de controle diários ({@link PontosControleEstoque}),
+ * ver {@link #consultarEstoqueEm}; movimentações retroativas corrigem os pontos posteriores a
+ * elas na mesma transação em que são gravadas.
  */
 public class MovimentacaoDAO {
 
-    // Instância da fábrica de conexões
+    // Linhas trazidas do servidor a cada busca ao percorrer o histórico por cursor
+    public static final int TAMANHO_LOTE_CURSOR_PADRAO = 500;
+
+    // Códigos gravados na coluna tipo (TINYINT); a projeção os converte de volta para o nome
+    static final int TIPO_ENTRADA = 1;
+    static final int TIPO_SAIDA = 2;
+
+    // Movimentações com o produto; a categoria é resolvida pelo mapa de categorias em memória
+    private static final MovimentacaoMapeador MAPEADOR_MOVIMENTACAO =
+            new MovimentacaoMapeador(MapaCategorias.getInstance()::obter);
+
+    // Fábrica de conexões compartilhada pelo processo
     private final ConnectionFactory connectionFactory;
 
     /**
-     * Construtor padrão que inicializa a fábrica de conexões.
+     * Construtor padrão que obtém a fábrica de conexões compartilhada.
      */
     public MovimentacaoDAO() {
-        this.connectionFactory = new ConnectionFactory();
+        this.connectionFactory = ConnectionFactory.getInstance();
     }
 
     /**
      * Insere uma nova movimentação no banco de dados e atualiza o estoque do produto.
+     * A inserção, o ajuste do estoque e o retorno do ID são feitos pela procedure
+     * {@code registrar_movimentacao} em uma única ida ao servidor, na mesma transação.
+     *
+     * Saídas só são aceitas se houver estoque suficiente: a verificação e a baixa são a mesma
+     * instrução no banco, então terminais concorrentes não conseguem deixar o estoque negativo.
+     * Em caso de sucesso, o estoque resultante é gravado no produto da movimentação.
+     *
+     * A movimentação recebe uma chave de idempotência na primeira submissão: se a chamada falhar
+     * sem resposta (ex: tempo esgotado) e a mesma movimentação for inserida novamente, a procedure
+     * reconhece a chave e devolve o ID original sem aplicar a movimentação outra vez.
+     *
+     * @param movimentacao A movimentação a ser inserida
+     * @return O ID gerado para a movimentação inserida (ou o original, se repetida) ou -1 em caso de erro
+     * @throws EstoqueInsuficienteException Se a saída for recusada; traz o estoque atual do produto
+     */
+    public long inserir(Movimentacao movimentacao) {
+        try {
+            return inserirOuLancar(movimentacao);
+        } catch (SQLException ex) {
+            System.err.println("Erro ao inserir movimentação: " + ex.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * Insere a movimentação como {@link #inserir}, mas lança o erro do banco em vez de
+     * devolver -1, para que quem chama distinga uma recusa definitiva (ex: produto inexistente,
+     * {@link ErrosMySql#violaRestricao}) de uma falha transitória (ex: deadlock, tempo esgotado).
      *
      * @param movimentacao A movimentação a ser inserida
-     * @return O ID gerado para a movimentação inserida ou -1 em caso de erro
+     * @return O ID gerado para a movimentação inserida (ou o original, se repetida)
+     * @throws SQLException Se ocorrer um erro ao inserir; a transação já foi desfeita
+     * @throws EstoqueInsuficienteException Se a saída for recusada; traz o estoque atual do produto
+     */
+    long inserirOuLancar(Movimentacao movimentacao) throws SQLException {
+        return inserirOuLancar(movimentacao, 0);
+    }
+
+    /**
+     * Insere a saída que confirma uma reserva de estoque, como {@link #inserirOuLancar(Movimentacao)}:
+     * a própria reserva não é descontada do estoque disponível e é excluída na mesma transação.
+     *
+     * @param movimentacao A saída a ser inserida
+     * @param reservaId O ID da reserva confirmada, ou 0 se não houver
+     * @return O ID gerado para a movimentação inserida (ou o original, se repetida)
+     * @throws SQLException Se ocorrer um erro ao inserir; a transação já foi desfeita
+     * @throws EstoqueInsuficienteException Se a saída for recusada; traz o estoque atual do produto
      */
-    public int inserir(Movimentacao movimentacao) {
+    long inserirOuLancar(Movimentacao movimentacao, long reservaId) throws SQLException {
         Connection conn = null;
+
+        try {
+            // Obtém conexão com o banco de dados
+            conn = connectionFactory.getConnection();
+
+            if (registrar(conn, movimentacao, reservaId)) {
+                int produtoId = movimentacao.getProduto().getId();
+                CacheProdutos.getInstance().invalidar(produtoId);
+                LivroEstoque.getInstance().aplicarAoConfirmar(produtoId,
+                        movimentacao.isEntrada() ? movimentacao.getQuantidade() : -movimentacao.getQuantidade());
+            }
+            return movimentacao.getId();
+        } catch (SQLException ex) {
+            // A procedure desfaz a própria transação; dentro de uma Transacao, marca-a para rollback
+            try {
+                if (conn != null && !conn.getAutoCommit()) {
+                    conn.rollback();
+                }
+            } catch (SQLException rollbackEx) {
+                System.err.println("Erro ao desfazer transação: " + rollbackEx.getMessage());
+            }
+            throw ex;
+        } finally {
+            // Fecha recursos
+            fecharRecursos(null, null, conn);
+        }
+    }
+
+    /**
+     * Registra a movimentação pela procedure {@code registrar_movimentacao} na conexão informada,
+     * com um ID alocado pelo {@link AlocadorIds}, gravando o ID na movimentação e o estoque
+     * resultante no seu produto. Movimentações sem chave de idempotência recebem uma nova.
+     * Não invalida o cache de produtos nem atualiza o {@link LivroEstoque}: cabe a quem confirma a transação.
+     *
+     * @param conn A conexão com o banco de dados
+     * @param movimentacao A movimentação a ser registrada
+     * @return true se a movimentação foi aplicada agora, false se a chave já estava registrada
+     *         (o ID gravado na movimentação é o original e o estoque não foi alterado)
+     * @throws SQLException Se ocorrer um erro ao registrar
+     * @throws EstoqueInsuficienteException Se a saída for recusada
+     */
+    boolean registrar(Connection conn, Movimentacao movimentacao) throws SQLException {
+        return registrar(conn, movimentacao, 0);
+    }
+
+    /**
+     * Registra a movimentação como {@link #registrar(Connection, Movimentacao)}. Uma saída
+     * também é recusada se deixar o estoque abaixo das reservas ativas do produto
+     * ({@link ReservasEstoque}), exceto a reserva informada, que ela confirma e exclui.
+     *
+     * @param conn A conexão com o banco de dados
+     * @param movimentacao A movimentação a ser registrada
+     * @param reservaId O ID da reserva confirmada pela saída, ou 0 se não houver
+     * @return true se a movimentação foi aplicada agora, false se a chave já estava registrada
+     * @throws SQLException Se ocorrer um erro ao registrar
+     * @throws EstoqueInsuficienteException Se a saída for recusada
+     */
+    boolean registrar(Connection conn, Movimentacao movimentacao, long reservaId) throws SQLException {
         PreparedStatement stmt = null;
         ResultSet rs = null;
-        int idGerado = -1;
+
+        try {
+            stmt = connectionFactory.preparar(conn, ConsultaSql.MOVIMENTACAO_REGISTRAR);
+            stmt.setLong(1, AlocadorIds.MOVIMENTACAO.proximoLongo());
+            stmt.setString(2, garantirChave(movimentacao));
+            stmt.setInt(3, movimentacao.getProduto().getId());
+            stmt.setInt(4, codigoTipo(movimentacao.getTipo()));
+            stmt.setInt(5, movimentacao.getQuantidade());
+            stmt.setTimestamp(6, dataHoraBanco(movimentacao.getDataHora()));
+            stmt.setString(7, movimentacao.getObservacao());
+            if (reservaId > 0) {
+                stmt.setLong(8, reservaId);
+            } else {
+                stmt.setNull(8, Types.BIGINT);
+            }
+
+            // Executa a procedure, que devolve o ID, o estoque resultante e se a chave já existia
+            rs = stmt.executeQuery();
+            if (!rs.next()) {
+                throw new SQLException("A procedure registrar_movimentacao não retornou resultado");
+            }
+            long idGerado = rs.getLong(1);
+            boolean recusada = rs.wasNull();
+            int estoque = rs.getInt(2);
+            if (rs.wasNull()) {
+                throw new SQLIntegrityConstraintViolationException("Produto " + movimentacao.getProduto().getId()
+                        + " não encontrado");
+            }
+            if (recusada) {
+                throw new EstoqueInsuficienteException(movimentacao.getProduto().getId(),
+                        movimentacao.getQuantidade(), estoque);
+            }
+            movimentacao.setId(idGerado);
+            movimentacao.getProduto().setQuantidadeEstoque(estoque);
+            return !rs.getBoolean(3);
+        } finally {
+            fecharRecursos(rs, stmt, null);
+        }
+    }
+
+    /**
+     * Insere um lote de movimentações em uma única transação (ver {@link #gravarLote}).
+     * Se o saldo do lote deixar o estoque de algum produto negativo, nada é gravado.
+     *
+     * @param movimentacoes As movimentações a serem inseridas
+     * @return Os IDs gerados, na mesma ordem das movimentações, ou uma lista vazia em caso de erro
+     * @throws EstoqueInsuficienteException Se o estoque de um produto não cobrir o saldo de saídas do lote
+     */
+    public List<Long> inserirLote(List<Movimentacao> movimentacoes) {
+        if (movimentacoes == null || movimentacoes.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Connection conn = null;
 
         try {
             // Obtém conexão com o banco de dados e inicia transação
             conn = connectionFactory.getConnection();
             conn.setAutoCommit(false);
 
-            // SQL para inserção de movimentação
-            String sql = "INSERT INTO movimentacao (produto_id, tipo, quantidade, data_hora, observacao) "
-                    + "VALUES (?, ?, ?, ?, ?)";
-            stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
-            stmt.setInt(1, movimentacao.getProduto().getId());
-            stmt.setString(2, movimentacao.getTipo());
-            stmt.setInt(3, movimentacao.getQuantidade());
-            stmt.setTimestamp(4, Timestamp.valueOf(movimentacao.getDataHora()));
-            stmt.setString(5, movimentacao.getObservacao());
-
-            // Executa a inserção
-            int linhasAfetadas = stmt.executeUpdate();
-            if (linhasAfetadas > 0) {
-                // Obtém o ID gerado
-                rs = stmt.getGeneratedKeys();
-                if (rs.next()) {
-                    idGerado = rs.getInt(1);
-                    movimentacao.setId(idGerado);
-
-                    // Atualiza o estoque do produto
-                    atualizarEstoqueProduto(conn, movimentacao);
-
-                    // Confirma a transação
-                    conn.commit();
-                }
-            } else {
-                // Desfaz a transação em caso de falha
-                conn.rollback();
+            // Lote reenviado após já ter sido confirmado: devolve os IDs originais sem aplicá-lo
+            List<Long> originais = consultarLoteRepetido(conn, movimentacoes);
+            if (originais != null) {
+                conn.commit();
+                atribuirIds(movimentacoes, originais);
+                return originais;
             }
 
-            return idGerado;
-        } catch (SQLException ex) {
+            List<Long> idsGerados = gravarLote(conn, movimentacoes, 0);
+
+            // Confirma a transação
+            conn.commit();
+            concluirLote(movimentacoes, idsGerados);
+            return idsGerados;
+        } catch (SQLException | EstoqueInsuficienteException ex) {
             // Desfaz a transação em caso de erro
             try {
                 if (conn != null) {
@@ -87,8 +250,24 @@ public class MovimentacaoDAO {
             } catch (SQLException rollbackEx) {
                 System.err.println("Erro ao desfazer transação: " + rollbackEx.getMessage());
             }
-            System.err.println("Erro ao inserir movimentação: " + ex.getMessage());
-            return -1;
+            if (ex instanceof EstoqueInsuficienteException) {
+                throw (EstoqueInsuficienteException) ex;
+            }
+            // O mesmo lote foi confirmado por outra submissão enquanto este era gravado
+            if (ErrosMySql.possui((SQLException) ex, ErrosMySql.CHAVE_DUPLICADA) && !Transacao.emAndamento()) {
+                try {
+                    List<Long> originais = consultarLoteRepetido(conn, movimentacoes);
+                    if (originais != null) {
+                        conn.commit();
+                        atribuirIds(movimentacoes, originais);
+                        return originais;
+                    }
+                } catch (SQLException consultaEx) {
+                    System.err.println("Erro ao consultar lote repetido: " + consultaEx.getMessage());
+                }
+            }
+            System.err.println("Erro ao inserir lote de movimentações: " + ex.getMessage());
+            return new ArrayList<>();
         } finally {
             // Restaura o modo de auto-commit e fecha recursos
             try {
@@ -98,50 +277,429 @@ public class MovimentacaoDAO {
             } catch (SQLException ex) {
                 System.err.println("Erro ao restaurar auto-commit: " + ex.getMessage());
             }
-            fecharRecursos(rs, stmt, conn);
+            fecharRecursos(null, null, conn);
         }
     }
 
     /**
-     * Atualiza o estoque do produto com base na movimentação.
+     * Registra as movimentações em ordem, cada uma pela procedure {@code registrar_movimentacao},
+     * em uma única transação. Ao contrário de {@link #inserirLote}, que soma a variação do lote
+     * por produto, cada saída é verificada contra o estoque deixado pelas anteriores: uma saída
+     * que só caberia com uma entrada posterior do lote é recusada. Se alguma movimentação for
+     * recusada, nada é gravado. Movimentações com chave já registrada recebem o ID original.
      *
-     * @param conn         A conexão com o banco de dados (dentro da mesma transação)
-     * @param movimentacao A movimentação que afeta o estoque
-     * @throws SQLException Se ocorrer um erro ao atualizar o estoque
+     * @param movimentacoes As movimentações, na ordem em que devem ser aplicadas
+     * @throws SQLException Se ocorrer um erro ao registrar ou confirmar
+     * @throws EstoqueInsuficienteException Se uma saída não couber no estoque naquele ponto do lote
      */
-    private void atualizarEstoqueProduto(Connection conn, Movimentacao movimentacao) throws SQLException {
-        PreparedStatement stmt = null;
+    void registrarEmOrdem(List<Movimentacao> movimentacoes) throws SQLException {
+        Connection conn = null;
+
         try {
-            String sql;
-            // Se for entrada, aumenta estoque; se for saída, diminui
-            if (movimentacao.isEntrada()) {
-                sql = "UPDATE produto SET quantidade_estoque = quantidade_estoque + ? WHERE id = ?";
-            } else {
-                sql = "UPDATE produto SET quantidade_estoque = quantidade_estoque - ? WHERE id = ?";
+            // Obtém conexão com o banco de dados e inicia transação
+            conn = connectionFactory.getConnection();
+            conn.setAutoCommit(false);
+
+            List<Movimentacao> aplicadas = new ArrayList<>(movimentacoes.size());
+            for (Movimentacao movimentacao : movimentacoes) {
+                if (registrar(conn, movimentacao)) {
+                    aplicadas.add(movimentacao);
+                }
+            }
+
+            // Confirma a transação
+            conn.commit();
+            for (Movimentacao movimentacao : aplicadas) {
+                int produtoId = movimentacao.getProduto().getId();
+                CacheProdutos.getInstance().invalidar(produtoId);
+                LivroEstoque.getInstance().aplicarAoConfirmar(produtoId,
+                        movimentacao.isEntrada() ? movimentacao.getQuantidade() : -movimentacao.getQuantidade());
+            }
+        } catch (SQLException | EstoqueInsuficienteException ex) {
+            // Desfaz a transação em caso de erro
+            try {
+                if (conn != null) {
+                    conn.rollback();
+                }
+            } catch (SQLException rollbackEx) {
+                System.err.println("Erro ao desfazer transação: " + rollbackEx.getMessage());
             }
-            stmt = conn.prepareStatement(sql);
-            stmt.setInt(1, movimentacao.getQuantidade());
-            stmt.setInt(2, movimentacao.getProduto().getId());
-            stmt.executeUpdate();
+            for (Movimentacao movimentacao : movimentacoes) {
+                movimentacao.setId(0);
+            }
+            throw ex;
         } finally {
-            // Fecha apenas o Statement; conexão continua na transação
+            // Restaura o modo de auto-commit e fecha recursos
             try {
-                if (stmt != null) {
-                    stmt.close();
+                if (conn != null) {
+                    conn.setAutoCommit(true);
                 }
             } catch (SQLException ex) {
-                System.err.println("Erro ao fechar recursos: " + ex.getMessage());
+                System.err.println("Erro ao restaurar auto-commit: " + ex.getMessage());
+            }
+            fecharRecursos(null, null, conn);
+        }
+    }
+
+    /**
+     * Grava um lote de movimentações na transação da conexão informada, sem confirmá-la.
+     *
+     * O estoque de cada produto é ajustado uma única vez, com a soma das entradas e saídas
+     * do lote, em ordem crescente de ID do produto e antes das inserções: lotes concorrentes
+     * travam as linhas de produto sempre na mesma ordem, o que evita deadlocks entre eles.
+     * Os IDs são alocados pelo {@link AlocadorIds}, então as inserções seguem em lote
+     * (INSERT com várias linhas) sem leitura das chaves geradas; as observações preenchidas
+     * vão em um segundo lote para {@code movimentacao_observacao}, e os pontos de controle
+     * posteriores a movimentações retroativas são corrigidos em um terceiro. Movimentações sem
+     * chave de idempotência recebem uma nova; uma chave já registrada faz a inserção falhar.
+     *
+     * Após confirmar a transação, quem chama deve chamar {@link #concluirLote}.
+     *
+     * @param conn A conexão com o banco de dados, com auto-commit desligado
+     * @param movimentacoes As movimentações a serem gravadas
+     * @param documentoId O ID do documento de estoque das movimentações, ou 0 se não houver
+     * @return Os IDs alocados, na mesma ordem das movimentações
+     * @throws SQLException Se ocorrer um erro ao gravar; a transação deve ser desfeita
+     * @throws EstoqueInsuficienteException Se o estoque de um produto não cobrir o saldo de saídas do lote;
+     *         a transação deve ser desfeita
+     */
+    List<Long> gravarLote(Connection conn, List<Movimentacao> movimentacoes, int documentoId) throws SQLException {
+        List<Long> idsGerados = new ArrayList<>(movimentacoes.size());
+        PreparedStatement stmt = null;
+
+        try {
+            // Agrupa a variação de estoque por produto, ordenada por ID
+            Map<Integer, Integer> variacaoPorProduto = new TreeMap<>();
+            for (Movimentacao movimentacao : movimentacoes) {
+                int variacao = movimentacao.isEntrada() ? movimentacao.getQuantidade() : -movimentacao.getQuantidade();
+                variacaoPorProduto.merge(movimentacao.getProduto().getId(), variacao, Integer::sum);
+            }
+
+            // Atualiza o estoque uma única vez por produto; saldos negativos só se o estoque for suficiente
+            stmt = connectionFactory.preparar(conn, ConsultaSql.MOVIMENTACAO_AJUSTAR_ESTOQUE);
+            List<Map.Entry<Integer, Integer>> ajustes = new ArrayList<>();
+            for (Map.Entry<Integer, Integer> variacao : variacaoPorProduto.entrySet()) {
+                if (variacao.getValue() != 0) {
+                    stmt.setInt(1, variacao.getValue());
+                    stmt.setInt(2, variacao.getKey());
+                    stmt.setInt(3, variacao.getValue());
+                    stmt.addBatch();
+                    ajustes.add(variacao);
+                }
+            }
+            int[] atualizados = ajustes.isEmpty() ? new int[0] : stmt.executeBatch();
+            fecharRecursos(null, stmt, null);
+            for (int i = 0; i < atualizados.length; i++) {
+                // O produto pode ter o estoque dividido em faixas: a recusa é confirmada pelo estoque total
+                Map.Entry<Integer, Integer> ajuste = ajustes.get(i);
+                if (atualizados[i] == 0 && !ajustarEstoqueTotal(conn, ajuste.getKey(), ajuste.getValue())) {
+                    int estoqueAtual = consultarEstoque(conn, ajuste.getKey());
+                    throw new EstoqueInsuficienteException(ajuste.getKey(), -ajuste.getValue(), estoqueAtual);
+                }
+            }
+            for (Map.Entry<Integer, Integer> ajuste : ajustes) {
+                if (ajuste.getValue() < 0) {
+                    conferirReservas(conn, ajuste.getKey(), -ajuste.getValue());
+                }
+            }
+
+            // Aloca os IDs antes de montar o lote: a alocação pode ir ao banco e falhar no meio
+            for (int i = 0; i < movimentacoes.size(); i++) {
+                idsGerados.add(AlocadorIds.MOVIMENTACAO.proximoLongo());
+            }
+
+            // Insere as movimentações com os IDs já alocados
+            stmt = connectionFactory.preparar(conn, ConsultaSql.MOVIMENTACAO_INSERIR);
+            for (int i = 0; i < movimentacoes.size(); i++) {
+                Movimentacao movimentacao = movimentacoes.get(i);
+                stmt.setLong(1, idsGerados.get(i));
+                stmt.setInt(2, movimentacao.getProduto().getId());
+                stmt.setInt(3, codigoTipo(movimentacao.getTipo()));
+                stmt.setInt(4, movimentacao.getQuantidade());
+                stmt.setTimestamp(5, dataHoraBanco(movimentacao.getDataHora()));
+                if (documentoId > 0) {
+                    stmt.setInt(6, documentoId);
+                } else {
+                    stmt.setNull(6, Types.INTEGER);
+                }
+                stmt.setString(7, garantirChave(movimentacao));
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+            fecharRecursos(null, stmt, null);
+            stmt = null;
+
+            // Observações ficam fora da linha da movimentação, só para as que têm alguma
+            for (int i = 0; i < movimentacoes.size(); i++) {
+                Movimentacao movimentacao = movimentacoes.get(i);
+                String observacao = movimentacao.getObservacao();
+                if (observacao != null && !observacao.isEmpty()) {
+                    if (stmt == null) {
+                        stmt = connectionFactory.preparar(conn, ConsultaSql.MOVIMENTACAO_INSERIR_OBSERVACAO);
+                    }
+                    stmt.setLong(1, idsGerados.get(i));
+                    stmt.setTimestamp(2, dataHoraBanco(movimentacao.getDataHora()));
+                    stmt.setString(3, observacao);
+                    stmt.addBatch();
+                }
+            }
+            if (stmt != null) {
+                stmt.executeBatch();
+                fecharRecursos(null, stmt, null);
+                stmt = null;
+            }
+
+            ajustarPontosControle(conn, movimentacoes);
+            return idsGerados;
+        } finally {
+            fecharRecursos(null, stmt, null);
+        }
+    }
+
+    /**
+     * Corrige os pontos de controle do estoque posteriores às movimentações gravadas, como a
+     * procedure {@code registrar_movimentacao} faz para uma movimentação. A variação é somada
+     * por produto e data e hora (os itens de um documento compartilham a data), e as correções
+     * seguem a ordem do ID do produto, como os ajustes de estoque.
+     * O ponto de controle mais recente é o do início do dia atual no servidor, então só
+     * movimentações retroativas (anteriores a ele) têm pontos a corrigir; a data vem do servidor
+     * ({@link PontosControleEstoque#diaAtual}), como na procedure, e não do relógio do terminal.
+     *
+     * @param conn A conexão com o banco de dados, na transação do lote
+     * @param movimentacoes As movimentações gravadas
+     * @throws SQLException Se ocorrer um erro ao corrigir
+     */
+    private void ajustarPontosControle(Connection conn, List<Movimentacao> movimentacoes) throws SQLException {
+        LocalDateTime inicioDia = PontosControleEstoque.diaAtual(conn).atStartOfDay();
+        Map<Integer, Map<LocalDateTime, Integer>> variacoes = new TreeMap<>();
+        for (Movimentacao movimentacao : movimentacoes) {
+            if (!movimentacao.getDataHora().isBefore(inicioDia)) {
+                continue;
+            }
+            int variacao = movimentacao.isEntrada() ? movimentacao.getQuantidade() : -movimentacao.getQuantidade();
+            variacoes.computeIfAbsent(movimentacao.getProduto().getId(), id -> new TreeMap<>())
+                    .merge(movimentacao.getDataHora().truncatedTo(ChronoUnit.SECONDS), variacao, Integer::sum);
+        }
+        if (variacoes.isEmpty()) {
+            return;
+        }
+
+        PreparedStatement stmt = null;
+        try {
+            stmt = connectionFactory.preparar(conn, ConsultaSql.PONTO_CONTROLE_AJUSTAR);
+            for (Map.Entry<Integer, Map<LocalDateTime, Integer>> produto : variacoes.entrySet()) {
+                for (Map.Entry<LocalDateTime, Integer> variacao : produto.getValue().entrySet()) {
+                    stmt.setInt(1, variacao.getValue());
+                    stmt.setInt(2, produto.getKey());
+                    stmt.setTimestamp(3, Timestamp.valueOf(variacao.getKey()));
+                    stmt.addBatch();
+                }
+            }
+            stmt.executeBatch();
+        } finally {
+            fecharRecursos(null, stmt, null);
+        }
+    }
+
+    /**
+     * Conclui um lote gravado por {@link #gravarLote} após a confirmação da transação:
+     * grava os IDs nas movimentações e atualiza o cache de produtos e o {@link LivroEstoque}.
+     *
+     * @param movimentacoes As movimentações gravadas
+     * @param idsGerados Os IDs devolvidos por {@link #gravarLote}
+     */
+    void concluirLote(List<Movimentacao> movimentacoes, List<Long> idsGerados) {
+        atribuirIds(movimentacoes, idsGerados);
+        Map<Integer, Integer> variacaoPorProduto = new TreeMap<>();
+        for (Movimentacao movimentacao : movimentacoes) {
+            int variacao = movimentacao.isEntrada() ? movimentacao.getQuantidade() : -movimentacao.getQuantidade();
+            variacaoPorProduto.merge(movimentacao.getProduto().getId(), variacao, Integer::sum);
+        }
+        for (Map.Entry<Integer, Integer> variacao : variacaoPorProduto.entrySet()) {
+            CacheProdutos.getInstance().invalidar(variacao.getKey());
+            LivroEstoque.getInstance().aplicarAoConfirmar(variacao.getKey(), variacao.getValue());
+        }
+    }
+
+    /**
+     * Verifica se o lote já foi confirmado por uma submissão anterior com as mesmas chaves
+     * de idempotência (cada chave é procurada junto com a data e hora da movimentação).
+     * Como um lote é gravado em uma única transação, basta a chave da primeira movimentação
+     * para reconhecê-lo; as demais são consultadas só nesse caso.
+     *
+     * @param conn A conexão com o banco de dados
+     * @param movimentacoes As movimentações do lote
+     * @return Os IDs originais, na ordem das movimentações, ou null se o lote é novo
+     * @throws SQLException Se o lote misturar movimentações já registradas e novas, ou ocorrer um erro ao consultar
+     */
+    List<Long> consultarLoteRepetido(Connection conn, List<Movimentacao> movimentacoes) throws SQLException {
+        Movimentacao primeira = movimentacoes.get(0);
+        if (primeira.getChaveIdempotencia() == null || consultarIdPorChave(conn, primeira) < 0) {
+            return null;
+        }
+
+        List<Long> originais = new ArrayList<>(movimentacoes.size());
+        for (Movimentacao movimentacao : movimentacoes) {
+            long id = movimentacao.getChaveIdempotencia() == null ? -1 : consultarIdPorChave(conn, movimentacao);
+            if (id < 0) {
+                throw new SQLException("O lote repete movimentações já registradas junto com movimentações novas");
             }
+            originais.add(id);
+        }
+        return originais;
+    }
+
+    private long consultarIdPorChave(Connection conn, Movimentacao movimentacao) throws SQLException {
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        try {
+            stmt = connectionFactory.preparar(conn, ConsultaSql.MOVIMENTACAO_CONSULTAR_POR_CHAVE);
+            stmt.setString(1, movimentacao.getChaveIdempotencia());
+            stmt.setTimestamp(2, dataHoraBanco(movimentacao.getDataHora()));
+            rs = stmt.executeQuery();
+            return rs.next() ? rs.getLong(1) : -1;
+        } finally {
+            fecharRecursos(rs, stmt, null);
+        }
+    }
+
+    private void atribuirIds(List<Movimentacao> movimentacoes, List<Long> ids) {
+        for (int i = 0; i < movimentacoes.size(); i++) {
+            movimentacoes.get(i).setId(ids.get(i));
+        }
+    }
+
+    /**
+     * Gera a chave de idempotência da movimentação na primeira submissão; as seguintes
+     * (novas tentativas do mesmo objeto) reutilizam a mesma chave.
+     */
+    private static String garantirChave(Movimentacao movimentacao) {
+        if (movimentacao.getChaveIdempotencia() == null) {
+            movimentacao.setChaveIdempotencia(UUID.randomUUID().toString());
+        }
+        return movimentacao.getChaveIdempotencia();
+    }
+
+    /**
+     * Converte a data e hora para o valor gravado no banco, sem frações de segundo.
+     * O MySQL arredondaria as frações ao gravar em {@code DATETIME}; truncadas aqui, a mesma
+     * data e hora encontra a linha gravada, em uma nova tentativa ou nos itens de um documento.
+     *
+     * @param dataHora A data e hora
+     * @return O valor para o parâmetro do statement
+     */
+    static Timestamp dataHoraBanco(LocalDateTime dataHora) {
+        return Timestamp.valueOf(dataHora.truncatedTo(ChronoUnit.SECONDS));
+    }
+
+    /**
+     * Converte o tipo da movimentação para o código gravado na coluna {@code tipo}.
+     *
+     * @param tipo O tipo da movimentação ("Entrada" ou "Saída")
+     * @return {@link #TIPO_ENTRADA}, {@link #TIPO_SAIDA} ou 0 se o tipo não for reconhecido
+     */
+    static int codigoTipo(String tipo) {
+        if ("Entrada".equals(tipo)) {
+            return TIPO_ENTRADA;
+        }
+        return "Saída".equals(tipo) ? TIPO_SAIDA : 0;
+    }
+
+    /**
+     * Ajusta o estoque pelo total do produto, somando as faixas de estoque
+     * (procedure {@code ajustar_estoque}), na transação da conexão informada.
+     *
+     * @param conn A conexão com o banco de dados
+     * @param produtoId O ID do produto
+     * @param variacao A variação do estoque (negativa para saídas)
+     * @return true se o ajuste foi aplicado, false se o estoque total não for suficiente
+     * @throws SQLException Se ocorrer um erro ao ajustar
+     */
+    private boolean ajustarEstoqueTotal(Connection conn, int produtoId, int variacao) throws SQLException {
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        try {
+            stmt = connectionFactory.preparar(conn, ConsultaSql.MOVIMENTACAO_AJUSTAR_ESTOQUE_TOTAL);
+            stmt.setInt(1, produtoId);
+            stmt.setInt(2, variacao);
+            stmt.execute();
+            fecharRecursos(null, stmt, null);
+
+            stmt = connectionFactory.preparar(conn, ConsultaSql.MOVIMENTACAO_RESULTADO_AJUSTE);
+            rs = stmt.executeQuery();
+            return rs.next() && rs.getBoolean(1);
+        } finally {
+            fecharRecursos(rs, stmt, null);
+        }
+    }
+
+    /**
+     * Confere se o estoque que restou ao produto, já ajustado pelo lote, cobre as reservas
+     * ativas dele, como {@code registrar_movimentacao} faz para uma saída. As reservas e o
+     * estoque são lidos com trava, depois da trava do produto obtida pelo ajuste.
+     *
+     * @param conn A conexão com o banco de dados, na transação do lote
+     * @param produtoId O ID do produto
+     * @param saida A saída líquida do lote para o produto
+     * @throws SQLException Se ocorrer um erro na consulta
+     * @throws EstoqueInsuficienteException Se o estoque restante não cobrir as reservas
+     */
+    private void conferirReservas(Connection conn, int produtoId, int saida) throws SQLException {
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        try {
+            stmt = connectionFactory.preparar(conn, ConsultaSql.RESERVA_TOTAL_TRAVAR);
+            stmt.setInt(1, produtoId);
+            rs = stmt.executeQuery();
+            int reservado = rs.next() ? rs.getInt(1) : 0;
+            fecharRecursos(rs, stmt, null);
+            rs = null;
+            stmt = null;
+            if (reservado == 0) {
+                return;
+            }
+
+            stmt = connectionFactory.preparar(conn, ConsultaSql.RESERVA_ESTOQUE_TRAVAR);
+            stmt.setInt(1, produtoId);
+            rs = stmt.executeQuery();
+            int estoque = rs.next() ? rs.getInt(1) : 0;
+            if (estoque < reservado) {
+                throw new EstoqueInsuficienteException(produtoId, saida, estoque + saida);
+            }
+        } finally {
+            fecharRecursos(rs, stmt, null);
+        }
+    }
+
+    /**
+     * Consulta o estoque atual de um produto na conexão informada.
+     *
+     * @param conn A conexão com o banco de dados
+     * @param produtoId O ID do produto
+     * @return O estoque atual do produto
+     * @throws SQLException Se ocorrer um erro na consulta
+     */
+    private int consultarEstoque(Connection conn, int produtoId) throws SQLException {
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        try {
+            stmt = connectionFactory.preparar(conn, ConsultaSql.MOVIMENTACAO_CONSULTAR_ESTOQUE);
+            stmt.setInt(1, produtoId);
+            rs = stmt.executeQuery();
+            return rs.next() ? rs.getInt(1) : 0;
+        } finally {
+            fecharRecursos(rs, stmt, null);
         }
     }
 
     /**
      * Consulta uma movimentação pelo ID.
+     * Sem a data, o ID é procurado em todas as partições do histórico.
      *
      * @param id O ID da movimentação a ser consultada
      * @return A movimentação encontrada ou null se não existir
      */
-    public Movimentacao consultar(int id) {
+    public Movimentacao consultar(long id) {
         Connection conn = null;
         PreparedStatement stmt = null;
         ResultSet rs = null;
@@ -149,46 +707,12 @@ public class MovimentacaoDAO {
 
         try {
             conn = connectionFactory.getConnection();
-            String sql = "SELECT m.id, m.produto_id, m.tipo, m.quantidade, m.data_hora, m.observacao, "
-                    + "p.nome AS produto_nome, p.preco_unitario, p.unidade, p.quantidade_estoque, "
-                    + "p.quantidade_minima, p.quantidade_maxima, p.categoria_id, "
-                    + "c.nome AS categoria_nome, c.tamanho AS categoria_tamanho, "
-                    + "c.embalagem AS categoria_embalagem "
-                    + "FROM movimentacao m "
-                    + "JOIN produto p ON m.produto_id = p.id "
-                    + "JOIN categoria c ON p.categoria_id = c.id "
-                    + "WHERE m.id = ?";
-            stmt = conn.prepareStatement(sql);
-            stmt.setInt(1, id);
+            stmt = connectionFactory.preparar(conn, ConsultaSql.MOVIMENTACAO_CONSULTAR);
+            stmt.setLong(1, id);
             rs = stmt.executeQuery();
 
             if (rs.next()) {
-                // Popula Categoria
-                Categoria categoria = new Categoria();
-                categoria.setId(rs.getInt("categoria_id"));
-                categoria.setNome(rs.getString("categoria_nome"));
-                categoria.setTamanho(rs.getString("categoria_tamanho"));
-                categoria.setEmbalagem(rs.getString("categoria_embalagem"));
-
-                // Popula Produto
-                Produto produto = new Produto();
-                produto.setId(rs.getInt("produto_id"));
-                produto.setNome(rs.getString("produto_nome"));
-                produto.setPrecoUnitario(rs.getDouble("preco_unitario"));
-                produto.setUnidade(rs.getString("unidade"));
-                produto.setQuantidadeEstoque(rs.getInt("quantidade_estoque"));
-                produto.setQuantidadeMinima(rs.getInt("quantidade_minima"));
-                produto.setQuantidadeMaxima(rs.getInt("quantidade_maxima"));
-                produto.setCategoria(categoria);
-
-                // Popula Movimentação
-                movimentacao = new Movimentacao();
-                movimentacao.setId(rs.getInt("id"));
-                movimentacao.setProduto(produto);
-                movimentacao.setTipo(rs.getString("tipo"));
-                movimentacao.setQuantidade(rs.getInt("quantidade"));
-                movimentacao.setDataHora(rs.getTimestamp("data_hora").toLocalDateTime());
-                movimentacao.setObservacao(rs.getString("observacao"));
+                movimentacao = MAPEADOR_MOVIMENTACAO.mapear(rs);
             }
         } catch (SQLException ex) {
             System.err.println("Erro ao consultar movimentação: " + ex.getMessage());
@@ -200,11 +724,70 @@ public class MovimentacaoDAO {
     }
 
     /**
-     * Lista todas as movimentações cadastradas.
+     * Consulta o estoque que o produto tinha em um instante passado, considerando as
+     * movimentações anteriores a ele. Parte do ponto de controle mais recente até o instante e
+     * soma só a variação das movimentações entre os dois, lendo as partições desse intervalo.
+     * Sem ponto de controle anterior (produto novo ou instante anterior ao primeiro ponto),
+     * parte do estoque atual e desconta as movimentações a partir do instante.
+     *
+     * Alterações de estoque feitas fora das movimentações (como a edição do produto) só entram
+     * no ponto de controle seguinte. Para meses descartados do histórico, a variação do dia não
+     * está mais disponível e o resultado é o estoque do início do dia.
+     *
+     * @param produtoId O ID do produto
+     * @param dataHora O instante da consulta
+     * @return O estoque do produto no instante ou -1 em caso de erro ou se o produto não existir
+     */
+    public int consultarEstoqueEm(int produtoId, LocalDateTime dataHora) {
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+
+        try {
+            conn = connectionFactory.getConnection();
+            stmt = connectionFactory.preparar(conn, ConsultaSql.PONTO_CONTROLE_ANTERIOR);
+            stmt.setInt(1, produtoId);
+            stmt.setTimestamp(2, dataHoraBanco(dataHora));
+            rs = stmt.executeQuery();
+
+            if (!rs.next()) {
+                // Sem ponto de controle anterior: volta a partir do estoque atual
+                fecharRecursos(rs, stmt, null);
+                rs = null;
+                stmt = connectionFactory.preparar(conn, ConsultaSql.MOVIMENTACAO_ESTOQUE_ANTES_DE);
+                stmt.setTimestamp(1, dataHoraBanco(dataHora));
+                stmt.setInt(2, produtoId);
+                rs = stmt.executeQuery();
+                return rs.next() ? rs.getInt(1) : -1;
+            }
+            // Uma movimentação retroativa concorrente altera o ponto ou a variação, nunca os dois
+            Timestamp pontoControle = rs.getTimestamp(1);
+            int estoque = rs.getInt(2);
+            fecharRecursos(rs, stmt, null);
+            rs = null;
+
+            stmt = connectionFactory.preparar(conn, ConsultaSql.MOVIMENTACAO_VARIACAO_PERIODO);
+            stmt.setInt(1, produtoId);
+            stmt.setTimestamp(2, pontoControle);
+            stmt.setTimestamp(3, dataHoraBanco(dataHora));
+            rs = stmt.executeQuery();
+            return rs.next() ? estoque + rs.getInt(1) : estoque;
+        } catch (SQLException ex) {
+            System.err.println("Erro ao consultar estoque na data: " + ex.getMessage());
+            return -1;
+        } finally {
+            fecharRecursos(rs, stmt, conn);
+        }
+    }
+
+    /**
+     * Lista as movimentações de um período, da mais antiga para a mais recente.
      *
-     * @return Uma lista com todas as movimentações
+     * @param inicio O início do período (inclusive)
+     * @param fim O fim do período (exclusive)
+     * @return Uma lista com as movimentações do período
      */
-    public List<Movimentacao> listarTodos() {
+    public List<Movimentacao> listarPeriodo(LocalDateTime inicio, LocalDateTime fim) {
         List<Movimentacao> movimentacoes = new ArrayList<>();
         Connection conn = null;
         PreparedStatement stmt = null;
@@ -212,45 +795,12 @@ public class MovimentacaoDAO {
 
         try {
             conn = connectionFactory.getConnection();
-            String sql = "SELECT m.id, m.produto_id, m.tipo, m.quantidade, m.data_hora, m.observacao, "
-                    + "p.nome AS produto_nome, p.preco_unitario, p.unidade, p.quantidade_estoque, "
-                    + "p.quantidade_minima, p.quantidade_maxima, p.categoria_id, "
-                    + "c.nome AS categoria_nome, c.tamanho AS categoria_tamanho, "
-                    + "c.embalagem AS categoria_embalagem "
-                    + "FROM movimentacao m "
-                    + "JOIN produto p ON m.produto_id = p.id "
-                    + "JOIN categoria c ON p.categoria_id = c.id "
-                    + "ORDER BY m.id ASC";
-            stmt = conn.prepareStatement(sql);
+            stmt = connectionFactory.preparar(conn, ConsultaSql.MOVIMENTACAO_LISTAR_PERIODO);
+            definirPeriodo(stmt, 1, inicio, fim);
             rs = stmt.executeQuery();
 
             while (rs.next()) {
-                // Popula Categoria
-                Categoria categoria = new Categoria();
-                categoria.setId(rs.getInt("categoria_id"));
-                categoria.setNome(rs.getString("categoria_nome"));
-                categoria.setTamanho(rs.getString("categoria_tamanho"));
-                categoria.setEmbalagem(rs.getString("categoria_embalagem"));
-
-                // Popula Produto
-                Produto produto = new Produto();
-                produto.setId(rs.getInt("produto_id"));
-                produto.setNome(rs.getString("produto_nome"));
-                produto.setPrecoUnitario(rs.getDouble("preco_unitario"));
-                produto.setUnidade(rs.getString("unidade"));
-                produto.setQuantidadeEstoque(rs.getInt("quantidade_estoque"));
-                produto.setQuantidadeMinima(rs.getInt("quantidade_minima"));
-                produto.setQuantidadeMaxima(rs.getInt("quantidade_maxima"));
-                produto.setCategoria(categoria);
-
-                // Popula Movimentação
-                Movimentacao movimentacao = new Movimentacao();
-                movimentacao.setId(rs.getInt("id"));
-                movimentacao.setProduto(produto);
-                movimentacao.setTipo(rs.getString("tipo"));
-                movimentacao.setQuantidade(rs.getInt("quantidade"));
-                movimentacao.setDataHora(rs.getTimestamp("data_hora").toLocalDateTime());
-                movimentacao.setObservacao(rs.getString("observacao"));
+                Movimentacao movimentacao = MAPEADOR_MOVIMENTACAO.mapear(rs);
 
                 movimentacoes.add(movimentacao);
             }
@@ -264,12 +814,107 @@ public class MovimentacaoDAO {
     }
 
     /**
-     * Lista as movimentações de um produto específico.
+     * Lista uma página das movimentações de um período, da mais antiga para a mais recente,
+     * usando paginação por chave (data_hora, id): a página seguinte começa logo após a última
+     * movimentação da página anterior, de modo que qualquer página custa o mesmo que a primeira.
+     *
+     * @param inicio O início do período (inclusive)
+     * @param fim O fim do período (exclusive)
+     * @param ultima A última movimentação da página anterior, ou null para a primeira página
+     * @param tamanhoPagina Quantidade máxima de movimentações na página
+     * @return As movimentações da página (menos que {@code tamanhoPagina} indica a última página)
+     */
+    public List<Movimentacao> listarPeriodoPagina(LocalDateTime inicio, LocalDateTime fim,
+                                                  Movimentacao ultima, int tamanhoPagina) {
+        List<Movimentacao> movimentacoes = new ArrayList<>();
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+
+        try {
+            conn = connectionFactory.getConnection();
+            stmt = connectionFactory.preparar(conn, ConsultaSql.MOVIMENTACAO_LISTAR_PERIODO_PAGINA);
+            definirPeriodo(stmt, 1, inicio, fim);
+            // Na primeira página a chave fica antes do início do período
+            Timestamp dataHora = ultima != null ? dataHoraBanco(ultima.getDataHora()) : dataHoraBanco(inicio);
+            stmt.setTimestamp(3, dataHora);
+            stmt.setTimestamp(4, dataHora);
+            stmt.setLong(5, ultima != null ? ultima.getId() : Long.MIN_VALUE);
+            stmt.setInt(6, tamanhoPagina);
+            rs = stmt.executeQuery();
+
+            while (rs.next()) {
+                movimentacoes.add(MAPEADOR_MOVIMENTACAO.mapear(rs));
+            }
+        } catch (SQLException ex) {
+            System.err.println("Erro ao listar página de movimentações: " + ex.getMessage());
+        } finally {
+            fecharRecursos(rs, stmt, conn);
+        }
+
+        return movimentacoes;
+    }
+
+    /**
+     * Percorre as movimentações de um período sem carregá-las em memória de uma só vez,
+     * usando o tamanho de lote padrão do cursor.
+     *
+     * @param inicio O início do período (inclusive)
+     * @param fim O fim do período (exclusive)
+     * @param consumidor Ação executada para cada movimentação, na ordem de data e hora
+     * @return O número de movimentações processadas
+     */
+    public int percorrerPeriodo(LocalDateTime inicio, LocalDateTime fim, Consumer<Movimentacao> consumidor) {
+        return percorrerPeriodo(inicio, fim, TAMANHO_LOTE_CURSOR_PADRAO, consumidor);
+    }
+
+    /**
+     * Percorre as movimentações de um período sem carregá-las em memória de uma só vez.
+     * O resultado é lido por um cursor no servidor, buscando {@code tamanhoLote} linhas por vez,
+     * de modo que o consumo de memória não depende do tamanho do histórico.
+     *
+     * @param inicio O início do período (inclusive)
+     * @param fim O fim do período (exclusive)
+     * @param tamanhoLote Quantidade de linhas trazidas do servidor a cada busca
+     * @param consumidor Ação executada para cada movimentação, na ordem de data e hora
+     * @return O número de movimentações processadas
+     */
+    public int percorrerPeriodo(LocalDateTime inicio, LocalDateTime fim, int tamanhoLote,
+                                Consumer<Movimentacao> consumidor) {
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        int processadas = 0;
+
+        try {
+            conn = connectionFactory.getConnection();
+            stmt = connectionFactory.preparar(conn, ConsultaSql.MOVIMENTACAO_PERCORRER_PERIODO);
+            definirPeriodo(stmt, 1, inicio, fim);
+            stmt.setFetchSize(Math.max(1, tamanhoLote));
+            rs = stmt.executeQuery();
+
+            while (rs.next()) {
+                consumidor.accept(MAPEADOR_MOVIMENTACAO.mapear(rs));
+                processadas++;
+            }
+        } catch (SQLException ex) {
+            System.err.println("Erro ao percorrer movimentações: " + ex.getMessage());
+        } finally {
+            fecharRecursos(rs, stmt, conn);
+        }
+
+        return processadas;
+    }
+
+    /**
+     * Lista as movimentações de um produto em um período, da mais recente para a mais antiga.
      *
      * @param produtoId O ID do produto
-     * @return Uma lista com as movimentações do produto
+     * @param inicio O início do período (inclusive)
+     * @param fim O fim do período (exclusive)
+     * @return Uma lista com as movimentações do produto no período
      */
-    public List<Movimentacao> listarPorProduto(int produtoId) {
+    public List<Movimentacao> listarPorProduto(int produtoId, LocalDateTime inicio, LocalDateTime fim) {
         List<Movimentacao> movimentacoes = new ArrayList<>();
         Connection conn = null;
         PreparedStatement stmt = null;
@@ -277,47 +922,13 @@ public class MovimentacaoDAO {
 
         try {
             conn = connectionFactory.getConnection();
-            String sql = "SELECT m.id, m.produto_id, m.tipo, m.quantidade, m.data_hora, m.observacao, "
-                    + "p.nome AS produto_nome, p.preco_unitario, p.unidade, p.quantidade_estoque, "
-                    + "p.quantidade_minima, p.quantidade_maxima, p.categoria_id, "
-                    + "c.nome AS categoria_nome, c.tamanho AS categoria_tamanho, "
-                    + "c.embalagem AS categoria_embalagem "
-                    + "FROM movimentacao m "
-                    + "JOIN produto p ON m.produto_id = p.id "
-                    + "JOIN categoria c ON p.categoria_id = c.id "
-                    + "WHERE m.produto_id = ? "
-                    + "ORDER BY m.data_hora DESC";
-            stmt = conn.prepareStatement(sql);
+            stmt = connectionFactory.preparar(conn, ConsultaSql.MOVIMENTACAO_LISTAR_POR_PRODUTO);
             stmt.setInt(1, produtoId);
+            definirPeriodo(stmt, 2, inicio, fim);
             rs = stmt.executeQuery();
 
             while (rs.next()) {
-                // Popula Categoria
-                Categoria categoria = new Categoria();
-                categoria.setId(rs.getInt("categoria_id"));
-                categoria.setNome(rs.getString("categoria_nome"));
-                categoria.setTamanho(rs.getString("categoria_tamanho"));
-                categoria.setEmbalagem(rs.getString("categoria_embalagem"));
-
-                // Popula Produto
-                Produto produto = new Produto();
-                produto.setId(rs.getInt("produto_id"));
-                produto.setNome(rs.getString("produto_nome"));
-                produto.setPrecoUnitario(rs.getDouble("preco_unitario"));
-                produto.setUnidade(rs.getString("unidade"));
-                produto.setQuantidadeEstoque(rs.getInt("quantidade_estoque"));
-                produto.setQuantidadeMinima(rs.getInt("quantidade_minima"));
-                produto.setQuantidadeMaxima(rs.getInt("quantidade_maxima"));
-                produto.setCategoria(categoria);
-
-                // Popula Movimentação
-                Movimentacao movimentacao = new Movimentacao();
-                movimentacao.setId(rs.getInt("id"));
-                movimentacao.setProduto(produto);
-                movimentacao.setTipo(rs.getString("tipo"));
-                movimentacao.setQuantidade(rs.getInt("quantidade"));
-                movimentacao.setDataHora(rs.getTimestamp("data_hora").toLocalDateTime());
-                movimentacao.setObservacao(rs.getString("observacao"));
+                Movimentacao movimentacao = MAPEADOR_MOVIMENTACAO.mapear(rs);
 
                 movimentacoes.add(movimentacao);
             }
@@ -331,12 +942,86 @@ public class MovimentacaoDAO {
     }
 
     /**
-     * Lista as movimentações por tipo (Entrada ou Saída).
+     * Lista os itens de um documento de estoque, na ordem em que foram gravados.
+     * Os itens têm a data e hora do documento, que localiza a partição deles.
+     *
+     * @param documentoId O ID do documento
+     * @param dataHora A data e hora do documento
+     * @return Uma lista com as movimentações do documento
+     */
+    public List<Movimentacao> listarPorDocumento(int documentoId, LocalDateTime dataHora) {
+        List<Movimentacao> movimentacoes = new ArrayList<>();
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+
+        try {
+            conn = connectionFactory.getConnection();
+            stmt = connectionFactory.preparar(conn, ConsultaSql.MOVIMENTACAO_LISTAR_POR_DOCUMENTO);
+            stmt.setInt(1, documentoId);
+            stmt.setTimestamp(2, dataHoraBanco(dataHora));
+            rs = stmt.executeQuery();
+
+            while (rs.next()) {
+                movimentacoes.add(MAPEADOR_MOVIMENTACAO.mapear(rs));
+            }
+        } catch (SQLException ex) {
+            System.err.println("Erro ao listar movimentações por documento: " + ex.getMessage());
+        } finally {
+            fecharRecursos(rs, stmt, conn);
+        }
+
+        return movimentacoes;
+    }
+
+    /**
+     * Lista uma página das movimentações de um produto em um período, da mais recente para a
+     * mais antiga, usando paginação por chave (data_hora, id) a partir da última movimentação
+     * da página anterior.
+     *
+     * @param produtoId O ID do produto
+     * @param inicio O início do período (inclusive)
+     * @param fim O fim do período (exclusive)
+     * @param ultima A última movimentação da página anterior, ou null para a primeira página
+     * @param tamanhoPagina Quantidade máxima de movimentações na página
+     * @return As movimentações da página (menos que {@code tamanhoPagina} indica a última página)
+     */
+    public List<Movimentacao> listarPorProdutoPagina(int produtoId, LocalDateTime inicio, LocalDateTime fim,
+                                                     Movimentacao ultima, int tamanhoPagina) {
+        List<Movimentacao> movimentacoes = new ArrayList<>();
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+
+        try {
+            conn = connectionFactory.getConnection();
+            stmt = connectionFactory.preparar(conn, ConsultaSql.MOVIMENTACAO_LISTAR_POR_PRODUTO_PAGINA);
+            stmt.setInt(1, produtoId);
+            definirPeriodo(stmt, 2, inicio, fim);
+            definirChavePagina(stmt, 4, fim, ultima, tamanhoPagina);
+            rs = stmt.executeQuery();
+
+            while (rs.next()) {
+                movimentacoes.add(MAPEADOR_MOVIMENTACAO.mapear(rs));
+            }
+        } catch (SQLException ex) {
+            System.err.println("Erro ao listar página de movimentações por produto: " + ex.getMessage());
+        } finally {
+            fecharRecursos(rs, stmt, conn);
+        }
+
+        return movimentacoes;
+    }
+
+    /**
+     * Lista as movimentações por tipo (Entrada ou Saída) em um período, da mais recente para a mais antiga.
      *
      * @param tipo O tipo de movimentação ("Entrada" ou "Saída")
-     * @return Uma lista com as movimentações do tipo especificado
+     * @param inicio O início do período (inclusive)
+     * @param fim O fim do período (exclusive)
+     * @return Uma lista com as movimentações do tipo especificado no período
      */
-    public List<Movimentacao> listarPorTipo(String tipo) {
+    public List<Movimentacao> listarPorTipo(String tipo, LocalDateTime inicio, LocalDateTime fim) {
         List<Movimentacao> movimentacoes = new ArrayList<>();
         Connection conn = null;
         PreparedStatement stmt = null;
@@ -344,47 +1029,13 @@ public class MovimentacaoDAO {
 
         try {
             conn = connectionFactory.getConnection();
-            String sql = "SELECT m.id, m.produto_id, m.tipo, m.quantidade, m.data_hora, m.observacao, "
-                    + "p.nome AS produto_nome, p.preco_unitario, p.unidade, p.quantidade_estoque, "
-                    + "p.quantidade_minima, p.quantidade_maxima, p.categoria_id, "
-                    + "c.nome AS categoria_nome, c.tamanho AS categoria_tamanho, "
-                    + "c.embalagem AS categoria_embalagem "
-                    + "FROM movimentacao m "
-                    + "JOIN produto p ON m.produto_id = p.id "
-                    + "JOIN categoria c ON p.categoria_id = c.id "
-                    + "WHERE m.tipo = ? "
-                    + "ORDER BY m.data_hora DESC";
-            stmt = conn.prepareStatement(sql);
-            stmt.setString(1, tipo);
+            stmt = connectionFactory.preparar(conn, ConsultaSql.MOVIMENTACAO_LISTAR_POR_TIPO);
+            stmt.setInt(1, codigoTipo(tipo));
+            definirPeriodo(stmt, 2, inicio, fim);
             rs = stmt.executeQuery();
 
             while (rs.next()) {
-                // Popula Categoria
-                Categoria categoria = new Categoria();
-                categoria.setId(rs.getInt("categoria_id"));
-                categoria.setNome(rs.getString("categoria_nome"));
-                categoria.setTamanho(rs.getString("categoria_tamanho"));
-                categoria.setEmbalagem(rs.getString("categoria_embalagem"));
-
-                // Popula Produto
-                Produto produto = new Produto();
-                produto.setId(rs.getInt("produto_id"));
-                produto.setNome(rs.getString("produto_nome"));
-                produto.setPrecoUnitario(rs.getDouble("preco_unitario"));
-                produto.setUnidade(rs.getString("unidade"));
-                produto.setQuantidadeEstoque(rs.getInt("quantidade_estoque"));
-                produto.setQuantidadeMinima(rs.getInt("quantidade_minima"));
-                produto.setQuantidadeMaxima(rs.getInt("quantidade_maxima"));
-                produto.setCategoria(categoria);
-
-                // Popula Movimentação
-                Movimentacao movimentacao = new Movimentacao();
-                movimentacao.setId(rs.getInt("id"));
-                movimentacao.setProduto(produto);
-                movimentacao.setTipo(rs.getString("tipo"));
-                movimentacao.setQuantidade(rs.getInt("quantidade"));
-                movimentacao.setDataHora(rs.getTimestamp("data_hora").toLocalDateTime());
-                movimentacao.setObservacao(rs.getString("observacao"));
+                Movimentacao movimentacao = MAPEADOR_MOVIMENTACAO.mapear(rs);
 
                 movimentacoes.add(movimentacao);
             }
@@ -397,6 +1048,81 @@ public class MovimentacaoDAO {
         return movimentacoes;
     }
 
+    /**
+     * Lista uma página das movimentações de um tipo em um período, da mais recente para a
+     * mais antiga, usando paginação por chave (data_hora, id) a partir da última movimentação
+     * da página anterior.
+     *
+     * @param tipo O tipo de movimentação ("Entrada" ou "Saída")
+     * @param inicio O início do período (inclusive)
+     * @param fim O fim do período (exclusive)
+     * @param ultima A última movimentação da página anterior, ou null para a primeira página
+     * @param tamanhoPagina Quantidade máxima de movimentações na página
+     * @return As movimentações da página (menos que {@code tamanhoPagina} indica a última página)
+     */
+    public List<Movimentacao> listarPorTipoPagina(String tipo, LocalDateTime inicio, LocalDateTime fim,
+                                                  Movimentacao ultima, int tamanhoPagina) {
+        List<Movimentacao> movimentacoes = new ArrayList<>();
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+
+        try {
+            conn = connectionFactory.getConnection();
+            stmt = connectionFactory.preparar(conn, ConsultaSql.MOVIMENTACAO_LISTAR_POR_TIPO_PAGINA);
+            stmt.setInt(1, codigoTipo(tipo));
+            definirPeriodo(stmt, 2, inicio, fim);
+            definirChavePagina(stmt, 4, fim, ultima, tamanhoPagina);
+            rs = stmt.executeQuery();
+
+            while (rs.next()) {
+                movimentacoes.add(MAPEADOR_MOVIMENTACAO.mapear(rs));
+            }
+        } catch (SQLException ex) {
+            System.err.println("Erro ao listar página de movimentações por tipo: " + ex.getMessage());
+        } finally {
+            fecharRecursos(rs, stmt, conn);
+        }
+
+        return movimentacoes;
+    }
+
+    /**
+     * Define os parâmetros do período (início, fim) de uma listagem.
+     *
+     * @param stmt Statement da consulta
+     * @param indice Índice do parâmetro do início
+     * @param inicio O início do período (inclusive)
+     * @param fim O fim do período (exclusive)
+     * @throws SQLException Se ocorrer um erro ao definir os parâmetros
+     */
+    private void definirPeriodo(PreparedStatement stmt, int indice, LocalDateTime inicio, LocalDateTime fim)
+            throws SQLException {
+        stmt.setTimestamp(indice, dataHoraBanco(inicio));
+        stmt.setTimestamp(indice + 1, dataHoraBanco(fim));
+    }
+
+    /**
+     * Define os parâmetros de chave (data_hora, data_hora, id) e o limite de uma página
+     * ordenada da movimentação mais recente para a mais antiga.
+     * Na primeira página a chave é posicionada no fim do período, que já é exclusivo.
+     *
+     * @param stmt Statement da consulta paginada
+     * @param indice Índice do primeiro parâmetro da chave
+     * @param fim O fim do período (exclusive)
+     * @param ultima A última movimentação da página anterior, ou null para a primeira página
+     * @param tamanhoPagina Quantidade máxima de movimentações na página
+     * @throws SQLException Se ocorrer um erro ao definir os parâmetros
+     */
+    private void definirChavePagina(PreparedStatement stmt, int indice, LocalDateTime fim, Movimentacao ultima,
+                                    int tamanhoPagina) throws SQLException {
+        Timestamp dataHora = dataHoraBanco(ultima != null ? ultima.getDataHora() : fim);
+        stmt.setTimestamp(indice, dataHora);
+        stmt.setTimestamp(indice + 1, dataHora);
+        stmt.setLong(indice + 2, ultima != null ? ultima.getId() : Long.MAX_VALUE);
+        stmt.setInt(indice + 3, tamanhoPagina);
+    }
+
     /**
      * Fecha recursos de ResultSet, PreparedStatement e Connection.
      *
@@ -0,0 +1,169 @@
+package dao;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Operação de banco com prazo e cancelamento, vinculada à thread que a executa.
+ *
+ * Enquanto a operação está vinculada, {@link ConnectionFactory#preparar} registra nela cada
+ * statement preparado pela thread e define o tempo limite da consulta com o prazo restante.
+ * {@link #cancelar()} chama {@link Statement#cancel()} nos statements ainda abertos, o que
+ * interrompe a consulta em execução no servidor; statements preparados depois do cancelamento
+ * falham de imediato.
+ *
+ * O cancelamento nem sempre chega a tempo: a operação pode terminar (e confirmar uma escrita)
+ * antes de o servidor recebê-lo. Por isso a operação registra se foi de fato interrompida
+ * ({@link #isInterrompida()}): um statement recusado por {@link #registrar} ou um erro do banco
+ * depois do cancelamento ou por tempo esgotado, observado pelo {@link CacheStatements}.
+ */
+final class OperacaoCancelavel {
+
+    private static final ThreadLocal<OperacaoCancelavel> ATUAL = new ThreadLocal<>();
+
+    // SQLSTATE de consulta interrompida (Statement.cancel ou KILL QUERY)
+    private static final String ESTADO_INTERROMPIDA = "70100";
+
+    private final long prazoNanos;
+    private final List<Statement> statements = new ArrayList<>();
+    private volatile boolean cancelada;
+    private volatile boolean interrompida;
+    private boolean iniciada;
+
+    /**
+     * Cria a operação com o prazo informado.
+     *
+     * @param tempoLimiteMs O tempo limite da operação, em milissegundos a partir de agora
+     */
+    OperacaoCancelavel(long tempoLimiteMs) {
+        this.prazoNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(tempoLimiteMs);
+    }
+
+    /**
+     * Obtém a operação vinculada à thread atual.
+     *
+     * @return A operação em andamento ou null se não houver
+     */
+    static OperacaoCancelavel atual() {
+        return ATUAL.get();
+    }
+
+    /**
+     * Vincula a operação à thread atual.
+     */
+    void vincular() {
+        ATUAL.set(this);
+    }
+
+    /**
+     * Desvincula a operação da thread atual e esquece os statements registrados.
+     */
+    void desvincular() {
+        ATUAL.remove();
+        synchronized (this) {
+            statements.clear();
+        }
+    }
+
+    /**
+     * Registra um statement preparado pela operação e define o seu tempo limite.
+     *
+     * @param statement O statement preparado
+     * @throws SQLException Se a operação já foi cancelada ou o prazo acabou
+     */
+    synchronized void registrar(Statement statement) throws SQLException {
+        if (cancelada) {
+            interrompida = true;
+            throw new SQLException("Operação cancelada");
+        }
+        long restante = prazoNanos - System.nanoTime();
+        if (restante <= 0) {
+            interrompida = true;
+            throw new SQLException("Tempo limite da operação esgotado");
+        }
+        // Statements já devolvidos ao cache podem ter sido emprestados a outra thread
+        statements.removeIf(OperacaoCancelavel::fechado);
+        statements.add(statement);
+        statement.setQueryTimeout((int) Math.max(1, TimeUnit.NANOSECONDS.toSeconds(restante + 999_999_999)));
+    }
+
+    /**
+     * Marca o início da execução, se a operação ainda não foi cancelada.
+     *
+     * @return true se a operação pode ser executada, false se já foi cancelada
+     */
+    synchronized boolean iniciar() {
+        if (cancelada) {
+            return false;
+        }
+        iniciada = true;
+        return true;
+    }
+
+    /**
+     * Registra um erro do banco recebido por um statement da operação: depois do cancelamento,
+     * ou por tempo limite da consulta, o erro é a interrupção da operação.
+     *
+     * @param ex O erro recebido
+     */
+    void observarErro(SQLException ex) {
+        if (cancelada || ex instanceof SQLTimeoutException || ESTADO_INTERROMPIDA.equals(ex.getSQLState())) {
+            interrompida = true;
+        }
+    }
+
+    /**
+     * Cancela a operação, interrompendo a consulta em execução.
+     *
+     * @return true se a operação já estava em execução (o resultado depende de
+     *         {@link #isInterrompida()}), false se ela não chegará a ser executada
+     */
+    boolean cancelar() {
+        List<Statement> abertos;
+        boolean emExecucao;
+        synchronized (this) {
+            cancelada = true;
+            emExecucao = iniciada;
+            abertos = new ArrayList<>(statements);
+        }
+        for (Statement statement : abertos) {
+            try {
+                statement.cancel();
+            } catch (SQLException ex) {
+                // Statement devolvido ao cache ou fechado nesse meio tempo: não há o que interromper
+            }
+        }
+        return emExecucao;
+    }
+
+    /**
+     * Indica se a operação foi cancelada.
+     *
+     * @return true se {@link #cancelar()} foi chamado
+     */
+    boolean isCancelada() {
+        return cancelada;
+    }
+
+    /**
+     * Indica se a execução foi de fato interrompida pelo cancelamento ou pelo tempo limite.
+     * Uma operação cancelada que terminou antes de ser interrompida tem um resultado válido.
+     *
+     * @return true se algum statement da operação foi recusado ou interrompido
+     */
+    boolean isInterrompida() {
+        return interrompida;
+    }
+
+    private static boolean fechado(Statement statement) {
+        try {
+            return statement.isClosed();
+        } catch (SQLException ex) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,341 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Manutenção das partições mensais do histórico de movimentações.
+ *
+ * As tabelas {@code movimentacao} e {@code movimentacao_observacao} são particionadas por mês
+ * de {@code data_hora} (ver {@code db/migracao/V006}), com uma partição {@code p_AAAAMM} por
+ * mês e {@code p_futuro} para o que vier depois do último mês criado. {@link #iniciar()} cria os
+ * meses seguintes antes que sejam necessários, para que {@code p_futuro} fique vazia e a divisão
+ * dela não copie linhas.
+ *
+ * Meses antigos saem do histórico inteiros, sem DELETE linha a linha:
+ * {@link #descartarAnteriores} remove as partições e {@link #arquivar} as troca por tabelas
+ * comuns ({@code movimentacao_arquivo_AAAAMM}), que continuam consultáveis fora do histórico.
+ * Com a propriedade do sistema {@code estoque.historico.meses} (ex: {@code -Destoque.historico.meses=24}),
+ * a verificação diária arquiva os meses mais antigos que esse número de meses; sem ela, nada
+ * sai do histórico automaticamente. Descartar meses fica a cargo de quem chama.
+ * As alterações usam a mesma {@link TravaEsquema trava nomeada} do {@link MigradorEsquema},
+ * para que dois terminais não alterem as partições ao mesmo tempo.
+ */
+public final class ParticoesMovimentacao {
+
+    // Meses à frente do atual que devem ter partição própria
+    static final int MESES_ADIANTE = 3;
+
+    // Intervalo entre verificações das partições futuras
+    private static final long INTERVALO_VERIFICACAO_MS = 24 * 60 * 60 * 1000;
+
+    // Espera máxima pela trava de alteração do esquema, em segundos
+    private static final int ESPERA_TRAVA_S = 10;
+
+    // Propriedade do sistema com os meses mantidos no histórico antes do arquivamento
+    private static final String PROPRIEDADE_RETENCAO = "estoque.historico.meses";
+
+    // Tabelas particionadas juntas, com as mesmas partições
+    private static final String[] TABELAS = {"movimentacao", "movimentacao_observacao"};
+
+    private static final String PREFIXO_PARTICAO = "p_";
+    private static final String PARTICAO_FUTURO = "p_futuro";
+    private static final DateTimeFormatter FORMATO_MES = DateTimeFormatter.ofPattern("yyyyMM");
+
+    private static final ParticoesMovimentacao INSTANCIA = new ParticoesMovimentacao();
+
+    private final ConnectionFactory connectionFactory;
+    private ScheduledExecutorService verificador;
+
+    // Meses mantidos no histórico (0 = sem arquivamento automático)
+    private final int mesesRetencao;
+
+    private ParticoesMovimentacao() {
+        this.connectionFactory = ConnectionFactory.getInstance();
+        this.mesesRetencao = Math.max(0, Integer.getInteger(PROPRIEDADE_RETENCAO, 0));
+    }
+
+    /**
+     * Obtém a manutenção de partições compartilhada pelo processo.
+     *
+     * @return A instância única
+     */
+    public static ParticoesMovimentacao getInstance() {
+        return INSTANCIA;
+    }
+
+    /**
+     * Cria as partições dos próximos meses, arquiva os meses fora da retenção configurada e
+     * agenda a verificação diária. Chamadas seguintes não têm efeito.
+     */
+    public synchronized void iniciar() {
+        if (verificador != null) {
+            return;
+        }
+        verificar();
+        verificador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "particoes-movimentacao");
+            t.setDaemon(true);
+            return t;
+        });
+        verificador.scheduleWithFixedDelay(this::verificar, INTERVALO_VERIFICACAO_MS,
+                INTERVALO_VERIFICACAO_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Cria os meses futuros e, com retenção configurada, arquiva os meses anteriores a ela,
+     * do mais antigo para o mais recente. Um mês que falhar é tentado de novo na próxima
+     * verificação.
+     */
+    private void verificar() {
+        criarMesesFuturos();
+        if (mesesRetencao == 0) {
+            return;
+        }
+        YearMonth limite = YearMonth.now().minusMonths(mesesRetencao);
+        for (YearMonth mes : listarMeses()) {
+            if (!mes.isBefore(limite) || !arquivar(mes)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Garante uma partição para cada mês até {@link #MESES_ADIANTE} meses à frente do atual,
+     * dividindo {@code p_futuro}.
+     *
+     * @return O número de meses criados ou -1 em caso de erro
+     */
+    public int criarMesesFuturos() {
+        YearMonth alvo = YearMonth.now().plusMonths(MESES_ADIANTE);
+        int criados = 0;
+
+        try (Connection conn = connectionFactory.getConnectionDoPool()) {
+            conn.setAutoCommit(true);
+            if (!TravaEsquema.travar(conn, ESPERA_TRAVA_S)) {
+                System.err.println("Erro ao criar partições de movimentação: trava não obtida em "
+                        + ESPERA_TRAVA_S + " s");
+                return -1;
+            }
+            try {
+                for (String tabela : TABELAS) {
+                    List<YearMonth> meses = listarMeses(conn, tabela);
+                    if (meses.isEmpty()) {
+                        // Tabela ainda não particionada (migração pendente)
+                        continue;
+                    }
+                    YearMonth mes = meses.get(meses.size() - 1).plusMonths(1);
+                    StringBuilder particoes = new StringBuilder();
+                    int novos = 0;
+                    for (; !mes.isAfter(alvo); mes = mes.plusMonths(1)) {
+                        particoes.append("PARTITION ").append(nomeParticao(mes))
+                                .append(" VALUES LESS THAN ('").append(mes.plusMonths(1).atDay(1)).append("'), ");
+                        novos++;
+                    }
+                    if (novos == 0) {
+                        continue;
+                    }
+                    executar(conn, "ALTER TABLE " + tabela + " REORGANIZE PARTITION " + PARTICAO_FUTURO
+                            + " INTO (" + particoes + "PARTITION " + PARTICAO_FUTURO + " VALUES LESS THAN (MAXVALUE))");
+                    criados = Math.max(criados, novos);
+                }
+                return criados;
+            } finally {
+                TravaEsquema.liberar(conn);
+            }
+        } catch (SQLException ex) {
+            System.err.println("Erro ao criar partições de movimentação: " + ex.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * Lista os meses com partição no histórico de movimentações.
+     *
+     * @return Os meses em ordem crescente, ou uma lista vazia se a tabela não for particionada
+     *         ou ocorrer um erro
+     */
+    public List<YearMonth> listarMeses() {
+        try (Connection conn = connectionFactory.getConnectionDoPool()) {
+            return listarMeses(conn, TABELAS[0]);
+        } catch (SQLException ex) {
+            System.err.println("Erro ao listar partições de movimentação: " + ex.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Remove do histórico os meses anteriores ao informado, descartando as partições inteiras
+     * (movimentações e observações). O mês atual nunca é descartado.
+     *
+     * @param limite O primeiro mês mantido no histórico
+     * @return O número de meses descartados ou -1 em caso de erro
+     */
+    public int descartarAnteriores(YearMonth limite) {
+        if (limite.isAfter(YearMonth.now())) {
+            System.err.println("Erro ao descartar partições de movimentação: o mês atual não pode ser descartado");
+            return -1;
+        }
+        int descartados = 0;
+
+        try (Connection conn = connectionFactory.getConnectionDoPool()) {
+            conn.setAutoCommit(true);
+            if (!TravaEsquema.travar(conn, ESPERA_TRAVA_S)) {
+                System.err.println("Erro ao descartar partições de movimentação: trava não obtida em "
+                        + ESPERA_TRAVA_S + " s");
+                return -1;
+            }
+            try {
+                for (String tabela : TABELAS) {
+                    List<String> antigas = new ArrayList<>();
+                    for (YearMonth mes : listarMeses(conn, tabela)) {
+                        if (mes.isBefore(limite)) {
+                            antigas.add(nomeParticao(mes));
+                        }
+                    }
+                    if (antigas.isEmpty()) {
+                        continue;
+                    }
+                    executar(conn, "ALTER TABLE " + tabela + " DROP PARTITION " + String.join(", ", antigas));
+                    descartados = Math.max(descartados, antigas.size());
+                }
+                return descartados;
+            } finally {
+                TravaEsquema.liberar(conn);
+            }
+        } catch (SQLException ex) {
+            System.err.println("Erro ao descartar partições de movimentação: " + ex.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * Retira um mês do histórico para tabelas de arquivo ({@code movimentacao_arquivo_AAAAMM} e
+     * {@code movimentacao_observacao_arquivo_AAAAMM}): cada partição é trocada por uma tabela
+     * vazia de mesma estrutura ({@code EXCHANGE PARTITION}, sem cópia de linhas) e removida.
+     * Só meses anteriores ao atual podem ser arquivados.
+     * Pode ser repetido depois de uma interrupção: uma tabela de arquivo já criada e vazia é
+     * reaproveitada, e uma troca já feita só tem a partição (vazia) removida.
+     *
+     * @param mes O mês a ser arquivado
+     * @return true se o mês foi arquivado, false se não houver partição do mês ou ocorrer um erro
+     */
+    public boolean arquivar(YearMonth mes) {
+        if (!mes.isBefore(YearMonth.now())) {
+            System.err.println("Erro ao arquivar partição de movimentação: só meses anteriores ao atual podem ser arquivados");
+            return false;
+        }
+        String particao = nomeParticao(mes);
+
+        try (Connection conn = connectionFactory.getConnectionDoPool()) {
+            conn.setAutoCommit(true);
+            if (!TravaEsquema.travar(conn, ESPERA_TRAVA_S)) {
+                System.err.println("Erro ao arquivar partição de movimentação: trava não obtida em "
+                        + ESPERA_TRAVA_S + " s");
+                return false;
+            }
+            try {
+                boolean arquivado = false;
+                for (String tabela : TABELAS) {
+                    if (!listarMeses(conn, tabela).contains(mes)) {
+                        // Já arquivado (ou nunca particionado)
+                        continue;
+                    }
+                    String arquivo = tabela + "_arquivo_" + mes.format(FORMATO_MES);
+                    if (!tabelaExiste(conn, arquivo)) {
+                        executar(conn, "CREATE TABLE " + arquivo + " LIKE " + tabela);
+                    }
+                    if (!listarMeses(conn, arquivo).isEmpty()) {
+                        executar(conn, "ALTER TABLE " + arquivo + " REMOVE PARTITIONING");
+                    }
+                    if (vazia(conn, arquivo)) {
+                        executar(conn, "ALTER TABLE " + tabela + " EXCHANGE PARTITION " + particao + " WITH TABLE " + arquivo);
+                    } else if (!vazia(conn, tabela + " PARTITION (" + particao + ")")) {
+                        throw new SQLException("a tabela " + arquivo + " já tem linhas e a partição " + particao
+                                + " de " + tabela + " não está vazia");
+                    }
+                    // A partição, agora vazia, só é removida depois da troca
+                    executar(conn, "ALTER TABLE " + tabela + " DROP PARTITION " + particao);
+                    arquivado = true;
+                }
+                return arquivado;
+            } finally {
+                TravaEsquema.liberar(conn);
+            }
+        } catch (SQLException ex) {
+            System.err.println("Erro ao arquivar partição de movimentação: " + ex.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Lista os meses com partição na tabela, em ordem crescente, ignorando {@code p_futuro}.
+     */
+    private List<YearMonth> listarMeses(Connection conn, String tabela) throws SQLException {
+        List<YearMonth> meses = new ArrayList<>();
+        try (PreparedStatement stmt = connectionFactory.preparar(conn, ConsultaSql.PARTICAO_LISTAR)) {
+            stmt.setString(1, tabela);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    YearMonth mes = mesDaParticao(rs.getString(1));
+                    if (mes != null) {
+                        meses.add(mes);
+                    }
+                }
+            }
+        }
+        return meses;
+    }
+
+    private static String nomeParticao(YearMonth mes) {
+        return PREFIXO_PARTICAO + mes.format(FORMATO_MES);
+    }
+
+    private static YearMonth mesDaParticao(String nome) {
+        if (nome == null || !nome.startsWith(PREFIXO_PARTICAO) || PARTICAO_FUTURO.equals(nome)) {
+            return null;
+        }
+        try {
+            return YearMonth.parse(nome.substring(PREFIXO_PARTICAO.length()), FORMATO_MES);
+        } catch (DateTimeParseException ex) {
+            return null;
+        }
+    }
+
+    private boolean tabelaExiste(Connection conn, String tabela) throws SQLException {
+        try (PreparedStatement stmt = connectionFactory.preparar(conn, ConsultaSql.TABELA_EXISTE)) {
+            stmt.setString(1, tabela);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    /**
+     * Verifica se a origem (tabela ou partição, ex: {@code movimentacao PARTITION (p_202401)})
+     * não tem linhas.
+     */
+    private boolean vazia(Connection conn, String origem) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT 1 FROM " + origem + " LIMIT 1")) {
+            return !rs.next();
+        }
+    }
+
+    private void executar(Connection conn, String instrucao) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(instrucao);
+        }
+    }
+}
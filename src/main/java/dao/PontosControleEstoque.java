@@ -0,0 +1,127 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pontos de controle diários do estoque: o estoque de cada produto no início de cada dia,
+ * gravado em {@code estoque_ponto_controle} (ver {@code db/migracao/V007}).
+ *
+ * Com eles, {@link MovimentacaoDAO#consultarEstoqueEm} responde o estoque em uma data passada
+ * somando só as movimentações do dia, em vez de repassar o histórico desde o início.
+ * {@link #iniciar()} grava o ponto do dia atual no servidor e verifica a virada do dia de hora em hora; com
+ * vários terminais, o primeiro a gravar o ponto do dia vale e os demais não alteram nada.
+ * Movimentações retroativas corrigem os pontos posteriores a elas ao serem gravadas
+ * (procedure {@code registrar_movimentacao} e {@link MovimentacaoDAO#gravarLote}).
+ */
+public final class PontosControleEstoque {
+
+    // Intervalo entre verificações da virada do dia
+    private static final long INTERVALO_VERIFICACAO_MS = 60 * 60 * 1000;
+
+    private static final PontosControleEstoque INSTANCIA = new PontosControleEstoque();
+
+    private final ConnectionFactory connectionFactory;
+    private ScheduledExecutorService verificador;
+
+    // Último dia com ponto de controle gravado por este processo
+    private LocalDate ultimoDia;
+
+    private PontosControleEstoque() {
+        this.connectionFactory = ConnectionFactory.getInstance();
+    }
+
+    /**
+     * Obtém os pontos de controle compartilhados pelo processo.
+     *
+     * @return A instância única
+     */
+    public static PontosControleEstoque getInstance() {
+        return INSTANCIA;
+    }
+
+    /**
+     * Grava o ponto de controle do dia atual e agenda a verificação da virada do dia.
+     * Chamadas seguintes não têm efeito.
+     */
+    public synchronized void iniciar() {
+        if (verificador != null) {
+            return;
+        }
+        verificar();
+        verificador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "pontos-controle-estoque");
+            t.setDaemon(true);
+            return t;
+        });
+        verificador.scheduleWithFixedDelay(this::verificar, INTERVALO_VERIFICACAO_MS, INTERVALO_VERIFICACAO_MS,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Grava o ponto de controle do início do dia, se ainda não foi gravado por este processo.
+     * O dia é o do relógio do servidor, não o do terminal: assim nenhum ponto é posterior ao
+     * início do dia atual no servidor, o limite usado para decidir se uma movimentação é
+     * retroativa ({@link #diaAtual}). Em caso de erro, a próxima verificação tenta de novo.
+     */
+    private synchronized void verificar() {
+        LocalDate hoje;
+        try (Connection conn = connectionFactory.getConnectionDoPool()) {
+            conn.setAutoCommit(true);
+            hoje = diaAtual(conn);
+        } catch (SQLException ex) {
+            System.err.println("Erro ao consultar a data do servidor: " + ex.getMessage());
+            return;
+        }
+        if (!hoje.equals(ultimoDia) && criar(hoje.atStartOfDay()) >= 0) {
+            ultimoDia = hoje;
+        }
+    }
+
+    /**
+     * Consulta o dia atual pelo relógio do servidor. Uma movimentação anterior ao início desse
+     * dia é retroativa e corrige os pontos posteriores a ela; as demais não têm ponto posterior.
+     * É o mesmo teste da procedure {@code registrar_movimentacao} (ver {@code db/migracao/V010}).
+     *
+     * @param conn A conexão com o banco de dados
+     * @return O dia atual no servidor
+     * @throws SQLException Se ocorrer um erro ao consultar
+     */
+    static LocalDate diaAtual(Connection conn) throws SQLException {
+        try (PreparedStatement stmt = ConnectionFactory.getInstance().preparar(conn, ConsultaSql.PONTO_CONTROLE_DIA_ATUAL);
+             ResultSet rs = stmt.executeQuery()) {
+            rs.next();
+            return rs.getDate(1).toLocalDate();
+        }
+    }
+
+    /**
+     * Grava o ponto de controle de todos os produtos no instante informado: o estoque atual
+     * menos a variação das movimentações a partir do instante. Produtos que já têm ponto nesse
+     * instante são mantidos. O instante não deve ser posterior ao início do dia atual no
+     * servidor: movimentações desse dia não corrigem pontos.
+     *
+     * @param dataHora O instante do ponto de controle
+     * @return O número de pontos gravados ou -1 em caso de erro
+     */
+    public int criar(LocalDateTime dataHora) {
+        try (Connection conn = connectionFactory.getConnectionDoPool()) {
+            conn.setAutoCommit(true);
+            try (PreparedStatement stmt = connectionFactory.preparar(conn, ConsultaSql.PONTO_CONTROLE_CRIAR)) {
+                stmt.setTimestamp(1, MovimentacaoDAO.dataHoraBanco(dataHora));
+                stmt.setTimestamp(2, MovimentacaoDAO.dataHoraBanco(dataHora));
+                return stmt.executeUpdate();
+            }
+        } catch (SQLException ex) {
+            System.err.println("Erro ao gravar pontos de controle do estoque: " + ex.getMessage());
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,360 @@
+package dao;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool de conexões JDBC compartilhado por todas as DAOs.
+ * Mantém um número limitado de conexões físicas abertas e as reaproveita,
+ * evitando o custo de abrir uma nova conexão com o MySQL a cada operação.
+ *
+ * Recursos:
+ *  - tamanho máximo limitado (chamadas aguardam até o tempo de espera configurado)
+ *  - remoção de conexões ociosas há muito tempo, preservando um mínimo ocioso
+ *  - validação da conexão ao ser emprestada, quando ficou ociosa por algum tempo
+ *  - detecção de vazamento (conexões emprestadas e não devolvidas)
+ *  - cache de statements preparados por conexão física ({@link CacheStatements})
+ *  - estatísticas de uso através de {@link #getEstatisticas()}
+ */
+public class PoolConexoes {
+
+    // Configuração do pool
+    private final String url;
+    private final String usuario;
+    private final String senha;
+    private final int tamanhoMaximo;
+    private final int minimoOcioso;
+    private final long tempoMaximoOciosoMs;
+    private final long tempoEsperaMs;
+    private final long validarAposOciosoMs;
+    private final long limiteVazamentoMs;
+    private final int capacidadeCacheStatements;
+
+    // Estado do pool
+    private final LinkedBlockingDeque<ConexaoPool> ociosas = new LinkedBlockingDeque<>();
+    private final Set<ConexaoPool> emprestadas = ConcurrentHashMap.newKeySet();
+    private final Semaphore permissoes;
+    private final ScheduledExecutorService manutencao;
+    private volatile boolean encerrado;
+
+    // Contadores para as estatísticas
+    private final AtomicInteger total = new AtomicInteger();
+    private final AtomicLong criadas = new AtomicLong();
+    private final AtomicLong destruidas = new AtomicLong();
+    private final AtomicLong emprestimos = new AtomicLong();
+    private final AtomicLong tempoEsperaTotalNs = new AtomicLong();
+    private final AtomicLong esgotamentos = new AtomicLong();
+    private final AtomicLong vazamentos = new AtomicLong();
+    private final AtomicLong statementsAcertos = new AtomicLong();
+    private final AtomicLong statementsFalhas = new AtomicLong();
+    private final AtomicLong statementsDescartes = new AtomicLong();
+
+    /**
+     * Cria o pool e agenda a tarefa de manutenção (remoção de ociosas e detecção de vazamentos).
+     *
+     * @param url URL JDBC do banco de dados
+     * @param usuario Usuário do banco
+     * @param senha Senha do banco
+     * @param tamanhoMaximo Número máximo de conexões físicas abertas
+     * @param minimoOcioso Número mínimo de conexões ociosas mantidas abertas
+     * @param tempoMaximoOciosoMs Tempo após o qual uma conexão ociosa pode ser fechada
+     * @param tempoEsperaMs Tempo máximo de espera por uma conexão quando o pool está esgotado
+     * @param validarAposOciosoMs Conexões ociosas há mais que este tempo são validadas ao serem emprestadas
+     * @param limiteVazamentoMs Tempo de empréstimo após o qual um vazamento é reportado (0 desativa)
+     * @param capacidadeCacheStatements Número máximo de statements preparados mantidos por conexão
+     */
+    public PoolConexoes(String url, String usuario, String senha, int tamanhoMaximo, int minimoOcioso,
+                        long tempoMaximoOciosoMs, long tempoEsperaMs, long validarAposOciosoMs,
+                        long limiteVazamentoMs, int capacidadeCacheStatements) {
+        this.url = url;
+        this.usuario = usuario;
+        this.senha = senha;
+        this.tamanhoMaximo = tamanhoMaximo;
+        this.minimoOcioso = Math.min(minimoOcioso, tamanhoMaximo);
+        this.tempoMaximoOciosoMs = tempoMaximoOciosoMs;
+        this.tempoEsperaMs = tempoEsperaMs;
+        this.validarAposOciosoMs = validarAposOciosoMs;
+        this.limiteVazamentoMs = limiteVazamentoMs;
+        this.capacidadeCacheStatements = capacidadeCacheStatements;
+        this.permissoes = new Semaphore(tamanhoMaximo, true);
+
+        this.manutencao = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "pool-conexoes-manutencao");
+            t.setDaemon(true);
+            return t;
+        });
+        long intervalo = Math.max(1000, Math.min(tempoMaximoOciosoMs, 30_000) / 2);
+        manutencao.scheduleWithFixedDelay(this::executarManutencao, intervalo, intervalo, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Empresta uma conexão do pool. A conexão deve ser fechada com {@code close()},
+     * o que a devolve ao pool em vez de encerrar a conexão física.
+     *
+     * @return Uma conexão pronta para uso
+     * @throws SQLException Se o pool estiver esgotado após o tempo de espera ou o banco estiver indisponível
+     */
+    public Connection getConnection() throws SQLException {
+        if (encerrado) {
+            throw new SQLException("Pool de conexões encerrado");
+        }
+
+        long inicio = System.nanoTime();
+        try {
+            if (!permissoes.tryAcquire(tempoEsperaMs, TimeUnit.MILLISECONDS)) {
+                esgotamentos.incrementAndGet();
+                throw new SQLTransientConnectionException("Tempo esgotado aguardando conexão do pool ("
+                        + tamanhoMaximo + " conexões em uso)");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrompido aguardando conexão do pool", ex);
+        }
+
+        try {
+            ConexaoPool conexao = obterConexaoValida();
+            tempoEsperaTotalNs.addAndGet(System.nanoTime() - inicio);
+            emprestimos.incrementAndGet();
+
+            conexao.emprestadaEm = System.currentTimeMillis();
+            conexao.origem = limiteVazamentoMs > 0 ? new Throwable("Conexão emprestada aqui") : null;
+            conexao.vazamentoReportado = false;
+            emprestadas.add(conexao);
+            return criarProxy(conexao);
+        } catch (SQLException | RuntimeException ex) {
+            permissoes.release();
+            throw ex;
+        }
+    }
+
+    /**
+     * Retorna uma conexão ociosa válida ou abre uma nova conexão física.
+     */
+    private ConexaoPool obterConexaoValida() throws SQLException {
+        ConexaoPool conexao;
+        while ((conexao = ociosas.pollFirst()) != null) {
+            long ociosaMs = System.currentTimeMillis() - conexao.devolvidaEm;
+            if (ociosaMs < validarAposOciosoMs || validar(conexao)) {
+                return conexao;
+            }
+            destruir(conexao);
+        }
+        return criar();
+    }
+
+    /**
+     * Verifica se a conexão física ainda responde.
+     */
+    private boolean validar(ConexaoPool conexao) {
+        try {
+            return conexao.fisica.isValid(2);
+        } catch (SQLException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Abre uma nova conexão física com o banco de dados.
+     */
+    private ConexaoPool criar() throws SQLException {
+        Connection fisica = DriverManager.getConnection(url, usuario, senha);
+        total.incrementAndGet();
+        criadas.incrementAndGet();
+        return new ConexaoPool(fisica, new CacheStatements(fisica, capacidadeCacheStatements,
+                statementsAcertos, statementsFalhas, statementsDescartes));
+    }
+
+    /**
+     * Fecha definitivamente a conexão física.
+     */
+    private void destruir(ConexaoPool conexao) {
+        total.decrementAndGet();
+        destruidas.incrementAndGet();
+        conexao.cache.fechar();
+        try {
+            conexao.fisica.close();
+        } catch (SQLException ex) {
+            System.err.println("Erro ao fechar conexão do pool: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Devolve a conexão ao pool, restaurando o estado padrão da sessão.
+     */
+    private void devolver(ConexaoPool conexao) {
+        emprestadas.remove(conexao);
+        conexao.cache.liberarTodos();
+        try {
+            boolean reutilizavel = !encerrado && !conexao.fisica.isClosed();
+            if (reutilizavel && !conexao.fisica.getAutoCommit()) {
+                // Transação esquecida aberta: desfaz para não vazar para o próximo usuário
+                conexao.fisica.rollback();
+                conexao.fisica.setAutoCommit(true);
+            }
+            if (reutilizavel && conexao.fisica.isReadOnly()) {
+                conexao.fisica.setReadOnly(false);
+            }
+            if (reutilizavel) {
+                conexao.devolvidaEm = System.currentTimeMillis();
+                ociosas.addFirst(conexao);
+            } else {
+                destruir(conexao);
+            }
+        } catch (SQLException ex) {
+            System.err.println("Conexão descartada ao ser devolvida: " + ex.getMessage());
+            destruir(conexao);
+        } finally {
+            permissoes.release();
+        }
+    }
+
+    /**
+     * Remove conexões ociosas antigas e reporta possíveis vazamentos.
+     */
+    private void executarManutencao() {
+        try {
+            long agora = System.currentTimeMillis();
+
+            // Remove as ociosas mais antigas (final da fila), preservando o mínimo configurado
+            ConexaoPool conexao;
+            while (ociosas.size() > minimoOcioso && (conexao = ociosas.peekLast()) != null
+                    && agora - conexao.devolvidaEm > tempoMaximoOciosoMs) {
+                if (ociosas.removeLastOccurrence(conexao)) {
+                    destruir(conexao);
+                }
+            }
+
+            if (limiteVazamentoMs > 0) {
+                for (ConexaoPool emprestada : emprestadas) {
+                    if (!emprestada.vazamentoReportado && agora - emprestada.emprestadaEm > limiteVazamentoMs) {
+                        emprestada.vazamentoReportado = true;
+                        vazamentos.incrementAndGet();
+                        System.err.println("Possível vazamento de conexão: emprestada há "
+                                + (agora - emprestada.emprestadaEm) + " ms sem ser devolvida");
+                        if (emprestada.origem != null) {
+                            emprestada.origem.printStackTrace();
+                        }
+                    }
+                }
+            }
+        } catch (RuntimeException ex) {
+            System.err.println("Erro na manutenção do pool de conexões: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Encerra o pool, fechando todas as conexões ociosas.
+     * Conexões emprestadas são fechadas quando forem devolvidas.
+     */
+    public void encerrar() {
+        encerrado = true;
+        manutencao.shutdownNow();
+        ConexaoPool conexao;
+        while ((conexao = ociosas.pollFirst()) != null) {
+            destruir(conexao);
+        }
+    }
+
+    /**
+     * Obtém um retrato das estatísticas atuais do pool.
+     *
+     * @return As estatísticas do pool
+     */
+    public EstatisticasPool getEstatisticas() {
+        long qtdEmprestimos = emprestimos.get();
+        return new EstatisticasPool(
+                total.get(),
+                emprestadas.size(),
+                ociosas.size(),
+                permissoes.getQueueLength(),
+                tamanhoMaximo,
+                criadas.get(),
+                destruidas.get(),
+                qtdEmprestimos,
+                qtdEmprestimos == 0 ? 0 : tempoEsperaTotalNs.get() / qtdEmprestimos / 1_000,
+                esgotamentos.get(),
+                vazamentos.get(),
+                statementsAcertos.get(),
+                statementsFalhas.get(),
+                statementsDescartes.get());
+    }
+
+    /**
+     * Cria o proxy entregue às DAOs: {@code close()} devolve a conexão ao pool,
+     * {@code preparar()} usa o cache de statements e qualquer uso após a devolução gera erro.
+     */
+    private Connection criarProxy(ConexaoPool conexao) {
+        InvocationHandler handler = new InvocationHandler() {
+            private boolean fechada;
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                switch (method.getName()) {
+                    case "close":
+                        if (!fechada) {
+                            fechada = true;
+                            devolver(conexao);
+                        }
+                        return null;
+                    case "preparar":
+                        if (fechada) {
+                            throw new SQLException("Conexão já devolvida ao pool");
+                        }
+                        return conexao.cache.obter((ConsultaSql) args[0]);
+                    case "isClosed":
+                        return fechada || conexao.fisica.isClosed();
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "toString":
+                        return "ConexaoPool[" + conexao.fisica + "]";
+                    default:
+                        if (fechada) {
+                            throw new SQLException("Conexão já devolvida ao pool");
+                        }
+                        try {
+                            return method.invoke(conexao.fisica, args);
+                        } catch (InvocationTargetException ex) {
+                            throw ex.getCause();
+                        }
+                }
+            }
+        };
+        return (Connection) Proxy.newProxyInstance(PoolConexoes.class.getClassLoader(),
+                new Class<?>[]{Connection.class, ConexaoComCache.class}, handler);
+    }
+
+    /**
+     * Conexão física mantida pelo pool e os metadados do seu último empréstimo.
+     */
+    private static final class ConexaoPool {
+        final Connection fisica;
+        final CacheStatements cache;
+        volatile long emprestadaEm;
+        volatile long devolvidaEm;
+        volatile Throwable origem;
+        volatile boolean vazamentoReportado;
+
+        ConexaoPool(Connection fisica, CacheStatements cache) {
+            this.fisica = fisica;
+            this.cache = cache;
+            this.devolvidaEm = System.currentTimeMillis();
+        }
+    }
+}
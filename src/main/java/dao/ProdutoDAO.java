@@ -7,7 +7,7 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
+import java.sql.Types;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -16,21 +16,48 @@ import java.util.Map;
 /**
  * Classe de acesso a dados para a entidade Produto.
  * Implementa operações de CRUD (Create, Read, Update, Delete) e consultas específicas.
+ *
+ * {@link #consultar(int)} e {@link #listarTodos()} passam antes pelo {@link CacheProdutos};
+ * as escritas desta DAO e as movimentações de estoque invalidam os produtos afetados.
+ * Essas consultas e {@link #listarTodosPagina} trazem também a quantidade reservada de cada
+ * produto ({@link ReservasEstoque}), que não fica no cache.
  */
 public class ProdutoDAO {
 
-    // Instância da fábrica de conexões
+    // Produtos completos; a categoria é resolvida pelo mapa de categorias em memória
+    private static final ProdutoMapeador MAPEADOR_PRODUTO =
+            new ProdutoMapeador(MapaCategorias.getInstance()::obter);
+
+    // Produtos do relatório de preços; a categoria é resolvida pelo mapa de categorias em memória
+    private static final ProdutoPrecoMapeador MAPEADOR_PRODUTO_PRECO =
+            new ProdutoPrecoMapeador(MapaCategorias.getInstance()::obter);
+
+    // Fábrica de conexões compartilhada pelo processo
     private final ConnectionFactory connectionFactory;
 
+    // Cache de produtos compartilhado pelo processo
+    private final CacheProdutos cache;
+
+    // Estoques em memória compartilhados pelo processo
+    private final LivroEstoque livro;
+
+    // Reservas de estoque compartilhadas pelo processo
+    private final ReservasEstoque reservas;
+
     /**
-     * Construtor padrão que inicializa a fábrica de conexões.
+     * Construtor padrão que obtém a fábrica de conexões, o cache de produtos, o livro de estoque
+     * e as reservas compartilhados.
      */
     public ProdutoDAO() {
-        this.connectionFactory = new ConnectionFactory();
+        this.connectionFactory = ConnectionFactory.getInstance();
+        this.cache = CacheProdutos.getInstance();
+        this.livro = LivroEstoque.getInstance();
+        this.reservas = ReservasEstoque.getInstance();
     }
 
     /**
      * Insere um novo produto no banco de dados.
+     * O ID é alocado pelo {@link AlocadorIds} antes da inserção.
      *
      * @param produto O produto a ser inserido
      * @return O ID gerado para o produto inserido ou -1 em caso de erro
@@ -38,48 +65,41 @@ public class ProdutoDAO {
     public int inserir(Produto produto) {
         Connection conn = null;
         PreparedStatement stmt = null;
-        ResultSet rs = null;
-        int idGerado = -1;
 
         try {
-            // Obtém conexão com o banco de dados
+            // Aloca o ID e obtém conexão com o banco de dados
+            int idGerado = AlocadorIds.PRODUTO.proximo();
             conn = connectionFactory.getConnection();
 
-            // SQL para inserção
-            String sql = "INSERT INTO produto (nome, preco_unitario, unidade, quantidade_estoque, "
-                    + "quantidade_minima, quantidade_maxima, categoria_id) "
-                    + "VALUES (?, ?, ?, ?, ?, ?, ?)";
-
             // Prepara statement para inserção
-            stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
-            stmt.setString(1, produto.getNome());
-            stmt.setDouble(2, produto.getPrecoUnitario());
-            stmt.setString(3, produto.getUnidade());
-            stmt.setInt(4, produto.getQuantidadeEstoque());
-            stmt.setInt(5, produto.getQuantidadeMinima());
-            stmt.setInt(6, produto.getQuantidadeMaxima());
-            stmt.setInt(7, produto.getCategoria().getId());
+            stmt = connectionFactory.preparar(conn, ConsultaSql.PRODUTO_INSERIR);
+            stmt.setInt(1, idGerado);
+            stmt.setString(2, produto.getNome());
+            stmt.setDouble(3, produto.getPrecoUnitario());
+            stmt.setString(4, produto.getUnidade());
+            stmt.setInt(5, produto.getQuantidadeEstoque());
+            stmt.setInt(6, produto.getQuantidadeMinima());
+            stmt.setInt(7, produto.getQuantidadeMaxima());
+            stmt.setInt(8, produto.getCategoria().getId());
 
             // Executa a inserção
             int linhasAfetadas = stmt.executeUpdate();
 
             // Verifica se a inserção foi bem-sucedida
             if (linhasAfetadas > 0) {
-                // Obtém o ID gerado
-                rs = stmt.getGeneratedKeys();
-                if (rs.next()) {
-                    idGerado = rs.getInt(1);
-                    produto.setId(idGerado);
-                }
+                produto.setId(idGerado);
+                int estoque = produto.getQuantidadeEstoque();
+                Transacao.aposConfirmar(() -> livro.definir(idGerado, estoque));
+                cache.invalidar(idGerado);
+                return idGerado;
             }
-
-            return idGerado;
+            return -1;
         } catch (SQLException ex) {
             System.err.println("Erro ao inserir produto: " + ex.getMessage());
             return -1;
         } finally {
             // Fecha recursos
-            fecharRecursos(rs, stmt, conn);
+            fecharRecursos(null, stmt, conn);
         }
     }
 
@@ -97,13 +117,8 @@ public class ProdutoDAO {
             // Obtém conexão com o banco de dados
             conn = connectionFactory.getConnection();
 
-            // SQL para atualização
-            String sql = "UPDATE produto SET nome = ?, preco_unitario = ?, unidade = ?, "
-                    + "quantidade_estoque = ?, quantidade_minima = ?, quantidade_maxima = ?, "
-                    + "categoria_id = ? WHERE id = ?";
-
             // Prepara statement para atualização
-            stmt = conn.prepareStatement(sql);
+            stmt = connectionFactory.preparar(conn, ConsultaSql.PRODUTO_ATUALIZAR);
             stmt.setString(1, produto.getNome());
             stmt.setDouble(2, produto.getPrecoUnitario());
             stmt.setString(3, produto.getUnidade());
@@ -117,7 +132,14 @@ public class ProdutoDAO {
             int linhasAfetadas = stmt.executeUpdate();
 
             // Verifica se a atualização foi bem-sucedida
-            return linhasAfetadas > 0;
+            if (linhasAfetadas > 0) {
+                cache.invalidar(produto.getId());
+                int produtoId = produto.getId();
+                int estoque = produto.getQuantidadeEstoque();
+                Transacao.aposConfirmar(() -> livro.definir(produtoId, estoque));
+                return true;
+            }
+            return false;
         } catch (SQLException ex) {
             System.err.println("Erro ao atualizar produto: " + ex.getMessage());
             return false;
@@ -129,6 +151,7 @@ public class ProdutoDAO {
 
     /**
      * Exclui um produto do banco de dados.
+     * Produtos com movimentações no histórico não são excluídos.
      *
      * @param id O ID do produto a ser excluído
      * @return true se a exclusão foi bem-sucedida, false caso contrário
@@ -141,18 +164,21 @@ public class ProdutoDAO {
             // Obtém conexão com o banco de dados
             conn = connectionFactory.getConnection();
 
-            // SQL para exclusão
-            String sql = "DELETE FROM produto WHERE id = ?";
-
             // Prepara statement para exclusão
-            stmt = conn.prepareStatement(sql);
+            stmt = connectionFactory.preparar(conn, ConsultaSql.PRODUTO_EXCLUIR);
             stmt.setInt(1, id);
+            stmt.setInt(2, id);
 
             // Executa a exclusão
             int linhasAfetadas = stmt.executeUpdate();
 
             // Verifica se a exclusão foi bem-sucedida
-            return linhasAfetadas > 0;
+            if (linhasAfetadas > 0) {
+                cache.invalidar(id);
+                Transacao.aposConfirmar(() -> livro.remover(id));
+                return true;
+            }
+            return false;
         } catch (SQLException ex) {
             System.err.println("Erro ao excluir produto: " + ex.getMessage());
             return false;
@@ -169,26 +195,24 @@ public class ProdutoDAO {
      * @return O produto encontrado ou null se não existir
      */
     public Produto consultar(int id) {
+        boolean usarCache = cache.disponivel();
+        Produto produto = usarCache ? cache.obter(id) : null;
+        if (produto != null) {
+            preencherReserva(produto);
+            return produto;
+        }
+
         Connection conn = null;
         PreparedStatement stmt = null;
         ResultSet rs = null;
-        Produto produto = null;
+        long versaoCache = cache.getVersao();
 
         try {
             // Obtém conexão com o banco de dados
             conn = connectionFactory.getConnection();
 
-            // SQL para consulta
-            String sql = "SELECT p.id, p.nome, p.preco_unitario, p.unidade, p.quantidade_estoque, "
-                    + "p.quantidade_minima, p.quantidade_maxima, p.categoria_id, "
-                    + "c.nome AS categoria_nome, c.tamanho AS categoria_tamanho, "
-                    + "c.embalagem AS categoria_embalagem "
-                    + "FROM produto p "
-                    + "JOIN categoria c ON p.categoria_id = c.id "
-                    + "WHERE p.id = ?";
-
             // Prepara statement para consulta
-            stmt = conn.prepareStatement(sql);
+            stmt = connectionFactory.preparar(conn, ConsultaSql.PRODUTO_CONSULTAR);
             stmt.setInt(1, id);
 
             // Executa a consulta
@@ -196,23 +220,11 @@ public class ProdutoDAO {
 
             // Verifica se encontrou o produto
             if (rs.next()) {
-                // Popula Categoria
-                Categoria categoria = new Categoria();
-                categoria.setId(rs.getInt("categoria_id"));
-                categoria.setNome(rs.getString("categoria_nome"));
-                categoria.setTamanho(rs.getString("categoria_tamanho"));
-                categoria.setEmbalagem(rs.getString("categoria_embalagem"));
-
-                // Popula Produto
-                produto = new Produto();
-                produto.setId(rs.getInt("id"));
-                produto.setNome(rs.getString("nome"));
-                produto.setPrecoUnitario(rs.getDouble("preco_unitario"));
-                produto.setUnidade(rs.getString("unidade"));
-                produto.setQuantidadeEstoque(rs.getInt("quantidade_estoque"));
-                produto.setQuantidadeMinima(rs.getInt("quantidade_minima"));
-                produto.setQuantidadeMaxima(rs.getInt("quantidade_maxima"));
-                produto.setCategoria(categoria);
+                produto = MAPEADOR_PRODUTO.mapear(rs);
+                if (usarCache) {
+                    cache.guardar(produto, versaoCache);
+                }
+                preencherReserva(produto);
             }
 
             return produto;
@@ -231,53 +243,40 @@ public class ProdutoDAO {
      * @return Uma lista com todos os produtos
      */
     public List<Produto> listarTodos() {
+        boolean usarCache = cache.disponivel();
+        List<Produto> produtos = usarCache ? cache.obterTodos() : null;
+        if (produtos != null) {
+            produtos.forEach(this::preencherReserva);
+            return produtos;
+        }
+
         Connection conn = null;
         PreparedStatement stmt = null;
         ResultSet rs = null;
-        List<Produto> produtos = new ArrayList<>();
+        long versaoCache = cache.getVersao();
+        produtos = new ArrayList<>();
 
         try {
             // Obtém conexão com o banco de dados
             conn = connectionFactory.getConnection();
 
-            // SQL para listar todos os produtos
-            String sql = "SELECT p.id, p.nome, p.preco_unitario, p.unidade, p.quantidade_estoque, "
-                    + "p.quantidade_minima, p.quantidade_maxima, p.categoria_id, "
-                    + "c.nome AS categoria_nome, c.tamanho AS categoria_tamanho, "
-                    + "c.embalagem AS categoria_embalagem "
-                    + "FROM produto p "
-                    + "JOIN categoria c ON p.categoria_id = c.id "
-                    + "ORDER BY p.id";
-
             // Prepara statement para consulta
-            stmt = conn.prepareStatement(sql);
+            stmt = connectionFactory.preparar(conn, ConsultaSql.PRODUTO_LISTAR_TODOS);
 
             // Executa a consulta
             rs = stmt.executeQuery();
 
             // Percorre os resultados
             while (rs.next()) {
-                // Popula Categoria
-                Categoria categoria = new Categoria();
-                categoria.setId(rs.getInt("categoria_id"));
-                categoria.setNome(rs.getString("categoria_nome"));
-                categoria.setTamanho(rs.getString("categoria_tamanho"));
-                categoria.setEmbalagem(rs.getString("categoria_embalagem"));
-
-                // Popula Produto
-                Produto produto = new Produto();
-                produto.setId(rs.getInt("id"));
-                produto.setNome(rs.getString("nome"));
-                produto.setPrecoUnitario(rs.getDouble("preco_unitario"));
-                produto.setUnidade(rs.getString("unidade"));
-                produto.setQuantidadeEstoque(rs.getInt("quantidade_estoque"));
-                produto.setQuantidadeMinima(rs.getInt("quantidade_minima"));
-                produto.setQuantidadeMaxima(rs.getInt("quantidade_maxima"));
-                produto.setCategoria(categoria);
+                Produto produto = MAPEADOR_PRODUTO.mapear(rs);
 
                 produtos.add(produto);
             }
 
+            if (usarCache) {
+                cache.guardarTodos(produtos, versaoCache);
+            }
+            produtos.forEach(this::preencherReserva);
             return produtos;
         } catch (SQLException ex) {
             System.err.println("Erro ao listar produtos: " + ex.getMessage());
@@ -288,6 +287,43 @@ public class ProdutoDAO {
         }
     }
 
+    /**
+     * Lista uma página de produtos, em ordem de ID, usando paginação por chave:
+     * a página seguinte começa logo após o último produto da página anterior,
+     * de modo que qualquer página custa o mesmo que a primeira.
+     *
+     * @param ultimo O último produto da página anterior, ou null para a primeira página
+     * @param tamanhoPagina Quantidade máxima de produtos na página
+     * @return Os produtos da página (menos que {@code tamanhoPagina} indica a última página)
+     */
+    public List<Produto> listarTodosPagina(Produto ultimo, int tamanhoPagina) {
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        List<Produto> produtos = new ArrayList<>();
+
+        try {
+            conn = connectionFactory.getConnection();
+            stmt = connectionFactory.preparar(conn, ConsultaSql.PRODUTO_LISTAR_PAGINA);
+            stmt.setInt(1, ultimo != null ? ultimo.getId() : 0);
+            stmt.setInt(2, tamanhoPagina);
+            rs = stmt.executeQuery();
+
+            while (rs.next()) {
+                Produto produto = MAPEADOR_PRODUTO.mapear(rs);
+                preencherReserva(produto);
+                produtos.add(produto);
+            }
+
+            return produtos;
+        } catch (SQLException ex) {
+            System.err.println("Erro ao listar página de produtos: " + ex.getMessage());
+            return produtos;
+        } finally {
+            fecharRecursos(rs, stmt, conn);
+        }
+    }
+
     /**
      * Reajusta os preços de todos os produtos em um determinado percentual.
      *
@@ -302,15 +338,14 @@ public class ProdutoDAO {
             // Obtém conexão com o banco de dados
             conn = connectionFactory.getConnection();
 
-            // SQL para reajuste de preços
-            String sql = "UPDATE produto SET preco_unitario = preco_unitario * (1 + ? / 100)";
-
             // Prepara statement para atualização
-            stmt = conn.prepareStatement(sql);
+            stmt = connectionFactory.preparar(conn, ConsultaSql.PRODUTO_REAJUSTAR_PRECOS);
             stmt.setDouble(1, percentual);
 
             // Executa a atualização
-            return stmt.executeUpdate();
+            int linhasAfetadas = stmt.executeUpdate();
+            cache.invalidarTodos();
+            return linhasAfetadas;
         } catch (SQLException ex) {
             System.err.println("Erro ao reajustar preços: " + ex.getMessage());
             return 0;
@@ -332,13 +367,14 @@ public class ProdutoDAO {
         PreparedStatement stmt = null;
 
         try {
-            conn = connectionFactory.getConnection(); // corrigido
-            String sql = "UPDATE produto SET preco_unitario = preco_unitario * (1 + ? / 100) WHERE id = ?";
-            stmt = conn.prepareStatement(sql);
+            conn = connectionFactory.getConnection();
+            stmt = connectionFactory.preparar(conn, ConsultaSql.PRODUTO_REAJUSTAR_PRECO_PORCENTAGEM);
             stmt.setDouble(1, percentual);
             stmt.setInt(2, idProduto);
 
-            return stmt.executeUpdate();
+            int linhasAfetadas = stmt.executeUpdate();
+            cache.invalidar(idProduto);
+            return linhasAfetadas;
         } catch (SQLException ex) {
             System.err.println("Erro ao reajustar por percentual: " + ex.getMessage());
             return 0;
@@ -359,13 +395,14 @@ public class ProdutoDAO {
         PreparedStatement stmt = null;
 
         try {
-            conn = connectionFactory.getConnection(); // corrigido
-            String sql = "UPDATE produto SET preco_unitario = ? WHERE id = ?";
-            stmt = conn.prepareStatement(sql);
+            conn = connectionFactory.getConnection();
+            stmt = connectionFactory.preparar(conn, ConsultaSql.PRODUTO_REAJUSTAR_PRECO_DIRETO);
             stmt.setDouble(1, novoValor);
             stmt.setInt(2, idProduto);
 
-            return stmt.executeUpdate();
+            int linhasAfetadas = stmt.executeUpdate();
+            cache.invalidar(idProduto);
+            return linhasAfetadas;
         } catch (SQLException ex) {
             System.err.println("Erro ao reajustar por valor direto: " + ex.getMessage());
             return 0;
@@ -374,8 +411,89 @@ public class ProdutoDAO {
         }
     }
 
+    /**
+     * Divide o estoque do produto em faixas, para produtos com muitas saídas simultâneas.
+     * Cada movimentação passa a alterar uma faixa sorteada em vez da linha do produto,
+     * e as consultas somam as faixas; o estoque total não muda.
+     *
+     * @param idProduto O ID do produto
+     * @param faixas O número de faixas (1 a 64)
+     * @return true se o estoque foi dividido, false caso contrário
+     */
+    public boolean dividirEstoqueEmFaixas(int idProduto, int faixas) {
+        return definirFaixasEstoque(idProduto, faixas, "dividir estoque em faixas");
+    }
+
+    /**
+     * Redistribui igualmente o estoque entre as faixas do produto, que tendem a se
+     * desequilibrar conforme as saídas sorteiam faixas diferentes.
+     *
+     * @param idProduto O ID do produto
+     * @return true se as faixas foram rebalanceadas, false caso contrário
+     */
+    public boolean rebalancearFaixasEstoque(int idProduto) {
+        return definirFaixasEstoque(idProduto, null, "rebalancear faixas de estoque");
+    }
+
+    /**
+     * Consolida as faixas do produto de volta em um único valor de estoque.
+     *
+     * @param idProduto O ID do produto
+     * @return true se as faixas foram consolidadas, false caso contrário
+     */
+    public boolean consolidarFaixasEstoque(int idProduto) {
+        return definirFaixasEstoque(idProduto, 0, "consolidar faixas de estoque");
+    }
+
+    /**
+     * Executa a procedure {@code definir_faixas_estoque} em uma transação,
+     * para que o produto e as faixas fiquem travados durante toda a redistribuição.
+     */
+    private boolean definirFaixasEstoque(int idProduto, Integer faixas, String operacao) {
+        Connection conn = null;
+        PreparedStatement stmt = null;
+
+        try {
+            conn = connectionFactory.getConnection();
+            conn.setAutoCommit(false);
+
+            stmt = connectionFactory.preparar(conn, ConsultaSql.PRODUTO_DEFINIR_FAIXAS_ESTOQUE);
+            stmt.setInt(1, idProduto);
+            if (faixas == null) {
+                stmt.setNull(2, Types.INTEGER);
+            } else {
+                stmt.setInt(2, faixas);
+            }
+            stmt.execute();
+
+            conn.commit();
+            return true;
+        } catch (SQLException ex) {
+            try {
+                if (conn != null) {
+                    conn.rollback();
+                }
+            } catch (SQLException rollbackEx) {
+                System.err.println("Erro ao desfazer transação: " + rollbackEx.getMessage());
+            }
+            System.err.println("Erro ao " + operacao + ": " + ex.getMessage());
+            return false;
+        } finally {
+            try {
+                if (conn != null) {
+                    conn.setAutoCommit(true);
+                }
+            } catch (SQLException ex) {
+                System.err.println("Erro ao restaurar auto-commit: " + ex.getMessage());
+            }
+            fecharRecursos(null, stmt, conn);
+        }
+    }
+
     /**
      * Lista os produtos que estão abaixo da quantidade mínima.
+     * A consulta usa o índice da coluna gerada {@code situacao_estoque}, então lê somente os
+     * produtos sinalizados como {@code 'Abaixo'} e os com estoque em faixas, e não o catálogo todo.
      *
      * @return Uma lista com os produtos abaixo da quantidade mínima
      */
@@ -389,41 +507,15 @@ public class ProdutoDAO {
             // Obtém conexão com o banco de dados
             conn = connectionFactory.getConnection();
 
-            // SQL para listar produtos abaixo do mínimo
-            String sql = "SELECT p.id, p.nome, p.preco_unitario, p.unidade, p.quantidade_estoque, "
-                    + "p.quantidade_minima, p.quantidade_maxima, p.categoria_id, "
-                    + "c.nome AS categoria_nome, c.tamanho AS categoria_tamanho, "
-                    + "c.embalagem AS categoria_embalagem "
-                    + "FROM produto p "
-                    + "JOIN categoria c ON p.categoria_id = c.id "
-                    + "WHERE p.quantidade_estoque < p.quantidade_minima "
-                    + "ORDER BY p.nome";
-
             // Prepara statement para consulta
-            stmt = conn.prepareStatement(sql);
+            stmt = connectionFactory.preparar(conn, ConsultaSql.PRODUTO_LISTAR_ABAIXO_MINIMO);
 
             // Executa a consulta
             rs = stmt.executeQuery();
 
             // Percorre os resultados
             while (rs.next()) {
-                // Popula Categoria
-                Categoria categoria = new Categoria();
-                categoria.setId(rs.getInt("categoria_id"));
-                categoria.setNome(rs.getString("categoria_nome"));
-                categoria.setTamanho(rs.getString("categoria_tamanho"));
-                categoria.setEmbalagem(rs.getString("categoria_embalagem"));
-
-                // Popula Produto
-                Produto produto = new Produto();
-                produto.setId(rs.getInt("id"));
-                produto.setNome(rs.getString("nome"));
-                produto.setPrecoUnitario(rs.getDouble("preco_unitario"));
-                produto.setUnidade(rs.getString("unidade"));
-                produto.setQuantidadeEstoque(rs.getInt("quantidade_estoque"));
-                produto.setQuantidadeMinima(rs.getInt("quantidade_minima"));
-                produto.setQuantidadeMaxima(rs.getInt("quantidade_maxima"));
-                produto.setCategoria(categoria);
+                Produto produto = MAPEADOR_PRODUTO.mapear(rs);
 
                 produtos.add(produto);
             }
@@ -440,6 +532,8 @@ public class ProdutoDAO {
 
     /**
      * Lista os produtos que estão acima da quantidade máxima.
+     * A consulta usa o índice da coluna gerada {@code situacao_estoque}, então lê somente os
+     * produtos sinalizados como {@code 'Acima'} e os com estoque em faixas, e não o catálogo todo.
      *
      * @return Uma lista com os produtos acima da quantidade máxima
      */
@@ -453,41 +547,15 @@ public class ProdutoDAO {
             // Obtém conexão com o banco de dados
             conn = connectionFactory.getConnection();
 
-            // SQL para listar produtos acima do máximo
-            String sql = "SELECT p.id, p.nome, p.preco_unitario, p.unidade, p.quantidade_estoque, "
-                    + "p.quantidade_minima, p.quantidade_maxima, p.categoria_id, "
-                    + "c.nome AS categoria_nome, c.tamanho AS categoria_tamanho, "
-                    + "c.embalagem AS categoria_embalagem "
-                    + "FROM produto p "
-                    + "JOIN categoria c ON p.categoria_id = c.id "
-                    + "WHERE p.quantidade_estoque > p.quantidade_maxima "
-                    + "ORDER BY p.nome";
-
             // Prepara statement para consulta
-            stmt = conn.prepareStatement(sql);
+            stmt = connectionFactory.preparar(conn, ConsultaSql.PRODUTO_LISTAR_ACIMA_MAXIMO);
 
             // Executa a consulta
             rs = stmt.executeQuery();
 
             // Percorre os resultados
             while (rs.next()) {
-                // Popula Categoria
-                Categoria categoria = new Categoria();
-                categoria.setId(rs.getInt("categoria_id"));
-                categoria.setNome(rs.getString("categoria_nome"));
-                categoria.setTamanho(rs.getString("categoria_tamanho"));
-                categoria.setEmbalagem(rs.getString("categoria_embalagem"));
-
-                // Popula Produto
-                Produto produto = new Produto();
-                produto.setId(rs.getInt("id"));
-                produto.setNome(rs.getString("nome"));
-                produto.setPrecoUnitario(rs.getDouble("preco_unitario"));
-                produto.setUnidade(rs.getString("unidade"));
-                produto.setQuantidadeEstoque(rs.getInt("quantidade_estoque"));
-                produto.setQuantidadeMinima(rs.getInt("quantidade_minima"));
-                produto.setQuantidadeMaxima(rs.getInt("quantidade_maxima"));
-                produto.setCategoria(categoria);
+                Produto produto = MAPEADOR_PRODUTO.mapear(rs);
 
                 produtos.add(produto);
             }
@@ -517,33 +585,11 @@ public class ProdutoDAO {
             // Obtém conexão com o banco de dados
             conn = connectionFactory.getConnection();
 
-            // SQL para listar produtos com preços
-            String sql = "SELECT p.id, p.nome, p.preco_unitario, p.unidade, p.quantidade_estoque, "
-                    + "c.id AS categoria_id, c.nome AS categoria_nome, c.tamanho, c.embalagem "
-                    + "FROM produto p "
-                    + "JOIN categoria c ON p.categoria_id = c.id "
-                    + "ORDER BY p.nome";
-
-            stmt = conn.prepareStatement(sql);
+            stmt = connectionFactory.preparar(conn, ConsultaSql.PRODUTO_LISTAR_COM_PRECOS);
             rs = stmt.executeQuery();
 
             while (rs.next()) {
-                Categoria categoria = new Categoria();
-                categoria.setId(rs.getInt("categoria_id"));
-                categoria.setNome(rs.getString("categoria_nome"));
-                categoria.setTamanho(rs.getString("tamanho"));
-                categoria.setEmbalagem(rs.getString("embalagem"));
-
-                Produto produto = new Produto();
-                produto.setId(rs.getInt("id"));
-                produto.setNome(rs.getString("nome"));
-                produto.setPrecoUnitario(rs.getDouble("preco_unitario"));
-                produto.setUnidade(rs.getString("unidade"));
-                produto.setQuantidadeEstoque(rs.getInt("quantidade_estoque"));
-                // Não são necessárias quantidade mínima e máxima aqui
-                produto.setQuantidadeMinima(0);
-                produto.setQuantidadeMaxima(0);
-                produto.setCategoria(categoria);
+                Produto produto = MAPEADOR_PRODUTO_PRECO.mapear(rs);
 
                 produtos.add(produto);
             }
@@ -558,6 +604,46 @@ public class ProdutoDAO {
         }
     }
 
+    /**
+     * Lista uma página de produtos com os seus preços unitários, em ordem de nome,
+     * usando paginação por chave (nome, id) a partir do último produto da página anterior.
+     *
+     * @param ultimo O último produto da página anterior, ou null para a primeira página
+     * @param tamanhoPagina Quantidade máxima de produtos na página
+     * @return Os produtos da página (menos que {@code tamanhoPagina} indica a última página)
+     */
+    public List<Produto> listarComPrecosPagina(Produto ultimo, int tamanhoPagina) {
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        List<Produto> produtos = new ArrayList<>();
+
+        try {
+            conn = connectionFactory.getConnection();
+            stmt = connectionFactory.preparar(conn, ConsultaSql.PRODUTO_LISTAR_COM_PRECOS_PAGINA);
+            // Na primeira página a chave ("", 0) vem antes de qualquer produto
+            String ultimoNome = ultimo != null ? ultimo.getNome() : "";
+            stmt.setString(1, ultimoNome);
+            stmt.setString(2, ultimoNome);
+            stmt.setInt(3, ultimo != null ? ultimo.getId() : 0);
+            stmt.setInt(4, tamanhoPagina);
+            rs = stmt.executeQuery();
+
+            while (rs.next()) {
+                Produto produto = MAPEADOR_PRODUTO_PRECO.mapear(rs);
+
+                produtos.add(produto);
+            }
+
+            return produtos;
+        } catch (SQLException ex) {
+            System.err.println("Erro ao listar página de produtos com preços: " + ex.getMessage());
+            return produtos;
+        } finally {
+            fecharRecursos(rs, stmt, conn);
+        }
+    }
+
     /**
      * Calcula o valor total do estoque, multiplicando o preço unitário pela quantidade em estoque de cada produto.
      *
@@ -573,9 +659,7 @@ public class ProdutoDAO {
             // Obtém conexão com o banco de dados
             conn = connectionFactory.getConnection();
 
-            // SQL para cálculo do valor total
-            String sql = "SELECT SUM(preco_unitario * quantidade_estoque) AS total FROM produto";
-            stmt = conn.prepareStatement(sql);
+            stmt = connectionFactory.preparar(conn, ConsultaSql.PRODUTO_VALOR_TOTAL_ESTOQUE);
             rs = stmt.executeQuery();
 
             if (rs.next()) {
@@ -607,35 +691,13 @@ public class ProdutoDAO {
             // Obtém conexão com o banco de dados
             conn = connectionFactory.getConnection();
 
-            // SQL para listar produtos agrupados por categoria
-            String sql = "SELECT p.id, p.nome, p.preco_unitario, p.unidade, p.quantidade_estoque, "
-                    + "p.quantidade_minima, p.quantidade_maxima, c.id AS categoria_id, "
-                    + "c.nome AS categoria_nome, c.tamanho, c.embalagem "
-                    + "FROM produto p "
-                    + "JOIN categoria c ON p.categoria_id = c.id "
-                    + "ORDER BY c.nome, p.nome";
-
-            stmt = conn.prepareStatement(sql);
+            stmt = connectionFactory.preparar(conn, ConsultaSql.PRODUTO_LISTAR_POR_CATEGORIA);
             rs = stmt.executeQuery();
 
             while (rs.next()) {
-                Categoria categoria = new Categoria();
-                categoria.setId(rs.getInt("categoria_id"));
-                categoria.setNome(rs.getString("categoria_nome"));
-                categoria.setTamanho(rs.getString("tamanho"));
-                categoria.setEmbalagem(rs.getString("embalagem"));
-
-                Produto produto = new Produto();
-                produto.setId(rs.getInt("id"));
-                produto.setNome(rs.getString("nome"));
-                produto.setPrecoUnitario(rs.getDouble("preco_unitario"));
-                produto.setUnidade(rs.getString("unidade"));
-                produto.setQuantidadeEstoque(rs.getInt("quantidade_estoque"));
-                produto.setQuantidadeMinima(rs.getInt("quantidade_minima"));
-                produto.setQuantidadeMaxima(rs.getInt("quantidade_maxima"));
-                produto.setCategoria(categoria);
-
-                mapa.computeIfAbsent(categoria, k -> new ArrayList<>()).add(produto);
+                Produto produto = MAPEADOR_PRODUTO.mapear(rs);
+
+                mapa.computeIfAbsent(produto.getCategoria(), k -> new ArrayList<>()).add(produto);
             }
 
             return mapa;
@@ -648,6 +710,23 @@ public class ProdutoDAO {
         }
     }
 
+    /**
+     * Obtém as estatísticas do cache de produtos (acertos, falhas, descartes e invalidações),
+     * úteis para dimensionar a sua capacidade.
+     *
+     * @return As estatísticas atuais do cache de produtos
+     */
+    public EstatisticasCacheProdutos getEstatisticasCache() {
+        return cache.getEstatisticas();
+    }
+
+    /**
+     * Define no produto a quantidade reservada no momento.
+     */
+    private void preencherReserva(Produto produto) {
+        produto.setQuantidadeReservada(reservas.getReservado(produto.getId()));
+    }
+
     /**
      * Fecha recursos de ResultSet, PreparedStatement e Connection.
      *
@@ -0,0 +1,91 @@
+package dao;
+
+import dao.mapeamento.Coluna;
+import dao.mapeamento.Projecao;
+import model.Categoria;
+import model.DocumentoEstoque;
+import model.Movimentacao;
+import model.Produto;
+
+/**
+ * Projeções SQL usadas pelas DAOs. Para cada uma é gerado, em tempo de compilação,
+ * um mapeador que lê as colunas pelo índice (ex: {@code ProdutoMapeador}).
+ * Os SELECTs do {@link ConsultaSql} usam a constante {@code COLUNAS} do mapeador,
+ * garantindo que a ordem consultada seja a mesma ordem lida.
+ *
+ * A categoria de produtos e movimentações não é consultada: apenas {@code categoria_id}
+ * é lido e resolvido pelo {@link MapaCategorias}, que mantém as categorias em memória.
+ */
+interface Projecoes {
+
+    /**
+     * Estoque total do produto {@code p}: {@code quantidade_estoque} mais as faixas de estoque,
+     * somadas apenas para produtos com o estoque dividido (ver {@code produto_estoque_faixa}).
+     */
+    String ESTOQUE_PRODUTO = "(p.quantidade_estoque + IF(p.faixas_estoque = 0, 0, "
+            + "(SELECT COALESCE(SUM(f.quantidade), 0) FROM produto_estoque_faixa f WHERE f.produto_id = p.id)))";
+
+    @Projecao(nome = "CategoriaMapeador", tipo = Categoria.class, colunas = {
+            @Coluna(sql = "c.id", propriedade = "id"),
+            @Coluna(sql = "c.nome", propriedade = "nome"),
+            @Coluna(sql = "c.tamanho", propriedade = "tamanho"),
+            @Coluna(sql = "c.embalagem", propriedade = "embalagem")
+    })
+    interface CategoriaCompleta {
+    }
+
+    @Projecao(nome = "ProdutoMapeador", tipo = Produto.class, colunas = {
+            @Coluna(sql = "p.id", propriedade = "id"),
+            @Coluna(sql = "p.nome", propriedade = "nome"),
+            @Coluna(sql = "p.preco_unitario", propriedade = "precoUnitario"),
+            @Coluna(sql = "p.unidade", propriedade = "unidade"),
+            @Coluna(sql = ESTOQUE_PRODUTO, propriedade = "quantidadeEstoque"),
+            @Coluna(sql = "p.quantidade_minima", propriedade = "quantidadeMinima"),
+            @Coluna(sql = "p.quantidade_maxima", propriedade = "quantidadeMaxima"),
+            @Coluna(sql = "p.categoria_id", propriedade = "categoria", referencia = true)
+    })
+    interface ProdutoCompleto {
+    }
+
+    // Sem quantidade mínima e máxima, que o relatório de preços não utiliza
+    @Projecao(nome = "ProdutoPrecoMapeador", tipo = Produto.class, colunas = {
+            @Coluna(sql = "p.id", propriedade = "id"),
+            @Coluna(sql = "p.nome", propriedade = "nome"),
+            @Coluna(sql = "p.preco_unitario", propriedade = "precoUnitario"),
+            @Coluna(sql = "p.unidade", propriedade = "unidade"),
+            @Coluna(sql = ESTOQUE_PRODUTO, propriedade = "quantidadeEstoque"),
+            @Coluna(sql = "p.categoria_id", propriedade = "categoria", referencia = true)
+    })
+    interface ProdutoPreco {
+    }
+
+    @Projecao(nome = "MovimentacaoMapeador", tipo = Movimentacao.class, colunas = {
+            @Coluna(sql = "m.id", propriedade = "id"),
+            @Coluna(sql = "ELT(m.tipo, 'Entrada', 'Saída')", propriedade = "tipo"),
+            @Coluna(sql = "m.quantidade", propriedade = "quantidade"),
+            @Coluna(sql = "m.data_hora", propriedade = "dataHora"),
+            @Coluna(sql = "COALESCE(o.observacao, '')", propriedade = "observacao"),
+            @Coluna(sql = "m.chave_idempotencia", propriedade = "chaveIdempotencia"),
+            @Coluna(sql = "p.id", propriedade = "produto.id"),
+            @Coluna(sql = "p.nome", propriedade = "produto.nome"),
+            @Coluna(sql = "p.preco_unitario", propriedade = "produto.precoUnitario"),
+            @Coluna(sql = "p.unidade", propriedade = "produto.unidade"),
+            @Coluna(sql = ESTOQUE_PRODUTO, propriedade = "produto.quantidadeEstoque"),
+            @Coluna(sql = "p.quantidade_minima", propriedade = "produto.quantidadeMinima"),
+            @Coluna(sql = "p.quantidade_maxima", propriedade = "produto.quantidadeMaxima"),
+            @Coluna(sql = "p.categoria_id", propriedade = "produto.categoria", referencia = true)
+    })
+    interface MovimentacaoCompleta {
+    }
+
+    // Cabeçalho do documento; os itens são lidos como movimentações
+    @Projecao(nome = "DocumentoEstoqueMapeador", tipo = DocumentoEstoque.class, colunas = {
+            @Coluna(sql = "d.id", propriedade = "id"),
+            @Coluna(sql = "d.tipo", propriedade = "tipo"),
+            @Coluna(sql = "d.data_hora", propriedade = "dataHora"),
+            @Coluna(sql = "d.observacao", propriedade = "observacao"),
+            @Coluna(sql = "d.chave_idempotencia", propriedade = "chaveIdempotencia")
+    })
+    interface DocumentoEstoqueCabecalho {
+    }
+}
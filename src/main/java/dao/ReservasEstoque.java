@@ -0,0 +1,292 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import model.Movimentacao;
+import model.Produto;
+import model.Reserva;
+
+/**
+ * Reservas de estoque para pedidos pendentes: seguram uma quantidade do produto sem registrar
+ * uma saída, diminuindo o estoque disponível mas não {@code quantidade_estoque}.
+ *
+ * As reservas ficam em {@code reserva_estoque} (ver {@code db/migracao/V011}), com a expiração
+ * pelo relógio do servidor, e valem para todos os terminais: a procedure {@code reservar_estoque}
+ * confere o estoque e grava a reserva com o produto travado, e uma saída
+ * ({@code registrar_movimentacao} ou {@link MovimentacaoDAO#gravarLote}) que deixaria o
+ * estoque abaixo das reservas ativas é recusada na mesma transação que a grava.
+ *
+ * O processo guarda o total reservado por produto, usado por {@link #getDisponivel} e pelas
+ * telas: as reservas feitas aqui entram e saem dele na hora, e o total é relido do banco a cada
+ * {@value #INTERVALO_ATUALIZACAO_MS} ms, com as reservas dos demais terminais. As expirações das
+ * reservas feitas aqui ficam em uma {@link RodaTemporizacao}, avançada a cada
+ * {@value #DURACAO_TICK_MS} ms, só para descontá-las desse total; no banco, uma reserva vencida
+ * deixa de contar sozinha e é excluída na próxima reserva do produto.
+ */
+public final class ReservasEstoque {
+
+    // Validade usada quando nenhuma é informada
+    public static final Duration VALIDADE_PADRAO = Duration.ofMinutes(30);
+
+    // Resolução das expirações
+    private static final long DURACAO_TICK_MS = 100;
+
+    // Intervalo entre as leituras do total reservado no banco
+    private static final long INTERVALO_ATUALIZACAO_MS = 10 * 1000;
+
+    private static final ReservasEstoque INSTANCIA = new ReservasEstoque();
+
+    private final ConnectionFactory connectionFactory = ConnectionFactory.getInstance();
+    private final RodaTemporizacao<Reserva> roda = new RodaTemporizacao<>(DURACAO_TICK_MS);
+
+    // Reservas ativas feitas por este processo, por ID, com a sua entrada na roda
+    private final ConcurrentHashMap<Long, RodaTemporizacao.Entrada<Reserva>> ativas = new ConcurrentHashMap<>();
+
+    // Total reservado por ID do produto, em todos os terminais
+    private volatile ConcurrentHashMap<Integer, Integer> reservados = new ConcurrentHashMap<>();
+
+    private final AtomicLong expiradas = new AtomicLong();
+
+    private ReservasEstoque() {
+        ScheduledExecutorService relogio = Executors.newScheduledThreadPool(2, r -> {
+            Thread t = new Thread(r, "reservas-estoque");
+            t.setDaemon(true);
+            return t;
+        });
+        relogio.scheduleAtFixedRate(this::expirar, DURACAO_TICK_MS, DURACAO_TICK_MS, TimeUnit.MILLISECONDS);
+        relogio.scheduleWithFixedDelay(this::atualizar, 0, INTERVALO_ATUALIZACAO_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Obtém as reservas de estoque compartilhadas pelo processo.
+     *
+     * @return A instância única das reservas
+     */
+    public static ReservasEstoque getInstance() {
+        return INSTANCIA;
+    }
+
+    /**
+     * Reserva a quantidade do produto pela validade padrão.
+     *
+     * @param produtoId O ID do produto
+     * @param quantidade A quantidade a ser reservada
+     * @return A reserva feita ou null se a quantidade for inválida ou o produto não existir
+     * @throws EstoqueInsuficienteException Se o estoque disponível não cobrir a quantidade
+     */
+    public Reserva reservar(int produtoId, int quantidade) {
+        return reservar(produtoId, quantidade, VALIDADE_PADRAO);
+    }
+
+    /**
+     * Reserva a quantidade do produto pela validade informada.
+     *
+     * @param produtoId O ID do produto
+     * @param quantidade A quantidade a ser reservada
+     * @param validade Por quanto tempo a reserva vale se não for confirmada nem liberada
+     * @return A reserva feita ou null se a quantidade for inválida, o produto não existir ou
+     *         ocorrer um erro
+     * @throws EstoqueInsuficienteException Se o estoque disponível não cobrir a quantidade
+     */
+    public Reserva reservar(int produtoId, int quantidade, Duration validade) {
+        if (quantidade <= 0) {
+            return null;
+        }
+
+        Reserva reserva;
+        try (Connection conn = connectionFactory.getConnection();
+             PreparedStatement stmt = connectionFactory.preparar(conn, ConsultaSql.RESERVA_CRIAR)) {
+            stmt.setInt(1, produtoId);
+            stmt.setInt(2, quantidade);
+            stmt.setLong(3, Math.max(1, validade.getSeconds()));
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    throw new SQLException("A procedure reservar_estoque não retornou resultado");
+                }
+                long id = rs.getLong(1);
+                boolean recusada = rs.wasNull();
+                int disponivel = rs.getInt(2);
+                if (rs.wasNull()) {
+                    return null;
+                }
+                if (recusada) {
+                    throw new EstoqueInsuficienteException(produtoId, quantidade, disponivel);
+                }
+                LocalDateTime agora = LocalDateTime.now();
+                reserva = new Reserva(id, produtoId, quantidade, agora, agora.plus(validade));
+            }
+        } catch (SQLException ex) {
+            System.err.println("Erro ao reservar estoque: " + ex.getMessage());
+            return null;
+        }
+
+        reservados.merge(produtoId, quantidade, Integer::sum);
+        // A reserva entra em ativas antes que o relógio possa expirá-la
+        synchronized (roda) {
+            ativas.put(reserva.getId(), roda.agendar(reserva, validade.toMillis()));
+        }
+        return reserva;
+    }
+
+    /**
+     * Libera a reserva antes da expiração (ex: pedido cancelado), excluindo-a do banco.
+     *
+     * @param reservaId O ID da reserva
+     * @return true se a reserva foi liberada, false se ela já tinha expirado ou sido liberada,
+     *         ou se ocorrer um erro (a reserva continua ativa até a validade)
+     */
+    public boolean liberar(long reservaId) {
+        RodaTemporizacao.Entrada<Reserva> entrada = ativas.remove(reservaId);
+        if (entrada == null) {
+            return false;
+        }
+        roda.cancelar(entrada);
+
+        try (Connection conn = connectionFactory.getConnection();
+             PreparedStatement stmt = connectionFactory.preparar(conn, ConsultaSql.RESERVA_EXCLUIR)) {
+            stmt.setLong(1, reservaId);
+            stmt.executeUpdate();
+        } catch (SQLException ex) {
+            System.err.println("Erro ao liberar reserva de estoque: " + ex.getMessage());
+            reativar(reservaId, entrada);
+            return false;
+        }
+        devolver(entrada.valor);
+        return true;
+    }
+
+    /**
+     * Confirma a reserva registrando a saída do produto no banco, que exclui a reserva na
+     * mesma transação. A saída é conferida contra o estoque menos as demais reservas ativas do
+     * produto: a própria reserva já segura a quantidade. A saída vai direto ao banco, e não ao
+     * {@link DiarioMovimentacoes}: só o banco pode descontá-la da reserva. Se a saída não puder
+     * ser registrada, a reserva continua ativa até a validade original.
+     *
+     * @param reservaId O ID da reserva
+     * @param observacao Observação da saída
+     * @return true se a saída foi registrada, false se a reserva não estiver ativa ou ocorrer um erro
+     */
+    public boolean confirmar(long reservaId, String observacao) {
+        RodaTemporizacao.Entrada<Reserva> entrada = ativas.remove(reservaId);
+        if (entrada == null) {
+            return false;
+        }
+        roda.cancelar(entrada);
+
+        Reserva reserva = entrada.valor;
+        Produto produto = new Produto();
+        produto.setId(reserva.getProdutoId());
+        Movimentacao saida = new Movimentacao(produto, "Saída", reserva.getQuantidade(), observacao);
+        try {
+            new MovimentacaoDAO().inserirOuLancar(saida, reservaId);
+        } catch (SQLException | EstoqueInsuficienteException ex) {
+            System.err.println("Erro ao confirmar reserva: " + ex.getMessage());
+            reativar(reservaId, entrada);
+            return false;
+        }
+        devolver(reserva);
+        return true;
+    }
+
+    /**
+     * Obtém o total reservado do produto, em todos os terminais, como visto pela última
+     * leitura do banco mais as reservas feitas e desfeitas aqui desde então.
+     *
+     * @param produtoId O ID do produto
+     * @return A quantidade reservada
+     */
+    public int getReservado(int produtoId) {
+        return reservados.getOrDefault(produtoId, 0);
+    }
+
+    /**
+     * Obtém o estoque disponível do produto: o estoque estimado menos o total reservado.
+     *
+     * @param produtoId O ID do produto
+     * @return O estoque disponível ou -1 se o produto não for conhecido
+     */
+    public int getDisponivel(int produtoId) {
+        int estoque = DiarioMovimentacoes.getInstance().getEstoqueEstimado(produtoId);
+        return estoque < 0 ? -1 : estoque - getReservado(produtoId);
+    }
+
+    /**
+     * Obtém quantas reservas estão ativas.
+     *
+     * @return O número de reservas ativas
+     */
+    public int getAtivas() {
+        return ativas.size();
+    }
+
+    /**
+     * Obtém quantas reservas expiraram sem serem confirmadas ou liberadas.
+     *
+     * @return O número de reservas expiradas
+     */
+    public long getExpiradas() {
+        return expiradas.get();
+    }
+
+    /**
+     * Avança a roda e devolve ao estoque disponível as reservas expiradas.
+     */
+    private void expirar() {
+        try {
+            List<Reserva> vencidas = roda.avancar();
+            for (Reserva reserva : vencidas) {
+                // Uma liberação ou confirmação concorrente pode ter vencido a disputa
+                if (ativas.remove(reserva.getId()) != null) {
+                    devolver(reserva);
+                    expiradas.incrementAndGet();
+                }
+            }
+        } catch (RuntimeException ex) {
+            // Não deixa a thread agendada morrer; o próximo tick tenta de novo
+            System.err.println("Erro ao expirar reservas de estoque: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Relê do banco o total reservado por produto, com as reservas dos demais terminais.
+     * Em caso de erro, mantém o total atual; a próxima leitura tenta de novo.
+     */
+    private void atualizar() {
+        ConcurrentHashMap<Integer, Integer> totais = new ConcurrentHashMap<>();
+        try (Connection conn = connectionFactory.getConnectionDoPool();
+             PreparedStatement stmt = connectionFactory.preparar(conn, ConsultaSql.RESERVA_TOTAIS);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                totais.put(rs.getInt(1), rs.getInt(2));
+            }
+        } catch (SQLException ex) {
+            System.err.println("Erro ao atualizar reservas de estoque: " + ex.getMessage());
+            return;
+        }
+        reservados = totais;
+    }
+
+    private void reativar(long reservaId, RodaTemporizacao.Entrada<Reserva> entrada) {
+        synchronized (roda) {
+            roda.reativar(entrada);
+            ativas.put(reservaId, entrada);
+        }
+    }
+
+    private void devolver(Reserva reserva) {
+        reservados.computeIfPresent(reserva.getProdutoId(), (id, reservado) -> {
+            int restante = reservado - reserva.getQuantidade();
+            return restante <= 0 ? null : restante;
+        });
+    }
+}
@@ -0,0 +1,197 @@
+package dao;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Roda de temporização hierárquica: agenda a expiração de um grande número de itens com custo
+ * constante para agendar, cancelar e avançar cada tick, sem percorrer os itens pendentes.
+ *
+ * São 4 níveis de 64 posições. O nível 0 tem uma posição por tick; cada nível seguinte cobre
+ * 64 vezes o intervalo do anterior. Um item fica no nível mais baixo que alcança o seu tick de
+ * expiração e desce de nível (cascata) quando o relógio chega à sua posição. Cada posição é uma
+ * lista duplamente encadeada, então o cancelamento só desliga o item da lista.
+ *
+ * O relógio usa {@link System#nanoTime()}, que não é afetado por ajustes do relógio do sistema.
+ * Os métodos são sincronizados; o avanço devolve os itens expirados para que quem chama os
+ * trate fora da trava.
+ *
+ * @param <T> O tipo dos itens agendados
+ */
+final class RodaTemporizacao<T> {
+
+    private static final int BITS_POR_NIVEL = 6;
+    private static final int POSICOES = 1 << BITS_POR_NIVEL;
+    private static final int MASCARA = POSICOES - 1;
+    private static final int NIVEIS = 4;
+
+    // Maior distância, em ticks, representável pela roda; prazos maiores são reposicionados na cascata
+    private static final long ALCANCE = 1L << (BITS_POR_NIVEL * NIVEIS);
+
+    private final long duracaoTickMs;
+    private final long origemMs;
+    private final Entrada<T>[][] posicoes;
+
+    private long tickAtual;
+    private int tamanho;
+
+    /**
+     * Cria a roda com o relógio começando agora.
+     *
+     * @param duracaoTickMs A duração de um tick, em milissegundos (resolução das expirações)
+     */
+    @SuppressWarnings("unchecked")
+    RodaTemporizacao(long duracaoTickMs) {
+        this.duracaoTickMs = duracaoTickMs;
+        this.origemMs = agoraMs();
+        this.posicoes = (Entrada<T>[][]) new Entrada<?>[NIVEIS][POSICOES];
+        for (int nivel = 0; nivel < NIVEIS; nivel++) {
+            for (int posicao = 0; posicao < POSICOES; posicao++) {
+                Entrada<T> sentinela = new Entrada<>(null, 0);
+                sentinela.anterior = sentinela;
+                sentinela.proxima = sentinela;
+                posicoes[nivel][posicao] = sentinela;
+            }
+        }
+    }
+
+    /**
+     * Agenda o item para expirar depois do prazo informado (arredondado para cima ao tick seguinte).
+     *
+     * @param valor O item a ser agendado
+     * @param prazoMs O prazo, em milissegundos a partir de agora
+     * @return A entrada do item, usada para cancelá-lo
+     */
+    synchronized Entrada<T> agendar(T valor, long prazoMs) {
+        long decorrido = agoraMs() - origemMs + Math.max(prazoMs, 0);
+        long tick = Math.max(tickAtual + 1, (decorrido + duracaoTickMs - 1) / duracaoTickMs);
+        Entrada<T> entrada = new Entrada<>(valor, tick);
+        posicionar(entrada);
+        tamanho++;
+        return entrada;
+    }
+
+    /**
+     * Cancela o item agendado.
+     *
+     * @param entrada A entrada devolvida por {@link #agendar}
+     * @return true se o item foi cancelado, false se já tinha expirado ou sido cancelado
+     */
+    synchronized boolean cancelar(Entrada<T> entrada) {
+        if (entrada.anterior == null) {
+            return false;
+        }
+        desligar(entrada);
+        tamanho--;
+        return true;
+    }
+
+    /**
+     * Agenda novamente uma entrada cancelada, com o mesmo tick de expiração
+     * (ou o próximo tick, se ele já passou).
+     *
+     * @param entrada A entrada a ser reagendada
+     * @return true se a entrada foi reagendada, false se ela ainda estava agendada
+     */
+    synchronized boolean reativar(Entrada<T> entrada) {
+        if (entrada.anterior != null) {
+            return false;
+        }
+        entrada.tick = Math.max(entrada.tick, tickAtual + 1);
+        posicionar(entrada);
+        tamanho++;
+        return true;
+    }
+
+    /**
+     * Avança o relógio até agora, descendo itens de nível e removendo os expirados.
+     *
+     * @return Os itens expirados, em ordem de expiração
+     */
+    synchronized List<T> avancar() {
+        long alvo = (agoraMs() - origemMs) / duracaoTickMs;
+        List<T> expirados = new ArrayList<>();
+        while (tickAtual < alvo) {
+            tickAtual++;
+
+            // Ao completar uma volta em um nível, desce para ele a próxima posição do nível acima
+            for (int nivel = 1; nivel < NIVEIS; nivel++) {
+                if (((tickAtual >>> (BITS_POR_NIVEL * (nivel - 1))) & MASCARA) != 0) {
+                    break;
+                }
+                cascatear(nivel, (int) ((tickAtual >>> (BITS_POR_NIVEL * nivel)) & MASCARA));
+            }
+
+            Entrada<T> sentinela = posicoes[0][(int) (tickAtual & MASCARA)];
+            while (sentinela.proxima != sentinela) {
+                Entrada<T> entrada = sentinela.proxima;
+                desligar(entrada);
+                tamanho--;
+                expirados.add(entrada.valor);
+            }
+        }
+        return expirados;
+    }
+
+    /**
+     * Obtém quantos itens estão agendados.
+     *
+     * @return O número de itens agendados
+     */
+    synchronized int getTamanho() {
+        return tamanho;
+    }
+
+    private void cascatear(int nivel, int posicao) {
+        Entrada<T> sentinela = posicoes[nivel][posicao];
+        while (sentinela.proxima != sentinela) {
+            Entrada<T> entrada = sentinela.proxima;
+            desligar(entrada);
+            posicionar(entrada);
+        }
+    }
+
+    private void posicionar(Entrada<T> entrada) {
+        long distancia = entrada.tick - tickAtual;
+        long tick = distancia < ALCANCE ? entrada.tick : tickAtual + ALCANCE - 1;
+        distancia = tick - tickAtual;
+
+        int nivel = 0;
+        while (nivel < NIVEIS - 1 && distancia >= 1L << (BITS_POR_NIVEL * (nivel + 1))) {
+            nivel++;
+        }
+        Entrada<T> sentinela = posicoes[nivel][(int) ((tick >>> (BITS_POR_NIVEL * nivel)) & MASCARA)];
+        entrada.proxima = sentinela;
+        entrada.anterior = sentinela.anterior;
+        sentinela.anterior.proxima = entrada;
+        sentinela.anterior = entrada;
+    }
+
+    private void desligar(Entrada<T> entrada) {
+        entrada.anterior.proxima = entrada.proxima;
+        entrada.proxima.anterior = entrada.anterior;
+        entrada.anterior = null;
+        entrada.proxima = null;
+    }
+
+    private static long agoraMs() {
+        return System.nanoTime() / 1_000_000;
+    }
+
+    /**
+     * Item agendado na roda; fora de qualquer lista quando expirado ou cancelado.
+     *
+     * @param <T> O tipo do item
+     */
+    static final class Entrada<T> {
+        final T valor;
+        long tick;
+        Entrada<T> anterior;
+        Entrada<T> proxima;
+
+        Entrada(T valor, long tick) {
+            this.valor = valor;
+            this.tick = tick;
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package dao;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Unidade de trabalho que compartilha uma única conexão e uma única transação entre
+ * várias chamadas às DAOs feitas pela mesma thread.
+ *
+ * Enquanto a transação estiver aberta, {@link ConnectionFactory#getConnection()} entrega às DAOs
+ * a conexão da transação: o {@code close()}, o {@code commit()} e o controle de auto-commit feitos
+ * pelas DAOs são ignorados, e um {@code rollback()} feito por elas marca a transação para ser desfeita.
+ * Quem inicia a transação decide o resultado com {@link #commit()}; fechar sem confirmar desfaz tudo.
+ *
+ * Exemplo:
+ * <pre>
+ * try (Transacao transacao = Transacao.iniciar()) {
+ *     movimentacaoDAO.inserir(saida);
+ *     Produto atualizado = produtoDAO.consultar(saida.getProduto().getId());
+ *     transacao.commit();
+ * }
+ * </pre>
+ *
+ * Iniciar uma transação com outra já aberta na mesma thread apenas participa da existente:
+ * o {@code commit()} interno não confirma nada e fechar sem confirmar marca a externa para rollback.
+ */
+public final class Transacao implements AutoCloseable {
+
+    private static final ThreadLocal<Transacao> ATUAL = new ThreadLocal<>();
+
+    // Transação que detém a conexão (null quando esta é a própria principal)
+    private final Transacao principal;
+    private final Connection conexao;
+    private final Connection conexaoParticipante;
+    private final boolean somenteLeitura;
+    private final List<Runnable> aposConfirmar;
+    private boolean somenteRollback;
+    private boolean finalizada;
+
+    private Transacao(Transacao principal, Connection conexao, boolean somenteLeitura) {
+        this.principal = principal;
+        this.conexao = conexao;
+        this.somenteLeitura = somenteLeitura;
+        this.aposConfirmar = principal == null ? new ArrayList<>() : null;
+        this.conexaoParticipante = principal == null ? criarConexaoParticipante() : null;
+    }
+
+    /**
+     * Inicia uma transação de leitura e escrita na thread atual.
+     *
+     * @return A transação iniciada, que deve ser fechada (de preferência com try-with-resources)
+     * @throws SQLException Se não for possível obter a conexão ou iniciar a transação
+     */
+    public static Transacao iniciar() throws SQLException {
+        return iniciar(false);
+    }
+
+    /**
+     * Inicia uma transação somente leitura na thread atual. O banco é avisado de que não
+     * haverá escritas, o que evita o custo de preparar a transação para elas, e todas as
+     * consultas enxergam o mesmo retrato dos dados.
+     *
+     * @return A transação iniciada, que deve ser fechada (de preferência com try-with-resources)
+     * @throws SQLException Se não for possível obter a conexão ou iniciar a transação
+     */
+    public static Transacao iniciarSomenteLeitura() throws SQLException {
+        return iniciar(true);
+    }
+
+    private static Transacao iniciar(boolean somenteLeitura) throws SQLException {
+        Transacao atual = ATUAL.get();
+        if (atual != null) {
+            if (atual.somenteLeitura && !somenteLeitura) {
+                throw new SQLException("Não é possível iniciar uma transação de escrita dentro de uma somente leitura");
+            }
+            return new Transacao(atual, atual.conexao, atual.somenteLeitura);
+        }
+
+        Connection conexao = ConnectionFactory.getInstance().getConnectionDoPool();
+        try {
+            conexao.setReadOnly(somenteLeitura);
+            conexao.setAutoCommit(false);
+        } catch (SQLException ex) {
+            conexao.close();
+            throw ex;
+        }
+        Transacao transacao = new Transacao(null, conexao, somenteLeitura);
+        ATUAL.set(transacao);
+        return transacao;
+    }
+
+    /**
+     * Indica se a thread atual está dentro de uma transação.
+     *
+     * @return true se houver uma transação aberta na thread atual
+     */
+    public static boolean emAndamento() {
+        return ATUAL.get() != null;
+    }
+
+    /**
+     * Obtém a conexão da transação aberta na thread atual, se houver.
+     *
+     * @return A conexão entregue às DAOs ou null fora de uma transação
+     */
+    static Connection conexaoAtual() {
+        Transacao atual = ATUAL.get();
+        return atual != null ? atual.conexaoParticipante : null;
+    }
+
+    /**
+     * Executa a ação depois que a transação da thread atual for confirmada,
+     * ou imediatamente se não houver transação. Se a transação for desfeita, a ação é descartada.
+     *
+     * @param acao A ação a ser executada (ex: invalidar um cache)
+     */
+    static void aposConfirmar(Runnable acao) {
+        Transacao atual = ATUAL.get();
+        if (atual != null) {
+            atual.aposConfirmar.add(acao);
+        } else {
+            acao.run();
+        }
+    }
+
+    /**
+     * Indica se a transação é somente leitura.
+     *
+     * @return true se a transação foi iniciada com {@link #iniciarSomenteLeitura()}
+     */
+    public boolean isSomenteLeitura() {
+        return somenteLeitura;
+    }
+
+    /**
+     * Marca a transação para ser desfeita ao final, mesmo que {@link #commit()} seja chamado.
+     */
+    public void marcarSomenteRollback() {
+        raiz().somenteRollback = true;
+    }
+
+    /**
+     * Confirma a transação. Em uma transação que participa de outra, apenas registra
+     * que esta parte terminou bem; a confirmação fica a cargo da transação externa.
+     *
+     * @throws SQLException Se a transação estiver marcada para rollback ou a confirmação falhar
+     */
+    public void commit() throws SQLException {
+        verificarAberta();
+        finalizada = true;
+        if (principal != null) {
+            return;
+        }
+        if (somenteRollback) {
+            desfazer();
+            throw new SQLException("Transação desfeita: uma das operações falhou");
+        }
+        try {
+            conexao.commit();
+        } catch (SQLException ex) {
+            desfazer();
+            throw ex;
+        }
+        for (Runnable acao : aposConfirmar) {
+            try {
+                acao.run();
+            } catch (RuntimeException ex) {
+                System.err.println("Erro ao executar ação após confirmar transação: " + ex.getMessage());
+            }
+        }
+        aposConfirmar.clear();
+    }
+
+    /**
+     * Desfaz a transação. Em uma transação que participa de outra, marca a externa para rollback.
+     */
+    public void rollback() {
+        if (finalizada) {
+            return;
+        }
+        finalizada = true;
+        if (principal != null) {
+            principal.somenteRollback = true;
+            return;
+        }
+        desfazer();
+    }
+
+    /**
+     * Encerra a transação: se não foi confirmada, é desfeita. A transação principal
+     * devolve a conexão ao pool e deixa de estar associada à thread.
+     */
+    @Override
+    public void close() {
+        rollback();
+        if (principal != null) {
+            return;
+        }
+        ATUAL.remove();
+        try {
+            // O pool restaura auto-commit e somente leitura ao receber a conexão de volta
+            conexao.close();
+        } catch (SQLException ex) {
+            System.err.println("Erro ao fechar conexão da transação: " + ex.getMessage());
+        }
+    }
+
+    private Transacao raiz() {
+        return principal != null ? principal : this;
+    }
+
+    private void verificarAberta() throws SQLException {
+        if (finalizada) {
+            throw new SQLException("Transação já finalizada");
+        }
+    }
+
+    private void desfazer() {
+        aposConfirmar.clear();
+        try {
+            conexao.rollback();
+        } catch (SQLException ex) {
+            System.err.println("Erro ao desfazer transação: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Cria a conexão entregue às DAOs dentro da transação: fechar, confirmar e alterar
+     * o auto-commit não têm efeito, e desfazer marca a transação para rollback.
+     */
+    private Connection criarConexaoParticipante() {
+        InvocationHandler handler = (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "close":
+                case "commit":
+                case "setAutoCommit":
+                case "setReadOnly":
+                    return null;
+                case "getAutoCommit":
+                    return false;
+                case "rollback":
+                    if (args == null) {
+                        somenteRollback = true;
+                        return null;
+                    }
+                    break;
+                case "isClosed":
+                    return finalizada || conexao.isClosed();
+                case "preparar":
+                    return ((ConexaoComCache) conexao).preparar((ConsultaSql) args[0]);
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Transacao[" + conexao + "]";
+                default:
+                    break;
+            }
+            try {
+                return method.invoke(conexao, args);
+            } catch (InvocationTargetException ex) {
+                throw ex.getCause();
+            }
+        };
+        return (Connection) Proxy.newProxyInstance(Transacao.class.getClassLoader(),
+                new Class<?>[]{Connection.class, ConexaoComCache.class}, handler);
+    }
+}
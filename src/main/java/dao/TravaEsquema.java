@@ -0,0 +1,48 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Trava nomeada do servidor ({@code GET_LOCK}) que serializa as alterações do esquema entre
+ * terminais: as migrações ({@link MigradorEsquema}) e a manutenção das partições
+ * ({@link ParticoesMovimentacao}). A trava pertence à sessão da conexão, que deve ser a mesma
+ * em {@link #travar} e {@link #liberar}.
+ */
+final class TravaEsquema {
+
+    private TravaEsquema() {
+    }
+
+    /**
+     * Obtém a trava, esperando até o tempo informado.
+     *
+     * @param conn A conexão que ficará com a trava
+     * @param esperaS A espera máxima, em segundos
+     * @return true se a trava foi obtida, false se o tempo se esgotou
+     * @throws SQLException Se ocorrer um erro ao pedir a trava
+     */
+    static boolean travar(Connection conn, int esperaS) throws SQLException {
+        try (PreparedStatement stmt = ConnectionFactory.getInstance().preparar(conn, ConsultaSql.ESQUEMA_TRAVAR)) {
+            stmt.setInt(1, esperaS);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() && rs.getInt(1) == 1;
+            }
+        }
+    }
+
+    /**
+     * Libera a trava. Um erro é só registrado: a trava também é liberada quando a sessão termina.
+     *
+     * @param conn A conexão que obteve a trava
+     */
+    static void liberar(Connection conn) {
+        try (PreparedStatement stmt = ConnectionFactory.getInstance().preparar(conn, ConsultaSql.ESQUEMA_LIBERAR)) {
+            stmt.execute();
+        } catch (SQLException ex) {
+            System.err.println("Erro ao liberar trava do esquema: " + ex.getMessage());
+        }
+    }
+}
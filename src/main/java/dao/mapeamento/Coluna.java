@@ -0,0 +1,39 @@
+package dao.mapeamento;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Coluna de uma {@link Projecao}: a expressão selecionada no SQL e a propriedade
+ * do objeto que recebe o seu valor.
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target({})
+public @interface Coluna {
+
+    /**
+     * Expressão selecionada no SQL (ex: {@code p.nome}).
+     *
+     * @return A expressão SQL da coluna
+     */
+    String sql();
+
+    /**
+     * Caminho da propriedade que recebe o valor, a partir do tipo da projeção
+     * (ex: {@code nome} ou {@code categoria.nome}). Objetos intermediários são
+     * criados com o construtor padrão e ligados pelos setters.
+     *
+     * @return O caminho da propriedade
+     */
+    String propriedade();
+
+    /**
+     * Indica que a coluna é a chave de outro objeto (ex: {@code p.categoria_id} para {@code categoria}).
+     * Em vez de criar o objeto, o mapeador lê a chave inteira e o obtém por uma função
+     * recebida no seu construtor, permitindo que as linhas compartilhem a mesma instância.
+     *
+     * @return true se a coluna deve ser resolvida por referência
+     */
+    boolean referencia() default false;
+}
@@ -0,0 +1,22 @@
+package dao.mapeamento;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Converte a linha atual de um ResultSet em um objeto.
+ * As implementações são geradas pelo {@link ProcessadorProjecoes} a partir de uma {@link Projecao}.
+ *
+ * @param <T> Tipo do objeto criado para cada linha
+ */
+public interface MapeadorLinha<T> {
+
+    /**
+     * Cria o objeto correspondente à linha atual do ResultSet.
+     *
+     * @param rs ResultSet posicionado na linha a ser lida
+     * @return O objeto populado
+     * @throws SQLException Se ocorrer um erro ao ler as colunas
+     */
+    T mapear(ResultSet rs) throws SQLException;
+}
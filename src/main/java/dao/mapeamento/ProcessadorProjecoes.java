@@ -0,0 +1,292 @@
+package dao.mapeamento;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.MirroredTypeException;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+
+/**
+ * Processador de anotações que gera um {@link MapeadorLinha} para cada {@link Projecao}.
+ *
+ * O código gerado lê as colunas pelo índice (1, 2, 3...) na ordem declarada na projeção,
+ * evitando a busca da coluna pelo nome a cada linha, e cria os objetos aninhados
+ * (ex: a categoria do produto) uma única vez por linha.
+ */
+@SupportedAnnotationTypes("dao.mapeamento.Projecao")
+public class ProcessadorProjecoes extends AbstractProcessor {
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element elemento : roundEnv.getElementsAnnotatedWith(Projecao.class)) {
+            try {
+                gerar((TypeElement) elemento, elemento.getAnnotation(Projecao.class));
+            } catch (IllegalArgumentException ex) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, ex.getMessage(), elemento);
+            } catch (IOException ex) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                        "Erro ao gerar mapeador: " + ex.getMessage(), elemento);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gera o código-fonte do mapeador de uma projeção.
+     */
+    private void gerar(TypeElement anotado, Projecao projecao) throws IOException {
+        String pacote = processingEnv.getElementUtils().getPackageOf(anotado).getQualifiedName().toString();
+        TypeElement tipo = obterTipo(projecao);
+        String nomeTipo = tipo.getQualifiedName().toString();
+
+        // Objetos criados por linha, indexados pelo caminho ("" é o objeto raiz)
+        Map<String, Objeto> objetos = new LinkedHashMap<>();
+        Set<String> variaveis = new HashSet<>();
+        objetos.put("", new Objeto(tipo, nomeVariavel(tipo.getSimpleName().toString(), variaveis), null, null));
+
+        List<String> leituras = new ArrayList<>();
+        // Funções que resolvem as colunas de referência: nome do parâmetro -> tipo resolvido
+        Map<String, String> resolvedores = new LinkedHashMap<>();
+        StringBuilder colunas = new StringBuilder();
+        int indice = 1;
+
+        for (Coluna coluna : projecao.colunas()) {
+            String[] partes = coluna.propriedade().split("\\.");
+            String caminho = "";
+            Objeto atual = objetos.get("");
+
+            // Garante a existência dos objetos intermediários do caminho
+            for (int i = 0; i < partes.length - 1; i++) {
+                String caminhoFilho = caminho.isEmpty() ? partes[i] : caminho + "." + partes[i];
+                Objeto filho = objetos.get(caminhoFilho);
+                if (filho == null) {
+                    ExecutableElement setter = encontrarSetter(atual.tipo, partes[i]);
+                    TypeMirror tipoFilho = setter.getParameters().get(0).asType();
+                    if (tipoFilho.getKind() != TypeKind.DECLARED) {
+                        throw new IllegalArgumentException("Propriedade '" + caminhoFilho + "' não é um objeto");
+                    }
+                    TypeElement elementoFilho = (TypeElement) ((DeclaredType) tipoFilho).asElement();
+                    filho = new Objeto(elementoFilho, nomeVariavel(partes[i], variaveis), atual,
+                            setter.getSimpleName().toString());
+                    objetos.put(caminhoFilho, filho);
+                }
+                caminho = caminhoFilho;
+                atual = filho;
+            }
+
+            ExecutableElement setter = encontrarSetter(atual.tipo, partes[partes.length - 1]);
+            TypeMirror tipoValor = setter.getParameters().get(0).asType();
+            String chamadaSetter = atual.variavel + "." + setter.getSimpleName();
+            if (coluna.referencia()) {
+                if (tipoValor.getKind() != TypeKind.DECLARED) {
+                    throw new IllegalArgumentException("Referência '" + coluna.propriedade() + "' não é um objeto");
+                }
+                String tipoReferencia = ((TypeElement) ((DeclaredType) tipoValor).asElement())
+                        .getQualifiedName().toString();
+                String resolvedor = "resolver" + Character.toUpperCase(partes[partes.length - 1].charAt(0))
+                        + partes[partes.length - 1].substring(1);
+                if (resolvedores.containsKey(resolvedor)) {
+                    resolvedor = resolvedor + indice;
+                }
+                resolvedores.put(resolvedor, tipoReferencia);
+                leituras.add("        " + chamadaSetter + "(" + resolvedor + ".apply(rs.getInt(" + indice + ")));\n");
+            } else {
+                leituras.add(gerarLeitura(chamadaSetter, tipoValor, indice, coluna.propriedade()));
+            }
+
+            if (colunas.length() > 0) {
+                colunas.append(", ");
+            }
+            colunas.append(coluna.sql());
+            indice++;
+        }
+
+        String nomeClasse = projecao.nome();
+        String nomeQualificado = pacote.isEmpty() ? nomeClasse : pacote + "." + nomeClasse;
+        Objeto raiz = objetos.get("");
+
+        try (Writer out = processingEnv.getFiler().createSourceFile(nomeQualificado, anotado).openWriter()) {
+            if (!pacote.isEmpty()) {
+                out.write("package " + pacote + ";\n\n");
+            }
+            out.write("import dao.mapeamento.MapeadorLinha;\n");
+            out.write("import java.sql.ResultSet;\n");
+            out.write("import java.sql.SQLException;\n");
+            out.write("import javax.annotation.processing.Generated;\n\n");
+            out.write("/**\n");
+            out.write(" * Mapeador gerado a partir da projeção {@code " + anotado.getQualifiedName() + "}.\n");
+            out.write(" * Lê as colunas pelo índice, na ordem de {@link #COLUNAS}. Não editar.\n");
+            out.write(" */\n");
+            out.write("@Generated(\"" + ProcessadorProjecoes.class.getName() + "\")\n");
+            out.write("final class " + nomeClasse + " implements MapeadorLinha<" + nomeTipo + "> {\n\n");
+            out.write("    /** Expressões do SELECT, na ordem em que são lidas pelo mapeador. */\n");
+            out.write("    static final String COLUNAS = \"" + escapar(colunas.toString()) + "\";\n\n");
+            if (resolvedores.isEmpty()) {
+                out.write("    /** Instância compartilhada (o mapeador não guarda estado). */\n");
+                out.write("    static final " + nomeClasse + " INSTANCIA = new " + nomeClasse + "();\n\n");
+            } else {
+                StringBuilder parametros = new StringBuilder();
+                for (Map.Entry<String, String> resolvedor : resolvedores.entrySet()) {
+                    out.write("    private final java.util.function.IntFunction<" + resolvedor.getValue() + "> "
+                            + resolvedor.getKey() + ";\n");
+                    if (parametros.length() > 0) {
+                        parametros.append(", ");
+                    }
+                    parametros.append("java.util.function.IntFunction<").append(resolvedor.getValue()).append("> ")
+                            .append(resolvedor.getKey());
+                }
+                out.write("\n    /** Cria o mapeador com as funções que resolvem as colunas de referência pela chave. */\n");
+                out.write("    " + nomeClasse + "(" + parametros + ") {\n");
+                for (String resolvedor : resolvedores.keySet()) {
+                    out.write("        this." + resolvedor + " = " + resolvedor + ";\n");
+                }
+                out.write("    }\n\n");
+            }
+            out.write("    @Override\n");
+            out.write("    public " + nomeTipo + " mapear(ResultSet rs) throws SQLException {\n");
+            for (Objeto objeto : objetos.values()) {
+                String tipoObjeto = objeto.tipo.getQualifiedName().toString();
+                out.write("        " + tipoObjeto + " " + objeto.variavel + " = new " + tipoObjeto + "();\n");
+                if (objeto.pai != null) {
+                    out.write("        " + objeto.pai.variavel + "." + objeto.setter + "(" + objeto.variavel + ");\n");
+                }
+            }
+            for (String leitura : leituras) {
+                out.write(leitura);
+            }
+            out.write("        return " + raiz.variavel + ";\n");
+            out.write("    }\n");
+            out.write("}\n");
+        }
+    }
+
+    /**
+     * Gera a leitura de uma coluna pelo índice e a chamada ao setter correspondente.
+     */
+    private String gerarLeitura(String chamadaSetter, TypeMirror tipo, int indice, String propriedade) {
+        switch (tipo.getKind()) {
+            case INT:
+                return "        " + chamadaSetter + "(rs.getInt(" + indice + "));\n";
+            case LONG:
+                return "        " + chamadaSetter + "(rs.getLong(" + indice + "));\n";
+            case DOUBLE:
+                return "        " + chamadaSetter + "(rs.getDouble(" + indice + "));\n";
+            case FLOAT:
+                return "        " + chamadaSetter + "(rs.getFloat(" + indice + "));\n";
+            case SHORT:
+                return "        " + chamadaSetter + "(rs.getShort(" + indice + "));\n";
+            case BYTE:
+                return "        " + chamadaSetter + "(rs.getByte(" + indice + "));\n";
+            case BOOLEAN:
+                return "        " + chamadaSetter + "(rs.getBoolean(" + indice + "));\n";
+            case DECLARED:
+                break;
+            default:
+                throw new IllegalArgumentException("Tipo não suportado na propriedade '" + propriedade + "': " + tipo);
+        }
+
+        String nome = ((TypeElement) ((DeclaredType) tipo).asElement()).getQualifiedName().toString();
+        switch (nome) {
+            case "java.lang.String":
+                return "        " + chamadaSetter + "(rs.getString(" + indice + "));\n";
+            case "java.math.BigDecimal":
+                return "        " + chamadaSetter + "(rs.getBigDecimal(" + indice + "));\n";
+            case "java.lang.Integer":
+            case "java.lang.Long":
+            case "java.lang.Double":
+            case "java.lang.Boolean":
+                return "        " + chamadaSetter + "(rs.getObject(" + indice + ", " + nome + ".class));\n";
+            case "java.time.LocalDateTime":
+                return "        java.sql.Timestamp coluna" + indice + " = rs.getTimestamp(" + indice + ");\n"
+                        + "        " + chamadaSetter + "(coluna" + indice + " != null ? coluna" + indice
+                        + ".toLocalDateTime() : null);\n";
+            case "java.time.LocalDate":
+                return "        java.sql.Date coluna" + indice + " = rs.getDate(" + indice + ");\n"
+                        + "        " + chamadaSetter + "(coluna" + indice + " != null ? coluna" + indice
+                        + ".toLocalDate() : null);\n";
+            default:
+                throw new IllegalArgumentException("Tipo não suportado na propriedade '" + propriedade + "': " + nome);
+        }
+    }
+
+    /**
+     * Encontra o setter público da propriedade (ex: {@code setNome}) no tipo ou em suas superclasses.
+     */
+    private ExecutableElement encontrarSetter(TypeElement tipo, String propriedade) {
+        String nomeSetter = "set" + Character.toUpperCase(propriedade.charAt(0)) + propriedade.substring(1);
+        for (ExecutableElement metodo : ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(tipo))) {
+            if (metodo.getSimpleName().contentEquals(nomeSetter)
+                    && metodo.getParameters().size() == 1
+                    && metodo.getModifiers().contains(Modifier.PUBLIC)) {
+                return metodo;
+            }
+        }
+        throw new IllegalArgumentException("Setter " + nomeSetter + " não encontrado em " + tipo.getQualifiedName());
+    }
+
+    /**
+     * Obtém o tipo declarado em {@link Projecao#tipo()} (acessível apenas como TypeMirror na compilação).
+     */
+    private TypeElement obterTipo(Projecao projecao) {
+        try {
+            projecao.tipo();
+        } catch (MirroredTypeException ex) {
+            return (TypeElement) ((DeclaredType) ex.getTypeMirror()).asElement();
+        }
+        throw new IllegalArgumentException("Não foi possível determinar o tipo da projeção");
+    }
+
+    private String nomeVariavel(String base, Set<String> usadas) {
+        String nome = Character.toLowerCase(base.charAt(0)) + base.substring(1);
+        String candidato = nome;
+        int sufixo = 2;
+        while (!usadas.add(candidato) || candidato.equals("rs")) {
+            candidato = nome + sufixo++;
+        }
+        return candidato;
+    }
+
+    private String escapar(String texto) {
+        return texto.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    /**
+     * Objeto criado pelo mapeador para cada linha.
+     */
+    private static final class Objeto {
+        final TypeElement tipo;
+        final String variavel;
+        final Objeto pai;
+        final String setter;
+
+        Objeto(TypeElement tipo, String variavel, Objeto pai, String setter) {
+            this.tipo = tipo;
+            this.variavel = variavel;
+            this.pai = pai;
+            this.setter = setter;
+        }
+    }
+}
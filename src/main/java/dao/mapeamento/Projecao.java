@@ -0,0 +1,41 @@
+package dao.mapeamento;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declara uma projeção SQL para a qual o {@link ProcessadorProjecoes} gera, em tempo de
+ * compilação, um {@link MapeadorLinha} que lê as colunas pelo índice, na ordem declarada.
+ *
+ * A classe gerada fica no mesmo pacote do tipo anotado e expõe a constante {@code COLUNAS}
+ * com a lista de expressões SQL, que deve ser usada no SELECT para garantir que a ordem
+ * das colunas consultadas seja exatamente a ordem lida pelo mapeador.
+ * Sem colunas de referência (ver {@link Coluna#referencia()}) a classe também expõe a instância
+ * compartilhada {@code INSTANCIA}; com elas, o construtor recebe uma função por referência.
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(java.lang.annotation.ElementType.TYPE)
+public @interface Projecao {
+
+    /**
+     * Nome simples da classe gerada (ex: {@code ProdutoMapeador}).
+     *
+     * @return O nome da classe do mapeador
+     */
+    String nome();
+
+    /**
+     * Tipo do objeto criado para cada linha.
+     *
+     * @return A classe do objeto mapeado
+     */
+    Class<?> tipo();
+
+    /**
+     * Colunas da projeção, na ordem em que aparecem no SELECT.
+     *
+     * @return As colunas da projeção
+     */
+    Coluna[] colunas();
+}
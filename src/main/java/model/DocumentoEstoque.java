@@ -0,0 +1,194 @@
+package model;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Classe que representa um documento de estoque (nota de entrada ou de saída).
+ * Agrupa várias movimentações do mesmo tipo, uma por item, que são gravadas juntas.
+ */
+public class DocumentoEstoque {
+
+    // Atributos da classe
+    private int id;
+    private String tipo; // "Entrada" ou "Saída"
+    private LocalDateTime dataHora;
+    private String observacao;
+    private String chaveIdempotencia; // Gerada ao registrar; reenviar com a mesma chave não duplica
+    private List<Movimentacao> itens;
+
+    /**
+     * Construtor padrão da classe DocumentoEstoque.
+     *  - id padrão 0
+     *  - tipo vazio
+     *  - dataHora como momento atual
+     *  - observacao vazia
+     *  - sem itens
+     */
+    public DocumentoEstoque() {
+        this(0, "", LocalDateTime.now(), "");
+    }
+
+    /**
+     * Construtor da classe DocumentoEstoque com os dados do cabeçalho.
+     *
+     * @param id Identificador único do documento
+     * @param tipo Tipo do documento ("Entrada" ou "Saída")
+     * @param dataHora Data e hora do documento
+     * @param observacao Observação sobre o documento
+     */
+    public DocumentoEstoque(int id, String tipo, LocalDateTime dataHora, String observacao) {
+        this.id = id;
+        this.tipo = tipo;
+        this.dataHora = dataHora;
+        this.observacao = observacao;
+        this.itens = new ArrayList<>();
+    }
+
+    /**
+     * Construtor da classe DocumentoEstoque sem o id, útil para inserção no banco.
+     * Define a data/hora como o momento atual.
+     *
+     * @param tipo Tipo do documento ("Entrada" ou "Saída")
+     * @param observacao Observação sobre o documento
+     */
+    public DocumentoEstoque(String tipo, String observacao) {
+        this(0, tipo, LocalDateTime.now(), observacao);
+    }
+
+    /**
+     * Adiciona um item ao documento, criando a movimentação com o tipo,
+     * a data/hora e a observação do documento.
+     *
+     * @param produto O produto do item
+     * @param quantidade A quantidade do item
+     * @return A movimentação criada para o item
+     */
+    public Movimentacao adicionarItem(Produto produto, int quantidade) {
+        Movimentacao item = new Movimentacao(0, produto, tipo, quantidade, dataHora, observacao);
+        itens.add(item);
+        return item;
+    }
+
+    // Métodos getters e setters
+
+    /**
+     * Obtém o id do documento.
+     *
+     * @return O id do documento
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Define o id do documento.
+     *
+     * @param id O id a ser definido
+     */
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    /**
+     * Obtém o tipo do documento.
+     *
+     * @return O tipo do documento ("Entrada" ou "Saída")
+     */
+    public String getTipo() {
+        return tipo;
+    }
+
+    /**
+     * Define o tipo do documento.
+     *
+     * @param tipo O tipo a ser definido ("Entrada" ou "Saída")
+     */
+    public void setTipo(String tipo) {
+        this.tipo = tipo;
+    }
+
+    /**
+     * Obtém a data e hora do documento.
+     *
+     * @return A data e hora do documento
+     */
+    public LocalDateTime getDataHora() {
+        return dataHora;
+    }
+
+    /**
+     * Define a data e hora do documento.
+     *
+     * @param dataHora A data e hora a ser definida
+     */
+    public void setDataHora(LocalDateTime dataHora) {
+        this.dataHora = dataHora;
+    }
+
+    /**
+     * Obtém a observação sobre o documento.
+     *
+     * @return A observação do documento
+     */
+    public String getObservacao() {
+        return observacao;
+    }
+
+    /**
+     * Define a observação sobre o documento.
+     *
+     * @param observacao A observação a ser definida
+     */
+    public void setObservacao(String observacao) {
+        this.observacao = observacao;
+    }
+
+    /**
+     * Obtém a chave de idempotência do documento.
+     *
+     * @return A chave de idempotência, ou null se ainda não foi registrada
+     */
+    public String getChaveIdempotencia() {
+        return chaveIdempotencia;
+    }
+
+    /**
+     * Define a chave de idempotência do documento. Duas submissões com a mesma chave
+     * são registradas uma única vez.
+     *
+     * @param chaveIdempotencia A chave a ser definida
+     */
+    public void setChaveIdempotencia(String chaveIdempotencia) {
+        this.chaveIdempotencia = chaveIdempotencia;
+    }
+
+    /**
+     * Obtém os itens do documento, um por movimentação.
+     *
+     * @return A lista de itens do documento
+     */
+    public List<Movimentacao> getItens() {
+        return itens;
+    }
+
+    /**
+     * Define os itens do documento.
+     *
+     * @param itens A lista de itens a ser definida
+     */
+    public void setItens(List<Movimentacao> itens) {
+        this.itens = itens;
+    }
+
+    /**
+     * Retorna uma representação em String do documento.
+     *
+     * @return Uma String representando o documento
+     */
+    @Override
+    public String toString() {
+        return "Documento de " + tipo + " nº " + id + " com " + itens.size() + " itens em " + dataHora;
+    }
+}
@@ -9,12 +9,13 @@ import java.time.LocalDateTime;
 public class Movimentacao {
 
     // Atributos da classe
-    private int id;
+    private long id;
     private Produto produto;
     private String tipo; // "Entrada" ou "Saída"
     private int quantidade;
     private LocalDateTime dataHora;
     private String observacao;
+    private String chaveIdempotencia; // Gerada ao registrar; reenviar com a mesma chave não duplica
 
     /**
      * Construtor padrão da classe Movimentacao.
@@ -39,7 +40,7 @@ public class Movimentacao {
      * @param dataHora Data e hora da movimentação
      * @param observacao Observação sobre a movimentação
      */
-    public Movimentacao(int id, Produto produto, String tipo, int quantidade,
+    public Movimentacao(long id, Produto produto, String tipo, int quantidade,
                         LocalDateTime dataHora, String observacao) {
         this.id = id;
         this.produto = produto;
@@ -69,7 +70,7 @@ public class Movimentacao {
      *
      * @return O id da movimentação
      */
-    public int getId() {
+    public long getId() {
         return id;
     }
 
@@ -78,7 +79,7 @@ public class Movimentacao {
      *
      * @param id O id a ser definido
      */
-    public void setId(int id) {
+    public void setId(long id) {
         this.id = id;
     }
 
@@ -172,6 +173,25 @@ public class Movimentacao {
         this.observacao = observacao;
     }
 
+    /**
+     * Obtém a chave de idempotência da movimentação.
+     *
+     * @return A chave de idempotência, ou null se ainda não foi registrada
+     */
+    public String getChaveIdempotencia() {
+        return chaveIdempotencia;
+    }
+
+    /**
+     * Define a chave de idempotência da movimentação. Duas submissões com a mesma chave
+     * são registradas uma única vez.
+     *
+     * @param chaveIdempotencia A chave a ser definida
+     */
+    public void setChaveIdempotencia(String chaveIdempotencia) {
+        this.chaveIdempotencia = chaveIdempotencia;
+    }
+
     /**
      * Verifica se a movimentação é do tipo entrada.
      *
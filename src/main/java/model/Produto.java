@@ -15,6 +15,7 @@ public class Produto {
     private int quantidadeMinima;
     private int quantidadeMaxima;
     private Categoria categoria;
+    private int quantidadeReservada; // Reservas de pedidos pendentes; não sai de quantidadeEstoque
 
     /**
      * Construtor padrão da classe Produto.
@@ -164,6 +165,33 @@ public class Produto {
         this.quantidadeEstoque = quantidadeEstoque;
     }
     
+    /**
+     * Obtém a quantidade reservada para pedidos pendentes.
+     * 
+     * @return A quantidade reservada
+     */
+    public int getQuantidadeReservada() {
+        return quantidadeReservada;
+    }
+    
+    /**
+     * Define a quantidade reservada para pedidos pendentes.
+     * 
+     * @param quantidadeReservada A quantidade reservada a ser definida
+     */
+    public void setQuantidadeReservada(int quantidadeReservada) {
+        this.quantidadeReservada = quantidadeReservada;
+    }
+    
+    /**
+     * Obtém a quantidade disponível: o estoque menos o que está reservado.
+     * 
+     * @return A quantidade disponível para novas saídas e reservas
+     */
+    public int getQuantidadeDisponivel() {
+        return quantidadeEstoque - quantidadeReservada;
+    }
+    
     /**
      * Obtém a quantidade mínima permitida em estoque.
      * 
@@ -0,0 +1,90 @@
+package model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Classe que representa uma reserva de estoque para um pedido pendente.
+ * A reserva diminui o estoque disponível do produto sem registrar uma saída
+ * e expira automaticamente se não for confirmada ou liberada a tempo.
+ */
+public class Reserva {
+
+    // Atributos da classe
+    private final long id;
+    private final int produtoId;
+    private final int quantidade;
+    private final LocalDateTime criadaEm;
+    private final LocalDateTime expiraEm;
+
+    /**
+     * Construtor da classe Reserva.
+     *
+     * @param id Identificador único da reserva
+     * @param produtoId ID do produto reservado
+     * @param quantidade Quantidade reservada
+     * @param criadaEm Data e hora da reserva
+     * @param expiraEm Data e hora em que a reserva expira
+     */
+    public Reserva(long id, int produtoId, int quantidade, LocalDateTime criadaEm, LocalDateTime expiraEm) {
+        this.id = id;
+        this.produtoId = produtoId;
+        this.quantidade = quantidade;
+        this.criadaEm = criadaEm;
+        this.expiraEm = expiraEm;
+    }
+
+    /**
+     * Obtém o id da reserva.
+     *
+     * @return O id da reserva
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * Obtém o ID do produto reservado.
+     *
+     * @return O ID do produto
+     */
+    public int getProdutoId() {
+        return produtoId;
+    }
+
+    /**
+     * Obtém a quantidade reservada.
+     *
+     * @return A quantidade reservada
+     */
+    public int getQuantidade() {
+        return quantidade;
+    }
+
+    /**
+     * Obtém a data e hora em que a reserva foi feita.
+     *
+     * @return A data e hora da reserva
+     */
+    public LocalDateTime getCriadaEm() {
+        return criadaEm;
+    }
+
+    /**
+     * Obtém a data e hora em que a reserva expira.
+     *
+     * @return A data e hora de expiração
+     */
+    public LocalDateTime getExpiraEm() {
+        return expiraEm;
+    }
+
+    /**
+     * Retorna uma representação em String da reserva.
+     *
+     * @return Uma String representando a reserva
+     */
+    @Override
+    public String toString() {
+        return "Reserva nº " + id + " de " + quantidade + " do produto " + produtoId + " até " + expiraEm;
+    }
+}
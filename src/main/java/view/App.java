@@ -1,13 +1,26 @@
 package view;
 
+import dao.DiarioMovimentacoes;
+import dao.LivroEstoque;
+import dao.MigradorEsquema;
+import dao.ParticoesMovimentacao;
+import dao.PontosControleEstoque;
+import javax.swing.JOptionPane;
 import javax.swing.UIManager;
 import javax.swing.SwingUtilities;
 
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
 /**
  * Classe principal que inicia a aplicação.
  * Ponto de entrada do sistema de controle de estoque.
  */
 public class App {
+
+    // Intervalo entre tentativas de migração enquanto o banco está inacessível
+    private static final long INTERVALO_MIGRACAO_MS = 30 * 1000;
     
     /**
      * Método principal que inicia a aplicação.
@@ -22,6 +35,32 @@ public class App {
             System.err.println("Erro ao configurar look and feel: " + ex.getMessage());
         }
         
+        // Aplica ao banco as migrações do esquema ainda pendentes (ex: índices novos); as telas
+        // dependem do esquema atualizado, então um script com falha impede a abertura
+        MigradorEsquema.Resultado migracao = new MigradorEsquema().migrar();
+        if (migracao == MigradorEsquema.Resultado.FALHA) {
+            encerrarPorFalhaNoEsquema();
+        }
+        if (migracao == MigradorEsquema.Resultado.ATUALIZADO) {
+            iniciarManutencao();
+        }
+
+        // Carrega o estoque dos produtos em memória e agenda a conciliação com o banco
+        LivroEstoque.getInstance().iniciar();
+
+        // Banco inacessível: abre só com o diário local e tenta a migração de novo em segundo plano
+        if (migracao == MigradorEsquema.Resultado.INDISPONIVEL) {
+            DiarioMovimentacoes.getInstance().setSomenteDiario(true);
+            agendarMigracao();
+            JOptionPane.showMessageDialog(null,
+                    "Não foi possível conectar ao banco de dados.\n"
+                    + "Entradas e saídas serão guardadas no diário local e enviadas ao banco quando ele voltar.",
+                    "Banco de dados indisponível", JOptionPane.WARNING_MESSAGE);
+        }
+
+        // Abre o diário local de movimentações e reenvia ao banco o que ficou pendente
+        DiarioMovimentacoes.getInstance().iniciar();
+        
         // Inicia a aplicação na thread de eventos do Swing
         SwingUtilities.invokeLater(new Runnable() {
             @Override
@@ -31,4 +70,52 @@ public class App {
             }
         });
     }
+
+    /**
+     * Inicia as tarefas de manutenção que dependem do esquema atualizado.
+     */
+    private static void iniciarManutencao() {
+        // Cria as partições mensais do histórico para os próximos meses e agenda a verificação
+        ParticoesMovimentacao.getInstance().iniciar();
+
+        // Grava o estoque de cada produto no início do dia, para as consultas de estoque em uma data
+        PontosControleEstoque.getInstance().iniciar();
+    }
+
+    /**
+     * Tenta a migração do esquema de tempos em tempos até o banco voltar. Com o esquema
+     * atualizado, inicia a manutenção e libera o reenvio do diário.
+     */
+    private static void agendarMigracao() {
+        ScheduledExecutorService agendador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "migracao-esquema");
+            t.setDaemon(true);
+            return t;
+        });
+        agendador.scheduleWithFixedDelay(() -> {
+            MigradorEsquema.Resultado migracao = new MigradorEsquema().migrar();
+            if (migracao == MigradorEsquema.Resultado.INDISPONIVEL) {
+                return;
+            }
+            agendador.shutdown();
+            if (migracao == MigradorEsquema.Resultado.FALHA) {
+                SwingUtilities.invokeLater(App::encerrarPorFalhaNoEsquema);
+                return;
+            }
+            iniciarManutencao();
+            DiarioMovimentacoes.getInstance().setSomenteDiario(false);
+        }, INTERVALO_MIGRACAO_MS, INTERVALO_MIGRACAO_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Informa que o esquema do banco não pôde ser atualizado e encerra a aplicação.
+     * As movimentações do diário local ficam no arquivo e são reenviadas na próxima abertura.
+     */
+    private static void encerrarPorFalhaNoEsquema() {
+        JOptionPane.showMessageDialog(null,
+                "Não foi possível atualizar o esquema do banco de dados.\n"
+                + "Consulte o log de erros da aplicação.",
+                "Erro", JOptionPane.ERROR_MESSAGE);
+        System.exit(1);
+    }
 }
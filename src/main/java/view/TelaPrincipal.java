@@ -1,5 +1,6 @@
 package view;
 
+import dao.DiarioMovimentacoes;
 import java.net.URL;
 
 // IMPORT DOS COMPONENTES DO SWING
@@ -11,6 +12,8 @@ import javax.swing.JPanel;
 import javax.swing.JLabel;
 import javax.swing.BorderFactory;
 import javax.swing.ImageIcon;
+import javax.swing.JOptionPane;
+import javax.swing.SwingUtilities;
 
 // IMPORT DAS CORES E FONTS
 import java.awt.BorderLayout;
@@ -83,6 +86,9 @@ public class TelaPrincipal extends JFrame {
         // Configura eventos
         configurarEventos();
 
+        // Avisa sobre movimentações do diário recusadas pelo banco
+        configurarAvisosDiario();
+
         // Exibe a janela
         setVisible(true);
     }
@@ -458,4 +464,21 @@ public class TelaPrincipal extends JFrame {
             }
         });
     }
+
+    /**
+     * Exibe um aviso quando uma movimentação registrada no diário local é recusada pelo banco
+     * ao ser reenviada (ex: saída registrada sem conexão e sem estoque suficiente).
+     */
+    private void configurarAvisosDiario() {
+        DiarioMovimentacoes.getInstance().adicionarOuvinteConflito(conflito ->
+                SwingUtilities.invokeLater(() -> {
+                    lblStatus.setText("Movimentação recusada pelo banco: " + conflito);
+                    JOptionPane.showMessageDialog(
+                            TelaPrincipal.this,
+                            "Uma movimentação registrada no diário foi recusada pelo banco:\n" + conflito,
+                            "Conflito de Movimentação",
+                            JOptionPane.WARNING_MESSAGE
+                    );
+                }));
+    }
 }
\ No newline at end of file
@@ -1,6 +1,6 @@
 package view.movimentacao;
 
-import dao.MovimentacaoDAO;
+import dao.DiarioMovimentacoes;
 import dao.ProdutoDAO;
 import model.Movimentacao;
 import model.Produto;
@@ -130,12 +130,27 @@ public class EntradaEstoqueView extends JFrame {
                 m.setDataHora(dataHora);
                 m.setObservacao(observacao);
 
-                new MovimentacaoDAO().inserir(m);
+                // Grava no banco; só se ele estiver inacessível, no diário local, que a reenvia depois
+                DiarioMovimentacoes.Destino destino = DiarioMovimentacoes.getInstance().gravar(m);
+                if (destino == null) {
+                    JOptionPane.showMessageDialog(
+                            this,
+                            "Não foi possível registrar a entrada.",
+                            "Erro",
+                            JOptionPane.ERROR_MESSAGE
+                    );
+                    return;
+                }
 
+                String mensagem = "Entrada registrada com sucesso para \"" + selecionado.getNome() + "\" em "
+                        + dataHora.format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm"));
+                if (destino == DiarioMovimentacoes.Destino.DIARIO) {
+                    mensagem += ".\nBanco de dados indisponível: a entrada foi guardada no diário local e será "
+                            + "enviada ao banco quando ele voltar.";
+                }
                 JOptionPane.showMessageDialog(
                         this,
-                        "Entrada registrada com sucesso para \"" + selecionado.getNome() + "\" em "
-                                + dataHora.format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm")),
+                        mensagem,
                         "Sucesso",
                         JOptionPane.INFORMATION_MESSAGE
                 );
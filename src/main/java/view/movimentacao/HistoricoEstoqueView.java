@@ -7,11 +7,15 @@ import javax.swing.JFrame;
 import javax.swing.JTable;
 import javax.swing.JScrollPane;
 import javax.swing.JButton;
+import javax.swing.JComboBox;
+import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.table.DefaultTableModel;
 
 import java.awt.BorderLayout;
 import java.awt.FlowLayout;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
 
@@ -20,6 +24,21 @@ public class HistoricoEstoqueView extends JFrame {
     private JTable tabela;
     private DefaultTableModel tableModel;
     private JButton btnFechar;
+    private JButton btnCarregarMais;
+    private JComboBox<String> cbPeriodo;
+
+    // Movimentações carregadas por vez; a próxima página continua a partir da última exibida
+    private static final int TAMANHO_PAGINA = 200;
+
+    // Períodos oferecidos, em meses até hoje: o histórico é particionado por mês e só os meses
+    // do período são lidos
+    private static final String[] PERIODOS = {"Último mês", "Últimos 3 meses", "Últimos 12 meses", "Últimos 5 anos"};
+    private static final int[] MESES_PERIODO = {1, 3, 12, 60};
+
+    private final MovimentacaoDAO dao = new MovimentacaoDAO();
+    private Movimentacao ultimaCarregada;
+    private LocalDateTime inicio;
+    private LocalDateTime fim;
 
     public HistoricoEstoqueView() {
         setTitle("Histórico de Movimentações");
@@ -44,24 +63,51 @@ public class HistoricoEstoqueView extends JFrame {
         btnFechar = new JButton("Fechar");
         btnFechar.addActionListener(e -> dispose());
 
+        btnCarregarMais = new JButton("Carregar mais");
+        btnCarregarMais.addActionListener(e -> carregarDados());
+
+        cbPeriodo = new JComboBox<>(PERIODOS);
+        cbPeriodo.setSelectedIndex(1);
+        cbPeriodo.addActionListener(e -> selecionarPeriodo());
+
+        JPanel topPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        topPanel.add(new JLabel("Período:"));
+        topPanel.add(cbPeriodo);
+
         JPanel bottomPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        bottomPanel.add(btnCarregarMais);
         bottomPanel.add(btnFechar);
 
+        add(topPanel, BorderLayout.NORTH);
         add(scrollPane, BorderLayout.CENTER);
         add(bottomPanel, BorderLayout.SOUTH);
 
-        carregarDados();
+        selecionarPeriodo();
 
         setVisible(true);
     }
 
+    /**
+     * Limpa a tabela e carrega a primeira página do período selecionado.
+     * O fim do período é o início de amanhã, para incluir as movimentações de hoje.
+     */
+    private void selecionarPeriodo() {
+        fim = LocalDate.now().plusDays(1).atStartOfDay();
+        inicio = LocalDate.now().minusMonths(MESES_PERIODO[cbPeriodo.getSelectedIndex()]).atStartOfDay();
+        ultimaCarregada = null;
+        tableModel.setRowCount(0);
+        carregarDados();
+    }
+
+    /**
+     * Carrega a próxima página do histórico e a acrescenta à tabela.
+     */
     private void carregarDados() {
-        MovimentacaoDAO dao = new MovimentacaoDAO();
-        List<Movimentacao> lista = dao.listarTodos();
+        List<Movimentacao> pagina = dao.listarPeriodoPagina(inicio, fim, ultimaCarregada, TAMANHO_PAGINA);
 
         DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
 
-        for (Movimentacao m : lista) {
+        for (Movimentacao m : pagina) {
             Object[] row = {
                     m.getId(),
                     m.getProduto().getNome(),
@@ -72,5 +118,11 @@ public class HistoricoEstoqueView extends JFrame {
             };
             tableModel.addRow(row);
         }
+
+        if (!pagina.isEmpty()) {
+            ultimaCarregada = pagina.get(pagina.size() - 1);
+        }
+        // Página incompleta: não há mais movimentações para carregar
+        btnCarregarMais.setEnabled(pagina.size() == TAMANHO_PAGINA);
     }
 }
\ No newline at end of file
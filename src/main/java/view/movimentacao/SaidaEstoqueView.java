@@ -1,7 +1,9 @@
 package view.movimentacao;
 
-import dao.MovimentacaoDAO;
+import dao.DiarioMovimentacoes;
+import dao.EstoqueInsuficienteException;
 import dao.ProdutoDAO;
+import dao.ReservasEstoque;
 import model.Movimentacao;
 import model.Produto;
 
@@ -36,6 +38,9 @@ import java.util.List;
  * Agora usa JComboBox para selecionar o produto em vez de digitar o ID.
  * Valida formatos de data e hora, pré‐preenche a data atual e exibe
  * mensagens de erro claras para cada campo.
+ * A saída e a releitura do produto (para o alerta de estoque mínimo)
+ * são feitas em uma única transação. A suficiência do estoque é verificada
+ * pelo banco no momento da baixa, e não pelo estoque carregado ao abrir a tela.
  */
 public class SaidaEstoqueView extends JFrame {
     private JComboBox<Produto> comboProdutos;
@@ -157,17 +162,6 @@ public class SaidaEstoqueView extends JFrame {
                         campoHora.getText().trim()
                 );
 
-                // Verifica estoque suficiente
-                if (selecionado.getQuantidadeEstoque() < quantidade) {
-                    JOptionPane.showMessageDialog(
-                            this,
-                            "Estoque insuficiente para essa saída.",
-                            "Erro",
-                            JOptionPane.ERROR_MESSAGE
-                    );
-                    return;
-                }
-
                 String observacao = campoObservacao.getText().trim();
 
                 Movimentacao m = new Movimentacao();
@@ -177,16 +171,78 @@ public class SaidaEstoqueView extends JFrame {
                 m.setDataHora(dataHora);
                 m.setObservacao(observacao);
 
-                new MovimentacaoDAO().inserir(m);
+                // Confere o estoque disponível (banco mais o que o diário ainda não enviou, menos as
+                // reservas); quem confirma a saída é o banco
+                DiarioMovimentacoes diario = DiarioMovimentacoes.getInstance();
+                ReservasEstoque reservas = ReservasEstoque.getInstance();
+                int disponivel = reservas.getDisponivel(selecionado.getId());
+                if (disponivel >= 0 && disponivel < quantidade) {
+                    JOptionPane.showMessageDialog(
+                            this,
+                            "Estoque disponível insuficiente para essa saída. Disponível: " + disponivel
+                                    + " (reservado: " + reservas.getReservado(selecionado.getId()) + ").",
+                            "Erro",
+                            JOptionPane.ERROR_MESSAGE
+                    );
+                    return;
+                }
+
+                // Grava no banco, que devolve o estoque resultante no produto; só se ele estiver
+                // inacessível, no diário local, e o estoque exibido é estimado
+                DiarioMovimentacoes.Destino destino = diario.gravar(m);
+                if (destino == null) {
+                    JOptionPane.showMessageDialog(
+                            this,
+                            "Não foi possível registrar a saída.",
+                            "Erro",
+                            JOptionPane.ERROR_MESSAGE
+                    );
+                    return;
+                }
+                String mensagem = "Saída registrada com sucesso para \"" + selecionado.getNome() + "\" em "
+                        + dataHora.format(DateTimeFormatter.ofPattern("yyyy‐MM‐dd HH:mm"));
+                if (destino == DiarioMovimentacoes.Destino.DIARIO) {
+                    int estimado = diario.getEstoqueEstimado(selecionado.getId());
+                    if (estimado >= 0) {
+                        selecionado.setQuantidadeEstoque(estimado);
+                    }
+                    mensagem += ".\nBanco de dados indisponível: a saída foi guardada no diário local e será "
+                            + "confirmada pelo banco quando ele voltar. Estoque estimado: "
+                            + selecionado.getQuantidadeEstoque() + ".";
+                }
 
                 JOptionPane.showMessageDialog(
                         this,
-                        "Saída registrada com sucesso para \"" + selecionado.getNome() + "\" em "
-                                + dataHora.format(DateTimeFormatter.ofPattern("yyyy‐MM‐dd HH:mm")),
+                        mensagem,
                         "Sucesso",
                         JOptionPane.INFORMATION_MESSAGE
                 );
+
+                // Alerta quando a saída deixa o produto abaixo do estoque mínimo
+                if (selecionado.estaAbaixoDoMinimo()) {
+                    JOptionPane.showMessageDialog(
+                            this,
+                            "Atenção: o estoque de \"" + selecionado.getNome() + "\" ficou abaixo do mínimo ("
+                                    + selecionado.getQuantidadeEstoque() + " de " + selecionado.getQuantidadeMinima()
+                                    + " " + selecionado.getUnidade() + ").",
+                            "Estoque Abaixo do Mínimo",
+                            JOptionPane.WARNING_MESSAGE
+                    );
+                }
                 dispose();
+            } catch (EstoqueInsuficienteException exEstoque) {
+                // Atualiza o produto do combo com o estoque real informado pelo banco
+                Produto selecionado = (Produto) comboProdutos.getSelectedItem();
+                if (selecionado != null && selecionado.getId() == exEstoque.getProdutoId()) {
+                    selecionado.setQuantidadeEstoque(exEstoque.getEstoqueAtual());
+                }
+                JOptionPane.showMessageDialog(
+                        this,
+                        "Estoque insuficiente para essa saída. Estoque atual: " + exEstoque.getEstoqueAtual()
+                                + " (reservado: " + ReservasEstoque.getInstance().getReservado(exEstoque.getProdutoId()) + ").",
+                        "Erro",
+                        JOptionPane.ERROR_MESSAGE
+                );
             } catch (NumberFormatException exNum) {
                 // Mensagem específica já lançada em parseInteiro
             } catch (IllegalArgumentException exArg) {
@@ -0,0 +1,52 @@
+package view.relatorios;
+
+import javax.swing.JFrame;
+import javax.swing.JOptionPane;
+import javax.swing.SwingUtilities;
+
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Carga assíncrona dos dados de uma tela de relatório.
+ */
+final class CargaRelatorio {
+
+    private CargaRelatorio() {
+    }
+
+    /**
+     * Exibe o resultado da carga na janela quando ela terminar, na thread de eventos do Swing.
+     * Fechar a janela antes do fim da carga interrompe a consulta no banco; um erro na carga é
+     * informado em uma mensagem, exceto quando a janela foi fechada.
+     *
+     * @param <T> O tipo dos dados do relatório
+     * @param janela A janela do relatório
+     * @param carga A carga em andamento (ex: do {@link dao.AcessoAssincrono})
+     * @param exibir Preenche a janela com os dados carregados
+     */
+    static <T> void carregar(JFrame janela, CompletableFuture<T> carga, Consumer<T> exibir) {
+        janela.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                carga.cancel(true);
+            }
+        });
+
+        carga.whenComplete((dados, erro) -> SwingUtilities.invokeLater(() -> {
+            if (erro == null) {
+                exibir.accept(dados);
+            } else if (!carga.isCancelled()) {
+                JOptionPane.showMessageDialog(
+                        janela,
+                        "Erro ao carregar relatório: " + erro.getMessage(),
+                        "Erro",
+                        JOptionPane.ERROR_MESSAGE
+                );
+            }
+        }));
+    }
+}
@@ -1,6 +1,6 @@
 package view.relatorios;
 
-import dao.ProdutoDAO;
+import dao.AcessoAssincrono;
 import model.Produto;
 
 import javax.swing.JFrame;
@@ -56,20 +56,19 @@ public class RelatorioAbaixoMinimoView extends JFrame {
     }
 
     private void carregarDados() {
-        ProdutoDAO dao = new ProdutoDAO();
-        List<Produto> produtos = dao.listarAbaixoMinimo();
-
-        modelo.setRowCount(0);
-
-        for (Produto p : produtos) {
-            modelo.addRow(new Object[]{
-                    p.getNome(),
-                    p.getUnidade(),
-                    p.getQuantidadeEstoque(),
-                    p.getQuantidadeMinima(),
-                    p.getQuantidadeMaxima(),
-                    p.getCategoria().getNome()
-            });
-        }
+        CargaRelatorio.carregar(this, new AcessoAssincrono().listarAbaixoMinimo(), produtos -> {
+            modelo.setRowCount(0);
+
+            for (Produto p : produtos) {
+                modelo.addRow(new Object[]{
+                        p.getNome(),
+                        p.getUnidade(),
+                        p.getQuantidadeEstoque(),
+                        p.getQuantidadeMinima(),
+                        p.getQuantidadeMaxima(),
+                        p.getCategoria().getNome()
+                });
+            }
+        });
     }
 }
\ No newline at end of file
@@ -1,6 +1,6 @@
 package view.relatorios;
 
-import dao.ProdutoDAO;
+import dao.AcessoAssincrono;
 
 import javax.swing.JFrame;
 import javax.swing.JPanel;
@@ -15,7 +15,6 @@ import java.awt.Font;
 import java.text.NumberFormat;
 import java.util.Locale;
 
-
 public class RelatorioBalancoView extends JFrame {
 
     private JLabel lblValor;
@@ -47,10 +46,9 @@ public class RelatorioBalancoView extends JFrame {
     }
 
     private void carregarValorTotal() {
-        ProdutoDAO dao = new ProdutoDAO();
-        double total = dao.calcularValorTotalEstoque();
-
-        NumberFormat formatoMoeda = NumberFormat.getCurrencyInstance(new Locale("pt", "BR"));
-        lblValor.setText("Total em estoque: " + formatoMoeda.format(total));
+        CargaRelatorio.carregar(this, new AcessoAssincrono().calcularValorTotalEstoque(), total -> {
+            NumberFormat formatoMoeda = NumberFormat.getCurrencyInstance(new Locale("pt", "BR"));
+            lblValor.setText("Total em estoque: " + formatoMoeda.format(total));
+        });
     }
 }
\ No newline at end of file
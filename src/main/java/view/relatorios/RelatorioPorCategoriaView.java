@@ -1,6 +1,6 @@
 package view.relatorios;
 
-import dao.ProdutoDAO;
+import dao.AcessoAssincrono;
 import model.Categoria;
 import model.Produto;
 
@@ -38,29 +38,28 @@ public class RelatorioPorCategoriaView extends JFrame {
     }
 
     private void carregarDados() {
-        ProdutoDAO dao = new ProdutoDAO();
-        Map<Categoria, List<Produto>> mapa = dao.listarProdutosPorCategoria();
-
-        DefaultMutableTreeNode raiz = new DefaultMutableTreeNode("Categorias");
-
-        for (Categoria categoria : mapa.keySet()) {
-            DefaultMutableTreeNode noCategoria = new DefaultMutableTreeNode(categoria.getNome());
-
-            List<Produto> produtos = mapa.get(categoria);
-            for (Produto p : produtos) {
-                String produtoInfo = String.format("%s - R$ %.2f - Estoque: %d %s",
-                        p.getNome(),
-                        p.getPrecoUnitario(),
-                        p.getQuantidadeEstoque(),
-                        p.getUnidade());
-                noCategoria.add(new DefaultMutableTreeNode(produtoInfo));
+        CargaRelatorio.carregar(this, new AcessoAssincrono().listarProdutosPorCategoria(), mapa -> {
+            DefaultMutableTreeNode raiz = new DefaultMutableTreeNode("Categorias");
+
+            for (Categoria categoria : mapa.keySet()) {
+                DefaultMutableTreeNode noCategoria = new DefaultMutableTreeNode(categoria.getNome());
+
+                List<Produto> produtos = mapa.get(categoria);
+                for (Produto p : produtos) {
+                    String produtoInfo = String.format("%s - R$ %.2f - Estoque: %d %s",
+                            p.getNome(),
+                            p.getPrecoUnitario(),
+                            p.getQuantidadeEstoque(),
+                            p.getUnidade());
+                    noCategoria.add(new DefaultMutableTreeNode(produtoInfo));
+                }
+
+                raiz.add(noCategoria);
             }
 
-            raiz.add(noCategoria);
-        }
-
-        DefaultTreeModel modelo = new DefaultTreeModel(raiz);
-        treeProdutos.setModel(modelo);
-        treeProdutos.expandRow(0);
+            DefaultTreeModel modelo = new DefaultTreeModel(raiz);
+            treeProdutos.setModel(modelo);
+            treeProdutos.expandRow(0);
+        });
     }
 }
@@ -1,6 +1,6 @@
 package view.relatorios;
 
-import dao.ProdutoDAO;
+import dao.AcessoAssincrono;
 import model.Produto;
 
 import javax.swing.JFrame;
@@ -55,19 +55,18 @@ public class RelatorioPrecosView extends JFrame {
     }
 
     private void carregarDados() {
-        ProdutoDAO dao = new ProdutoDAO();
-        List<Produto> produtos = dao.listarComPrecos();
-
-        modelo.setRowCount(0);
-
-        for (Produto p : produtos) {
-            modelo.addRow(new Object[]{
-                    p.getNome(),
-                    p.getUnidade(),
-                    String.format("R$ %.2f", p.getPrecoUnitario()),
-                    p.getQuantidadeEstoque(),
-                    p.getCategoria().getNome()
-            });
-        }
+        CargaRelatorio.carregar(this, new AcessoAssincrono().listarComPrecos(), produtos -> {
+            modelo.setRowCount(0);
+
+            for (Produto p : produtos) {
+                modelo.addRow(new Object[]{
+                        p.getNome(),
+                        p.getUnidade(),
+                        String.format("R$ %.2f", p.getPrecoUnitario()),
+                        p.getQuantidadeEstoque(),
+                        p.getCategoria().getNome()
+                });
+            }
+        });
     }
 }
\ No newline at end of file
@@ -0,0 +1,203 @@
+-- Faixas de estoque, sequências de IDs e documentos de estoque sobre a versão 0 (db/estoque.sql):
+--   * produto.faixas_estoque e produto_estoque_faixa: o estoque de produtos muito movimentados
+--     dividido em faixas, para que saídas simultâneas do mesmo produto não esperem umas pelas
+--     outras (procedures ajustar_estoque, distribuir_faixas_estoque e definir_faixas_estoque);
+--   * sequencia: próximo ID livre de cada tabela, reservado em blocos pela aplicação (AlocadorIds);
+--   * documento_estoque e movimentacao.documento_id: notas de entrada e de saída com vários itens;
+--   * chave_idempotencia em documento_estoque e movimentacao: reenviar o mesmo registro não o
+--     grava novamente.
+-- Cada coluna é criada na mesma instrução que a sua chave, então uma repetição do script
+-- ignora a instrução inteira (coluna duplicada) sem deixar a chave para trás.
+
+-- Número de faixas em que o estoque está dividido (0 = estoque somente em quantidade_estoque)
+ALTER TABLE produto
+    ADD COLUMN faixas_estoque TINYINT NOT NULL DEFAULT 0;
+
+-- Próximo ID livre de cada tabela
+CREATE TABLE IF NOT EXISTS sequencia (
+    nome VARCHAR(50) PRIMARY KEY,
+    proximo BIGINT NOT NULL
+);
+
+-- Faixas do estoque: o estoque total é quantidade_estoque mais a soma das faixas. Cada
+-- movimentação altera uma faixa sorteada, e não a linha do produto.
+CREATE TABLE IF NOT EXISTS produto_estoque_faixa (
+    produto_id INT NOT NULL,
+    faixa TINYINT NOT NULL,
+    quantidade INT NOT NULL DEFAULT 0,
+    PRIMARY KEY (produto_id, faixa),
+    FOREIGN KEY (produto_id) REFERENCES produto(id) ON DELETE CASCADE
+);
+
+-- Tabela de Documentos de Estoque (notas de entrada e de saída com vários itens)
+CREATE TABLE IF NOT EXISTS documento_estoque (
+    id INT AUTO_INCREMENT PRIMARY KEY,
+    tipo ENUM('Entrada', 'Saída') NOT NULL,
+    data_hora DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    observacao TEXT,
+    -- Chave gerada pela aplicação: reenviar o mesmo documento não o grava novamente
+    chave_idempotencia CHAR(36) CHARACTER SET ascii NULL,
+    UNIQUE KEY uk_documento_estoque_chave (chave_idempotencia)
+);
+
+-- Documento de estoque ao qual o item pertence (NULL para movimentações avulsas)
+ALTER TABLE movimentacao
+    ADD COLUMN documento_id INT NULL,
+    ADD FOREIGN KEY (documento_id) REFERENCES documento_estoque(id);
+
+-- Chave gerada pela aplicação: reenviar a mesma movimentação não a aplica novamente
+ALTER TABLE movimentacao
+    ADD COLUMN chave_idempotencia CHAR(36) CHARACTER SET ascii NULL,
+    ADD UNIQUE KEY uk_movimentacao_chave (chave_idempotencia);
+
+-- Estoque total do produto: quantidade_estoque mais as faixas (NULL se o produto não existir)
+DROP FUNCTION IF EXISTS estoque_produto;
+DELIMITER //
+CREATE FUNCTION estoque_produto(p_produto_id INT) RETURNS INT
+READS SQL DATA
+BEGIN
+    RETURN (SELECT p.quantidade_estoque + (SELECT COALESCE(SUM(f.quantidade), 0)
+                                           FROM produto_estoque_faixa f WHERE f.produto_id = p.id)
+            FROM produto p WHERE p.id = p_produto_id);
+END //
+DELIMITER ;
+
+-- Distribui o estoque total igualmente entre as faixas do produto (o resto fica na faixa 0)
+-- e zera quantidade_estoque. Deve ser chamada com o produto e as faixas já travados.
+DROP PROCEDURE IF EXISTS distribuir_faixas_estoque;
+DELIMITER //
+CREATE PROCEDURE distribuir_faixas_estoque(
+    IN p_produto_id INT,
+    IN p_faixas INT,
+    IN p_total INT
+)
+BEGIN
+    DECLARE v_faixa INT DEFAULT 0;
+    DECLARE v_parte INT DEFAULT p_total DIV p_faixas;
+
+    DELETE FROM produto_estoque_faixa WHERE produto_id = p_produto_id AND faixa >= p_faixas;
+    WHILE v_faixa < p_faixas DO
+        INSERT INTO produto_estoque_faixa (produto_id, faixa, quantidade)
+        VALUES (p_produto_id, v_faixa, IF(v_faixa = 0, p_total - v_parte * (p_faixas - 1), v_parte))
+        ON DUPLICATE KEY UPDATE quantidade = VALUES(quantidade);
+        SET v_faixa = v_faixa + 1;
+    END WHILE;
+    UPDATE produto SET quantidade_estoque = 0, faixas_estoque = p_faixas WHERE id = p_produto_id;
+END //
+DELIMITER ;
+
+-- Ajusta o estoque total do produto pela variação informada, na transação de quem chama.
+-- Sem faixas, altera quantidade_estoque; com faixas, altera uma faixa sorteada (nas saídas,
+-- tenta as demais faixas se a sorteada não tiver quantidade suficiente). Se nenhuma faixa
+-- sozinha cobrir a saída, trava o produto e todas as faixas, decide pelo estoque total e
+-- redistribui o que restar. Saídas que deixariam o estoque total negativo não são aplicadas.
+-- p_aplicado indica se o ajuste foi feito; p_estoque traz o estoque total resultante (ou o atual,
+-- se recusado) e fica NULL se o produto não existir. Com faixas, o estoque resultante não
+-- inclui ajustes ainda não confirmados de outras transações nas demais faixas.
+DROP PROCEDURE IF EXISTS ajustar_estoque;
+DELIMITER //
+CREATE PROCEDURE ajustar_estoque(
+    IN p_produto_id INT,
+    IN p_variacao INT,
+    OUT p_aplicado BOOLEAN,
+    OUT p_estoque INT
+)
+corpo: BEGIN
+    DECLARE v_faixas INT;
+    DECLARE v_inicio INT;
+    DECLARE v_tentativa INT DEFAULT 0;
+    DECLARE v_base INT;
+    DECLARE v_soma INT;
+
+    SET p_aplicado = FALSE;
+    SET p_estoque = NULL;
+
+    -- Caminho rápido: uma única linha travada, a do produto ou a de uma faixa
+    SELECT faixas_estoque INTO v_faixas FROM produto WHERE id = p_produto_id;
+    IF v_faixas = 0 THEN
+        UPDATE produto
+        SET quantidade_estoque = quantidade_estoque + p_variacao
+        WHERE id = p_produto_id AND faixas_estoque = 0 AND quantidade_estoque + p_variacao >= 0;
+        SET p_aplicado = ROW_COUNT() > 0;
+    ELSEIF v_faixas > 0 THEN
+        SET v_inicio = FLOOR(RAND() * v_faixas);
+        WHILE NOT p_aplicado AND v_tentativa < IF(p_variacao >= 0, 1, v_faixas) DO
+            UPDATE produto_estoque_faixa
+            SET quantidade = quantidade + p_variacao
+            WHERE produto_id = p_produto_id AND faixa = (v_inicio + v_tentativa) MOD v_faixas
+              AND quantidade + p_variacao >= 0;
+            SET p_aplicado = ROW_COUNT() > 0;
+            SET v_tentativa = v_tentativa + 1;
+        END WHILE;
+    END IF;
+
+    IF p_aplicado THEN
+        SET p_estoque = estoque_produto(p_produto_id);
+        LEAVE corpo;
+    END IF;
+
+    -- Caminho lento: trava o produto e todas as faixas e decide pelo estoque total
+    SELECT quantidade_estoque, faixas_estoque INTO v_base, v_faixas
+    FROM produto WHERE id = p_produto_id FOR UPDATE;
+    IF v_base IS NULL THEN
+        LEAVE corpo;
+    END IF;
+    SELECT COALESCE(SUM(quantidade), 0) INTO v_soma
+    FROM produto_estoque_faixa WHERE produto_id = p_produto_id FOR UPDATE;
+
+    SET p_estoque = v_base + v_soma;
+    IF p_estoque + p_variacao < 0 THEN
+        LEAVE corpo;
+    END IF;
+
+    SET p_estoque = p_estoque + p_variacao;
+    IF v_faixas = 0 THEN
+        UPDATE produto SET quantidade_estoque = p_estoque WHERE id = p_produto_id;
+    ELSE
+        CALL distribuir_faixas_estoque(p_produto_id, v_faixas, p_estoque);
+    END IF;
+    SET p_aplicado = TRUE;
+END corpo //
+DELIMITER ;
+
+-- Divide o estoque do produto em p_faixas faixas (1 a 64), redistribuindo o estoque total
+-- igualmente; com p_faixas = 0, consolida as faixas de volta em quantidade_estoque;
+-- com p_faixas NULL, apenas rebalanceia as faixas atuais. Participa da transação de quem chama.
+DROP PROCEDURE IF EXISTS definir_faixas_estoque;
+DELIMITER //
+CREATE PROCEDURE definir_faixas_estoque(
+    IN p_produto_id INT,
+    IN p_faixas INT
+)
+BEGIN
+    DECLARE v_base INT;
+    DECLARE v_faixas INT;
+    DECLARE v_soma INT;
+
+    IF p_faixas < 0 OR p_faixas > 64 THEN
+        SIGNAL SQLSTATE '45000' SET MESSAGE_TEXT = 'Número de faixas de estoque deve estar entre 0 e 64';
+    END IF;
+
+    SELECT quantidade_estoque, faixas_estoque INTO v_base, v_faixas
+    FROM produto WHERE id = p_produto_id FOR UPDATE;
+    IF v_base IS NULL THEN
+        SIGNAL SQLSTATE '45000' SET MESSAGE_TEXT = 'Produto não encontrado';
+    END IF;
+    SELECT COALESCE(SUM(quantidade), 0) INTO v_soma
+    FROM produto_estoque_faixa WHERE produto_id = p_produto_id FOR UPDATE;
+
+    SET v_faixas = COALESCE(p_faixas, v_faixas);
+    IF v_faixas = 0 THEN
+        DELETE FROM produto_estoque_faixa WHERE produto_id = p_produto_id;
+        UPDATE produto SET quantidade_estoque = v_base + v_soma, faixas_estoque = 0 WHERE id = p_produto_id;
+    ELSE
+        CALL distribuir_faixas_estoque(p_produto_id, v_faixas, v_base + v_soma);
+    END IF;
+END //
+DELIMITER ;
+
+-- Sequências de IDs a partir dos dados existentes
+INSERT IGNORE INTO sequencia (nome, proximo) SELECT 'categoria', COALESCE(MAX(id), 0) + 1 FROM categoria;
+INSERT IGNORE INTO sequencia (nome, proximo) SELECT 'produto', COALESCE(MAX(id), 0) + 1 FROM produto;
+INSERT IGNORE INTO sequencia (nome, proximo) SELECT 'movimentacao', COALESCE(MAX(id), 0) + 1 FROM movimentacao;
+INSERT IGNORE INTO sequencia (nome, proximo) SELECT 'documento_estoque', COALESCE(MAX(id), 0) + 1 FROM documento_estoque;
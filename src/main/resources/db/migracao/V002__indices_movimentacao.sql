@@ -0,0 +1,14 @@
+-- Índices das listagens de movimentações por produto e por tipo (MovimentacaoDAO):
+--   WHERE m.produto_id = ? ORDER BY m.data_hora DESC, m.id DESC
+--   WHERE m.tipo = ? ORDER BY m.data_hora DESC, m.id DESC
+-- O InnoDB acrescenta a chave primária (id) a todo índice secundário, então o desempate
+-- por id das páginas também é atendido pelo índice, sem ordenação em memória.
+-- O índice por produto também atende à chave estrangeira de produto_id.
+-- Uma instrução por índice: se um deles já existir, o outro ainda é criado.
+ALTER TABLE movimentacao
+    ADD INDEX idx_movimentacao_produto_data (produto_id, data_hora),
+    ALGORITHM = INPLACE, LOCK = NONE;
+
+ALTER TABLE movimentacao
+    ADD INDEX idx_movimentacao_tipo_data (tipo, data_hora),
+    ALGORITHM = INPLACE, LOCK = NONE;
@@ -0,0 +1,5 @@
+-- Índice das listagens de produtos ordenadas por nome (ProdutoDAO: preços, abaixo do mínimo,
+-- acima do máximo, por categoria) e da paginação por (nome, id).
+ALTER TABLE produto
+    ADD INDEX idx_produto_nome (nome),
+    ALGORITHM = INPLACE, LOCK = NONE;
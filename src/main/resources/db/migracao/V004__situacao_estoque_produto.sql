@@ -0,0 +1,15 @@
+-- Situação do estoque de cada produto em relação ao mínimo e ao máximo, para os relatórios
+-- de produtos abaixo do mínimo e acima do máximo (ProdutoDAO). A comparação entre colunas
+-- (quantidade_estoque < quantidade_minima) não pode usar índice; a coluna gerada pode.
+-- Produtos com o estoque dividido em faixas ficam com situação NULL: o estoque total depende
+-- de produto_estoque_faixa, que uma coluna gerada não enxerga, e as consultas conferem
+-- esses produtos pela soma das faixas.
+ALTER TABLE produto
+    ADD COLUMN situacao_estoque ENUM('Abaixo', 'Normal', 'Acima') CHARACTER SET utf8mb4
+        AS (IF(faixas_estoque > 0, NULL,
+               IF(quantidade_estoque < quantidade_minima, 'Abaixo',
+                  IF(quantidade_estoque > quantidade_maxima, 'Acima', 'Normal')))) STORED;
+
+ALTER TABLE produto
+    ADD INDEX idx_produto_situacao_estoque (situacao_estoque),
+    ALGORITHM = INPLACE, LOCK = NONE;
@@ -0,0 +1,153 @@
+-- Formato compacto da tabela movimentacao, a que mais cresce:
+--   * id BIGINT, para que a numeração não se esgote em 2^31 movimentações;
+--   * tipo como código TINYINT (1 = Entrada, 2 = Saída; ver MovimentacaoDAO), sem depender
+--     do literal acentuado 'Saída' nem do conjunto de caracteres da conexão;
+--   * observação em movimentacao_observacao, uma linha só para as movimentações que têm
+--     observação, lida por LEFT JOIN apenas nas listagens exibidas ao usuário. O TEXT deixa
+--     de ocupar a linha principal, então varreduras e índices leem linhas menores.
+-- Todos os terminais devem ser atualizados juntos: versões anteriores da aplicação gravam
+-- tipo e observação no formato antigo.
+-- A troca de formato é feita por uma procedure temporária que só age enquanto tipo ainda é o
+-- ENUM antigo (information_schema.COLUMNS): repetir o script depois da troca não recalcula os
+-- códigos, o que gravaria 2 (Saída) em todas as linhas, já que o tipo numérico nunca é 'Entrada'.
+-- Interrompido antes da troca, o script é repetido do início.
+
+CREATE TABLE IF NOT EXISTS movimentacao_observacao (
+    movimentacao_id BIGINT PRIMARY KEY,
+    observacao TEXT NOT NULL
+);
+
+DROP PROCEDURE IF EXISTS migracao_compactar_movimentacao;
+DELIMITER //
+CREATE PROCEDURE migracao_compactar_movimentacao()
+BEGIN
+    IF (SELECT DATA_TYPE FROM information_schema.COLUMNS
+        WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'movimentacao' AND COLUMN_NAME = 'tipo') = 'enum' THEN
+
+        INSERT IGNORE INTO movimentacao_observacao (movimentacao_id, observacao)
+        SELECT id, observacao FROM movimentacao WHERE observacao IS NOT NULL AND observacao <> '';
+
+        IF NOT EXISTS (SELECT 1 FROM information_schema.COLUMNS
+                       WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'movimentacao'
+                         AND COLUMN_NAME = 'codigo_tipo') THEN
+            ALTER TABLE movimentacao
+                ADD COLUMN codigo_tipo TINYINT UNSIGNED NOT NULL DEFAULT 0;
+        END IF;
+
+        UPDATE movimentacao SET codigo_tipo = IF(tipo = 'Entrada', 1, 2) WHERE codigo_tipo = 0;
+
+        -- Uma única instrução para a troca: a tabela nunca fica sem a coluna tipo
+        ALTER TABLE movimentacao
+            MODIFY id BIGINT NOT NULL AUTO_INCREMENT,
+            DROP INDEX idx_movimentacao_tipo_data,
+            DROP COLUMN tipo,
+            DROP COLUMN observacao,
+            CHANGE COLUMN codigo_tipo tipo TINYINT UNSIGNED NOT NULL,
+            ADD INDEX idx_movimentacao_tipo_data (tipo, data_hora),
+            ADD CONSTRAINT ck_movimentacao_tipo CHECK (tipo IN (1, 2));
+    END IF;
+END //
+DELIMITER ;
+
+CALL migracao_compactar_movimentacao();
+
+DROP PROCEDURE migracao_compactar_movimentacao;
+
+-- Registra uma movimentação com o ID informado (alocado pela aplicação) e ajusta o estoque
+-- do produto em uma única chamada ao servidor. O tipo é o código gravado na tabela
+-- (1 = Entrada, 2 = Saída); a observação, se preenchida, vai para movimentacao_observacao.
+-- Retorna uma linha com o ID da movimentação (id), o estoque resultante (quantidade_estoque)
+-- e se a chamada repetiu uma movimentação já registrada (repetida).
+-- Saídas só baixam o estoque se houver quantidade suficiente, verificado na própria instrução
+-- UPDATE (ver ajustar_estoque); se recusada, nada é gravado e a linha traz id NULL e o
+-- estoque atual do produto.
+-- Se já existir uma movimentação com a chave de idempotência informada, nada é aplicado e
+-- a linha traz o ID original, o estoque atual e repetida = TRUE. Se outra transação registrar
+-- a mesma chave enquanto esta ajusta o estoque, o índice único recusa a inserção e o ajuste
+-- é desfeito até o savepoint.
+-- Chamada com auto-commit ativo, abre e confirma a própria transação;
+-- dentro de uma transação do cliente, participa dela e deixa a confirmação para o cliente.
+DROP PROCEDURE IF EXISTS registrar_movimentacao;
+DELIMITER //
+CREATE PROCEDURE registrar_movimentacao(
+    IN p_id BIGINT,
+    IN p_chave CHAR(36),
+    IN p_produto_id INT,
+    IN p_tipo TINYINT,
+    IN p_quantidade INT,
+    IN p_data_hora DATETIME,
+    IN p_observacao TEXT
+)
+corpo: BEGIN
+    DECLARE v_transacao_propria BOOLEAN DEFAULT (@@autocommit = 1);
+    DECLARE v_aplicado BOOLEAN;
+    DECLARE v_estoque INT;
+    DECLARE v_original BIGINT;
+    DECLARE v_repetida BOOLEAN DEFAULT FALSE;
+
+    -- Chave de idempotência duplicada na inserção
+    DECLARE CONTINUE HANDLER FOR 1062 SET v_repetida = TRUE;
+
+    DECLARE EXIT HANDLER FOR SQLEXCEPTION
+    BEGIN
+        IF v_transacao_propria THEN
+            ROLLBACK;
+        END IF;
+        RESIGNAL;
+    END;
+
+    -- Repetição de uma movimentação já registrada: devolve o resultado original
+    IF p_chave IS NOT NULL THEN
+        SELECT id INTO v_original FROM movimentacao WHERE chave_idempotencia = p_chave;
+        IF v_original IS NOT NULL THEN
+            SELECT v_original AS id, estoque_produto(p_produto_id) AS quantidade_estoque, TRUE AS repetida;
+            LEAVE corpo;
+        END IF;
+    END IF;
+
+    IF v_transacao_propria THEN
+        START TRANSACTION;
+    END IF;
+    SAVEPOINT registrar_movimentacao;
+
+    -- O estoque é ajustado primeiro: uma saída recusada não chega a inserir a movimentação
+    CALL ajustar_estoque(p_produto_id, IF(p_tipo = 1, p_quantidade, -p_quantidade),
+                         v_aplicado, v_estoque);
+
+    IF NOT v_aplicado THEN
+        IF v_transacao_propria THEN
+            COMMIT;
+        END IF;
+        SELECT NULL AS id, v_estoque AS quantidade_estoque, FALSE AS repetida;
+        LEAVE corpo;
+    END IF;
+
+    INSERT INTO movimentacao (id, chave_idempotencia, produto_id, tipo, quantidade, data_hora)
+    VALUES (p_id, p_chave, p_produto_id, p_tipo, p_quantidade, p_data_hora);
+
+    IF v_repetida THEN
+        -- Registrada por outra transação enquanto esta ajustava o estoque
+        ROLLBACK TO SAVEPOINT registrar_movimentacao;
+        SELECT id INTO v_original FROM movimentacao WHERE chave_idempotencia = p_chave LOCK IN SHARE MODE;
+        IF v_original IS NULL THEN
+            -- A duplicidade foi no ID, e não na chave
+            SIGNAL SQLSTATE '23000' SET MESSAGE_TEXT = 'ID de movimentação duplicado', MYSQL_ERRNO = 1062;
+        END IF;
+        IF v_transacao_propria THEN
+            COMMIT;
+        END IF;
+        SELECT v_original AS id, estoque_produto(p_produto_id) AS quantidade_estoque, TRUE AS repetida;
+        LEAVE corpo;
+    END IF;
+
+    IF p_observacao IS NOT NULL AND p_observacao <> '' THEN
+        INSERT INTO movimentacao_observacao (movimentacao_id, observacao) VALUES (p_id, p_observacao);
+    END IF;
+
+    IF v_transacao_propria THEN
+        COMMIT;
+    END IF;
+
+    SELECT p_id AS id, v_estoque AS quantidade_estoque, FALSE AS repetida;
+END corpo //
+DELIMITER ;
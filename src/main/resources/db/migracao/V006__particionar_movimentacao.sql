@@ -0,0 +1,187 @@
+-- Particionamento mensal de movimentacao e movimentacao_observacao por data_hora, para que
+-- as consultas do histórico (sempre com limites de data, ver MovimentacaoDAO) leiam só as
+-- partições do período e para que meses antigos sejam descartados ou arquivados inteiros
+-- (ver ParticoesMovimentacao), sem DELETE linha a linha.
+-- Exigências do MySQL para tabelas particionadas:
+--   * toda chave única inclui data_hora: a chave primária passa a (id, data_hora) e a chave de
+--     idempotência a (chave_idempotencia, data_hora);
+--   * não há chaves estrangeiras: a exclusão de um produto com movimentações passa a ser
+--     recusada pela própria instrução (ver PRODUTO_EXCLUIR em ConsultaSql).
+-- As partições vão do mês da movimentação mais antiga até 3 meses à frente, mais p_futuro
+-- (MAXVALUE); a aplicação cria os meses seguintes antes que sejam necessários.
+-- O reparticionamento copia as tabelas; as etapas podem ser repetidas se o script for interrompido.
+
+DROP PROCEDURE IF EXISTS migracao_remover_chaves_estrangeiras;
+DELIMITER //
+CREATE PROCEDURE migracao_remover_chaves_estrangeiras(IN p_tabela VARCHAR(64))
+BEGIN
+    SET @remocoes = NULL;
+    SELECT GROUP_CONCAT(CONCAT('DROP FOREIGN KEY `', CONSTRAINT_NAME, '`')) INTO @remocoes
+    FROM information_schema.REFERENTIAL_CONSTRAINTS
+    WHERE CONSTRAINT_SCHEMA = DATABASE() AND TABLE_NAME = p_tabela;
+    IF @remocoes IS NOT NULL THEN
+        SET @sql = CONCAT('ALTER TABLE `', p_tabela, '` ', @remocoes);
+        PREPARE instrucao FROM @sql;
+        EXECUTE instrucao;
+        DEALLOCATE PREPARE instrucao;
+    END IF;
+END //
+DELIMITER ;
+
+DROP PROCEDURE IF EXISTS migracao_particionar_por_mes;
+DELIMITER //
+CREATE PROCEDURE migracao_particionar_por_mes(IN p_tabela VARCHAR(64), IN p_desde DATETIME)
+BEGIN
+    DECLARE v_mes DATE DEFAULT DATE_FORMAT(COALESCE(p_desde, CURRENT_DATE), '%Y-%m-01');
+    DECLARE v_ultimo DATE DEFAULT DATE_ADD(DATE_FORMAT(CURRENT_DATE, '%Y-%m-01'), INTERVAL 3 MONTH);
+    DECLARE v_particoes TEXT DEFAULT '';
+    WHILE v_mes <= v_ultimo DO
+        SET v_particoes = CONCAT(v_particoes, 'PARTITION p_', DATE_FORMAT(v_mes, '%Y%m'),
+                                 ' VALUES LESS THAN (''', DATE_ADD(v_mes, INTERVAL 1 MONTH), '''), ');
+        SET v_mes = DATE_ADD(v_mes, INTERVAL 1 MONTH);
+    END WHILE;
+    SET @sql = CONCAT('ALTER TABLE `', p_tabela, '` PARTITION BY RANGE COLUMNS (data_hora) (',
+                      v_particoes, 'PARTITION p_futuro VALUES LESS THAN (MAXVALUE))');
+    PREPARE instrucao FROM @sql;
+    EXECUTE instrucao;
+    DEALLOCATE PREPARE instrucao;
+END //
+DELIMITER ;
+
+CALL migracao_remover_chaves_estrangeiras('movimentacao');
+
+-- O índice por data atende às listagens de um período inteiro, ordenadas por (data_hora, id)
+ALTER TABLE movimentacao
+    DROP PRIMARY KEY,
+    ADD PRIMARY KEY (id, data_hora),
+    DROP INDEX uk_movimentacao_chave,
+    ADD UNIQUE KEY uk_movimentacao_chave (chave_idempotencia, data_hora),
+    ADD INDEX idx_movimentacao_data (data_hora);
+
+-- A observação recebe a data da movimentação, para ficar na partição do mesmo mês
+ALTER TABLE movimentacao_observacao
+    ADD COLUMN data_hora DATETIME NOT NULL DEFAULT '1000-01-01 00:00:00';
+
+UPDATE movimentacao_observacao o
+JOIN movimentacao m ON m.id = o.movimentacao_id
+SET o.data_hora = m.data_hora;
+
+ALTER TABLE movimentacao_observacao
+    ALTER COLUMN data_hora DROP DEFAULT,
+    DROP PRIMARY KEY,
+    ADD PRIMARY KEY (movimentacao_id, data_hora);
+
+-- As duas tabelas recebem as mesmas partições, para serem descartadas e arquivadas juntas
+SET @desde = (SELECT MIN(data_hora) FROM movimentacao);
+
+CALL migracao_particionar_por_mes('movimentacao', @desde);
+
+CALL migracao_particionar_por_mes('movimentacao_observacao', @desde);
+
+DROP PROCEDURE migracao_remover_chaves_estrangeiras;
+
+DROP PROCEDURE migracao_particionar_por_mes;
+
+-- Registra uma movimentação com o ID informado (alocado pela aplicação) e ajusta o estoque
+-- do produto em uma única chamada ao servidor. O tipo é o código gravado na tabela
+-- (1 = Entrada, 2 = Saída); a observação, se preenchida, vai para movimentacao_observacao.
+-- A data e hora deve vir sem frações de segundo: a chave de idempotência é única junto com
+-- ela (uma nova tentativa envia a mesma data e hora), e a procura pela chave lê uma partição.
+-- Retorna uma linha com o ID da movimentação (id), o estoque resultante (quantidade_estoque)
+-- e se a chamada repetiu uma movimentação já registrada (repetida).
+-- Saídas só baixam o estoque se houver quantidade suficiente, verificado na própria instrução
+-- UPDATE (ver ajustar_estoque); se recusada, nada é gravado e a linha traz id NULL e o
+-- estoque atual do produto.
+-- Se já existir uma movimentação com a chave de idempotência informada, nada é aplicado e
+-- a linha traz o ID original, o estoque atual e repetida = TRUE. Se outra transação registrar
+-- a mesma chave enquanto esta ajusta o estoque, o índice único recusa a inserção e o ajuste
+-- é desfeito até o savepoint.
+-- Chamada com auto-commit ativo, abre e confirma a própria transação;
+-- dentro de uma transação do cliente, participa dela e deixa a confirmação para o cliente.
+DROP PROCEDURE IF EXISTS registrar_movimentacao;
+DELIMITER //
+CREATE PROCEDURE registrar_movimentacao(
+    IN p_id BIGINT,
+    IN p_chave CHAR(36),
+    IN p_produto_id INT,
+    IN p_tipo TINYINT,
+    IN p_quantidade INT,
+    IN p_data_hora DATETIME,
+    IN p_observacao TEXT
+)
+corpo: BEGIN
+    DECLARE v_transacao_propria BOOLEAN DEFAULT (@@autocommit = 1);
+    DECLARE v_aplicado BOOLEAN;
+    DECLARE v_estoque INT;
+    DECLARE v_original BIGINT;
+    DECLARE v_repetida BOOLEAN DEFAULT FALSE;
+
+    -- Chave de idempotência duplicada na inserção
+    DECLARE CONTINUE HANDLER FOR 1062 SET v_repetida = TRUE;
+
+    DECLARE EXIT HANDLER FOR SQLEXCEPTION
+    BEGIN
+        IF v_transacao_propria THEN
+            ROLLBACK;
+        END IF;
+        RESIGNAL;
+    END;
+
+    -- Repetição de uma movimentação já registrada: devolve o resultado original
+    IF p_chave IS NOT NULL THEN
+        SELECT id INTO v_original FROM movimentacao
+        WHERE chave_idempotencia = p_chave AND data_hora = p_data_hora;
+        IF v_original IS NOT NULL THEN
+            SELECT v_original AS id, estoque_produto(p_produto_id) AS quantidade_estoque, TRUE AS repetida;
+            LEAVE corpo;
+        END IF;
+    END IF;
+
+    IF v_transacao_propria THEN
+        START TRANSACTION;
+    END IF;
+    SAVEPOINT registrar_movimentacao;
+
+    -- O estoque é ajustado primeiro: uma saída recusada não chega a inserir a movimentação
+    CALL ajustar_estoque(p_produto_id, IF(p_tipo = 1, p_quantidade, -p_quantidade),
+                         v_aplicado, v_estoque);
+
+    IF NOT v_aplicado THEN
+        IF v_transacao_propria THEN
+            COMMIT;
+        END IF;
+        SELECT NULL AS id, v_estoque AS quantidade_estoque, FALSE AS repetida;
+        LEAVE corpo;
+    END IF;
+
+    INSERT INTO movimentacao (id, chave_idempotencia, produto_id, tipo, quantidade, data_hora)
+    VALUES (p_id, p_chave, p_produto_id, p_tipo, p_quantidade, p_data_hora);
+
+    IF v_repetida THEN
+        -- Registrada por outra transação enquanto esta ajustava o estoque
+        ROLLBACK TO SAVEPOINT registrar_movimentacao;
+        SELECT id INTO v_original FROM movimentacao
+        WHERE chave_idempotencia = p_chave AND data_hora = p_data_hora LOCK IN SHARE MODE;
+        IF v_original IS NULL THEN
+            -- A duplicidade foi no ID, e não na chave
+            SIGNAL SQLSTATE '23000' SET MESSAGE_TEXT = 'ID de movimentação duplicado', MYSQL_ERRNO = 1062;
+        END IF;
+        IF v_transacao_propria THEN
+            COMMIT;
+        END IF;
+        SELECT v_original AS id, estoque_produto(p_produto_id) AS quantidade_estoque, TRUE AS repetida;
+        LEAVE corpo;
+    END IF;
+
+    IF p_observacao IS NOT NULL AND p_observacao <> '' THEN
+        INSERT INTO movimentacao_observacao (movimentacao_id, data_hora, observacao)
+        VALUES (p_id, p_data_hora, p_observacao);
+    END IF;
+
+    IF v_transacao_propria THEN
+        COMMIT;
+    END IF;
+
+    SELECT p_id AS id, v_estoque AS quantidade_estoque, FALSE AS repetida;
+END corpo //
+DELIMITER ;
@@ -0,0 +1,125 @@
+-- Pontos de controle do estoque: o estoque de cada produto no início de cada dia, gravado pela
+-- aplicação (PontosControleEstoque). O estoque em uma data é o do ponto de controle anterior
+-- mais a variação das movimentações entre ele e a data (MovimentacaoDAO.consultarEstoqueEm),
+-- sem repassar o histórico desde o início; os pontos continuam valendo para os meses já
+-- descartados do histórico particionado.
+-- O ponto de controle de um instante considera as movimentações anteriores a ele; uma
+-- movimentação retroativa corrige os pontos posteriores a ela (ver registrar_movimentacao e
+-- MovimentacaoDAO.gravarLote).
+CREATE TABLE IF NOT EXISTS estoque_ponto_controle (
+    produto_id INT NOT NULL,
+    data_hora DATETIME NOT NULL,
+    quantidade INT NOT NULL,
+    PRIMARY KEY (produto_id, data_hora),
+    FOREIGN KEY (produto_id) REFERENCES produto(id) ON DELETE CASCADE
+);
+
+-- Registra uma movimentação com o ID informado (alocado pela aplicação) e ajusta o estoque
+-- do produto em uma única chamada ao servidor. O tipo é o código gravado na tabela
+-- (1 = Entrada, 2 = Saída); a observação, se preenchida, vai para movimentacao_observacao.
+-- A data e hora deve vir sem frações de segundo: a chave de idempotência é única junto com
+-- ela (uma nova tentativa envia a mesma data e hora), e a procura pela chave lê uma partição.
+-- Os pontos de controle do produto posteriores à data e hora da movimentação (só existem se ela
+-- for retroativa) recebem a variação na mesma transação.
+-- Retorna uma linha com o ID da movimentação (id), o estoque resultante (quantidade_estoque)
+-- e se a chamada repetiu uma movimentação já registrada (repetida).
+-- Saídas só baixam o estoque se houver quantidade suficiente, verificado na própria instrução
+-- UPDATE (ver ajustar_estoque); se recusada, nada é gravado e a linha traz id NULL e o
+-- estoque atual do produto.
+-- Se já existir uma movimentação com a chave de idempotência informada, nada é aplicado e
+-- a linha traz o ID original, o estoque atual e repetida = TRUE. Se outra transação registrar
+-- a mesma chave enquanto esta ajusta o estoque, o índice único recusa a inserção e o ajuste
+-- é desfeito até o savepoint.
+-- Chamada com auto-commit ativo, abre e confirma a própria transação;
+-- dentro de uma transação do cliente, participa dela e deixa a confirmação para o cliente.
+DROP PROCEDURE IF EXISTS registrar_movimentacao;
+DELIMITER //
+CREATE PROCEDURE registrar_movimentacao(
+    IN p_id BIGINT,
+    IN p_chave CHAR(36),
+    IN p_produto_id INT,
+    IN p_tipo TINYINT,
+    IN p_quantidade INT,
+    IN p_data_hora DATETIME,
+    IN p_observacao TEXT
+)
+corpo: BEGIN
+    DECLARE v_transacao_propria BOOLEAN DEFAULT (@@autocommit = 1);
+    DECLARE v_aplicado BOOLEAN;
+    DECLARE v_estoque INT;
+    DECLARE v_original BIGINT;
+    DECLARE v_repetida BOOLEAN DEFAULT FALSE;
+
+    -- Chave de idempotência duplicada na inserção
+    DECLARE CONTINUE HANDLER FOR 1062 SET v_repetida = TRUE;
+
+    DECLARE EXIT HANDLER FOR SQLEXCEPTION
+    BEGIN
+        IF v_transacao_propria THEN
+            ROLLBACK;
+        END IF;
+        RESIGNAL;
+    END;
+
+    -- Repetição de uma movimentação já registrada: devolve o resultado original
+    IF p_chave IS NOT NULL THEN
+        SELECT id INTO v_original FROM movimentacao
+        WHERE chave_idempotencia = p_chave AND data_hora = p_data_hora;
+        IF v_original IS NOT NULL THEN
+            SELECT v_original AS id, estoque_produto(p_produto_id) AS quantidade_estoque, TRUE AS repetida;
+            LEAVE corpo;
+        END IF;
+    END IF;
+
+    IF v_transacao_propria THEN
+        START TRANSACTION;
+    END IF;
+    SAVEPOINT registrar_movimentacao;
+
+    -- O estoque é ajustado primeiro: uma saída recusada não chega a inserir a movimentação
+    CALL ajustar_estoque(p_produto_id, IF(p_tipo = 1, p_quantidade, -p_quantidade),
+                         v_aplicado, v_estoque);
+
+    IF NOT v_aplicado THEN
+        IF v_transacao_propria THEN
+            COMMIT;
+        END IF;
+        SELECT NULL AS id, v_estoque AS quantidade_estoque, FALSE AS repetida;
+        LEAVE corpo;
+    END IF;
+
+    INSERT INTO movimentacao (id, chave_idempotencia, produto_id, tipo, quantidade, data_hora)
+    VALUES (p_id, p_chave, p_produto_id, p_tipo, p_quantidade, p_data_hora);
+
+    IF v_repetida THEN
+        -- Registrada por outra transação enquanto esta ajustava o estoque
+        ROLLBACK TO SAVEPOINT registrar_movimentacao;
+        SELECT id INTO v_original FROM movimentacao
+        WHERE chave_idempotencia = p_chave AND data_hora = p_data_hora LOCK IN SHARE MODE;
+        IF v_original IS NULL THEN
+            -- A duplicidade foi no ID, e não na chave
+            SIGNAL SQLSTATE '23000' SET MESSAGE_TEXT = 'ID de movimentação duplicado', MYSQL_ERRNO = 1062;
+        END IF;
+        IF v_transacao_propria THEN
+            COMMIT;
+        END IF;
+        SELECT v_original AS id, estoque_produto(p_produto_id) AS quantidade_estoque, TRUE AS repetida;
+        LEAVE corpo;
+    END IF;
+
+    UPDATE estoque_ponto_controle
+    SET quantidade = quantidade + IF(p_tipo = 1, p_quantidade, -p_quantidade)
+    WHERE produto_id = p_produto_id AND data_hora > p_data_hora;
+
+    IF p_observacao IS NOT NULL AND p_observacao <> '' THEN
+        INSERT INTO movimentacao_observacao (movimentacao_id, data_hora, observacao)
+        VALUES (p_id, p_data_hora, p_observacao);
+    END IF;
+
+    IF v_transacao_propria THEN
+        COMMIT;
+    END IF;
+
+    SELECT p_id AS id, v_estoque AS quantidade_estoque, FALSE AS repetida;
+END corpo //
+DELIMITER ;
@@ -0,0 +1,100 @@
+-- Ordem única de travas em ajustar_estoque: sempre a linha do produto antes das faixas.
+-- Na versão anterior, uma saída que não cabia em nenhuma faixa ficava com as faixas tentadas
+-- travadas (o InnoDB mantém a trava das linhas lidas por um UPDATE mesmo quando a condição
+-- não é atendida) e então travava o produto no caminho lento, na ordem inversa de quem já
+-- estava no caminho lento ou em definir_faixas_estoque (produto e depois faixas): as duas
+-- transações esperavam uma pela outra. Voltar a um savepoint não resolveria: o InnoDB também
+-- não libera as travas obtidas depois do savepoint.
+-- Agora o caminho rápido com faixas escolhe a faixa por uma leitura sem trava e trava o
+-- produto em modo compartilhado antes de alterá-la; travas compartilhadas não esperam umas
+-- pelas outras, então saídas simultâneas continuam sem disputar a linha do produto. Só quando a
+-- faixa escolhida perde a disputa para outra saída entre a leitura e o UPDATE a trava do
+-- produto passa a exclusiva no caminho lento; se duas transações fizerem isso ao mesmo tempo,
+-- o InnoDB desfaz uma delas como deadlock (erro 1213), que quem chama trata como transitório.
+
+-- Ajusta o estoque total do produto pela variação informada, na transação de quem chama.
+-- Sem faixas, altera quantidade_estoque; com faixas, altera uma única faixa: sorteada nas
+-- entradas e, nas saídas, a primeira a partir de uma sorteada que tenha quantidade suficiente.
+-- Se nenhuma faixa sozinha cobrir a saída, trava o produto e todas as faixas, decide pelo
+-- estoque total e redistribui o que restar. Saídas que deixariam o estoque total negativo não
+-- são aplicadas. Trava sempre o produto antes das faixas.
+-- p_aplicado indica se o ajuste foi feito; p_estoque traz o estoque total resultante (ou o atual,
+-- se recusado) e fica NULL se o produto não existir. Com faixas, o estoque resultante não
+-- inclui ajustes ainda não confirmados de outras transações nas demais faixas.
+DROP PROCEDURE IF EXISTS ajustar_estoque;
+DELIMITER //
+CREATE PROCEDURE ajustar_estoque(
+    IN p_produto_id INT,
+    IN p_variacao INT,
+    OUT p_aplicado BOOLEAN,
+    OUT p_estoque INT
+)
+corpo: BEGIN
+    DECLARE v_faixas INT;
+    DECLARE v_inicio INT;
+    DECLARE v_faixa INT;
+    DECLARE v_base INT;
+    DECLARE v_soma INT;
+
+    SET p_aplicado = FALSE;
+    SET p_estoque = NULL;
+
+    -- Caminho rápido: decidido por leituras sem trava, trava só a linha alterada
+    SELECT faixas_estoque INTO v_faixas FROM produto WHERE id = p_produto_id;
+    IF v_faixas = 0 THEN
+        UPDATE produto
+        SET quantidade_estoque = quantidade_estoque + p_variacao
+        WHERE id = p_produto_id AND faixas_estoque = 0 AND quantidade_estoque + p_variacao >= 0;
+        SET p_aplicado = ROW_COUNT() > 0;
+    ELSEIF v_faixas > 0 THEN
+        SET v_inicio = FLOOR(RAND() * v_faixas);
+        IF p_variacao >= 0 THEN
+            SET v_faixa = v_inicio;
+        ELSE
+            SELECT faixa INTO v_faixa
+            FROM produto_estoque_faixa
+            WHERE produto_id = p_produto_id AND faixa < v_faixas AND quantidade + p_variacao >= 0
+            ORDER BY (faixa + v_faixas - v_inicio) MOD v_faixas
+            LIMIT 1;
+        END IF;
+
+        IF v_faixa IS NOT NULL THEN
+            -- Produto antes da faixa, como no caminho lento; o número de faixas pode ter mudado
+            SELECT faixas_estoque INTO v_faixas FROM produto WHERE id = p_produto_id LOCK IN SHARE MODE;
+            IF v_faixa < v_faixas THEN
+                UPDATE produto_estoque_faixa
+                SET quantidade = quantidade + p_variacao
+                WHERE produto_id = p_produto_id AND faixa = v_faixa AND quantidade + p_variacao >= 0;
+                SET p_aplicado = ROW_COUNT() > 0;
+            END IF;
+        END IF;
+    END IF;
+
+    IF p_aplicado THEN
+        SET p_estoque = estoque_produto(p_produto_id);
+        LEAVE corpo;
+    END IF;
+
+    -- Caminho lento: trava o produto e todas as faixas e decide pelo estoque total
+    SELECT quantidade_estoque, faixas_estoque INTO v_base, v_faixas
+    FROM produto WHERE id = p_produto_id FOR UPDATE;
+    IF v_base IS NULL THEN
+        LEAVE corpo;
+    END IF;
+    SELECT COALESCE(SUM(quantidade), 0) INTO v_soma
+    FROM produto_estoque_faixa WHERE produto_id = p_produto_id FOR UPDATE;
+
+    SET p_estoque = v_base + v_soma;
+    IF p_estoque + p_variacao < 0 THEN
+        LEAVE corpo;
+    END IF;
+
+    SET p_estoque = p_estoque + p_variacao;
+    IF v_faixas = 0 THEN
+        UPDATE produto SET quantidade_estoque = p_estoque WHERE id = p_produto_id;
+    ELSE
+        CALL distribuir_faixas_estoque(p_produto_id, v_faixas, p_estoque);
+    END IF;
+    SET p_aplicado = TRUE;
+END corpo //
+DELIMITER ;
@@ -0,0 +1,236 @@
+-- Reservas de estoque gravadas no banco, vistas por todos os terminais.
+-- Até aqui as reservas (ReservasEstoque) ficavam só na memória de cada processo: outro
+-- terminal, ou o reenvio do diário, registrava uma saída sem conhecê-las, e a conferência da
+-- tela de saída era feita fora da transação que gravava a saída. Agora cada reserva é uma linha
+-- de reserva_estoque com a sua expiração (relógio do servidor); reservar_estoque confere o
+-- estoque e grava a reserva com o produto travado, e registrar_movimentacao recusa a saída que
+-- deixaria o estoque abaixo das reservas ativas, na mesma transação que a grava.
+-- Ordem das travas: o produto antes das reservas, nas duas procedures.
+
+-- Reservas ativas e vencidas; as vencidas são ignoradas nas somas e excluídas na próxima
+-- reserva do produto
+CREATE TABLE IF NOT EXISTS reserva_estoque (
+    id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    produto_id INT NOT NULL,
+    quantidade INT NOT NULL,
+    criada_em DATETIME NOT NULL,
+    expira_em DATETIME NOT NULL,
+    INDEX idx_reserva_estoque_produto_expira (produto_id, expira_em),
+    FOREIGN KEY (produto_id) REFERENCES produto(id) ON DELETE CASCADE
+);
+
+-- Reserva a quantidade do produto por p_validade_s segundos, se o estoque menos as reservas
+-- ativas a cobrir. Trava o produto e as faixas como o caminho lento de ajustar_estoque:
+-- nenhuma movimentação do produto é aplicada enquanto a reserva é decidida.
+-- Retorna uma linha com o ID da reserva (id, NULL se recusada), o estoque disponível depois
+-- dela (disponivel; o atual, se recusada) e a expiração (expira_em). Produto inexistente:
+-- id e disponivel NULL.
+-- Chamada com auto-commit ativo, abre e confirma a própria transação;
+-- dentro de uma transação do cliente, participa dela e deixa a confirmação para o cliente.
+DROP PROCEDURE IF EXISTS reservar_estoque;
+DELIMITER //
+CREATE PROCEDURE reservar_estoque(
+    IN p_produto_id INT,
+    IN p_quantidade INT,
+    IN p_validade_s INT
+)
+corpo: BEGIN
+    DECLARE v_transacao_propria BOOLEAN DEFAULT (@@autocommit = 1);
+    DECLARE v_base INT;
+    DECLARE v_soma INT;
+    DECLARE v_reservado INT;
+    DECLARE v_disponivel INT;
+    DECLARE v_expira DATETIME DEFAULT NOW() + INTERVAL p_validade_s SECOND;
+
+    DECLARE EXIT HANDLER FOR SQLEXCEPTION
+    BEGIN
+        IF v_transacao_propria THEN
+            ROLLBACK;
+        END IF;
+        RESIGNAL;
+    END;
+
+    IF v_transacao_propria THEN
+        START TRANSACTION;
+    END IF;
+
+    SELECT quantidade_estoque INTO v_base FROM produto WHERE id = p_produto_id FOR UPDATE;
+    IF v_base IS NULL THEN
+        IF v_transacao_propria THEN
+            COMMIT;
+        END IF;
+        SELECT NULL AS id, NULL AS disponivel, NULL AS expira_em;
+        LEAVE corpo;
+    END IF;
+    SELECT COALESCE(SUM(quantidade), 0) INTO v_soma
+    FROM produto_estoque_faixa WHERE produto_id = p_produto_id FOR UPDATE;
+
+    DELETE FROM reserva_estoque WHERE produto_id = p_produto_id AND expira_em <= NOW();
+    SELECT COALESCE(SUM(quantidade), 0) INTO v_reservado
+    FROM reserva_estoque WHERE produto_id = p_produto_id FOR UPDATE;
+
+    SET v_disponivel = v_base + v_soma - v_reservado;
+    IF v_disponivel < p_quantidade THEN
+        IF v_transacao_propria THEN
+            COMMIT;
+        END IF;
+        SELECT NULL AS id, v_disponivel AS disponivel, NULL AS expira_em;
+        LEAVE corpo;
+    END IF;
+
+    INSERT INTO reserva_estoque (produto_id, quantidade, criada_em, expira_em)
+    VALUES (p_produto_id, p_quantidade, NOW(), v_expira);
+
+    IF v_transacao_propria THEN
+        COMMIT;
+    END IF;
+    SELECT LAST_INSERT_ID() AS id, v_disponivel - p_quantidade AS disponivel, v_expira AS expira_em;
+END corpo //
+DELIMITER ;
+
+-- Registra uma movimentação com o ID informado (alocado pela aplicação) e ajusta o estoque
+-- do produto em uma única chamada ao servidor. O tipo é o código gravado na tabela
+-- (1 = Entrada, 2 = Saída); a observação, se preenchida, vai para movimentacao_observacao.
+-- A data e hora deve vir sem frações de segundo: a chave de idempotência é única junto com
+-- ela (uma nova tentativa envia a mesma data e hora), e a procura pela chave lê uma partição.
+-- Os pontos de controle do produto posteriores à data e hora da movimentação (só existem se ela
+-- for anterior ao dia atual no servidor) recebem a variação na mesma transação.
+-- Retorna uma linha com o ID da movimentação (id), o estoque resultante (quantidade_estoque)
+-- e se a chamada repetiu uma movimentação já registrada (repetida).
+-- Saídas só baixam o estoque se houver quantidade suficiente, verificado na própria instrução
+-- UPDATE (ver ajustar_estoque), e se o estoque que resta cobrir as reservas ativas do produto
+-- (reserva_estoque), exceto p_reserva_id; se recusada, nada é gravado e a linha traz id NULL
+-- e o estoque atual do produto. Com p_reserva_id, a saída confirma a reserva, que é excluída
+-- na mesma transação.
+-- Se já existir uma movimentação com a chave de idempotência informada, nada é aplicado e
+-- a linha traz o ID original, o estoque atual e repetida = TRUE. Se outra transação registrar
+-- a mesma chave enquanto esta ajusta o estoque, o índice único recusa a inserção e o ajuste
+-- é desfeito até o savepoint.
+-- Chamada com auto-commit ativo, abre e confirma a própria transação;
+-- dentro de uma transação do cliente, participa dela e deixa a confirmação para o cliente.
+DROP PROCEDURE IF EXISTS registrar_movimentacao;
+DELIMITER //
+CREATE PROCEDURE registrar_movimentacao(
+    IN p_id BIGINT,
+    IN p_chave CHAR(36),
+    IN p_produto_id INT,
+    IN p_tipo TINYINT,
+    IN p_quantidade INT,
+    IN p_data_hora DATETIME,
+    IN p_observacao TEXT,
+    IN p_reserva_id BIGINT
+)
+corpo: BEGIN
+    DECLARE v_transacao_propria BOOLEAN DEFAULT (@@autocommit = 1);
+    DECLARE v_aplicado BOOLEAN;
+    DECLARE v_estoque INT;
+    DECLARE v_original BIGINT;
+    DECLARE v_repetida BOOLEAN DEFAULT FALSE;
+    DECLARE v_reservado INT;
+    DECLARE v_base INT;
+    DECLARE v_soma INT;
+
+    -- Chave de idempotência duplicada na inserção
+    DECLARE CONTINUE HANDLER FOR 1062 SET v_repetida = TRUE;
+
+    DECLARE EXIT HANDLER FOR SQLEXCEPTION
+    BEGIN
+        IF v_transacao_propria THEN
+            ROLLBACK;
+        END IF;
+        RESIGNAL;
+    END;
+
+    -- Repetição de uma movimentação já registrada: devolve o resultado original
+    IF p_chave IS NOT NULL THEN
+        SELECT id INTO v_original FROM movimentacao
+        WHERE chave_idempotencia = p_chave AND data_hora = p_data_hora;
+        IF v_original IS NOT NULL THEN
+            SELECT v_original AS id, estoque_produto(p_produto_id) AS quantidade_estoque, TRUE AS repetida;
+            LEAVE corpo;
+        END IF;
+    END IF;
+
+    IF v_transacao_propria THEN
+        START TRANSACTION;
+    END IF;
+    SAVEPOINT registrar_movimentacao;
+
+    -- O estoque é ajustado primeiro: uma saída recusada não chega a inserir a movimentação
+    CALL ajustar_estoque(p_produto_id, IF(p_tipo = 1, p_quantidade, -p_quantidade),
+                         v_aplicado, v_estoque);
+
+    IF NOT v_aplicado THEN
+        IF v_transacao_propria THEN
+            COMMIT;
+        END IF;
+        SELECT NULL AS id, v_estoque AS quantidade_estoque, FALSE AS repetida;
+        LEAVE corpo;
+    END IF;
+
+    -- Saída com reservas ativas: o estoque que resta deve cobri-las. A leitura trava as reservas
+    -- do produto até o fim da transação (uma nova reserva espera), e o estoque é relido com
+    -- trava para incluir os ajustes já feitos por outras saídas nas demais faixas
+    IF p_tipo = 2 THEN
+        SELECT COALESCE(SUM(quantidade), 0) INTO v_reservado
+        FROM reserva_estoque
+        WHERE produto_id = p_produto_id AND expira_em > NOW() AND id <> IFNULL(p_reserva_id, 0)
+        LOCK IN SHARE MODE;
+        IF v_reservado > 0 THEN
+            SELECT quantidade_estoque INTO v_base FROM produto WHERE id = p_produto_id LOCK IN SHARE MODE;
+            SELECT COALESCE(SUM(quantidade), 0) INTO v_soma
+            FROM produto_estoque_faixa WHERE produto_id = p_produto_id LOCK IN SHARE MODE;
+            SET v_estoque = v_base + v_soma;
+            IF v_estoque < v_reservado THEN
+                ROLLBACK TO SAVEPOINT registrar_movimentacao;
+                IF v_transacao_propria THEN
+                    COMMIT;
+                END IF;
+                SELECT NULL AS id, v_estoque + p_quantidade AS quantidade_estoque, FALSE AS repetida;
+                LEAVE corpo;
+            END IF;
+        END IF;
+    END IF;
+
+    INSERT INTO movimentacao (id, chave_idempotencia, produto_id, tipo, quantidade, data_hora)
+    VALUES (p_id, p_chave, p_produto_id, p_tipo, p_quantidade, p_data_hora);
+
+    IF v_repetida THEN
+        -- Registrada por outra transação enquanto esta ajustava o estoque
+        ROLLBACK TO SAVEPOINT registrar_movimentacao;
+        SELECT id INTO v_original FROM movimentacao
+        WHERE chave_idempotencia = p_chave AND data_hora = p_data_hora LOCK IN SHARE MODE;
+        IF v_original IS NULL THEN
+            -- A duplicidade foi no ID, e não na chave
+            SIGNAL SQLSTATE '23000' SET MESSAGE_TEXT = 'ID de movimentação duplicado', MYSQL_ERRNO = 1062;
+        END IF;
+        IF v_transacao_propria THEN
+            COMMIT;
+        END IF;
+        SELECT v_original AS id, estoque_produto(p_produto_id) AS quantidade_estoque, TRUE AS repetida;
+        LEAVE corpo;
+    END IF;
+
+    -- Só movimentações retroativas têm ponto posterior; as do dia, o caso comum, não travam nada
+    IF p_data_hora < CURRENT_DATE THEN
+        UPDATE estoque_ponto_controle
+        SET quantidade = quantidade + IF(p_tipo = 1, p_quantidade, -p_quantidade)
+        WHERE produto_id = p_produto_id AND data_hora > p_data_hora;
+    END IF;
+
+    IF p_reserva_id IS NOT NULL THEN
+        DELETE FROM reserva_estoque WHERE id = p_reserva_id;
+    END IF;
+
+    IF p_observacao IS NOT NULL AND p_observacao <> '' THEN
+        INSERT INTO movimentacao_observacao (movimentacao_id, data_hora, observacao)
+        VALUES (p_id, p_data_hora, p_observacao);
+    END IF;
+
+    IF v_transacao_propria THEN
+        COMMIT;
+    END IF;
+
+    SELECT p_id AS id, v_estoque AS quantidade_estoque, FALSE AS repetida;
+END corpo //
+DELIMITER ;
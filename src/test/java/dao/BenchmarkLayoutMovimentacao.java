@@ -0,0 +1,261 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Compara o formato anterior da tabela {@code movimentacao} (ID INT, tipo ENUM e observação TEXT
+ * na linha) com o formato compacto da migração 5 (ID BIGINT, tipo TINYINT e observação em
+ * {@code movimentacao_observacao}): tamanho das linhas e dos índices e tempo de varredura.
+ *
+ * Cria tabelas próprias ({@code benchmark_movimentacao_*}), com os mesmos índices da tabela real
+ * e sem chaves estrangeiras, preenche as duas com os mesmos dados gerados e as exclui ao final.
+ * Requer o banco configurado no {@link ConnectionFactory}; a carga de milhões de linhas leva
+ * alguns minutos.
+ *
+ * Uso: {@code BenchmarkLayoutMovimentacao [linhas] [percentualComObservacao] [produtos]}
+ * (padrão: 2000000 linhas, 30% com observação, 500 produtos)
+ */
+public class BenchmarkLayoutMovimentacao {
+
+    private static final int TAMANHO_LOTE = 1000;
+    private static final int REPETICOES = 5;
+    private static final int CONSULTAS_POR_PRODUTO = 200;
+
+    private static final String ANTERIOR = "benchmark_movimentacao_anterior";
+    private static final String COMPACTA = "benchmark_movimentacao_compacta";
+    private static final String OBSERVACAO = "benchmark_movimentacao_observacao";
+
+    public static void main(String[] args) throws SQLException {
+        int linhas = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        int percentualObservacao = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+        int produtos = args.length > 2 ? Integer.parseInt(args[2]) : 500;
+
+        ConnectionFactory connectionFactory = ConnectionFactory.getInstance();
+        try (Connection conn = connectionFactory.getConnection()) {
+            try {
+                criarTabelas(conn);
+                long inicio = System.nanoTime();
+                preencher(conn, linhas, percentualObservacao, produtos);
+                System.out.printf("Carga de %d linhas em cada formato: %.1f s%n",
+                        linhas, (System.nanoTime() - inicio) / 1_000_000_000.0);
+
+                executar(conn, "ANALYZE TABLE " + ANTERIOR + ", " + COMPACTA + ", " + OBSERVACAO);
+                System.out.println();
+                imprimirTamanho(conn, ANTERIOR);
+                imprimirTamanho(conn, COMPACTA);
+                imprimirTamanho(conn, OBSERVACAO);
+
+                System.out.println();
+                comparar(conn, "Varredura completa (saldo de todas as movimentações)",
+                        "SELECT SUM(IF(tipo = 'Entrada', quantidade, -quantidade)) FROM " + ANTERIOR,
+                        "SELECT SUM(IF(tipo = 1, quantidade, -quantidade)) FROM " + COMPACTA, 0);
+                comparar(conn, "Varredura por tipo (quantidade total de saídas)",
+                        "SELECT SUM(quantidade) FROM " + ANTERIOR + " IGNORE INDEX (idx_tipo_data) "
+                                + "WHERE tipo = 'Saída'",
+                        "SELECT SUM(quantidade) FROM " + COMPACTA + " IGNORE INDEX (idx_tipo_data) "
+                                + "WHERE tipo = 2", 0);
+                comparar(conn, "Página de 50 por produto, com observação",
+                        "SELECT id, tipo, quantidade, data_hora, observacao FROM " + ANTERIOR + " "
+                                + "WHERE produto_id = ? ORDER BY data_hora DESC, id DESC LIMIT 50",
+                        "SELECT m.id, ELT(m.tipo, 'Entrada', 'Saída'), m.quantidade, m.data_hora, "
+                                + "COALESCE(o.observacao, '') FROM " + COMPACTA + " m "
+                                + "LEFT JOIN " + OBSERVACAO + " o ON o.movimentacao_id = m.id "
+                                + "WHERE m.produto_id = ? ORDER BY m.data_hora DESC, m.id DESC LIMIT 50",
+                        produtos);
+            } finally {
+                executar(conn, "DROP TABLE IF EXISTS " + ANTERIOR + ", " + COMPACTA + ", " + OBSERVACAO);
+            }
+        }
+    }
+
+    private static void criarTabelas(Connection conn) throws SQLException {
+        executar(conn, "DROP TABLE IF EXISTS " + ANTERIOR + ", " + COMPACTA + ", " + OBSERVACAO);
+        executar(conn, "CREATE TABLE " + ANTERIOR + " ("
+                + "id INT PRIMARY KEY, "
+                + "produto_id INT NOT NULL, "
+                + "tipo ENUM('Entrada', 'Saída') NOT NULL, "
+                + "quantidade INT NOT NULL, "
+                + "data_hora DATETIME NOT NULL, "
+                + "observacao TEXT, "
+                + "documento_id INT NULL, "
+                + "chave_idempotencia CHAR(36) CHARACTER SET ascii NULL, "
+                + "UNIQUE KEY uk_chave (chave_idempotencia), "
+                + "INDEX idx_produto_data (produto_id, data_hora), "
+                + "INDEX idx_tipo_data (tipo, data_hora), "
+                + "INDEX idx_documento (documento_id))");
+        executar(conn, "CREATE TABLE " + COMPACTA + " ("
+                + "id BIGINT PRIMARY KEY, "
+                + "produto_id INT NOT NULL, "
+                + "tipo TINYINT UNSIGNED NOT NULL, "
+                + "quantidade INT NOT NULL, "
+                + "data_hora DATETIME NOT NULL, "
+                + "documento_id INT NULL, "
+                + "chave_idempotencia CHAR(36) CHARACTER SET ascii NULL, "
+                + "UNIQUE KEY uk_chave (chave_idempotencia), "
+                + "INDEX idx_produto_data (produto_id, data_hora), "
+                + "INDEX idx_tipo_data (tipo, data_hora), "
+                + "INDEX idx_documento (documento_id))");
+        executar(conn, "CREATE TABLE " + OBSERVACAO + " ("
+                + "movimentacao_id BIGINT PRIMARY KEY, "
+                + "observacao TEXT NOT NULL)");
+    }
+
+    /**
+     * Grava as mesmas movimentações geradas nos dois formatos, em lotes confirmados a cada
+     * {@value #TAMANHO_LOTE} linhas. As observações imitam as digitadas nas telas (até 120 caracteres).
+     */
+    private static void preencher(Connection conn, int linhas, int percentualObservacao, int produtos)
+            throws SQLException {
+        Random aleatorio = new Random(42);
+        LocalDateTime dataHora = LocalDateTime.now().minusYears(3);
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try (PreparedStatement anterior = conn.prepareStatement("INSERT INTO " + ANTERIOR
+                     + " (id, produto_id, tipo, quantidade, data_hora, observacao, chave_idempotencia) "
+                     + "VALUES (?, ?, ?, ?, ?, ?, ?)");
+             PreparedStatement compacta = conn.prepareStatement("INSERT INTO " + COMPACTA
+                     + " (id, produto_id, tipo, quantidade, data_hora, chave_idempotencia) "
+                     + "VALUES (?, ?, ?, ?, ?, ?)");
+             PreparedStatement observacao = conn.prepareStatement("INSERT INTO " + OBSERVACAO
+                     + " (movimentacao_id, observacao) VALUES (?, ?)")) {
+            for (int id = 1; id <= linhas; id++) {
+                int produtoId = 1 + aleatorio.nextInt(produtos);
+                boolean entrada = aleatorio.nextInt(3) == 0;
+                int quantidade = 1 + aleatorio.nextInt(20);
+                dataHora = dataHora.plusSeconds(aleatorio.nextInt(90));
+                Timestamp momento = Timestamp.valueOf(dataHora);
+                String texto = aleatorio.nextInt(100) < percentualObservacao ? gerarObservacao(aleatorio) : null;
+                String chave = UUID.randomUUID().toString();
+
+                anterior.setInt(1, id);
+                anterior.setInt(2, produtoId);
+                anterior.setString(3, entrada ? "Entrada" : "Saída");
+                anterior.setInt(4, quantidade);
+                anterior.setTimestamp(5, momento);
+                anterior.setString(6, texto);
+                anterior.setString(7, chave);
+                anterior.addBatch();
+
+                compacta.setLong(1, id);
+                compacta.setInt(2, produtoId);
+                compacta.setInt(3, entrada ? MovimentacaoDAO.TIPO_ENTRADA : MovimentacaoDAO.TIPO_SAIDA);
+                compacta.setInt(4, quantidade);
+                compacta.setTimestamp(5, momento);
+                compacta.setString(6, chave);
+                compacta.addBatch();
+
+                if (texto != null) {
+                    observacao.setLong(1, id);
+                    observacao.setString(2, texto);
+                    observacao.addBatch();
+                }
+
+                if (id % TAMANHO_LOTE == 0 || id == linhas) {
+                    anterior.executeBatch();
+                    compacta.executeBatch();
+                    observacao.executeBatch();
+                    conn.commit();
+                }
+            }
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+
+    private static String gerarObservacao(Random aleatorio) {
+        String[] palavras = {"Nota", "fiscal", "recebida", "conferida", "pedido", "cliente", "devolução",
+                "avaria", "lote", "fornecedor", "transferência", "inventário", "ajuste"};
+        StringBuilder texto = new StringBuilder();
+        int tamanho = 20 + aleatorio.nextInt(100);
+        while (texto.length() < tamanho) {
+            texto.append(palavras[aleatorio.nextInt(palavras.length)]).append(' ');
+        }
+        return texto.substring(0, tamanho);
+    }
+
+    private static void imprimirTamanho(Connection conn, String tabela) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT TABLE_ROWS, AVG_ROW_LENGTH, DATA_LENGTH, "
+                + "INDEX_LENGTH FROM information_schema.TABLES WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?")) {
+            stmt.setString(1, tabela);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    System.out.printf("%-36s ~%10d linhas  %5d bytes/linha  dados %8.1f MB  índices %8.1f MB%n",
+                            tabela, rs.getLong(1), rs.getLong(2),
+                            rs.getLong(3) / 1048576.0, rs.getLong(4) / 1048576.0);
+                }
+            }
+        }
+    }
+
+    /**
+     * Executa as duas consultas {@value #REPETICOES} vezes, alternando os formatos, e imprime a mediana.
+     * Com {@code produtos > 0}, cada execução consulta {@value #CONSULTAS_POR_PRODUTO} produtos sorteados
+     * (os mesmos para os dois formatos).
+     */
+    private static void comparar(Connection conn, String descricao, String sqlAnterior, String sqlCompacta,
+                                 int produtos) throws SQLException {
+        long[] anterior = new long[REPETICOES];
+        long[] compacta = new long[REPETICOES];
+        // A primeira execução de cada formato só aquece o buffer pool
+        medir(conn, sqlAnterior, produtos, 1);
+        medir(conn, sqlCompacta, produtos, 1);
+        for (int i = 0; i < REPETICOES; i++) {
+            anterior[i] = medir(conn, sqlAnterior, produtos, i);
+            compacta[i] = medir(conn, sqlCompacta, produtos, i);
+        }
+        long medianaAnterior = mediana(anterior);
+        long medianaCompacta = mediana(compacta);
+        System.out.println(descricao);
+        System.out.printf("  anterior: %9.1f ms   compacta: %9.1f ms   ganho: %.2fx%n",
+                medianaAnterior / 1_000_000.0, medianaCompacta / 1_000_000.0,
+                (double) medianaAnterior / medianaCompacta);
+    }
+
+    private static long medir(Connection conn, String sql, int produtos, int semente) throws SQLException {
+        long inicio = System.nanoTime();
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            if (produtos == 0) {
+                consumir(stmt);
+            } else {
+                Random aleatorio = new Random(semente);
+                for (int i = 0; i < CONSULTAS_POR_PRODUTO; i++) {
+                    stmt.setInt(1, 1 + aleatorio.nextInt(produtos));
+                    consumir(stmt);
+                }
+            }
+        }
+        return System.nanoTime() - inicio;
+    }
+
+    private static void consumir(PreparedStatement stmt) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery()) {
+            int colunas = rs.getMetaData().getColumnCount();
+            while (rs.next()) {
+                for (int i = 1; i <= colunas; i++) {
+                    rs.getObject(i);
+                }
+            }
+        }
+    }
+
+    private static long mediana(long[] tempos) {
+        long[] ordenados = tempos.clone();
+        Arrays.sort(ordenados);
+        return ordenados[ordenados.length / 2];
+    }
+
+    private static void executar(Connection conn, String sql) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import model.Movimentacao;
+import model.Produto;
+
+/**
+ * Compara o registro de movimentações pelo caminho anterior (INSERT,
+ * UPDATE do estoque e commit em chamadas separadas) com a procedure {@code registrar_movimentacao}
+ * usada por {@link MovimentacaoDAO#inserir(Movimentacao)} e com a gravação em grupo do
+ * {@link GravadorMovimentacoes} (várias movimentações por transação).
+ *
+ * Requer o banco configurado no {@link ConnectionFactory} com a procedure criada (db/estoque.sql).
+ * As movimentações alternam entrada e saída de uma unidade, deixando o estoque como estava,
+ * e são excluídas ao final.
+ *
+ * Uso: {@code BenchmarkMovimentacao [quantidade] [idProduto]} (padrão: 2000 movimentações, produto 1)
+ */
+public class BenchmarkMovimentacao {
+
+    private static final int AQUECIMENTO = 200;
+    private static final String OBSERVACAO = "benchmark-movimentacao";
+
+    public static void main(String[] args) throws SQLException {
+        int quantidade = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int produtoId = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+        // Quantidade par: as entradas e saídas se anulam
+        quantidade += quantidade % 2;
+
+        ConnectionFactory connectionFactory = ConnectionFactory.getInstance();
+        MovimentacaoDAO dao = new MovimentacaoDAO();
+
+        try {
+            // Aquecimento: prepara os statements nas conexões e aquece o JIT
+            executarCaminhoAnterior(connectionFactory, produtoId, AQUECIMENTO);
+            executarProcedure(dao, produtoId, AQUECIMENTO);
+            executarEmGrupo(produtoId, AQUECIMENTO);
+
+            long anterior = executarCaminhoAnterior(connectionFactory, produtoId, quantidade);
+            long procedure = executarProcedure(dao, produtoId, quantidade);
+            long emGrupo = executarEmGrupo(produtoId, quantidade);
+
+            imprimir("Caminho anterior (5+ idas ao servidor)", quantidade, anterior);
+            imprimir("Procedure registrar_movimentacao (1 ida)", quantidade, procedure);
+            imprimir("Gravação em grupo (1 commit por grupo)", quantidade, emGrupo);
+            System.out.printf("Ganho da procedure: %.2fx%n", (double) anterior / procedure);
+            System.out.printf("Ganho da gravação em grupo: %.2fx%n", (double) anterior / emGrupo);
+        } finally {
+            excluirMovimentacoes(connectionFactory);
+        }
+        System.out.println(connectionFactory.getEstatisticas());
+    }
+
+    /**
+     * Registra as movimentações como {@code MovimentacaoDAO.inserir} fazia antes da procedure
+     * (INSERT, UPDATE do estoque e commit em chamadas separadas).
+     *
+     * @return O tempo total em nanossegundos
+     */
+    private static long executarCaminhoAnterior(ConnectionFactory connectionFactory, int produtoId, int quantidade)
+            throws SQLException {
+        long inicio = System.nanoTime();
+        for (int i = 0; i < quantidade; i++) {
+            Movimentacao movimentacao = criarMovimentacao(produtoId, i);
+            try (Connection conn = connectionFactory.getConnection()) {
+                conn.setAutoCommit(false);
+                try (PreparedStatement stmt = connectionFactory.preparar(conn, ConsultaSql.MOVIMENTACAO_INSERIR)) {
+                    long id = AlocadorIds.MOVIMENTACAO.proximoLongo();
+                    stmt.setLong(1, id);
+                    stmt.setInt(2, produtoId);
+                    stmt.setInt(3, MovimentacaoDAO.codigoTipo(movimentacao.getTipo()));
+                    stmt.setInt(4, movimentacao.getQuantidade());
+                    stmt.setTimestamp(5, MovimentacaoDAO.dataHoraBanco(movimentacao.getDataHora()));
+                    stmt.setNull(6, Types.INTEGER);
+                    stmt.setString(7, UUID.randomUUID().toString());
+                    stmt.executeUpdate();
+                    try (PreparedStatement observacao = connectionFactory.preparar(conn,
+                            ConsultaSql.MOVIMENTACAO_INSERIR_OBSERVACAO)) {
+                        observacao.setLong(1, id);
+                        observacao.setTimestamp(2, MovimentacaoDAO.dataHoraBanco(movimentacao.getDataHora()));
+                        observacao.setString(3, movimentacao.getObservacao());
+                        observacao.executeUpdate();
+                    }
+                }
+                try (PreparedStatement stmt = connectionFactory.preparar(conn,
+                        ConsultaSql.MOVIMENTACAO_AJUSTAR_ESTOQUE)) {
+                    stmt.setInt(1, movimentacao.isEntrada() ? 1 : -1);
+                    stmt.setInt(2, produtoId);
+                    stmt.setInt(3, movimentacao.isEntrada() ? 1 : -1);
+                    stmt.executeUpdate();
+                }
+                conn.commit();
+                conn.setAutoCommit(true);
+            }
+        }
+        return System.nanoTime() - inicio;
+    }
+
+    /**
+     * Registra as movimentações pela DAO, que usa a procedure.
+     *
+     * @return O tempo total em nanossegundos
+     */
+    private static long executarProcedure(MovimentacaoDAO dao, int produtoId, int quantidade) throws SQLException {
+        long inicio = System.nanoTime();
+        for (int i = 0; i < quantidade; i++) {
+            if (dao.inserir(criarMovimentacao(produtoId, i)) < 0) {
+                throw new SQLException("Falha ao registrar movimentação pela procedure");
+            }
+        }
+        return System.nanoTime() - inicio;
+    }
+
+    /**
+     * Enfileira todas as movimentações no {@link GravadorMovimentacoes} e aguarda os resultados.
+     *
+     * @return O tempo total em nanossegundos
+     */
+    private static long executarEmGrupo(int produtoId, int quantidade) {
+        GravadorMovimentacoes gravador = new GravadorMovimentacoes();
+        try {
+            long inicio = System.nanoTime();
+            List<CompletableFuture<Long>> futuros = new ArrayList<>(quantidade);
+            for (int i = 0; i < quantidade; i++) {
+                futuros.add(gravador.enfileirar(criarMovimentacao(produtoId, i)));
+            }
+            CompletableFuture.allOf(futuros.toArray(new CompletableFuture<?>[0])).join();
+            long tempo = System.nanoTime() - inicio;
+            System.out.println("Grupos confirmados: " + gravador.getGruposConfirmados());
+            return tempo;
+        } finally {
+            gravador.encerrar();
+        }
+    }
+
+    private static Movimentacao criarMovimentacao(int produtoId, int indice) {
+        Produto produto = new Produto();
+        produto.setId(produtoId);
+
+        Movimentacao movimentacao = new Movimentacao();
+        movimentacao.setProduto(produto);
+        movimentacao.setTipo(indice % 2 == 0 ? "Entrada" : "Saída");
+        movimentacao.setQuantidade(1);
+        movimentacao.setDataHora(LocalDateTime.now());
+        movimentacao.setObservacao(OBSERVACAO);
+        return movimentacao;
+    }
+
+    private static void excluirMovimentacoes(ConnectionFactory connectionFactory) throws SQLException {
+        try (Connection conn = connectionFactory.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("DELETE m, o FROM movimentacao m "
+                     + "JOIN movimentacao_observacao o ON o.movimentacao_id = m.id AND o.data_hora = m.data_hora "
+                     + "WHERE o.observacao = ?")) {
+            stmt.setString(1, OBSERVACAO);
+            System.out.println("Movimentações de teste excluídas: " + stmt.executeUpdate());
+        }
+    }
+
+    private static void imprimir(String caminho, int quantidade, long nanos) {
+        double segundos = nanos / 1_000_000_000.0;
+        System.out.printf("%-42s %8.0f movimentações/s (%.3f ms por movimentação)%n",
+                caminho, quantidade / segundos, nanos / 1_000_000.0 / quantidade);
+    }
+}